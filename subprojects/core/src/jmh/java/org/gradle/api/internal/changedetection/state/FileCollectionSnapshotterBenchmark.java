@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.file.TestFiles;
+import org.gradle.api.internal.file.collections.DirectoryFileTree;
+import org.gradle.api.internal.file.collections.FileTreeAdapter;
+import org.gradle.api.internal.hash.FileHashingStrategy;
+import org.gradle.cache.internal.MapBackedInMemoryStore;
+import org.gradle.util.ChangeListener;
+import org.gradle.util.GFileUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures snapshotting an unchanged tree of 10000 files whose hashes are already cached, which is the cost of an up-to-date check, and comparing two snapshots.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FileCollectionSnapshotterBenchmark {
+    private static final int DIRECTORIES = 100;
+    private static final int FILES_PER_DIRECTORY = 100;
+
+    @Param({"false", "true"})
+    String compactSnapshots;
+
+    private File root;
+    private FileTreeAdapter tree;
+    private CachingTreeVisitor treeVisitor;
+    private DefaultFileCollectionSnapshotter snapshotter;
+    private FileCollectionSnapshot previous;
+
+    @Setup(Level.Trial)
+    public void createTree() throws IOException {
+        root = File.createTempFile("snapshotter", "");
+        root.delete();
+        for (int i = 0; i < DIRECTORIES; i++) {
+            File dir = new File(root, "dir" + i);
+            dir.mkdirs();
+            for (int j = 0; j < FILES_PER_DIRECTORY; j++) {
+                GFileUtils.writeFile("content " + j, new File(dir, "file" + j + ".txt"));
+            }
+        }
+        tree = new FileTreeAdapter(new DirectoryFileTree(root));
+
+        System.setProperty(AbstractFileCollectionSnapshotter.COMPACT_SNAPSHOTS_PROPERTY, compactSnapshots);
+        InMemoryCacheAccess cacheAccess = new InMemoryCacheAccess();
+        StringInterner stringInterner = new StringInterner();
+        treeVisitor = new CachingTreeVisitor();
+        snapshotter = new DefaultFileCollectionSnapshotter(new CachingFileSnapshotter(FileHashingStrategy.MD5, cacheAccess, stringInterner), cacheAccess, stringInterner, TestFiles.resolver(), treeVisitor);
+        previous = snapshotter.snapshot(tree, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTree() {
+        System.clearProperty(AbstractFileCollectionSnapshotter.COMPACT_SNAPSHOTS_PROPERTY);
+        GFileUtils.deleteQuietly(root);
+    }
+
+    @Benchmark
+    public FileCollectionSnapshot snapshot() {
+        treeVisitor.clearCache();
+        return snapshotter.snapshot(tree, true);
+    }
+
+    @Benchmark
+    public void snapshotAndCompare(final Blackhole blackhole) {
+        treeVisitor.clearCache();
+        FileCollectionSnapshot current = snapshotter.snapshot(tree, true);
+        FileCollectionSnapshot.ChangeIterator<String> changes = current.iterateContentChangesSince(previous, Collections.<FileCollectionSnapshot.ChangeFilter>emptySet());
+        ChangeListener<String> listener = new ChangeListener<String>() {
+            @Override
+            public void added(String element) {
+                blackhole.consume(element);
+            }
+
+            @Override
+            public void removed(String element) {
+                blackhole.consume(element);
+            }
+
+            @Override
+            public void changed(String element) {
+                blackhole.consume(element);
+            }
+        };
+        while (changes.next(listener)) {
+            // Keep going
+        }
+    }
+
+    private static class InMemoryCacheAccess extends MapBackedInMemoryStore implements TaskArtifactStateCacheAccess {
+    }
+}
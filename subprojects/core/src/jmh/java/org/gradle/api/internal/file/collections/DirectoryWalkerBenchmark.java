@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.collections;
+
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
+import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.file.TestFiles;
+import org.gradle.api.internal.file.collections.jdk7.Jdk7DirectoryWalker;
+import org.gradle.api.specs.Specs;
+import org.gradle.util.GFileUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Compares the {@link DirectoryWalker} implementations walking a tree of 10000 files, reading the size and timestamp of each file as the snapshotter does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DirectoryWalkerBenchmark {
+    private static final int DIRECTORIES = 20;
+    private static final int FILES_PER_DIRECTORY = 25;
+
+    @Param({"default", "jdk7"})
+    String walkerType;
+
+    private File root;
+    private DirectoryWalker walker;
+
+    @Setup(Level.Trial)
+    public void createTree() throws IOException {
+        root = File.createTempFile("walker", "");
+        root.delete();
+        for (int i = 0; i < DIRECTORIES; i++) {
+            for (int j = 0; j < DIRECTORIES; j++) {
+                File dir = new File(root, "dir" + i + "/sub" + j);
+                dir.mkdirs();
+                for (int k = 0; k < FILES_PER_DIRECTORY; k++) {
+                    GFileUtils.writeFile("content " + k, new File(dir, "file" + k + ".txt"));
+                }
+            }
+        }
+        walker = walkerType.equals("jdk7") ? new Jdk7DirectoryWalker(TestFiles.fileSystem()) : new DefaultDirectoryWalker(TestFiles.fileSystem());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTree() {
+        GFileUtils.deleteQuietly(root);
+    }
+
+    @Benchmark
+    public void walk(final Blackhole blackhole) {
+        walker.walkDir(root, new RelativePath(false), new FileVisitor() {
+            @Override
+            public void visitDir(FileVisitDetails dirDetails) {
+                blackhole.consume(dirDetails.getRelativePath());
+            }
+
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                blackhole.consume(fileDetails.getRelativePath());
+                blackhole.consume(fileDetails.getSize());
+                blackhole.consume(fileDetails.getLastModified());
+            }
+        }, Specs.satisfyAll(), new AtomicBoolean(), false);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.tasks.util;
+
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.file.DefaultFileTreeElement;
+import org.gradle.api.specs.Spec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures matching source file paths against a typical set of include and exclude patterns, and creating the spec for the patterns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PatternSetBenchmark {
+    private static final int PATHS = 1000;
+
+    private FileTreeElement[] elements;
+    private Spec<FileTreeElement> spec;
+
+    @Setup
+    public void createPatterns() {
+        elements = new FileTreeElement[PATHS];
+        for (int i = 0; i < PATHS; i++) {
+            String path = "org/gradle/package" + (i % 50) + (i % 7 == 0 ? "/internal" : "") + "/Class" + i + (i % 3 == 0 ? "Test.java" : i % 3 == 1 ? ".java" : ".groovy");
+            elements[i] = new DefaultFileTreeElement(new File(path), RelativePath.parse(true, path), null, null);
+        }
+        spec = createPatternSet().getAsSpec();
+    }
+
+    private static PatternSet createPatternSet() {
+        PatternSet patternSet = new PatternSet();
+        patternSet.include("**/*.java", "**/*.groovy");
+        patternSet.exclude("**/internal/**", "**/*Test.java");
+        return patternSet;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATHS)
+    public void match(Blackhole blackhole) {
+        for (FileTreeElement element : elements) {
+            blackhole.consume(spec.isSatisfiedBy(element));
+        }
+    }
+
+    @Benchmark
+    public Spec<FileTreeElement> createSpec() {
+        return createPatternSet().getAsSpec();
+    }
+}
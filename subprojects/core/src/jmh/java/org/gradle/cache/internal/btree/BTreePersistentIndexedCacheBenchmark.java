@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.Serializer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the block store implementations of {@link BTreePersistentIndexedCache} for read-heavy and write-heavy workloads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BTreePersistentIndexedCacheBenchmark {
+    private static final int ENTRIES = 10000;
+
+    @Param({"file", "mapped"})
+    String blockStore;
+
+    private final Serializer<String> keySerializer = BaseSerializerFactory.STRING_SERIALIZER;
+    private final Serializer<byte[]> valueSerializer = BaseSerializerFactory.BYTE_ARRAY_SERIALIZER;
+    private final Random random = new Random(42);
+    private final byte[] value = new byte[256];
+    private File cacheFile;
+    private BTreePersistentIndexedCache<String, byte[]> cache;
+
+    @Setup(Level.Iteration)
+    public void createCache() throws IOException {
+        cacheFile = File.createTempFile("btree", ".bin");
+        cacheFile.delete();
+        BlockStore store = blockStore.equals("mapped") ? new MappedFileBlockStore(cacheFile) : new FileBackedBlockStore(cacheFile);
+        cache = new BTreePersistentIndexedCache<String, byte[]>(cacheFile, keySerializer, valueSerializer, (short) 512, 512, store);
+        random.nextBytes(value);
+        for (int i = 0; i < ENTRIES; i++) {
+            cache.put(key(i), value);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeCache() {
+        cache.close();
+        cacheFile.delete();
+    }
+
+    @Benchmark
+    public void get(Blackhole blackhole) {
+        blackhole.consume(cache.get(key(random.nextInt(ENTRIES))));
+    }
+
+    @Benchmark
+    public void put() {
+        cache.put(key(random.nextInt(ENTRIES)), value);
+    }
+
+    /**
+     * Nine reads for every write.
+     */
+    @Benchmark
+    public void mixed(Blackhole blackhole) {
+        int next = random.nextInt(10 * ENTRIES);
+        if (next < ENTRIES) {
+            cache.put(key(next), value);
+        } else {
+            blackhole.consume(cache.get(key(next % ENTRIES)));
+        }
+    }
+
+    private static String key(int index) {
+        return "key-" + index;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.initialization.DefaultBuildCancellationToken;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.gradle.util.GFileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building an execution plan for 1000 tasks and dispatching the tasks from a single worker, for a long chain of tasks
+ * and for layers of tasks that each depend on several tasks of the previous layer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TaskExecutionPlanBenchmark {
+    private static final int TASKS = 1000;
+    private static final int TASKS_PER_LAYER = 50;
+    private static final int DEPENDENCIES_PER_TASK = 3;
+
+    @Param({"chain", "layered"})
+    String graphShape;
+
+    private File projectDir;
+    private final List<Task> tasks = new ArrayList<Task>();
+
+    @Setup(Level.Trial)
+    public void createTasks() throws IOException {
+        projectDir = File.createTempFile("plan", "");
+        projectDir.delete();
+        Project project = ProjectBuilder.builder().withProjectDir(projectDir).build();
+        for (int i = 0; i < TASKS; i++) {
+            Task task = project.getTasks().create("task" + i);
+            if (graphShape.equals("chain")) {
+                if (i > 0) {
+                    task.dependsOn(tasks.get(i - 1));
+                }
+            } else {
+                int layerStart = (i / TASKS_PER_LAYER - 1) * TASKS_PER_LAYER;
+                for (int j = 0; layerStart >= 0 && j < DEPENDENCIES_PER_TASK; j++) {
+                    task.dependsOn(tasks.get(layerStart + (i + j) % TASKS_PER_LAYER));
+                }
+            }
+            tasks.add(task);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteProject() {
+        GFileUtils.deleteQuietly(projectDir);
+    }
+
+    @Benchmark
+    public DefaultTaskExecutionPlan plan() {
+        DefaultTaskExecutionPlan executionPlan = new DefaultTaskExecutionPlan(new DefaultBuildCancellationToken());
+        executionPlan.addToTaskGraph(tasks);
+        executionPlan.determineExecutionPlan();
+        return executionPlan;
+    }
+
+    @Benchmark
+    public DefaultTaskExecutionPlan planAndDispatch() {
+        DefaultTaskExecutionPlan executionPlan = plan();
+        TaskInfo taskInfo;
+        while ((taskInfo = executionPlan.getTaskToExecute()) != null) {
+            executionPlan.taskComplete(taskInfo);
+        }
+        executionPlan.awaitCompletion();
+        return executionPlan;
+    }
+}
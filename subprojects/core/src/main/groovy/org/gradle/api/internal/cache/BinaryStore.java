@@ -25,6 +25,11 @@ import java.io.IOException;
 public interface BinaryStore {
     void write(WriteAction write);
 
+    /**
+     * Returns the position at which the next write starts, relative to the start of the data that will be returned by the next call to {@link #done()}.
+     */
+    int getWritePosition();
+
     //done writing data, release any resources
     BinaryData done();
 
@@ -38,5 +43,11 @@ public interface BinaryStore {
 
     interface BinaryData extends Closeable {
         <T> T read(ReadAction<T> readAction);
+
+        /**
+         * Reads the data starting at the given position, as returned by {@link BinaryStore#getWritePosition()}. Does not affect where the
+         * next call to {@link #read(ReadAction)} continues reading from, and does not need to be followed by a call to {@link #close()}.
+         */
+        <T> T read(int position, ReadAction<T> readAction);
     }
 }
@@ -15,7 +15,9 @@
  */
 package org.gradle.api.internal.changedetection;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.TaskExecutionHistory;
+import org.gradle.api.internal.tasks.cache.TaskCacheKey;
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 
 import java.util.Collection;
@@ -33,6 +35,14 @@ public interface TaskArtifactState {
 
     IncrementalTaskInputs getInputChanges();
 
+    /**
+     * Calculates the key to use for storing the outputs of the task in the task output cache, based on the current inputs of the task.
+     *
+     * @return the cache key, or null if the outputs of the task cannot be cached.
+     */
+    @Nullable
+    TaskCacheKey calculateCacheKey();
+
     /**
      * Called before the task is to be executed. Note that {@link #isUpToDate(java.util.Collection)} may not necessarily have been called.
      */
@@ -28,8 +28,10 @@ import org.gradle.api.internal.changedetection.state.FileCollectionSnapshotter;
 import org.gradle.api.internal.changedetection.state.TaskExecution;
 import org.gradle.api.internal.changedetection.state.TaskHistoryRepository;
 import org.gradle.api.internal.file.FileCollectionFactory;
+import org.gradle.api.internal.tasks.cache.TaskCacheKey;
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 import org.gradle.internal.reflect.Instantiator;
+import org.gradle.util.Clock;
 
 import java.util.Collection;
 
@@ -63,6 +65,7 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
         private boolean upToDate;
         private TaskUpToDateState states;
         private IncrementalTaskInputsInternal taskInputs;
+        private Clock executionClock;
 
         public TaskArtifactStateImpl(TaskInternal task, TaskHistoryRepository.History history) {
             this.task = task;
@@ -105,6 +108,10 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
             return collectChangedMessages(null, getStates().getRebuildChanges());
         }
 
+        public TaskCacheKey calculateCacheKey() {
+            return getStates().calculateCacheKey();
+        }
+
         public FileCollection getOutputFiles() {
             TaskExecution lastExecution = history.getPreviousExecution();
             if (lastExecution != null && lastExecution.getOutputFilesSnapshot() != null) {
@@ -119,6 +126,7 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
         }
 
         public void beforeTask() {
+            executionClock = new Clock();
         }
 
         public void afterTask() {
@@ -130,9 +138,22 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
                 getStates().newInputs(taskInputs.getDiscoveredInputs());
             }
             getStates().getAllTaskChanges().snapshotAfterTask();
+            recordExecutionTime();
             history.update();
         }
 
+        private void recordExecutionTime() {
+            TaskExecution previousExecution = history.getPreviousExecution();
+            if (task.getState().getSkipped()) {
+                // The outputs were loaded from the task output cache, which says nothing about how long the task takes to execute
+                if (previousExecution != null) {
+                    history.getCurrentExecution().setExecutionTime(previousExecution.getExecutionTime());
+                }
+            } else if (executionClock != null) {
+                history.getCurrentExecution().setExecutionTime(executionClock.getTimeInMs());
+            }
+        }
+
         public void finished() {
         }
 
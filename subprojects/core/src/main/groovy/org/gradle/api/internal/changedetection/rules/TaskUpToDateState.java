@@ -16,11 +16,20 @@
 
 package org.gradle.api.internal.changedetection.rules;
 
+import com.google.common.io.ByteStreams;
+import org.gradle.api.UncheckedIOException;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.changedetection.state.*;
 import org.gradle.api.internal.file.FileCollectionFactory;
+import org.gradle.api.internal.tasks.ContextAwareTaskAction;
+import org.gradle.api.internal.tasks.cache.DefaultTaskCacheKeyBuilder;
+import org.gradle.api.internal.tasks.cache.TaskCacheKey;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeyBuilder;
+import org.gradle.util.GradleVersion;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Set;
 
 /**
@@ -28,18 +37,23 @@ import java.util.Set;
  */
 public class TaskUpToDateState {
     private static final int MAX_OUT_OF_DATE_MESSAGES = 3;
+    private final TaskInternal task;
+    private final TaskExecution thisExecution;
+    private final TaskExecution lastExecution;
+    private final FileCollectionSnapshot currentInputFilesSnapshot;
     private final FilesSnapshotSet inputFilesSnapshot;
 
     private TaskStateChanges inputFileChanges;
-    private DiscoveredInputsListener discoveredInputsListener;
+    private DiscoveredInputsTaskStateChanges discoveredInputsChanges;
     private SummaryTaskStateChanges allTaskChanges;
     private SummaryTaskStateChanges rebuildChanges;
 
     public TaskUpToDateState(TaskInternal task, TaskHistoryRepository.History history,
                              FileCollectionSnapshotter outputFilesSnapshotter, FileCollectionSnapshotter inputFilesSnapshotter,
                              FileCollectionSnapshotter discoveredInputsSnapshotter, FileCollectionFactory fileCollectionFactory) {
-        TaskExecution thisExecution = history.getCurrentExecution();
-        TaskExecution lastExecution = history.getPreviousExecution();
+        this.task = task;
+        this.thisExecution = history.getCurrentExecution();
+        this.lastExecution = history.getPreviousExecution();
 
         TaskStateChanges noHistoryState = new NoHistoryTaskStateChanges(lastExecution);
         TaskStateChanges taskTypeState = new TaskTypeTaskStateChanges(lastExecution, thisExecution, task);
@@ -50,12 +64,13 @@ public class TaskUpToDateState {
 
         // Capture inputs state
         InputFilesTaskStateChanges inputChanges = new InputFilesTaskStateChanges(lastExecution, thisExecution, task, inputFilesSnapshotter);
-        this.inputFilesSnapshot = inputChanges.getCurrent().getSnapshot();
+        this.currentInputFilesSnapshot = inputChanges.getCurrent();
+        this.inputFilesSnapshot = currentInputFilesSnapshot.getSnapshot();
         TaskStateChanges inputFileChanges = caching(inputChanges);
 
         // Capture discovered inputs state from previous execution
         DiscoveredInputsTaskStateChanges discoveredChanges = new DiscoveredInputsTaskStateChanges(lastExecution, thisExecution, discoveredInputsSnapshotter, fileCollectionFactory, task);
-        this.discoveredInputsListener = discoveredChanges;
+        this.discoveredInputsChanges = discoveredChanges;
         TaskStateChanges discoveredInputFilesChanges = caching(discoveredChanges);
 
         allTaskChanges = new SummaryTaskStateChanges(MAX_OUT_OF_DATE_MESSAGES, noHistoryState, taskTypeState, inputPropertiesState, outputFileChanges, inputFileChanges, discoveredInputFilesChanges);
@@ -84,6 +99,63 @@ public class TaskUpToDateState {
     }
 
     public void newInputs(Set<File> discoveredInputs) {
-        discoveredInputsListener.newInputs(discoveredInputs);
+        discoveredInputsChanges.newInputs(discoveredInputs);
+    }
+
+    /**
+     * Calculates the task output cache key from the type and implementation of the task and its actions, its input properties, the locations of its outputs
+     * and the contents of its input files. Discovered inputs are only known once the task has executed, so those recorded by the previous execution are used.
+     */
+    public TaskCacheKey calculateCacheKey() {
+        TaskCacheKeyBuilder builder = new DefaultTaskCacheKeyBuilder();
+        builder.putString(GradleVersion.current().getVersion());
+        builder.putString(thisExecution.getTaskClass());
+        appendImplementation(task.getClass(), builder);
+        for (ContextAwareTaskAction action : task.getTaskActions()) {
+            appendImplementation(action.getActionClass(), builder);
+        }
+
+        new InputPropertiesHasher().appendTo(thisExecution.getInputProperties(), builder);
+
+        for (File outputFile : task.getOutputs().getFiles()) {
+            builder.putString(outputFile.getAbsolutePath());
+        }
+
+        currentInputFilesSnapshot.appendToCacheKey(builder);
+
+        if (lastExecution != null && lastExecution.getDiscoveredInputFilesSnapshot() != null) {
+            builder.putByte((byte) 1);
+            discoveredInputsChanges.getCurrent().appendToCacheKey(builder);
+        } else {
+            builder.putByte((byte) 0);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Adds the name and byte code of the given class and its super classes. Generated classes, such as the decorated task class, do not have byte code available
+     * and only contribute their name.
+     */
+    private static void appendImplementation(Class<?> type, TaskCacheKeyBuilder builder) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            builder.putString(current.getName());
+            ClassLoader classLoader = current.getClassLoader();
+            if (classLoader == null) {
+                continue;
+            }
+            InputStream classFile = classLoader.getResourceAsStream(current.getName().replace('.', '/') + ".class");
+            if (classFile == null) {
+                continue;
+            }
+            try {
+                try {
+                    builder.putBytes(ByteStreams.toByteArray(classFile));
+                } finally {
+                    classFile.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
     }
 }
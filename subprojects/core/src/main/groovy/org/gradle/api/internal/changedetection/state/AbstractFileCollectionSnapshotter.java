@@ -17,10 +17,17 @@
 package org.gradle.api.internal.changedetection.state;
 
 import com.google.common.collect.Lists;
+import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.file.FileResolver;
+import org.gradle.internal.hash.HashValue;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
 import org.gradle.internal.serialize.SerializerRegistry;
 
 import java.io.File;
@@ -30,28 +37,56 @@ import java.util.List;
 import java.util.Map;
 
 abstract class AbstractFileCollectionSnapshotter implements FileCollectionSnapshotter {
+    /**
+     * When set to true, snapshots are kept as a {@link CompactFileCollectionSnapshot}, which is much smaller for large numbers of files.
+     */
+    public static final String COMPACT_SNAPSHOTS_PROPERTY = "org.gradle.internal.snapshotting.compact";
+
+    // Below this number of files, handing the work to other threads costs more than it saves
+    private static final int MIN_FILES_FOR_PARALLEL_HASHING = 100;
+    private static final int FILES_PER_HASH_OPERATION = 64;
+
     protected final FileSnapshotter snapshotter;
     protected final StringInterner stringInterner;
     protected final FileResolver fileResolver;
     protected TaskArtifactStateCacheAccess cacheAccess;
+    @Nullable
+    protected final BuildOperationProcessor buildOperationProcessor;
+    private final boolean compactSnapshots = Boolean.getBoolean(COMPACT_SNAPSHOTS_PROPERTY);
 
     public AbstractFileCollectionSnapshotter(FileSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner, FileResolver fileResolver) {
+        this(snapshotter, cacheAccess, stringInterner, fileResolver, null);
+    }
+
+    /**
+     * @param buildOperationProcessor used to hash files in parallel, or null to hash all files on the calling thread.
+     */
+    public AbstractFileCollectionSnapshotter(FileSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner, FileResolver fileResolver, @Nullable BuildOperationProcessor buildOperationProcessor) {
         this.snapshotter = snapshotter;
         this.cacheAccess = cacheAccess;
         this.stringInterner = stringInterner;
         this.fileResolver = fileResolver;
+        this.buildOperationProcessor = buildOperationProcessor;
     }
 
     public void registerSerializers(SerializerRegistry<FileCollectionSnapshot> registry) {
         registry.register(FileCollectionSnapshotImpl.class, new DefaultFileSnapshotterSerializer(stringInterner));
+        registry.register(CompactFileCollectionSnapshot.class, new CompactFileCollectionSnapshotSerializer());
     }
 
     public FileCollectionSnapshot emptySnapshot() {
-        return new FileCollectionSnapshotImpl(Collections.<String, IncrementalFileSnapshot>emptyMap());
+        return createSnapshot(Collections.<String, IncrementalFileSnapshot>emptyMap());
+    }
+
+    private FileCollectionSnapshot createSnapshot(Map<String, IncrementalFileSnapshot> snapshots) {
+        if (compactSnapshots) {
+            return CompactFileCollectionSnapshot.of(snapshots);
+        }
+        return new FileCollectionSnapshotImpl(snapshots);
     }
 
     public FileCollectionSnapshot snapshot(final FileCollection input, boolean allowReuse) {
-        final List<FileTreeElement> fileTreeElements = Lists.newLinkedList();
+        final List<FileTreeElement> fileTreeElements = Lists.newArrayList();
         final List<File> missingFiles = Lists.newArrayList();
 
         visitFiles(input, fileTreeElements, missingFiles, allowReuse);
@@ -60,6 +95,10 @@ abstract class AbstractFileCollectionSnapshotter implements FileCollectionSnapsh
             return emptySnapshot();
         }
 
+        if (buildOperationProcessor != null && fileTreeElements.size() >= MIN_FILES_FOR_PARALLEL_HASHING) {
+            return snapshotInParallel(fileTreeElements, missingFiles);
+        }
+
         final Map<String, IncrementalFileSnapshot> snapshots = new HashMap<String, IncrementalFileSnapshot>();
 
         cacheAccess.useCache("Create file snapshot", new Runnable() {
@@ -83,7 +122,110 @@ abstract class AbstractFileCollectionSnapshotter implements FileCollectionSnapsh
             }
         });
 
-        return new FileCollectionSnapshotImpl(snapshots);
+        return createSnapshot(snapshots);
+    }
+
+    /**
+     * Looks up the cached hashes while holding the cache lock, calculates the missing ones in parallel without holding the lock, and then records the new hashes.
+     * The snapshot is assembled on the calling thread, in the order in which the files were visited, so the result does not depend on the order in which
+     * the hashes were calculated.
+     */
+    private FileCollectionSnapshot snapshotInParallel(final List<FileTreeElement> fileTreeElements, final List<File> missingFiles) {
+        final HashValue[] hashes = new HashValue[fileTreeElements.size()];
+        final boolean[] calculated = new boolean[fileTreeElements.size()];
+        final List<Integer> filesToHash = Lists.newArrayList();
+
+        cacheAccess.useCache("Look up file hashes", new Runnable() {
+            public void run() {
+                for (int i = 0; i < fileTreeElements.size(); i++) {
+                    FileTreeElement fileDetails = fileTreeElements.get(i);
+                    if (fileDetails.isDirectory()) {
+                        continue;
+                    }
+                    FileSnapshot cached = snapshotter.findCachedSnapshot(fileDetails);
+                    if (cached != null) {
+                        hashes[i] = cached.getHash();
+                    } else {
+                        filesToHash.add(i);
+                    }
+                }
+            }
+        });
+
+        if (!filesToHash.isEmpty()) {
+            buildOperationProcessor.run(new HashFilesWorker(fileTreeElements, hashes, calculated), new Action<BuildOperationQueue<HashFilesOperation>>() {
+                public void execute(BuildOperationQueue<HashFilesOperation> queue) {
+                    for (List<Integer> batch : Lists.partition(filesToHash, FILES_PER_HASH_OPERATION)) {
+                        queue.add(new HashFilesOperation(batch));
+                    }
+                }
+            });
+        }
+
+        final Map<String, IncrementalFileSnapshot> snapshots = new HashMap<String, IncrementalFileSnapshot>();
+        cacheAccess.useCache("Create file snapshot", new Runnable() {
+            public void run() {
+                for (int i = 0; i < fileTreeElements.size(); i++) {
+                    FileTreeElement fileDetails = fileTreeElements.get(i);
+                    String absolutePath = getInternedAbsolutePath(fileDetails.getFile());
+                    if (snapshots.containsKey(absolutePath)) {
+                        continue;
+                    }
+                    if (fileDetails.isDirectory()) {
+                        snapshots.put(absolutePath, DirSnapshot.getInstance());
+                    } else {
+                        if (calculated[i]) {
+                            snapshotter.cacheSnapshot(fileDetails, hashes[i]);
+                        }
+                        snapshots.put(absolutePath, new FileHashSnapshot(hashes[i], fileDetails.getLastModified()));
+                    }
+                }
+                for (File missingFile : missingFiles) {
+                    String absolutePath = getInternedAbsolutePath(missingFile);
+                    if (!snapshots.containsKey(absolutePath)) {
+                        snapshots.put(absolutePath, MissingFileSnapshot.getInstance());
+                    }
+                }
+            }
+        });
+
+        return createSnapshot(snapshots);
+    }
+
+    private static class HashFilesOperation implements BuildOperation {
+        private final List<Integer> fileIndexes;
+
+        HashFilesOperation(List<Integer> fileIndexes) {
+            this.fileIndexes = fileIndexes;
+        }
+
+        public String getDescription() {
+            return "hash " + fileIndexes.size() + " files";
+        }
+    }
+
+    private class HashFilesWorker implements BuildOperationWorker<HashFilesOperation> {
+        private final List<FileTreeElement> fileTreeElements;
+        private final HashValue[] hashes;
+        private final boolean[] calculated;
+
+        HashFilesWorker(List<FileTreeElement> fileTreeElements, HashValue[] hashes, boolean[] calculated) {
+            this.fileTreeElements = fileTreeElements;
+            this.hashes = hashes;
+            this.calculated = calculated;
+        }
+
+        public String getDisplayName() {
+            return "file hasher";
+        }
+
+        public void execute(HashFilesOperation operation) {
+            // Each index is hashed by exactly one operation, and the results are read only after all operations have completed
+            for (Integer index : operation.fileIndexes) {
+                hashes[index] = snapshotter.calculateHash(fileTreeElements.get(index).getFile());
+                calculated[index] = true;
+            }
+        }
     }
 
     private String getInternedAbsolutePath(File file) {
@@ -15,10 +15,13 @@
  */
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.serialize.BaseSerializerFactory;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.internal.serialize.Serializer;
@@ -26,19 +29,32 @@ import org.gradle.internal.serialize.Serializer;
 import java.io.File;
 import java.util.*;
 
-public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
+public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository, Stoppable {
     private final TaskArtifactStateCacheAccess cacheAccess;
     private final FileSnapshotRepository snapshotRepository;
     private final PersistentIndexedCache<String, TaskHistory> taskHistoryCache;
+    private final PersistentIndexedCache<String, Long> executionTimeCache;
     private final TaskHistorySerializer serializer;
     private final StringInterner stringInterner;
+    private final TaskHistoryUpdateQueue updateQueue;
 
     public CacheBackedTaskHistoryRepository(TaskArtifactStateCacheAccess cacheAccess, FileSnapshotRepository snapshotRepository, StringInterner stringInterner) {
+        this(cacheAccess, snapshotRepository, stringInterner, null);
+    }
+
+    /**
+     * @param updateQueue When not null, updates of task history are written behind using the given queue, rather than before {@link History#update()} returns.
+     */
+    public CacheBackedTaskHistoryRepository(TaskArtifactStateCacheAccess cacheAccess, FileSnapshotRepository snapshotRepository, StringInterner stringInterner,
+                                            @Nullable TaskHistoryUpdateQueue updateQueue) {
         this.cacheAccess = cacheAccess;
         this.snapshotRepository = snapshotRepository;
         this.stringInterner = stringInterner;
+        this.updateQueue = updateQueue;
         this.serializer = new TaskHistorySerializer(stringInterner);
         taskHistoryCache = cacheAccess.createCache("taskArtifacts", String.class, serializer);
+        // Kept apart from the task history, so that the execution times can be read without loading the whole history of each task
+        executionTimeCache = cacheAccess.createCache("taskExecutionTimes", String.class, BaseSerializerFactory.LONG_SERIALIZER);
     }
 
     public History getHistory(final TaskInternal task) {
@@ -63,7 +79,7 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
             }
 
             public void update() {
-                cacheAccess.useCache("Update task history", new Runnable() {
+                Runnable update = new Runnable() {
                     public void run() {
                         history.configurations.add(0, currentExecution);
                         if (currentExecution.inputFilesSnapshotId == null && currentExecution.inputFilesSnapshot != null) {
@@ -89,13 +105,45 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
                         }
                         history.beforeSerialized();
                         taskHistoryCache.put(task.getPath(), history);
+                        if (currentExecution.getExecutionTime() == null) {
+                            executionTimeCache.remove(task.getPath());
+                        } else {
+                            executionTimeCache.put(task.getPath(), currentExecution.getExecutionTime());
+                        }
                     }
-                });
+                };
+                if (updateQueue != null) {
+                    updateQueue.submit(task.getPath(), update);
+                } else {
+                    cacheAccess.useCache("Update task history", update);
+                }
             }
         };
     }
 
+    @Override
+    public void stop() {
+        if (updateQueue != null) {
+            updateQueue.stop();
+        }
+    }
+
+    public Long getLastExecutionTime(final TaskInternal task) {
+        if (updateQueue != null) {
+            updateQueue.flush(task.getPath());
+        }
+        return cacheAccess.useCache("Load task execution time", new Factory<Long>() {
+            public Long create() {
+                return executionTimeCache.get(task.getPath());
+            }
+        });
+    }
+
     private TaskHistory loadHistory(final TaskInternal task) {
+        if (updateQueue != null) {
+            // Make sure the history reflects the most recent execution of the task
+            updateQueue.flush(task.getPath());
+        }
         return cacheAccess.useCache("Load task history", new Factory<TaskHistory>() {
             public TaskHistory create() {
                 ClassLoader original = serializer.getClassLoader();
@@ -291,6 +339,10 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
                 } else {
                     execution.setInputProperties(new HashMap<String, Object>());
                 }
+
+                if (decoder.readBoolean()) {
+                    execution.setExecutionTime(decoder.readLong());
+                }
                 return execution;
             }
 
@@ -309,6 +361,13 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
                     encoder.writeBoolean(true);
                     inputPropertiesSerializer.write(encoder, execution.getInputProperties());
                 }
+
+                if (execution.getExecutionTime() == null) {
+                    encoder.writeBoolean(false);
+                } else {
+                    encoder.writeBoolean(true);
+                    encoder.writeLong(execution.getExecutionTime());
+                }
             }
         }
     }
@@ -17,6 +17,7 @@ package org.gradle.api.internal.changedetection.state;
 
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.hash.FileHashingStrategy;
 import org.gradle.api.internal.hash.Hasher;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentStore;
@@ -36,8 +37,19 @@ public class CachingFileSnapshotter implements FileSnapshotter {
     private final StringInterner stringInterner;
 
     public CachingFileSnapshotter(Hasher hasher, PersistentStore store, StringInterner stringInterner) {
+        this(hasher, FileHashingStrategy.MD5.getCacheName(), store, stringInterner);
+    }
+
+    /**
+     * Creates a snapshotter that uses the given hashing strategy, storing its hashes in the cache specific to that strategy.
+     */
+    public CachingFileSnapshotter(FileHashingStrategy hashingStrategy, PersistentStore store, StringInterner stringInterner) {
+        this(hashingStrategy.createHasher(), hashingStrategy.getCacheName(), store, stringInterner);
+    }
+
+    private CachingFileSnapshotter(Hasher hasher, String cacheName, PersistentStore store, StringInterner stringInterner) {
         this.hasher = hasher;
-        this.cache = store.createCache("fileHashes", String.class, new FileInfoSerializer());
+        this.cache = store.createCache(cacheName, String.class, new FileInfoSerializer());
         this.stringInterner = stringInterner;
     }
 
@@ -69,17 +81,40 @@ public class CachingFileSnapshotter implements FileSnapshotter {
         return snapshot(file.getFile(), file.getSize(), file.getLastModified());
     }
 
+    @Override
+    public FileInfo findCachedSnapshot(FileTreeElement file) {
+        return findCachedSnapshot(file.getFile(), file.getSize(), file.getLastModified());
+    }
+
+    @Override
+    public HashValue calculateHash(File file) {
+        return hasher.hash(file);
+    }
+
+    @Override
+    public FileInfo cacheSnapshot(FileTreeElement file, HashValue hash) {
+        return cacheSnapshot(file.getFile(), file.getSize(), file.getLastModified(), hash);
+    }
+
     private FileInfo snapshot(File file, long length, long timestamp) {
-        String absolutePath = file.getAbsolutePath();
-        FileInfo info = cache.get(absolutePath);
+        FileInfo info = findCachedSnapshot(file, length, timestamp);
+        if (info != null) {
+            return info;
+        }
+        return cacheSnapshot(file, length, timestamp, hasher.hash(file));
+    }
 
+    private FileInfo findCachedSnapshot(File file, long length, long timestamp) {
+        FileInfo info = cache.get(file.getAbsolutePath());
         if (info != null && length == info.length && timestamp == info.timestamp) {
             return info;
         }
+        return null;
+    }
 
-        HashValue hash = hasher.hash(file);
-        info = new FileInfo(hash, length, timestamp);
-        cache.put(stringInterner.intern(absolutePath), info);
+    private FileInfo cacheSnapshot(File file, long length, long timestamp, HashValue hash) {
+        FileInfo info = new FileInfo(hash, length, timestamp);
+        cache.put(stringInterner.intern(file.getAbsolutePath()), info);
         return info;
     }
 
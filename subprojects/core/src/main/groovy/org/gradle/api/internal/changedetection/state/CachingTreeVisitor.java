@@ -18,19 +18,36 @@ package org.gradle.api.internal.changedetection.state;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.MapMaker;
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
 import org.gradle.api.internal.file.FileTreeInternal;
 import org.gradle.api.internal.file.collections.DirectoryFileTree;
 import org.gradle.api.internal.file.collections.FileTreeAdapter;
+import org.gradle.internal.Factory;
 
+import java.io.File;
 import java.util.Collection;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 // Visits a FileTreeInternal for snapshotting, caches some directory scans
+// When a WatchedFileTreeCache is given, scans are also reused across builds for as long as the file system watcher reports no changes
 public class CachingTreeVisitor {
     private ConcurrentMap<String, Collection<FileTreeElement>> cachedTrees = new MapMaker().weakValues().makeMap();
+    private final WatchedFileTreeCache watchedTrees;
+    // Incremented whenever a task may have changed files. Scans from the watched tree cache are only reused after a sync that started after the last change
+    private final AtomicLong changeGeneration = new AtomicLong();
+    private long syncedGeneration = -1;
+
+    public CachingTreeVisitor() {
+        this(null);
+    }
+
+    public CachingTreeVisitor(@Nullable WatchedFileTreeCache watchedTrees) {
+        this.watchedTrees = watchedTrees;
+    }
 
     public Collection<FileTreeElement> visitTreeForSnapshotting(FileTreeInternal fileTree, boolean allowReuse) {
         if (isDirectoryFileTree(fileTree)) {
@@ -41,7 +58,7 @@ public class CachingTreeVisitor {
                 if (cachedTree != null) {
                     return cachedTree;
                 } else {
-                    cachedTree = doVisitTree(fileTree);
+                    cachedTree = allowReuse && watchedTrees != null ? visitWatchedTree(directoryFileTree.getDir(), fileTree) : doVisitTree(fileTree);
                     cachedTrees.put(absolutePath, cachedTree);
                     return cachedTree;
                 }
@@ -58,6 +75,24 @@ public class CachingTreeVisitor {
         return fileTree instanceof FileTreeAdapter && ((FileTreeAdapter) fileTree).getTree() instanceof DirectoryFileTree;
     }
 
+    private Collection<FileTreeElement> visitWatchedTree(File dir, final FileTreeInternal fileTree) {
+        syncWatchedTrees();
+        return watchedTrees.getOrVisit(dir, new Factory<Collection<FileTreeElement>>() {
+            @Override
+            public Collection<FileTreeElement> create() {
+                return doVisitTree(fileTree);
+            }
+        });
+    }
+
+    private synchronized void syncWatchedTrees() {
+        long generation = changeGeneration.get();
+        if (syncedGeneration < generation) {
+            watchedTrees.sync();
+            syncedGeneration = generation;
+        }
+    }
+
     private Collection<FileTreeElement> doVisitTree(FileTreeInternal fileTree) {
         final ImmutableList.Builder<FileTreeElement> fileTreeElements = ImmutableList.builder();
         fileTree.visitTreeOrBackingFile(new FileVisitor() {
@@ -76,5 +111,14 @@ public class CachingTreeVisitor {
 
     public void clearCache() {
         cachedTrees.clear();
+        // Files may have changed, the watcher needs to catch up before its cached scans can be used again
+        changeGeneration.incrementAndGet();
+    }
+
+    /**
+     * Called when a task has finished executing. The watcher needs to catch up with the changes made by the task before its cached scans can be used again.
+     */
+    public void taskFinished() {
+        changeGeneration.incrementAndGet();
     }
 }
@@ -0,0 +1,645 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.collect.Lists;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeyBuilder;
+import org.gradle.internal.hash.HashValue;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.util.ChangeListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.*;
+
+/**
+ * A {@link FileCollectionSnapshot} that keeps its entries in a handful of arrays, rather than in a map with several objects per file.
+ *
+ * <p>Entries are sorted by path. Each path is stored as the length of the prefix it shares with the previous path, plus the remaining characters.
+ * Every {@value #RESTART_INTERVAL}th path is stored in full, so that a path can be found without decoding all of the paths before it.
+ * The type, hash and last modified time of each entry are kept in parallel arrays.</p>
+ *
+ * <p>As entries are sorted, two snapshots are compared by walking both in order. No object is created per file, except for reporting a change.</p>
+ */
+class CompactFileCollectionSnapshot implements FileCollectionSnapshot {
+    static final byte DIR = 1;
+    static final byte MISSING = 2;
+    static final byte FILE = 3;
+
+    // Markers must match those used by FileCollectionSnapshotImpl, so both produce the same cache key for the same files
+    private static final byte FILE_MARKER = 1;
+    private static final byte DIR_MARKER = 2;
+    private static final byte MISSING_MARKER = 3;
+
+    private static final int RESTART_INTERVAL = 16;
+
+    private final int size;
+    private final int[] prefixLengths;
+    private final int[] suffixOffsets;
+    private final char[] suffixes;
+    private final byte[] types;
+    private final int[] hashOffsets;
+    private final byte[] hashes;
+    private final long[] lastModified; // Currently not persisted
+
+    private CompactFileCollectionSnapshot(int size, int[] prefixLengths, int[] suffixOffsets, char[] suffixes, byte[] types, int[] hashOffsets, byte[] hashes, long[] lastModified) {
+        this.size = size;
+        this.prefixLengths = prefixLengths;
+        this.suffixOffsets = suffixOffsets;
+        this.suffixes = suffixes;
+        this.types = types;
+        this.hashOffsets = hashOffsets;
+        this.hashes = hashes;
+        this.lastModified = lastModified;
+    }
+
+    static CompactFileCollectionSnapshot of(Map<String, IncrementalFileSnapshot> snapshots) {
+        List<String> paths = Lists.newArrayList(snapshots.keySet());
+        Collections.sort(paths);
+        Builder builder = new Builder(paths.size());
+        for (String path : paths) {
+            IncrementalFileSnapshot snapshot = snapshots.get(path);
+            if (snapshot instanceof FileHashSnapshot) {
+                FileHashSnapshot fileSnapshot = (FileHashSnapshot) snapshot;
+                builder.add(path, FILE, fileSnapshot.getHash().asByteArray(), fileSnapshot.lastModified);
+            } else if (snapshot instanceof DirSnapshot) {
+                builder.add(path, DIR, null, 0);
+            } else {
+                builder.add(path, MISSING, null, 0);
+            }
+        }
+        return builder.build();
+    }
+
+    static CompactFileCollectionSnapshot from(FileCollectionSnapshot snapshot) {
+        if (snapshot instanceof CompactFileCollectionSnapshot) {
+            return (CompactFileCollectionSnapshot) snapshot;
+        }
+        return of(((FileCollectionSnapshotImpl) snapshot).snapshots);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Creates an object per file. Only used when comparing with a {@link FileCollectionSnapshotImpl}.
+     */
+    Map<String, IncrementalFileSnapshot> toMap() {
+        Map<String, IncrementalFileSnapshot> snapshots = new HashMap<String, IncrementalFileSnapshot>(size);
+        Cursor cursor = new Cursor();
+        while (cursor.next()) {
+            snapshots.put(cursor.getPath(), cursor.toSnapshot());
+        }
+        return snapshots;
+    }
+
+    public List<File> getFiles() {
+        List<File> files = Lists.newArrayList();
+        Cursor cursor = new Cursor();
+        while (cursor.next()) {
+            if (cursor.getType() != DIR) {
+                files.add(new File(cursor.getPath()));
+            }
+        }
+        return files;
+    }
+
+    public FilesSnapshotSet getSnapshot() {
+        return new FilesSnapshotSet() {
+            public FileSnapshot findSnapshot(File file) {
+                int index = indexOf(file.getAbsolutePath());
+                if (index < 0 || types[index] != FILE) {
+                    return null;
+                }
+                return new FileHashSnapshot(new HashValue(hashOf(index)), lastModified[index]);
+            }
+        };
+    }
+
+    @Override
+    public void appendToCacheKey(TaskCacheKeyBuilder builder) {
+        Cursor cursor = new Cursor();
+        while (cursor.next()) {
+            builder.putString(cursor.getPathChars());
+            switch (cursor.getType()) {
+                case FILE:
+                    builder.putByte(FILE_MARKER);
+                    builder.putBytes(hashOf(cursor.index));
+                    break;
+                case DIR:
+                    builder.putByte(DIR_MARKER);
+                    break;
+                default:
+                    builder.putByte(MISSING_MARKER);
+            }
+        }
+    }
+
+    @Override
+    public ChangeIterator<String> iterateContentChangesSince(FileCollectionSnapshot oldSnapshot, Set<ChangeFilter> filters) {
+        final Cursor current = new Cursor();
+        final Cursor previous = from(oldSnapshot).new Cursor();
+        final boolean includeAdded = !filters.contains(ChangeFilter.IgnoreAddedFiles);
+        current.next();
+        previous.next();
+
+        return new ChangeIterator<String>() {
+            public boolean next(ChangeListener<String> listener) {
+                while (current.isValid() || previous.isValid()) {
+                    int order = compare(current, previous);
+                    if (order < 0) {
+                        String path = current.getPath();
+                        current.next();
+                        if (includeAdded) {
+                            listener.added(path);
+                            return true;
+                        }
+                    } else if (order > 0) {
+                        String path = previous.getPath();
+                        previous.next();
+                        listener.removed(path);
+                        return true;
+                    } else {
+                        boolean upToDate = current.isContentUpToDate(previous);
+                        String path = upToDate ? null : current.getPath();
+                        current.next();
+                        previous.next();
+                        if (!upToDate) {
+                            listener.changed(path);
+                            return true;
+                        }
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public FileCollectionSnapshot updateFrom(FileCollectionSnapshot newSnapshot) {
+        if (size == 0) {
+            // Nothing to update
+            return this;
+        }
+        CompactFileCollectionSnapshot newCompactSnapshot = from(newSnapshot);
+        if (newCompactSnapshot.size == 0) {
+            // Everything has been removed
+            return newCompactSnapshot;
+        }
+
+        // Keep the entries of this snapshot that are also in the new snapshot, with the details from the new snapshot
+        Builder builder = new Builder(size);
+        Cursor current = new Cursor();
+        Cursor updated = newCompactSnapshot.new Cursor();
+        current.next();
+        updated.next();
+        while (current.isValid() && updated.isValid()) {
+            int order = compare(current, updated);
+            if (order == 0) {
+                builder.add(updated);
+            }
+            if (order <= 0) {
+                current.next();
+            }
+            if (order >= 0) {
+                updated.next();
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    public FileCollectionSnapshot applyAllChangesSince(FileCollectionSnapshot oldSnapshot, FileCollectionSnapshot target) {
+        CompactFileCollectionSnapshot targetSnapshot = from(target);
+        Builder builder = new Builder(Math.max(size, targetSnapshot.size));
+        Cursor current = new Cursor();
+        Cursor previous = from(oldSnapshot).new Cursor();
+        Cursor targetCursor = targetSnapshot.new Cursor();
+        current.next();
+        previous.next();
+        targetCursor.next();
+        while (current.isValid() || previous.isValid() || targetCursor.isValid()) {
+            // Find the next path in any of the snapshots, and which snapshots contain it
+            Cursor first = current;
+            if (compare(previous, first) < 0) {
+                first = previous;
+            }
+            if (compare(targetCursor, first) < 0) {
+                first = targetCursor;
+            }
+            boolean inCurrent = compare(current, first) == 0;
+            boolean inPrevious = compare(previous, first) == 0;
+            boolean inTarget = compare(targetCursor, first) == 0;
+
+            if (inCurrent && !(inPrevious && current.isContentAndMetadataUpToDate(previous))) {
+                // Added or changed
+                builder.add(current);
+            } else if (inTarget && !(inPrevious && !inCurrent)) {
+                // Unchanged, and not removed
+                builder.add(targetCursor);
+            }
+
+            if (inCurrent) {
+                current.next();
+            }
+            if (inPrevious) {
+                previous.next();
+            }
+            if (inTarget) {
+                targetCursor.next();
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Writes the entries in path order. The paths are written prefix-compressed, as they are held in memory.
+     */
+    void writeTo(Encoder encoder) throws IOException {
+        encoder.writeSmallInt(size);
+        for (int i = 0; i < size; i++) {
+            encoder.writeSmallInt(prefixLengths[i]);
+            encoder.writeString(CharBuffer.wrap(suffixes, suffixOffsets[i], suffixOffsets[i + 1] - suffixOffsets[i]));
+            encoder.writeByte(types[i]);
+            if (types[i] == FILE) {
+                encoder.writeBinary(hashes, hashOffsets[i], hashOffsets[i + 1] - hashOffsets[i]);
+            }
+        }
+    }
+
+    private byte[] hashOf(int index) {
+        byte[] hash = new byte[hashOffsets[index + 1] - hashOffsets[index]];
+        System.arraycopy(hashes, hashOffsets[index], hash, 0, hash.length);
+        return hash;
+    }
+
+    /**
+     * Returns the index of the entry with the given path, or -1 when there is no such entry.
+     */
+    private int indexOf(String path) {
+        if (size == 0) {
+            return -1;
+        }
+        // Find the last restart point whose path is not greater than the given path
+        int low = 0;
+        int high = (size - 1) / RESTART_INTERVAL;
+        int block = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int index = mid * RESTART_INTERVAL;
+            if (compareSuffix(index, path) <= 0) {
+                block = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (block < 0) {
+            return -1;
+        }
+
+        // Scan the entries following the restart point
+        Cursor cursor = new Cursor(block * RESTART_INTERVAL - 1);
+        int end = Math.min(size, (block + 1) * RESTART_INTERVAL);
+        while (cursor.next() && cursor.index < end) {
+            int order = cursor.compareTo(path);
+            if (order == 0) {
+                return cursor.index;
+            }
+            if (order > 0) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the stored suffix of the given entry with the given path. For a restart point, the suffix is the full path.
+     */
+    private int compareSuffix(int index, String path) {
+        int start = suffixOffsets[index];
+        int length = suffixOffsets[index + 1] - start;
+        int common = Math.min(length, path.length());
+        for (int i = 0; i < common; i++) {
+            int diff = suffixes[start + i] - path.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - path.length();
+    }
+
+    /**
+     * Compares the paths of the entries at which the cursors are positioned, ordering exhausted cursors last.
+     */
+    private static int compare(Cursor left, Cursor right) {
+        if (!left.isValid()) {
+            return right.isValid() ? 1 : 0;
+        }
+        if (!right.isValid()) {
+            return -1;
+        }
+        return left.compareTo(right);
+    }
+
+    /**
+     * Visits the entries of this snapshot in order, decoding each path into a reusable buffer.
+     */
+    class Cursor {
+        private int index;
+        private char[] path = new char[256];
+        private int pathLength;
+
+        Cursor() {
+            this(-1);
+        }
+
+        /**
+         * Starts the cursor before the given entry, which must be a restart point.
+         */
+        private Cursor(int before) {
+            this.index = before;
+        }
+
+        boolean next() {
+            if (index < size) {
+                index++;
+            }
+            if (index >= size) {
+                return false;
+            }
+            int prefixLength = prefixLengths[index];
+            int start = suffixOffsets[index];
+            int suffixLength = suffixOffsets[index + 1] - start;
+            pathLength = prefixLength + suffixLength;
+            if (pathLength > path.length) {
+                char[] newPath = new char[Math.max(pathLength, path.length * 2)];
+                System.arraycopy(path, 0, newPath, 0, prefixLength);
+                path = newPath;
+            }
+            System.arraycopy(suffixes, start, path, prefixLength, suffixLength);
+            return true;
+        }
+
+        boolean isValid() {
+            return index >= 0 && index < size;
+        }
+
+        byte getType() {
+            return types[index];
+        }
+
+        String getPath() {
+            return new String(path, 0, pathLength);
+        }
+
+        CharSequence getPathChars() {
+            return CharBuffer.wrap(path, 0, pathLength);
+        }
+
+        int compareTo(Cursor other) {
+            int common = Math.min(pathLength, other.pathLength);
+            for (int i = 0; i < common; i++) {
+                int diff = path[i] - other.path[i];
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return pathLength - other.pathLength;
+        }
+
+        int compareTo(String other) {
+            int common = Math.min(pathLength, other.length());
+            for (int i = 0; i < common; i++) {
+                int diff = path[i] - other.charAt(i);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return pathLength - other.length();
+        }
+
+        boolean isContentUpToDate(Cursor other) {
+            byte type = getType();
+            if (type != other.getType()) {
+                return false;
+            }
+            if (type != FILE) {
+                return true;
+            }
+            int start = hashOffsets[index];
+            int length = hashOffsets[index + 1] - start;
+            CompactFileCollectionSnapshot otherSnapshot = other.snapshot();
+            int otherStart = otherSnapshot.hashOffsets[other.index];
+            if (length != otherSnapshot.hashOffsets[other.index + 1] - otherStart) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (hashes[start + i] != otherSnapshot.hashes[otherStart + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isContentAndMetadataUpToDate(Cursor other) {
+            return isContentUpToDate(other) && lastModified[index] == other.snapshot().lastModified[other.index];
+        }
+
+        IncrementalFileSnapshot toSnapshot() {
+            switch (getType()) {
+                case FILE:
+                    return new FileHashSnapshot(new HashValue(hashOf(index)), lastModified[index]);
+                case DIR:
+                    return DirSnapshot.getInstance();
+                default:
+                    return MissingFileSnapshot.getInstance();
+            }
+        }
+
+        private CompactFileCollectionSnapshot snapshot() {
+            return CompactFileCollectionSnapshot.this;
+        }
+    }
+
+    /**
+     * Builds a snapshot from entries added in path order.
+     */
+    static class Builder {
+        private int size;
+        private int[] prefixLengths;
+        private int[] suffixOffsets;
+        private char[] suffixes;
+        private byte[] types;
+        private int[] hashOffsets;
+        private byte[] hashes;
+        private long[] lastModified;
+        private char[] previousPath = new char[256];
+        private int previousPathLength;
+
+        Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 1);
+            prefixLengths = new int[capacity];
+            suffixOffsets = new int[capacity + 1];
+            suffixes = new char[capacity * 32];
+            types = new byte[capacity];
+            hashOffsets = new int[capacity + 1];
+            hashes = new byte[capacity * 16];
+            lastModified = new long[capacity];
+        }
+
+        void add(String path, byte type, byte[] hash, long lastModified) {
+            int length = path.length();
+            int prefixLength = 0;
+            if (size % RESTART_INTERVAL != 0) {
+                int common = Math.min(length, previousPathLength);
+                while (prefixLength < common && path.charAt(prefixLength) == previousPath[prefixLength]) {
+                    prefixLength++;
+                }
+            }
+            int suffixLength = length - prefixLength;
+            int suffixStart = beginEntry(prefixLength, suffixLength, length);
+            path.getChars(prefixLength, length, suffixes, suffixStart);
+            path.getChars(prefixLength, length, previousPath, prefixLength);
+            previousPathLength = length;
+            endEntry(type, hash, 0, hash == null ? 0 : hash.length, lastModified);
+        }
+
+        void add(Cursor cursor) {
+            int length = cursor.pathLength;
+            int prefixLength = 0;
+            if (size % RESTART_INTERVAL != 0) {
+                int common = Math.min(length, previousPathLength);
+                while (prefixLength < common && cursor.path[prefixLength] == previousPath[prefixLength]) {
+                    prefixLength++;
+                }
+            }
+            int suffixLength = length - prefixLength;
+            int suffixStart = beginEntry(prefixLength, suffixLength, length);
+            System.arraycopy(cursor.path, prefixLength, suffixes, suffixStart, suffixLength);
+            System.arraycopy(cursor.path, prefixLength, previousPath, prefixLength, suffixLength);
+            previousPathLength = length;
+            CompactFileCollectionSnapshot snapshot = cursor.snapshot();
+            int hashStart = snapshot.hashOffsets[cursor.index];
+            endEntry(cursor.getType(), snapshot.hashes, hashStart, snapshot.hashOffsets[cursor.index + 1] - hashStart, snapshot.lastModified[cursor.index]);
+        }
+
+        /**
+         * Adds an entry that has already been prefix-compressed, such as one read from a serialized snapshot.
+         */
+        void addEncoded(int prefixLength, String suffix, byte type, byte[] hash) {
+            if (size % RESTART_INTERVAL == 0 && prefixLength != 0 || prefixLength > previousPathLength) {
+                throw new IllegalArgumentException("Invalid prefix length " + prefixLength + " for entry " + size + ".");
+            }
+            int suffixLength = suffix.length();
+            int length = prefixLength + suffixLength;
+            int suffixStart = beginEntry(prefixLength, suffixLength, length);
+            suffix.getChars(0, suffixLength, suffixes, suffixStart);
+            suffix.getChars(0, suffixLength, previousPath, prefixLength);
+            previousPathLength = length;
+            endEntry(type, hash, 0, hash == null ? 0 : hash.length, 0);
+        }
+
+        private int beginEntry(int prefixLength, int suffixLength, int pathLength) {
+            if (size == types.length) {
+                int capacity = size * 2;
+                prefixLengths = grow(prefixLengths, capacity);
+                suffixOffsets = grow(suffixOffsets, capacity + 1);
+                types = grow(types, capacity);
+                hashOffsets = grow(hashOffsets, capacity + 1);
+                lastModified = grow(lastModified, capacity);
+            }
+            if (pathLength > previousPath.length) {
+                char[] newPath = new char[Math.max(pathLength, previousPath.length * 2)];
+                System.arraycopy(previousPath, 0, newPath, 0, previousPathLength);
+                previousPath = newPath;
+            }
+            int suffixStart = suffixOffsets[size];
+            if (suffixStart + suffixLength > suffixes.length) {
+                suffixes = grow(suffixes, Math.max(suffixStart + suffixLength, suffixes.length * 2));
+            }
+            prefixLengths[size] = prefixLength;
+            suffixOffsets[size + 1] = suffixStart + suffixLength;
+            return suffixStart;
+        }
+
+        private void endEntry(byte type, byte[] hash, int hashStart, int hashLength, long lastModified) {
+            int hashOffset = hashOffsets[size];
+            if (hashOffset + hashLength > hashes.length) {
+                hashes = grow(hashes, Math.max(hashOffset + hashLength, hashes.length * 2));
+            }
+            if (hashLength > 0) {
+                System.arraycopy(hash, hashStart, hashes, hashOffset, hashLength);
+            }
+            types[size] = type;
+            hashOffsets[size + 1] = hashOffset + hashLength;
+            this.lastModified[size] = lastModified;
+            size++;
+        }
+
+        CompactFileCollectionSnapshot build() {
+            return new CompactFileCollectionSnapshot(size,
+                grow(prefixLengths, size),
+                grow(suffixOffsets, size + 1),
+                grow(suffixes, suffixOffsets[size]),
+                grow(types, size),
+                grow(hashOffsets, size + 1),
+                grow(hashes, hashOffsets[size]),
+                grow(lastModified, size));
+        }
+
+        // Resizes the given array, which is also used to trim the arrays once the snapshot has been built
+
+        private static int[] grow(int[] array, int length) {
+            if (array.length == length) {
+                return array;
+            }
+            int[] result = new int[length];
+            System.arraycopy(array, 0, result, 0, Math.min(array.length, length));
+            return result;
+        }
+
+        private static long[] grow(long[] array, int length) {
+            if (array.length == length) {
+                return array;
+            }
+            long[] result = new long[length];
+            System.arraycopy(array, 0, result, 0, Math.min(array.length, length));
+            return result;
+        }
+
+        private static byte[] grow(byte[] array, int length) {
+            if (array.length == length) {
+                return array;
+            }
+            byte[] result = new byte[length];
+            System.arraycopy(array, 0, result, 0, Math.min(array.length, length));
+            return result;
+        }
+
+        private static char[] grow(char[] array, int length) {
+            if (array.length == length) {
+                return array;
+            }
+            char[] result = new char[length];
+            System.arraycopy(array, 0, result, 0, Math.min(array.length, length));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Serializer;
+
+/**
+ * Writes the entries of a {@link CompactFileCollectionSnapshot} in path order, keeping the prefix compression of the paths.
+ */
+class CompactFileCollectionSnapshotSerializer implements Serializer<CompactFileCollectionSnapshot> {
+    public CompactFileCollectionSnapshot read(Decoder decoder) throws Exception {
+        int size = decoder.readSmallInt();
+        CompactFileCollectionSnapshot.Builder builder = new CompactFileCollectionSnapshot.Builder(size);
+        for (int i = 0; i < size; i++) {
+            int prefixLength = decoder.readSmallInt();
+            String suffix = decoder.readString();
+            byte type = decoder.readByte();
+            if (type == CompactFileCollectionSnapshot.FILE) {
+                builder.addEncoded(prefixLength, suffix, type, decoder.readBinary());
+            } else if (type == CompactFileCollectionSnapshot.DIR || type == CompactFileCollectionSnapshot.MISSING) {
+                builder.addEncoded(prefixLength, suffix, type, null);
+            } else {
+                throw new RuntimeException("Unable to read serialized file collection snapshot. Unrecognized value found in the data stream.");
+            }
+        }
+        return builder.build();
+    }
+
+    public void write(Encoder encoder, CompactFileCollectionSnapshot value) throws Exception {
+        value.writeTo(encoder);
+    }
+}
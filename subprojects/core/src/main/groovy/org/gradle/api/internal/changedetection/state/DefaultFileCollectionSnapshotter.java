@@ -16,14 +16,24 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import com.google.common.collect.Lists;
+import org.gradle.api.Action;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.internal.file.FileTreeInternal;
 import org.gradle.api.internal.file.collections.DefaultFileCollectionResolveContext;
+import org.gradle.api.internal.file.collections.DirectoryFileTree;
+import org.gradle.api.internal.file.collections.FileTreeAdapter;
+import org.gradle.internal.Cast;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.List;
 
 public class DefaultFileCollectionSnapshotter extends AbstractFileCollectionSnapshotter {
@@ -34,14 +44,85 @@ public class DefaultFileCollectionSnapshotter extends AbstractFileCollectionSnap
         this.treeVisitor = treeVisitor;
     }
 
+    /**
+     * Creates a snapshotter that walks directory trees and hashes files in parallel using the given processor.
+     */
+    public DefaultFileCollectionSnapshotter(FileSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner, FileResolver fileResolver, CachingTreeVisitor treeVisitor,
+                                            BuildOperationProcessor buildOperationProcessor) {
+        super(snapshotter, cacheAccess, stringInterner, fileResolver, buildOperationProcessor);
+        this.treeVisitor = treeVisitor;
+    }
+
     @Override
     protected void visitFiles(FileCollection input, final List<FileTreeElement> fileTreeElements, final List<File> missingFiles, boolean allowReuse) {
         DefaultFileCollectionResolveContext context = new DefaultFileCollectionResolveContext(fileResolver);
         context.add(input);
         List<FileTreeInternal> fileTrees = context.resolveAsFileTrees();
 
+        if (buildOperationProcessor != null && fileTrees.size() > 1) {
+            visitTreesInParallel(fileTrees, fileTreeElements, allowReuse);
+            return;
+        }
+
         for (FileTreeInternal fileTree : fileTrees) {
             fileTreeElements.addAll(treeVisitor.visitTreeForSnapshotting(fileTree, allowReuse));
         }
     }
+
+    /**
+     * Walks each directory tree in a separate operation. Other kinds of trees, such as archive trees, are visited on the calling thread.
+     * The elements are added in the order of the trees, as for a sequential walk.
+     */
+    private void visitTreesInParallel(List<FileTreeInternal> fileTrees, List<FileTreeElement> fileTreeElements, final boolean allowReuse) {
+        final Collection<FileTreeElement>[] results = Cast.uncheckedCast(new Collection[fileTrees.size()]);
+        final List<VisitTreeOperation> operations = Lists.newArrayList();
+        for (int i = 0; i < fileTrees.size(); i++) {
+            FileTreeInternal fileTree = fileTrees.get(i);
+            if (isDirectoryTree(fileTree)) {
+                operations.add(new VisitTreeOperation(i, fileTree));
+            } else {
+                results[i] = treeVisitor.visitTreeForSnapshotting(fileTree, allowReuse);
+            }
+        }
+
+        if (!operations.isEmpty()) {
+            buildOperationProcessor.run(new BuildOperationWorker<VisitTreeOperation>() {
+                public String getDisplayName() {
+                    return "file tree walker";
+                }
+
+                public void execute(VisitTreeOperation operation) {
+                    results[operation.index] = treeVisitor.visitTreeForSnapshotting(operation.fileTree, allowReuse);
+                }
+            }, new Action<BuildOperationQueue<VisitTreeOperation>>() {
+                public void execute(BuildOperationQueue<VisitTreeOperation> queue) {
+                    for (VisitTreeOperation operation : operations) {
+                        queue.add(operation);
+                    }
+                }
+            });
+        }
+
+        for (Collection<FileTreeElement> result : results) {
+            fileTreeElements.addAll(result);
+        }
+    }
+
+    private static boolean isDirectoryTree(FileTreeInternal fileTree) {
+        return fileTree instanceof FileTreeAdapter && ((FileTreeAdapter) fileTree).getTree() instanceof DirectoryFileTree;
+    }
+
+    private static class VisitTreeOperation implements BuildOperation {
+        private final int index;
+        private final FileTreeInternal fileTree;
+
+        VisitTreeOperation(int index, FileTreeInternal fileTree) {
+            this.index = index;
+            this.fileTree = fileTree;
+        }
+
+        public String getDescription() {
+            return "walk " + fileTree;
+        }
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.internal.tasks.cache.TaskCacheKeyBuilder;
 import org.gradle.util.ChangeListener;
 
 import java.io.File;
@@ -54,6 +55,11 @@ public interface FileCollectionSnapshot {
 
     FilesSnapshotSet getSnapshot();
 
+    /**
+     * Adds the contents of this snapshot to the given task cache key. The same files with the same contents always contribute the same values, regardless of the order in which they were visited.
+     */
+    void appendToCacheKey(TaskCacheKeyBuilder builder);
+
     interface ChangeIterator<T> {
         boolean next(ChangeListener<T> listener);
     }
@@ -17,12 +17,17 @@
 package org.gradle.api.internal.changedetection.state;
 
 import com.google.common.collect.Lists;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeyBuilder;
 import org.gradle.util.ChangeListener;
 
 import java.io.File;
 import java.util.*;
 
 class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
+    private static final byte FILE_MARKER = 1;
+    private static final byte DIR_MARKER = 2;
+    private static final byte MISSING_MARKER = 3;
+
     final Map<String, IncrementalFileSnapshot> snapshots;
 
     public FileCollectionSnapshotImpl(Map<String, IncrementalFileSnapshot> snapshots) {
@@ -51,10 +56,27 @@ class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
         };
     }
 
+    @Override
+    public void appendToCacheKey(TaskCacheKeyBuilder builder) {
+        List<String> paths = Lists.newArrayList(snapshots.keySet());
+        Collections.sort(paths);
+        for (String path : paths) {
+            IncrementalFileSnapshot snapshot = snapshots.get(path);
+            builder.putString(path);
+            if (snapshot instanceof FileHashSnapshot) {
+                builder.putByte(FILE_MARKER);
+                builder.putBytes(((FileHashSnapshot) snapshot).getHash().asByteArray());
+            } else if (snapshot instanceof DirSnapshot) {
+                builder.putByte(DIR_MARKER);
+            } else {
+                builder.putByte(MISSING_MARKER);
+            }
+        }
+    }
+
     @Override
     public ChangeIterator<String> iterateContentChangesSince(FileCollectionSnapshot oldSnapshot, final Set<ChangeFilter> filters) {
-        FileCollectionSnapshotImpl oldSnapshotImpl = (FileCollectionSnapshotImpl) oldSnapshot;
-        final Map<String, IncrementalFileSnapshot> otherSnapshots = new HashMap<String, IncrementalFileSnapshot>(oldSnapshotImpl.snapshots);
+        final Map<String, IncrementalFileSnapshot> otherSnapshots = new HashMap<String, IncrementalFileSnapshot>(snapshotsOf(oldSnapshot));
         final Iterator<String> currentFiles = snapshots.keySet().iterator();
         final boolean includeAdded = !filters.contains(ChangeFilter.IgnoreAddedFiles);
 
@@ -97,16 +119,16 @@ class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
             // Nothing to update
             return this;
         }
-        FileCollectionSnapshotImpl newSnapshotImpl = (FileCollectionSnapshotImpl) newSnapshot;
-        if (newSnapshotImpl.snapshots.isEmpty()) {
+        Map<String, IncrementalFileSnapshot> updatedSnapshots = snapshotsOf(newSnapshot);
+        if (updatedSnapshots.isEmpty()) {
             // Everything has been removed
-            return newSnapshotImpl;
+            return newSnapshot;
         }
 
         // Update entries from new snapshot
         Map<String, IncrementalFileSnapshot> newSnapshots = new HashMap<String, IncrementalFileSnapshot>(snapshots.size());
         for (String path : snapshots.keySet()) {
-            IncrementalFileSnapshot newValue = newSnapshotImpl.snapshots.get(path);
+            IncrementalFileSnapshot newValue = updatedSnapshots.get(path);
             if (newValue != null) {
                 newSnapshots.put(path, newValue);
             }
@@ -116,13 +138,19 @@ class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
 
     @Override
     public FileCollectionSnapshot applyAllChangesSince(FileCollectionSnapshot oldSnapshot, FileCollectionSnapshot target) {
-        FileCollectionSnapshotImpl oldSnapshotImpl = (FileCollectionSnapshotImpl) oldSnapshot;
-        FileCollectionSnapshotImpl targetImpl = (FileCollectionSnapshotImpl) target;
-        Map<String, IncrementalFileSnapshot> newSnapshots = new HashMap<String, IncrementalFileSnapshot>(targetImpl.snapshots);
-        diff(snapshots, oldSnapshotImpl.snapshots, newSnapshots);
+        Map<String, IncrementalFileSnapshot> newSnapshots = new HashMap<String, IncrementalFileSnapshot>(snapshotsOf(target));
+        diff(snapshots, snapshotsOf(oldSnapshot), newSnapshots);
         return new FileCollectionSnapshotImpl(newSnapshots);
     }
 
+    private static Map<String, IncrementalFileSnapshot> snapshotsOf(FileCollectionSnapshot snapshot) {
+        if (snapshot instanceof CompactFileCollectionSnapshot) {
+            // Happens when the previous execution used a different snapshot representation
+            return ((CompactFileCollectionSnapshot) snapshot).toMap();
+        }
+        return ((FileCollectionSnapshotImpl) snapshot).snapshots;
+    }
+
     private void diff(Map<String, IncrementalFileSnapshot> snapshots, Map<String, IncrementalFileSnapshot> oldSnapshots, Map<String, IncrementalFileSnapshot> target) {
         if (oldSnapshots.isEmpty()) {
             // Everything is new
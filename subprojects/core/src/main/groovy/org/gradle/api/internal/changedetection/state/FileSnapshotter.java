@@ -16,8 +16,10 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.hash.Hasher;
+import org.gradle.internal.hash.HashValue;
 import org.gradle.internal.resource.TextResource;
 
 import java.io.File;
@@ -37,4 +39,21 @@ public interface FileSnapshotter extends Hasher {
      * Takes a snapshot of the current content of the given file, assuming the given file metadata. The provided file must exist and be a file (rather than, say, a directory).
      */
     FileSnapshot snapshot(FileTreeElement fileDetails);
+
+    /**
+     * Returns the known snapshot of the given file, if the file has not changed since the snapshot was taken. Does not calculate the hash of the file.
+     */
+    @Nullable
+    FileSnapshot findCachedSnapshot(FileTreeElement fileDetails);
+
+    /**
+     * Calculates the hash of the current content of the given file, without using or updating any cached snapshots. This method can be called concurrently
+     * from multiple threads.
+     */
+    HashValue calculateHash(File file);
+
+    /**
+     * Records the given hash as the snapshot of the given file.
+     */
+    FileSnapshot cacheSnapshot(FileTreeElement fileDetails, HashValue hash);
 }
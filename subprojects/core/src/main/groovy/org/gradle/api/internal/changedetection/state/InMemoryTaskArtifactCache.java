@@ -41,6 +41,7 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
             DEFAULT_CAP_SIZES.put("fileSnapshots", 10000);
             DEFAULT_CAP_SIZES.put("taskArtifacts", 2000);
             DEFAULT_CAP_SIZES.put("fileHashes", 400000);
+            DEFAULT_CAP_SIZES.put("murmur3FileHashes", 400000);
             DEFAULT_CAP_SIZES.put("compilationState", 1000);
         }
 
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.collect.Lists;
+import org.gradle.api.GradleException;
+import org.gradle.api.internal.tasks.cache.DefaultTaskCacheKeyBuilder;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeyBuilder;
+import org.gradle.internal.serialize.DefaultSerializer;
+import org.gradle.internal.serialize.OutputStreamBackedEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+
+import static java.lang.String.format;
+
+/**
+ * Adds the values of task input properties to a task cache key.
+ *
+ * <p>Common value types are added by their contents, and sets and maps independently of their iteration order. Other values are serialized in the same
+ * way as the task history stores input properties.</p>
+ */
+public class InputPropertiesHasher {
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte NUMBER = 3;
+    private static final byte ENUM = 4;
+    private static final byte FILE = 5;
+    private static final byte LIST = 6;
+    private static final byte SET = 7;
+    private static final byte MAP = 8;
+    private static final byte SERIALIZED = 9;
+
+    private final DefaultSerializer<Object> serializer = new DefaultSerializer<Object>();
+
+    public void appendTo(Map<String, Object> properties, TaskCacheKeyBuilder builder) {
+        Map<String, Object> sortedProperties = new TreeMap<String, Object>(properties);
+        for (Map.Entry<String, Object> entry : sortedProperties.entrySet()) {
+            builder.putString(entry.getKey());
+            try {
+                appendValue(entry.getValue(), builder);
+            } catch (Exception e) {
+                throw new GradleException(format("Unable to calculate cache key for task input properties. Property '%s' with value '%s' cannot be serialized.", entry.getKey(), entry.getValue()), e);
+            }
+        }
+    }
+
+    private void appendValue(Object value, TaskCacheKeyBuilder builder) throws Exception {
+        if (value == null) {
+            builder.putByte(NULL);
+        } else if (value instanceof CharSequence) {
+            builder.putByte(STRING);
+            builder.putString(value.toString());
+        } else if (value instanceof Boolean) {
+            builder.putByte(BOOLEAN);
+            builder.putByte((Boolean) value ? (byte) 1 : (byte) 0);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+            || value instanceof Double || value instanceof Float || value instanceof BigInteger || value instanceof BigDecimal) {
+            builder.putByte(NUMBER);
+            builder.putString(value.getClass().getName());
+            builder.putString(value.toString());
+        } else if (value instanceof Enum) {
+            builder.putByte(ENUM);
+            builder.putString(((Enum<?>) value).getDeclaringClass().getName());
+            builder.putString(((Enum<?>) value).name());
+        } else if (value instanceof File) {
+            builder.putByte(FILE);
+            builder.putString(((File) value).getAbsolutePath());
+        } else if (value instanceof List || value instanceof Object[]) {
+            List<?> elements = value instanceof List ? (List<?>) value : Arrays.asList((Object[]) value);
+            builder.putByte(LIST);
+            builder.putInt(elements.size());
+            for (Object element : elements) {
+                appendValue(element, builder);
+            }
+        } else if (value instanceof Set) {
+            builder.putByte(SET);
+            appendUnordered((Set<?>) value, builder);
+        } else if (value instanceof Map) {
+            builder.putByte(MAP);
+            appendUnordered(((Map<?, ?>) value).entrySet(), builder);
+        } else {
+            builder.putByte(SERIALIZED);
+            builder.putBytes(serialize(value));
+        }
+    }
+
+    /**
+     * Adds the hashes of the given elements in sorted order, so that the iteration order of the collection does not affect the key.
+     */
+    private void appendUnordered(Collection<?> elements, TaskCacheKeyBuilder builder) throws Exception {
+        List<String> hashes = Lists.newArrayListWithCapacity(elements.size());
+        for (Object element : elements) {
+            TaskCacheKeyBuilder elementBuilder = new DefaultTaskCacheKeyBuilder();
+            if (element instanceof Map.Entry) {
+                appendValue(((Map.Entry<?, ?>) element).getKey(), elementBuilder);
+                appendValue(((Map.Entry<?, ?>) element).getValue(), elementBuilder);
+            } else {
+                appendValue(element, elementBuilder);
+            }
+            hashes.add(elementBuilder.build().getHashCode());
+        }
+        Collections.sort(hashes);
+        builder.putInt(hashes.size());
+        for (String hash : hashes) {
+            builder.putString(hash);
+        }
+    }
+
+    private byte[] serialize(Object value) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStreamBackedEncoder encoder = new OutputStreamBackedEncoder(bytes);
+        serializer.write(encoder, value);
+        encoder.flush();
+        return bytes.toByteArray();
+    }
+}
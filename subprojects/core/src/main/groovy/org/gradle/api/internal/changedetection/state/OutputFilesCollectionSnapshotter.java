@@ -18,6 +18,7 @@ package org.gradle.api.internal.changedetection.state;
 
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeyBuilder;
 import org.gradle.internal.serialize.DefaultSerializerRegistry;
 import org.gradle.internal.serialize.SerializerRegistry;
 import org.gradle.util.ChangeListener;
@@ -72,6 +73,14 @@ public class OutputFilesCollectionSnapshotter implements FileCollectionSnapshott
             return filesSnapshot.getSnapshot();
         }
 
+        @Override
+        public void appendToCacheKey(TaskCacheKeyBuilder builder) {
+            for (String root : roots) {
+                builder.putString(root);
+            }
+            filesSnapshot.appendToCacheKey(builder);
+        }
+
         @Override
         public FileCollectionSnapshot updateFrom(FileCollectionSnapshot newSnapshot) {
             OutputFilesSnapshot newOutputsSnapshot = (OutputFilesSnapshot) newSnapshot;
@@ -25,6 +25,7 @@ public abstract class TaskExecution {
     private String taskClass;
     private Map<String, Object> inputProperties;
     private Set<String> outputFiles;
+    private Long executionTime;
 
     public Set<String> getOutputFiles() {
         return outputFiles;
@@ -50,6 +51,19 @@ public abstract class TaskExecution {
         this.inputProperties = inputProperties;
     }
 
+    /**
+     * Returns the time taken to execute the task, in milliseconds.
+     *
+     * @return May return null.
+     */
+    public Long getExecutionTime() {
+        return executionTime;
+    }
+
+    public void setExecutionTime(Long executionTime) {
+        this.executionTime = executionTime;
+    }
+
     /**
      * @return May return null.
      */
@@ -15,11 +15,18 @@
  */
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.TaskInternal;
 
 public interface TaskHistoryRepository {
     History getHistory(TaskInternal task);
 
+    /**
+     * Returns the time taken by the most recent execution of the given task, in milliseconds, or null if not known.
+     */
+    @Nullable
+    Long getLastExecutionTime(TaskInternal task);
+
     interface History {
         TaskExecution getPreviousExecution();
 
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes updates of task history to the task history cache on a dedicated thread, so that task workers do not wait for the cache lock.
+ *
+ * <p>Queued updates are written in batches, with the cache lock acquired once per batch. The writer picks up a new batch as soon as the
+ * previous one has been written, so the cache lock is released between batches and can be handed over to other processes as usual.</p>
+ *
+ * <p>The first failure to write an update is rethrown from the next call to {@link #flush()} or {@link #stop()}, the latter of which is called at the end of the build.</p>
+ */
+public class TaskHistoryUpdateQueue implements Stoppable {
+    private static final int MAX_PENDING_UPDATES = 1000;
+
+    private final TaskArtifactStateCacheAccess cacheAccess;
+    private final StoppableExecutor executor;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private final List<Runnable> pending = new ArrayList<Runnable>();
+    private final Map<String, Long> lastSubmittedByTask = new HashMap<String, Long>();
+    private long submitted;
+    private long written;
+    private boolean stopped;
+    private Throwable failure;
+
+    public TaskHistoryUpdateQueue(TaskArtifactStateCacheAccess cacheAccess, ExecutorFactory executorFactory) {
+        this.cacheAccess = cacheAccess;
+        this.executor = executorFactory.create("Task history writer");
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                writeUpdates();
+            }
+        });
+    }
+
+    /**
+     * Queues an update of the history of the given task. Blocks while the writer is too far behind.
+     */
+    public void submit(String taskPath, Runnable update) {
+        lock.lock();
+        try {
+            if (stopped) {
+                throw new IllegalStateException("Cannot queue task history update, as the queue has been stopped.");
+            }
+            while (pending.size() >= MAX_PENDING_UPDATES) {
+                condition.awaitUninterruptibly();
+            }
+            pending.add(update);
+            submitted++;
+            lastSubmittedByTask.put(taskPath, submitted);
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until all queued updates of the history of the given task have been written.
+     */
+    public void flush(String taskPath) {
+        lock.lock();
+        try {
+            Long lastSubmitted = lastSubmittedByTask.get(taskPath);
+            if (lastSubmitted != null) {
+                awaitWritten(lastSubmitted);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until all queued updates have been written.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            awaitWritten(submitted);
+            rethrowFailure();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void stop() {
+        lock.lock();
+        try {
+            stopped = true;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        // Waits for the writer to drain the queue
+        executor.stop();
+        lock.lock();
+        try {
+            lastSubmittedByTask.clear();
+            rethrowFailure();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitWritten(long update) {
+        while (written < update) {
+            condition.awaitUninterruptibly();
+        }
+    }
+
+    private void rethrowFailure() {
+        if (failure != null) {
+            Throwable failure = this.failure;
+            this.failure = null;
+            throw UncheckedException.throwAsUncheckedException(failure);
+        }
+    }
+
+    private void writeUpdates() {
+        while (true) {
+            final List<Runnable> batch;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !stopped) {
+                    condition.awaitUninterruptibly();
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<Runnable>(pending);
+                pending.clear();
+                condition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            final List<Throwable> failures = new ArrayList<Throwable>();
+            try {
+                cacheAccess.useCache("Update task history", new Runnable() {
+                    @Override
+                    public void run() {
+                        // A broken update should not prevent the history of other tasks from being written
+                        for (Runnable update : batch) {
+                            try {
+                                update.run();
+                            } catch (Throwable t) {
+                                failures.add(t);
+                            }
+                        }
+                    }
+                });
+            } catch (Throwable t) {
+                failures.add(t);
+            }
+
+            lock.lock();
+            try {
+                if (failure == null && !failures.isEmpty()) {
+                    failure = failures.get(0);
+                }
+                written += batch.size();
+                condition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
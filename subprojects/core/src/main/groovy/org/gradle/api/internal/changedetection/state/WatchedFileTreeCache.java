@@ -0,0 +1,299 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.Action;
+import org.gradle.api.JavaVersion;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.internal.cache.HeapProportionalCacheSizer;
+import org.gradle.api.internal.file.FileSystemSubset;
+import org.gradle.api.internal.file.TemporaryFileProvider;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.filewatch.FileWatcher;
+import org.gradle.internal.filewatch.FileWatcherEvent;
+import org.gradle.internal.filewatch.FileWatcherFactory;
+import org.gradle.internal.filewatch.FileWatcherListener;
+import org.gradle.internal.os.OperatingSystem;
+import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the results of directory scans across builds, for as long as nothing changes in the scanned directory. The directories are watched
+ * for changes using a {@link FileWatcher}, and the result for a directory is discarded as soon as a change to the directory or any file
+ * below it is reported.
+ *
+ * <p>File system events are delivered asynchronously, so {@link #sync()} must be called after files may have been changed and before the
+ * cached results are used again. Whenever the watcher cannot be relied upon, for example because events have been dropped, all cached
+ * results are discarded.</p>
+ *
+ * <p>This is a daemon wide service.</p>
+ */
+public class WatchedFileTreeCache implements Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WatchedFileTreeCache.class);
+    private static final String SYNC_MARKER_PREFIX = "sync-";
+    private static final long DEFAULT_SYNC_TIMEOUT_MILLIS = 2000;
+    private static final int DEFAULT_MAX_CACHED_ELEMENTS = 1000000;
+
+    private final FileWatcherFactory fileWatcherFactory;
+    private final TemporaryFileProvider temporaryFileProvider;
+    private final long syncTimeoutMillis;
+    private final int maxCachedElements;
+    private final Object startLock = new Object();
+    // Never held while calling the file watcher, as the watcher holds its own lock while notifying the listener
+    private final Object lock = new Object();
+    private final Map<String, Collection<FileTreeElement>> trees = new LinkedHashMap<String, Collection<FileTreeElement>>(16, 0.75f, true);
+    private int cachedElements;
+    private long invalidations;
+    private int syncMarkersWritten;
+    private int syncMarkersSeen;
+    private boolean disabled;
+    private volatile FileWatcher fileWatcher;
+    private File syncDir;
+
+    public WatchedFileTreeCache(FileWatcherFactory fileWatcherFactory, TemporaryFileProvider temporaryFileProvider) {
+        this(fileWatcherFactory, temporaryFileProvider, DEFAULT_SYNC_TIMEOUT_MILLIS, new HeapProportionalCacheSizer().scaleCacheSize(DEFAULT_MAX_CACHED_ELEMENTS));
+    }
+
+    WatchedFileTreeCache(FileWatcherFactory fileWatcherFactory, TemporaryFileProvider temporaryFileProvider, long syncTimeoutMillis, int maxCachedElements) {
+        this.fileWatcherFactory = fileWatcherFactory;
+        this.temporaryFileProvider = temporaryFileProvider;
+        this.syncTimeoutMillis = syncTimeoutMillis;
+        this.maxCachedElements = maxCachedElements;
+    }
+
+    /**
+     * Returns true when the file watcher of the current platform reports changes using native notifications. On other platforms
+     * the watcher polls the file system, which is no cheaper than scanning the directories again.
+     */
+    public static boolean isSupported() {
+        OperatingSystem os = OperatingSystem.current();
+        return JavaVersion.current().isJava7Compatible() && (os.isLinux() || os.isWindows());
+    }
+
+    /**
+     * Returns the elements of the given directory, either from the cache or by visiting the directory using the given factory.
+     */
+    public Collection<FileTreeElement> getOrVisit(File dir, Factory<Collection<FileTreeElement>> visitor) {
+        if (!dir.isDirectory() || !startWatching()) {
+            // A directory that does not exist yet cannot be watched
+            return visitor.create();
+        }
+        String path = dir.getAbsolutePath();
+        long invalidationsBeforeVisit;
+        synchronized (lock) {
+            if (disabled) {
+                return visitor.create();
+            }
+            Collection<FileTreeElement> elements = trees.get(path);
+            if (elements != null) {
+                return elements;
+            }
+            invalidationsBeforeVisit = invalidations;
+        }
+
+        // Start watching before visiting, so that a change made while visiting discards the result
+        try {
+            fileWatcher.watch(FileSystemSubset.builder().add(dir).build());
+        } catch (Exception e) {
+            disable(e);
+            return visitor.create();
+        }
+        Collection<FileTreeElement> elements = visitor.create();
+
+        synchronized (lock) {
+            if (!disabled && invalidations == invalidationsBeforeVisit && elements.size() <= maxCachedElements) {
+                Collection<FileTreeElement> previous = trees.put(path, elements);
+                cachedElements += elements.size() - (previous == null ? 0 : previous.size());
+                evictEldest();
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Waits until the watcher has reported all changes that were made before this method was called. Discards all cached results when
+     * the watcher does not catch up in time.
+     */
+    public void sync() {
+        if (fileWatcher == null) {
+            return;
+        }
+        synchronized (lock) {
+            // The watcher handles one directory at a time and may hold back the events for one directory while handling the first
+            // marker, so wait for a second marker before relying on the events of all other directories having been delivered
+            for (int i = 0; i < 2 && !disabled; i++) {
+                int marker = ++syncMarkersWritten;
+                File markerFile = new File(syncDir, SYNC_MARKER_PREFIX + marker);
+                try {
+                    markerFile.createNewFile();
+                } catch (IOException e) {
+                    disable(e);
+                    return;
+                }
+                try {
+                    if (!waitForSyncMarker(marker)) {
+                        LOGGER.info("File system watcher did not report changes within {}ms, discarding all cached directory scans.", syncTimeoutMillis);
+                        clear();
+                        return;
+                    }
+                } finally {
+                    GFileUtils.deleteQuietly(markerFile);
+                }
+            }
+        }
+    }
+
+    private boolean waitForSyncMarker(int marker) {
+        long deadline = System.currentTimeMillis() + syncTimeoutMillis;
+        while (syncMarkersSeen < marker && !disabled) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                lock.wait(remaining);
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        return true;
+    }
+
+    private boolean startWatching() {
+        if (fileWatcher != null) {
+            return true;
+        }
+        synchronized (startLock) {
+            if (fileWatcher != null) {
+                return true;
+            }
+            synchronized (lock) {
+                if (disabled) {
+                    return false;
+                }
+            }
+            try {
+                File dir = temporaryFileProvider.createTemporaryDirectory("file-watch", "sync");
+                FileWatcher watcher = fileWatcherFactory.watch(
+                    new Action<Throwable>() {
+                        @Override
+                        public void execute(Throwable throwable) {
+                            disable(throwable);
+                        }
+                    },
+                    new FileWatcherListener() {
+                        @Override
+                        public void onChange(FileWatcher watcher, FileWatcherEvent event) {
+                            WatchedFileTreeCache.this.onChange(event);
+                        }
+                    });
+                synchronized (lock) {
+                    syncDir = dir;
+                }
+                watcher.watch(FileSystemSubset.builder().add(dir).build());
+                fileWatcher = watcher;
+                return true;
+            } catch (Exception e) {
+                disable(e);
+                return false;
+            }
+        }
+    }
+
+    private void onChange(FileWatcherEvent event) {
+        synchronized (lock) {
+            if (event.getType() == FileWatcherEvent.Type.UNDEFINED) {
+                // Events have been lost
+                invalidations++;
+                clear();
+                return;
+            }
+            File file = event.getFile();
+            if (syncDir != null && syncDir.equals(file.getParentFile())) {
+                if (event.getType() == FileWatcherEvent.Type.CREATE && file.getName().startsWith(SYNC_MARKER_PREFIX)) {
+                    syncMarkersSeen = Math.max(syncMarkersSeen, Integer.parseInt(file.getName().substring(SYNC_MARKER_PREFIX.length())));
+                    lock.notifyAll();
+                }
+                return;
+            }
+            invalidations++;
+            String path = file.getAbsolutePath();
+            Iterator<Map.Entry<String, Collection<FileTreeElement>>> iterator = trees.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Collection<FileTreeElement>> entry = iterator.next();
+                // Also discard the directories below the changed file, as the change may be the deletion or rename of a parent directory
+                if (isSameOrAncestor(entry.getKey(), path) || isSameOrAncestor(path, entry.getKey())) {
+                    cachedElements -= entry.getValue().size();
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private static boolean isSameOrAncestor(String ancestor, String path) {
+        return path.startsWith(ancestor) && (path.length() == ancestor.length() || path.charAt(ancestor.length()) == File.separatorChar);
+    }
+
+    private void evictEldest() {
+        Iterator<Collection<FileTreeElement>> iterator = trees.values().iterator();
+        while (cachedElements > maxCachedElements && iterator.hasNext()) {
+            cachedElements -= iterator.next().size();
+            iterator.remove();
+        }
+    }
+
+    private void clear() {
+        trees.clear();
+        cachedElements = 0;
+    }
+
+    private void disable(Throwable failure) {
+        LOGGER.info("Could not watch the file system for changes, directory scans will no longer be cached across builds.", failure);
+        synchronized (lock) {
+            disabled = true;
+            clear();
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (startLock) {
+            synchronized (lock) {
+                disabled = true;
+                clear();
+                lock.notifyAll();
+            }
+            if (fileWatcher != null) {
+                fileWatcher.stop();
+            }
+            if (syncDir != null) {
+                GFileUtils.deleteQuietly(syncDir);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash;
+
+import org.gradle.api.InvalidUserDataException;
+
+/**
+ * The algorithms that can be used to hash the contents of files for change detection.
+ *
+ * <p>Hashes calculated by different strategies are not comparable, so each strategy keeps its hashes in its own file hash cache.</p>
+ */
+public enum FileHashingStrategy {
+    MD5("fileHashes") {
+        @Override
+        public Hasher createHasher() {
+            return new DefaultHasher();
+        }
+    },
+    MURMUR3("murmur3FileHashes") {
+        @Override
+        public Hasher createHasher() {
+            return new Murmur3Hasher();
+        }
+    };
+
+    public static final String SYSTEM_PROPERTY = "org.gradle.internal.fileHashing";
+
+    private final String cacheName;
+
+    FileHashingStrategy(String cacheName) {
+        this.cacheName = cacheName;
+    }
+
+    public abstract Hasher createHasher();
+
+    /**
+     * Returns the name of the cache to use to store the file hashes calculated by this strategy.
+     */
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    /**
+     * Returns the strategy selected using the {@value #SYSTEM_PROPERTY} system property, defaulting to {@link #MD5}.
+     */
+    public static FileHashingStrategy current() {
+        String value = System.getProperty(SYSTEM_PROPERTY);
+        if (value == null) {
+            return MD5;
+        }
+        for (FileHashingStrategy strategy : values()) {
+            if (strategy.name().equalsIgnoreCase(value)) {
+                return strategy;
+            }
+        }
+        throw new InvalidUserDataException(String.format("Unknown file hashing strategy '%s' specified using system property '%s'.", value, SYSTEM_PROPERTY));
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.hash.HashValue;
+import org.gradle.internal.os.OperatingSystem;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link Hasher} that calculates the 128-bit x64 variant of MurmurHash3 for the content of a file. The result is identical to Guava's {@code Hashing.murmur3_128()}.
+ *
+ * <p>MurmurHash3 is not a cryptographic hash, but is much cheaper to calculate than MD5 and is good enough to detect changes to file contents.</p>
+ *
+ * <p>Files are read through a direct buffer that is reused for every file hashed by the same thread. Files larger than the mapping threshold are memory-mapped instead.
+ * Mapping is disabled on Windows, where a mapped file cannot be deleted until the mapping has been garbage collected.</p>
+ */
+public class Murmur3Hasher implements Hasher {
+    private static final long DEFAULT_MAPPING_THRESHOLD = 4 * 1024 * 1024;
+    // Both sizes must be a multiple of the block size, so that only the final chunk of a file has a partial block
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MAX_MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+
+    private final long mappingThreshold;
+    private final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    };
+
+    public Murmur3Hasher() {
+        this(OperatingSystem.current().isWindows() ? Long.MAX_VALUE : DEFAULT_MAPPING_THRESHOLD);
+    }
+
+    Murmur3Hasher(long mappingThreshold) {
+        this.mappingThreshold = mappingThreshold;
+    }
+
+    public HashValue hash(File file) {
+        try {
+            FileInputStream input = new FileInputStream(file);
+            try {
+                FileChannel channel = input.getChannel();
+                long size = channel.size();
+                Murmur3State state = new Murmur3State();
+                if (size >= mappingThreshold) {
+                    hashMapped(channel, size, state);
+                } else {
+                    hashBuffered(channel, state);
+                }
+                return new HashValue(state.finish());
+            } finally {
+                input.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Failed to create MURMUR3 hash for file %s.", file.getAbsolutePath()), e);
+        }
+    }
+
+    private void hashBuffered(FileChannel channel, Murmur3State state) throws IOException {
+        ByteBuffer buffer = buffers.get();
+        buffer.clear();
+        while (true) {
+            int read = channel.read(buffer);
+            if (read >= 0 && buffer.hasRemaining()) {
+                continue;
+            }
+            buffer.flip();
+            state.processBlocks(buffer);
+            if (read < 0) {
+                state.processTail(buffer);
+                return;
+            }
+            buffer.compact();
+        }
+    }
+
+    private static void hashMapped(FileChannel channel, long size, Murmur3State state) throws IOException {
+        long position = 0;
+        while (position < size) {
+            long regionSize = Math.min(MAX_MAPPED_REGION_SIZE, size - position);
+            ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, regionSize).order(ByteOrder.LITTLE_ENDIAN);
+            state.processBlocks(region);
+            position += regionSize;
+            if (position >= size) {
+                state.processTail(region);
+            }
+        }
+    }
+
+    /**
+     * The incremental state of the hash calculation. Blocks are consumed directly from the buffer, without copying.
+     */
+    private static class Murmur3State {
+        private static final int BLOCK_SIZE = 16;
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private long h1;
+        private long h2;
+        private long length;
+
+        /**
+         * Processes all complete blocks in the given buffer, leaving any remaining bytes unread.
+         */
+        void processBlocks(ByteBuffer buffer) {
+            while (buffer.remaining() >= BLOCK_SIZE) {
+                long k1 = buffer.getLong();
+                long k2 = buffer.getLong();
+
+                h1 ^= mixK1(k1);
+                h1 = Long.rotateLeft(h1, 27);
+                h1 += h2;
+                h1 = h1 * 5 + 0x52dce729;
+
+                h2 ^= mixK2(k2);
+                h2 = Long.rotateLeft(h2, 31);
+                h2 += h1;
+                h2 = h2 * 5 + 0x38495ab5;
+
+                length += BLOCK_SIZE;
+            }
+        }
+
+        /**
+         * Processes the final, partial block.
+         */
+        void processTail(ByteBuffer buffer) {
+            int remaining = buffer.remaining();
+            long k1 = 0;
+            long k2 = 0;
+            for (int i = remaining - 1; i >= 8; i--) {
+                k2 ^= ((long) buffer.get(buffer.position() + i) & 0xff) << ((i - 8) * 8);
+            }
+            for (int i = Math.min(remaining, 8) - 1; i >= 0; i--) {
+                k1 ^= ((long) buffer.get(buffer.position() + i) & 0xff) << (i * 8);
+            }
+            h1 ^= mixK1(k1);
+            h2 ^= mixK2(k2);
+            length += remaining;
+            buffer.position(buffer.limit());
+        }
+
+        byte[] finish() {
+            h1 ^= length;
+            h2 ^= length;
+
+            h1 += h2;
+            h2 += h1;
+
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+
+            h1 += h2;
+            h2 += h1;
+
+            return ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN).putLong(h1).putLong(h2).array();
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            return k1;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            return k2;
+        }
+
+        private static long fmix64(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
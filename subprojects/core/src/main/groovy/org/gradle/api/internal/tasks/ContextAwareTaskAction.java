@@ -21,4 +21,9 @@ import org.gradle.api.Task;
 
 public interface ContextAwareTaskAction extends Action<Task> {
     void contextualise(TaskExecutionContext context);
+
+    /**
+     * Returns the class that implements this action, such as the class of the closure or {@link Action} that this action wraps.
+     */
+    Class<?> getActionClass();
 }
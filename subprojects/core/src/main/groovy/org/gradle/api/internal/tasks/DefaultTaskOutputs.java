@@ -31,10 +31,13 @@ import org.gradle.api.tasks.TaskOutputs;
 public class DefaultTaskOutputs implements TaskOutputsInternal {
     private final DefaultConfigurableFileCollection outputFiles;
     private AndSpec<TaskInternal> upToDateSpec = new AndSpec<TaskInternal>();
+    private AndSpec<TaskInternal> cacheIfSpec = new AndSpec<TaskInternal>();
     private TaskExecutionHistory history;
     private final TaskMutator taskMutator;
+    private final TaskInternal task;
 
     public DefaultTaskOutputs(FileResolver resolver, TaskInternal task, TaskMutator taskMutator) {
+        this.task = task;
         this.taskMutator = taskMutator;
         outputFiles = new DefaultConfigurableFileCollection(String.format("%s output files", task), resolver, null);
         outputFiles.builtBy(task);
@@ -60,6 +63,19 @@ public class DefaultTaskOutputs implements TaskOutputsInternal {
         });
     }
 
+    public boolean isCacheAllowed() {
+        // Only tasks that have explicitly opted in and declared their output files can be cached
+        return !cacheIfSpec.getSpecs().isEmpty() && !outputFiles.getFrom().isEmpty() && cacheIfSpec.isSatisfiedBy(task);
+    }
+
+    public void cacheIf(final Spec<? super Task> spec) {
+        taskMutator.mutate("TaskOutputs.cacheIf(Spec)", new Runnable() {
+            public void run() {
+                cacheIfSpec = cacheIfSpec.and(spec);
+            }
+        });
+    }
+
     public boolean getHasOutput() {
         return !outputFiles.getFrom().isEmpty() || !upToDateSpec.getSpecs().isEmpty();
     }
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.CacheBuilder;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.FileLockManager;
+import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.util.GFileUtils;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
+
+/**
+ * A {@link TaskOutputCache} that keeps one file per cache key in a local directory. The files are content-addressed by
+ * the {@link TaskCacheKey}, so an entry is never modified once it has been written.
+ *
+ * <p>The underlying cache directory is only opened when the cache is first used.</p>
+ *
+ * <p>Loading an entry marks it as used. When a build that used the cache finishes, the entries that have not been stored or used for
+ * a week are removed, so that the directory does not grow without bound.</p>
+ */
+public class LocalDirectoryTaskOutputCache implements TaskOutputCache, Stoppable {
+    static final int MAX_UNUSED_DAYS = 7;
+    // Entries are named after the hex hash of their key, other files belong to the cache directory itself
+    private static final Pattern ENTRY_NAME = Pattern.compile("[0-9a-f]+(\\.part)?");
+
+    private final CacheBuilder cacheBuilder;
+    private PersistentCache persistentCache;
+
+    public LocalDirectoryTaskOutputCache(CacheRepository cacheRepository, String cacheKey) {
+        this(cacheRepository.cache(cacheKey));
+    }
+
+    public LocalDirectoryTaskOutputCache(CacheRepository cacheRepository, File directory) {
+        this(cacheRepository.cache(directory));
+    }
+
+    private LocalDirectoryTaskOutputCache(CacheBuilder cacheBuilder) {
+        this.cacheBuilder = cacheBuilder
+            .withDisplayName("Task output cache")
+            .withLockOptions(mode(FileLockManager.LockMode.None)); // Lock on demand
+    }
+
+    private synchronized PersistentCache getPersistentCache() {
+        if (persistentCache == null) {
+            persistentCache = cacheBuilder.open();
+        }
+        return persistentCache;
+    }
+
+    @Override
+    public boolean load(final TaskCacheKey key, final TaskOutputReader reader) throws IOException {
+        return getPersistentCache().useCache("load task output", new Factory<Boolean>() {
+            @Override
+            public Boolean create() {
+                File file = getFile(key);
+                if (!file.isFile()) {
+                    return false;
+                }
+                markUsed(file);
+                try {
+                    InputStream input = new BufferedInputStream(new FileInputStream(file));
+                    try {
+                        reader.readFrom(input);
+                    } finally {
+                        input.close();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public void store(final TaskCacheKey key, final TaskOutputWriter writer) throws IOException {
+        getPersistentCache().useCache("store task output", new Runnable() {
+            @Override
+            public void run() {
+                File file = getFile(key);
+                // Write to a temporary file first, so that a partially written entry is never visible under the key
+                File tempFile = new File(file.getParentFile(), file.getName() + ".part");
+                try {
+                    OutputStream output = new BufferedOutputStream(new FileOutputStream(tempFile));
+                    try {
+                        writer.writeTo(output);
+                    } finally {
+                        output.close();
+                    }
+                } catch (IOException e) {
+                    GFileUtils.deleteQuietly(tempFile);
+                    throw new UncheckedIOException(e);
+                }
+                GFileUtils.deleteQuietly(file);
+                if (!tempFile.renameTo(file)) {
+                    GFileUtils.deleteQuietly(tempFile);
+                    throw new UncheckedIOException(String.format("Could not move cache entry %s to %s.", tempFile, file));
+                }
+            }
+        });
+    }
+
+    private static void markUsed(File file) {
+        // Failing to mark the entry only means it may be removed earlier than it should
+        file.setLastModified(System.currentTimeMillis());
+    }
+
+    private void removeUnusedEntries() {
+        File[] files = persistentCache.getBaseDir().listFiles();
+        if (files == null) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(MAX_UNUSED_DAYS);
+        for (File file : files) {
+            if (file.isFile() && ENTRY_NAME.matcher(file.getName()).matches() && file.lastModified() < cutoff) {
+                GFileUtils.deleteQuietly(file);
+            }
+        }
+    }
+
+    private File getFile(TaskCacheKey key) {
+        return new File(getPersistentCache().getBaseDir(), key.getHashCode());
+    }
+
+    @Override
+    public String getDescription() {
+        return "local directory cache in " + getPersistentCache().getBaseDir();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (persistentCache != null) {
+            try {
+                persistentCache.useCache("remove unused task outputs", new Runnable() {
+                    @Override
+                    public void run() {
+                        removeUnusedEntries();
+                    }
+                });
+            } finally {
+                persistentCache.close();
+                persistentCache = null;
+            }
+        }
+    }
+}
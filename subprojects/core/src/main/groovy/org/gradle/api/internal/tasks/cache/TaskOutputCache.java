@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache;
+
+import java.io.IOException;
+
+/**
+ * Stores and retrieves the packed outputs of task executions.
+ */
+public interface TaskOutputCache {
+    /**
+     * Loads the outputs stored for the given key, passing them to the given reader.
+     *
+     * @return true if an entry was found for the key, false otherwise.
+     */
+    boolean load(TaskCacheKey key, TaskOutputReader reader) throws IOException;
+
+    /**
+     * Stores the outputs produced by the given writer under the given key.
+     */
+    void store(TaskCacheKey key, TaskOutputWriter writer) throws IOException;
+
+    /**
+     * Returns a description of this cache, for use in log messages.
+     */
+    String getDescription();
+}
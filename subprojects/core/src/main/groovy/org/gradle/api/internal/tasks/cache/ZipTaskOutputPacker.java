@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.internal.TaskOutputsInternal;
+import org.gradle.util.GFileUtils;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Packs the output files of a task into a ZIP archive.
+ *
+ * <p>Each output root is identified by its position in the task's output files. A root that is a file is stored as
+ * {@code file/<index>}, a root that is a directory as {@code dir/<index>/} followed by its contents. Roots that do not
+ * exist are not stored, and are removed when the archive is unpacked. Files are stored with their modification time, which is restored when the archive
+ * is unpacked.</p>
+ */
+public class ZipTaskOutputPacker implements TaskOutputPacker {
+    private static final String FILE_PREFIX = "file/";
+    private static final String DIR_PREFIX = "dir/";
+
+    @Override
+    public void pack(TaskOutputsInternal taskOutputs, OutputStream output) throws IOException {
+        ZipOutputStream zipOutput = new ZipOutputStream(output);
+        int index = 0;
+        for (File root : getRoots(taskOutputs)) {
+            if (root.isDirectory()) {
+                String rootPath = DIR_PREFIX + index + "/";
+                zipOutput.putNextEntry(new ZipEntry(rootPath));
+                zipOutput.closeEntry();
+                packDirectory(root, rootPath, zipOutput);
+            } else if (root.isFile()) {
+                packFile(root, FILE_PREFIX + index, zipOutput);
+            }
+            index++;
+        }
+        zipOutput.finish();
+    }
+
+    private static void packDirectory(File directory, String path, ZipOutputStream zipOutput) throws IOException {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            throw new IOException(String.format("Could not list contents of directory %s.", directory));
+        }
+        // Sort children so that the entries of the same outputs are always stored in the same order.
+        // The archives can still differ, as each file entry keeps the modification time of its file.
+        Arrays.sort(children);
+        for (File child : children) {
+            String childPath = path + child.getName();
+            if (child.isDirectory()) {
+                zipOutput.putNextEntry(new ZipEntry(childPath + "/"));
+                zipOutput.closeEntry();
+                packDirectory(child, childPath + "/", zipOutput);
+            } else {
+                packFile(child, childPath, zipOutput);
+            }
+        }
+    }
+
+    private static void packFile(File file, String path, ZipOutputStream zipOutput) throws IOException {
+        ZipEntry entry = new ZipEntry(path);
+        entry.setTime(file.lastModified());
+        zipOutput.putNextEntry(entry);
+        InputStream input = new FileInputStream(file);
+        try {
+            IOUtils.copyLarge(input, zipOutput);
+        } finally {
+            input.close();
+        }
+        zipOutput.closeEntry();
+    }
+
+    @Override
+    public void unpack(TaskOutputsInternal taskOutputs, InputStream input) throws IOException {
+        List<File> roots = getRoots(taskOutputs);
+        for (File root : roots) {
+            if (root.exists()) {
+                GFileUtils.forceDelete(root);
+            }
+        }
+
+        ZipInputStream zipInput = new ZipInputStream(input);
+        ZipEntry entry;
+        while ((entry = zipInput.getNextEntry()) != null) {
+            String name = entry.getName();
+            boolean isFileRoot = name.startsWith(FILE_PREFIX);
+            if (!isFileRoot && !name.startsWith(DIR_PREFIX)) {
+                throw new IOException(String.format("Unexpected entry '%s' in cached task output.", name));
+            }
+            String remainder = name.substring(isFileRoot ? FILE_PREFIX.length() : DIR_PREFIX.length());
+            int separator = remainder.indexOf('/');
+            String indexString = separator < 0 ? remainder : remainder.substring(0, separator);
+            File root = roots.get(parseIndex(indexString, roots.size(), name));
+            File target = isFileRoot || separator == remainder.length() - 1 ? root : resolveInRoot(root, remainder.substring(separator + 1), name);
+            if (entry.isDirectory()) {
+                GFileUtils.mkdirs(target);
+            } else {
+                GFileUtils.parentMkdirs(target);
+                OutputStream output = new FileOutputStream(target);
+                try {
+                    IOUtils.copyLarge(zipInput, output);
+                } finally {
+                    output.close();
+                }
+                if (entry.getTime() >= 0) {
+                    target.setLastModified(entry.getTime());
+                }
+            }
+            zipInput.closeEntry();
+        }
+    }
+
+    private static int parseIndex(String indexString, int rootCount, String entryName) throws IOException {
+        try {
+            int index = Integer.parseInt(indexString);
+            if (index >= 0 && index < rootCount) {
+                return index;
+            }
+        } catch (NumberFormatException e) {
+            // Fall through
+        }
+        throw new IOException(String.format("Cached task output entry '%s' does not match any output of the task.", entryName));
+    }
+
+    private static File resolveInRoot(File root, String relativePath, String entryName) throws IOException {
+        File target = new File(root, relativePath);
+        // Do not allow entries such as '../foo' to write outside of the output directory
+        String canonicalRoot = root.getCanonicalPath();
+        if (!target.getCanonicalPath().startsWith(canonicalRoot + File.separator)) {
+            throw new IOException(String.format("Cached task output entry '%s' is outside of output directory %s.", entryName, root));
+        }
+        return target;
+    }
+
+    private static List<File> getRoots(TaskOutputsInternal taskOutputs) {
+        return Lists.newArrayList(taskOutputs.getFiles().getFiles());
+    }
+}
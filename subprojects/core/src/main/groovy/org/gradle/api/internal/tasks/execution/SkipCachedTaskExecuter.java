@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.execution;
+
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.TaskOutputsInternal;
+import org.gradle.api.internal.tasks.TaskExecuter;
+import org.gradle.api.internal.tasks.TaskExecutionContext;
+import org.gradle.api.internal.tasks.TaskStateInternal;
+import org.gradle.api.internal.tasks.cache.TaskCacheKey;
+import org.gradle.api.internal.tasks.cache.TaskOutputCache;
+import org.gradle.api.internal.tasks.cache.TaskOutputPacker;
+import org.gradle.api.internal.tasks.cache.TaskOutputReader;
+import org.gradle.api.internal.tasks.cache.TaskOutputWriter;
+import org.gradle.util.Clock;
+import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A {@link TaskExecuter} which loads the outputs of a task from the task output cache, when an earlier execution with the same inputs has stored them,
+ * and stores the outputs of the task in the cache after it has executed successfully.
+ *
+ * <p>Failing to read from or write to the cache never fails the build; the task is simply executed as usual.</p>
+ */
+public class SkipCachedTaskExecuter implements TaskExecuter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SkipCachedTaskExecuter.class);
+
+    private final TaskOutputCache taskOutputCache;
+    private final TaskOutputPacker taskOutputPacker;
+    private final TaskExecuter delegate;
+
+    public SkipCachedTaskExecuter(TaskOutputCache taskOutputCache, TaskOutputPacker taskOutputPacker, TaskExecuter delegate) {
+        this.taskOutputCache = taskOutputCache;
+        this.taskOutputPacker = taskOutputPacker;
+        this.delegate = delegate;
+    }
+
+    public void execute(final TaskInternal task, TaskStateInternal state, TaskExecutionContext context) {
+        Clock clock = new Clock();
+        final TaskOutputsInternal taskOutputs = task.getOutputs();
+
+        TaskCacheKey cacheKey = null;
+        if (taskOutputs.isCacheAllowed()) {
+            try {
+                cacheKey = context.getTaskArtifactState().calculateCacheKey();
+                LOGGER.debug("Cache key for {} is {}", task, cacheKey);
+            } catch (Exception e) {
+                LOGGER.info("Could not calculate cache key for {}, its outputs will not be cached.", task, e);
+            }
+        }
+
+        if (cacheKey != null) {
+            try {
+                boolean found = taskOutputCache.load(cacheKey, new TaskOutputReader() {
+                    @Override
+                    public void readFrom(InputStream input) throws IOException {
+                        taskOutputPacker.unpack(taskOutputs, input);
+                    }
+                });
+                if (found) {
+                    LOGGER.info("Unpacked output for {} from {} (took {}).", task, taskOutputCache.getDescription(), clock.getTime());
+                    state.fromCache();
+                    return;
+                }
+            } catch (Exception e) {
+                LOGGER.warn(String.format("Could not load cached output for %s with cache key %s from %s.", task, cacheKey, taskOutputCache.getDescription()), e);
+                // The outputs may have been partially unpacked, remove them so that the task starts from a clean state
+                for (File outputFile : taskOutputs.getFiles()) {
+                    GFileUtils.deleteQuietly(outputFile);
+                }
+            }
+        }
+
+        delegate.execute(task, state, context);
+
+        if (cacheKey != null && state.getFailure() == null) {
+            try {
+                taskOutputCache.store(cacheKey, new TaskOutputWriter() {
+                    @Override
+                    public void writeTo(OutputStream output) throws IOException {
+                        taskOutputPacker.pack(taskOutputs, output);
+                    }
+                });
+                LOGGER.info("Stored output for {} in {}.", task, taskOutputCache.getDescription());
+            } catch (Exception e) {
+                LOGGER.warn(String.format("Could not store output for %s with cache key %s in %s.", task, cacheKey, taskOutputCache.getDescription()), e);
+            }
+        }
+    }
+}
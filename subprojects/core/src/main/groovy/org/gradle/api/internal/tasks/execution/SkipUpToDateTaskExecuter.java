@@ -70,6 +70,7 @@ public class SkipUpToDateTaskExecuter implements TaskExecuter {
                     taskArtifactState.afterTask();
                 }
             } finally {
+                treeVisitor.taskFinished();
                 task.getOutputs().setHistory(null);
                 context.setTaskArtifactState(null);
             }
@@ -17,6 +17,7 @@
 package org.gradle.api.tasks;
 
 import groovy.lang.Closure;
+import org.gradle.api.Incubating;
 import org.gradle.api.Task;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.specs.Spec;
@@ -51,6 +52,18 @@ public interface TaskOutputs {
      */
     void upToDateWhen(Spec<? super Task> upToDateSpec);
 
+    /**
+     * <p>Declares that the outputs of this task may be stored in and loaded from the task output cache, if the given spec is satisfied.
+     * The spec is evaluated at task execution time. The task output cache is only used when it is enabled for the build.</p>
+     *
+     * <p>You can add multiple such predicates. The task outputs are only cached when all predicates return true.</p>
+     *
+     * @param spec The spec to use to determine whether the task outputs can be cached.
+     * @since 2.13
+     */
+    @Incubating
+    void cacheIf(Spec<? super Task> spec);
+
     /**
      * Returns true if this task has declared any outputs. Note that a task may be able to produce output files and
      * still have an empty set of output files.
@@ -17,6 +17,7 @@ package org.gradle.cache.internal.btree;
 
 import org.gradle.api.UncheckedIOException;
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.serialize.Serializer;
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
@@ -41,6 +42,10 @@ import java.util.*;
 // todo - merge adjacent free blocks
 // todo - use more efficient lookup for free block with nearest size
 public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache<K, V> {
+    /**
+     * When set to true, cache files are accessed through memory-mapped regions. This is ignored on Windows.
+     */
+    public static final String MAPPED_BLOCK_STORE_PROPERTY = "org.gradle.cache.internal.btree.mapped";
     private static final Logger LOGGER = LoggerFactory.getLogger(BTreePersistentIndexedCache.class);
     private final File cacheFile;
     private final Serializer<K> keySerializer;
@@ -56,12 +61,17 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
 
     public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
                                        short maxChildIndexEntries, int maxFreeListEntries) {
+        this(cacheFile, keySerializer, valueSerializer, maxChildIndexEntries, maxFreeListEntries, createBlockStore(cacheFile));
+    }
+
+    BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                short maxChildIndexEntries, int maxFreeListEntries, BlockStore fileStore) {
         this.cacheFile = cacheFile;
         this.keySerializer = keySerializer;
         this.serializer = valueSerializer;
         this.maxChildIndexEntries = maxChildIndexEntries;
         this.minIndexChildNodes = maxChildIndexEntries / 2;
-        BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
+        BlockStore cachingStore = new CachingBlockStore(fileStore, IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
         store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
         try {
             open();
@@ -70,6 +80,13 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
     }
 
+    private static BlockStore createBlockStore(File cacheFile) {
+        if (Boolean.getBoolean(MAPPED_BLOCK_STORE_PROPERTY) && !OperatingSystem.current().isWindows()) {
+            return new MappedFileBlockStore(cacheFile);
+        }
+        return new FileBackedBlockStore(cacheFile);
+    }
+
     @Override
     public String toString() {
         return String.format("cache %s (%s)", cacheFile.getName(), cacheFile);
@@ -0,0 +1,434 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.gradle.api.UncheckedIOException;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link BlockStore} that accesses the cache file through memory-mapped regions, rather than through {@link RandomAccessFile} reads and writes.
+ * Blocks are decoded from and encoded to the mapped memory directly, without copying them through intermediate buffers on the heap.
+ *
+ * <p>Uses the same file format as {@link FileBackedBlockStore}, so the two can be used interchangeably for the same file.</p>
+ *
+ * <p>The mapped regions are released when the store is closed or cleared, or when a region is remapped to cover more of the file. The Java API
+ * cannot release a mapping, so this is done through JVM internals; on a JVM where that is not possible a mapping is only released once it is
+ * garbage collected. On Windows a file cannot be truncated while it is mapped, so this store should not be used on Windows.</p>
+ */
+public class MappedFileBlockStore implements BlockStore {
+    private static final int DEFAULT_REGION_SIZE = 4 * 1024 * 1024;
+
+    private final File cacheFile;
+    private final int regionSize;
+    private final List<MappedByteBuffer> regions = new ArrayList<MappedByteBuffer>();
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private long nextBlock;
+    private Factory factory;
+    private long currentFileSize;
+
+    public MappedFileBlockStore(File cacheFile) {
+        this(cacheFile, DEFAULT_REGION_SIZE);
+    }
+
+    MappedFileBlockStore(File cacheFile, int regionSize) {
+        this.cacheFile = cacheFile;
+        this.regionSize = regionSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cache '%s'", cacheFile);
+    }
+
+    public void open(Runnable runnable, Factory factory) {
+        this.factory = factory;
+        try {
+            cacheFile.getParentFile().mkdirs();
+            file = new RandomAccessFile(cacheFile, "rw");
+            channel = file.getChannel();
+            currentFileSize = file.length();
+            nextBlock = currentFileSize;
+            if (currentFileSize == 0) {
+                runnable.run();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void close() {
+        unmapRegions();
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void clear() {
+        unmapRegions();
+        try {
+            file.setLength(0);
+            currentFileSize = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        nextBlock = 0;
+    }
+
+    public void attach(BlockPayload block) {
+        if (block.getBlock() == null) {
+            block.setBlock(new BlockImpl(block));
+        }
+    }
+
+    public void remove(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        blockImpl.detach();
+    }
+
+    public void flush() {
+    }
+
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        return read(new BlockPointer(0), payloadType);
+    }
+
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        assert !pos.isNull();
+        try {
+            T payload = payloadType.cast(factory.create(payloadType));
+            BlockImpl block = new BlockImpl(payload, pos);
+            block.read();
+            return payload;
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        try {
+            blockImpl.write();
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long alloc(long length) {
+        long pos = nextBlock;
+        nextBlock += length;
+        return pos;
+    }
+
+    /**
+     * Returns the region containing the given position, positioned at that position. The region is remapped if the file has grown past its end.
+     */
+    private MappedByteBuffer regionAt(long pos) throws IOException {
+        int index = (int) (pos / regionSize);
+        long regionStart = (long) index * regionSize;
+        int offset = (int) (pos - regionStart);
+        while (regions.size() <= index) {
+            regions.add(null);
+        }
+        MappedByteBuffer region = regions.get(index);
+        if (region == null || region.capacity() <= offset) {
+            // The callers only ever use the region returned by the last call, so the region being replaced is no longer in use
+            if (region != null) {
+                unmap(region);
+            }
+            long mappedSize = Math.min(regionSize, currentFileSize - regionStart);
+            region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, mappedSize);
+            regions.set(index, region);
+        }
+        region.position(offset);
+        return region;
+    }
+
+    private void unmapRegions() {
+        for (MappedByteBuffer region : regions) {
+            if (region != null) {
+                unmap(region);
+            }
+        }
+        regions.clear();
+    }
+
+    /**
+     * Releases the given mapping, if the JVM allows it. The buffer must not be used afterwards, as accessing an unmapped buffer crashes the JVM.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            if (Unmapper.INVOKE_CLEANER != null) {
+                // Java 9 and later
+                Unmapper.INVOKE_CLEANER.invoke(Unmapper.UNSAFE, buffer);
+            } else {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    Method cleanMethod = cleaner.getClass().getMethod("clean");
+                    cleanMethod.setAccessible(true);
+                    cleanMethod.invoke(cleaner);
+                }
+            }
+        } catch (Exception e) {
+            // Not supported by this JVM, the mapping is released when the buffer is garbage collected
+        }
+    }
+
+    private static class Unmapper {
+        static final Object UNSAFE;
+        static final Method INVOKE_CLEANER;
+
+        static {
+            Object unsafe = null;
+            Method invokeCleaner = null;
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                unsafe = field.get(null);
+            } catch (Exception e) {
+                invokeCleaner = null;
+            }
+            UNSAFE = unsafe;
+            INVOKE_CLEANER = invokeCleaner;
+        }
+    }
+
+    /**
+     * Reads directly from the mapped regions of the file, up to the given limit.
+     */
+    private class MappedInputStream extends InputStream {
+        private long pos;
+        private final long limit;
+
+        MappedInputStream(long pos, long limit) {
+            this.pos = pos;
+            this.limit = limit;
+        }
+
+        long getPos() {
+            return pos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos >= limit) {
+                return -1;
+            }
+            int value = regionAt(pos).get() & 0xff;
+            pos++;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (pos >= limit) {
+                return -1;
+            }
+            MappedByteBuffer region = regionAt(pos);
+            int count = (int) Math.min(Math.min(length, region.remaining()), limit - pos);
+            region.get(buffer, offset, count);
+            pos += count;
+            return count;
+        }
+    }
+
+    /**
+     * Writes directly to the mapped regions of the file, up to the given limit.
+     */
+    private class MappedOutputStream extends OutputStream {
+        private long pos;
+        private final long limit;
+
+        MappedOutputStream(long pos, long limit) {
+            this.pos = pos;
+            this.limit = limit;
+        }
+
+        long getPos() {
+            return pos;
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+            checkLimit(1);
+            regionAt(pos).put((byte) value);
+            pos++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            checkLimit(length);
+            while (length > 0) {
+                MappedByteBuffer region = regionAt(pos);
+                int count = Math.min(length, region.remaining());
+                region.put(buffer, offset, count);
+                pos += count;
+                offset += count;
+                length -= count;
+            }
+        }
+
+        private void checkLimit(int length) throws IOException {
+            if (pos + length > limit) {
+                throw new IOException(String.format("Cannot write past the end of the block at %s in %s.", limit, MappedFileBlockStore.this));
+            }
+        }
+    }
+
+    private final class BlockImpl extends Block {
+        private static final int HEADER_SIZE = 2 + INT_SIZE;
+        private static final int TAIL_SIZE = LONG_SIZE;
+        static final int BLOCK_MARKER = 0xCC;
+
+        private BlockPointer pos;
+        private int payloadSize;
+
+        private BlockImpl(BlockPayload payload, BlockPointer pos) {
+            this(payload);
+            setPos(pos);
+        }
+
+        public BlockImpl(BlockPayload payload) {
+            super(payload);
+            pos = null;
+            payloadSize = -1;
+        }
+
+        @Override
+        public boolean hasPos() {
+            return pos != null;
+        }
+
+        @Override
+        public BlockPointer getPos() {
+            if (pos == null) {
+                pos = new BlockPointer(alloc(getSize()));
+            }
+            return pos;
+        }
+
+        @Override
+        public void setPos(BlockPointer pos) {
+            assert this.pos == null && !pos.isNull();
+            this.pos = pos;
+        }
+
+        public int getSize() {
+            if (payloadSize < 0) {
+                payloadSize = getPayload().getSize();
+            }
+            return payloadSize + HEADER_SIZE + TAIL_SIZE;
+        }
+
+        @Override
+        public void setSize(int size) {
+            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
+            assert newPayloadSize >= payloadSize;
+            payloadSize = newPayloadSize;
+        }
+
+        public void write() throws Exception {
+            long pos = getPos().getPos();
+            BlockPayload payload = getPayload();
+            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
+
+            // Grow the file before writing, so that the block falls within the mapped regions. Check the actual length of the file,
+            // as writing to a mapped region past the end of the file crashes the JVM rather than failing with an exception
+            if (channel.size() < finalSize) {
+                file.setLength(finalSize);
+            }
+            currentFileSize = Math.max(currentFileSize, finalSize);
+
+            MappedOutputStream mappedOutputStream = new MappedOutputStream(pos, finalSize);
+            DataOutputStream outputStream = new DataOutputStream(mappedOutputStream);
+
+            // Write header
+            outputStream.writeByte(BLOCK_MARKER);
+            outputStream.writeByte(payload.getType());
+            outputStream.writeInt(payloadSize);
+
+            // Write body
+            payload.write(outputStream);
+
+            // Write count
+            outputStream.writeLong(mappedOutputStream.getPos() - pos);
+        }
+
+        public void read() throws Exception {
+            long pos = getPos().getPos();
+            assert pos >= 0;
+            if (pos + HEADER_SIZE >= currentFileSize) {
+                throw blockCorruptedException();
+            }
+
+            MappedInputStream mappedInputStream = new MappedInputStream(pos, currentFileSize);
+            DataInputStream inputStream = new DataInputStream(mappedInputStream);
+
+            BlockPayload payload = getPayload();
+
+            // Read header
+            byte type = inputStream.readByte();
+            if (type != (byte) BLOCK_MARKER) {
+                throw blockCorruptedException();
+            }
+            type = inputStream.readByte();
+            if (type != (byte) payload.getType()) {
+                throw blockCorruptedException();
+            }
+
+            // Read body
+            payloadSize = inputStream.readInt();
+            if (pos + HEADER_SIZE + TAIL_SIZE + payloadSize > currentFileSize) {
+                throw blockCorruptedException();
+            }
+            payload.read(inputStream);
+
+            // Read and verify count
+            long actualCount = mappedInputStream.getPos() - pos;
+            long count = inputStream.readLong();
+            if (actualCount != count) {
+                throw blockCorruptedException();
+            }
+        }
+
+        public RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
+                    MappedFileBlockStore.this));
+        }
+    }
+}
@@ -47,7 +47,6 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.util.*;
 import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -57,16 +56,33 @@ import java.util.concurrent.locks.ReentrantLock;
 public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     public static final String INTRA_PROJECT_TOGGLE = "org.gradle.parallel.intra";
+    public static final String CRITICAL_PATH_TOGGLE = "org.gradle.parallel.criticalPath";
 
     private final static Logger LOGGER = Logging.getLogger(DefaultTaskExecutionPlan.class);
 
-    private final Lock lock = new ReentrantLock();
+    // Longest critical path first, then in execution plan order. Without execution time estimates, this is the execution plan order
+    private static final Comparator<TaskInfo> EXECUTION_ORDER = new Comparator<TaskInfo>() {
+        public int compare(TaskInfo o1, TaskInfo o2) {
+            if (o1.getCriticalPathTime() != o2.getCriticalPathTime()) {
+                return o1.getCriticalPathTime() > o2.getCriticalPathTime() ? -1 : 1;
+            }
+            return o1.getExecutionIndex() - o2.getExecutionIndex();
+        }
+    };
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Signalled when a task may have become available to workers
     private final Condition condition = lock.newCondition();
+    // Signalled when all tasks have completed
+    private final Condition completed = lock.newCondition();
     private final Set<TaskInfo> tasksInUnknownState = new LinkedHashSet<TaskInfo>();
     private final Set<TaskInfo> entryTasks = new LinkedHashSet<TaskInfo>();
     private final TaskDependencyGraph graph = new TaskDependencyGraph();
     private final LinkedHashMap<Task, TaskInfo> executionPlan = new LinkedHashMap<Task, TaskInfo>();
-    private final List<TaskInfo> executionQueue = new LinkedList<TaskInfo>();
+    // Tasks that should run and whose dependencies have all completed, in the order they should be started
+    private final TreeSet<TaskInfo> readyTasks = new TreeSet<TaskInfo>(EXECUTION_ORDER);
+    // The number of tasks that should run and have not started yet
+    private int pendingTasks;
     private final List<Throwable> failures = new ArrayList<Throwable>();
     private Spec<? super Task> filter = Specs.satisfyAll();
 
@@ -80,14 +96,30 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private boolean tasksCancelled;
 
     private final boolean intraProjectParallelization;
+    private final TaskExecutionTimeEstimator executionTimeEstimator;
 
-    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization) {
+    /**
+     * @param executionTimeEstimator used to start the tasks on the critical path first, or null to start tasks in execution plan order.
+     */
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization, @Nullable TaskExecutionTimeEstimator executionTimeEstimator) {
         this.cancellationToken = cancellationToken;
         this.intraProjectParallelization = intraProjectParallelization;
+        this.executionTimeEstimator = executionTimeEstimator;
 
         if (intraProjectParallelization) {
             LOGGER.info("intra project task parallelization is enabled");
         }
+        if (executionTimeEstimator != null) {
+            LOGGER.info("critical path task scheduling is enabled");
+        }
+    }
+
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization) {
+        this(cancellationToken, intraProjectParallelization, null);
+    }
+
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, TaskExecutionTimeEstimator executionTimeEstimator) {
+        this(cancellationToken, Boolean.getBoolean(INTRA_PROJECT_TOGGLE), Boolean.getBoolean(CRITICAL_PATH_TOGGLE) ? executionTimeEstimator : null);
     }
 
     public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken) {
@@ -305,8 +337,57 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 }
             }
         }
-        executionQueue.clear();
-        executionQueue.addAll(executionPlan.values());
+        prepareForExecution();
+    }
+
+    /**
+     * Counts the incomplete dependencies of each task, so that a task can be made available to workers as soon as its last dependency completes, without
+     * scanning the whole plan.
+     */
+    private void prepareForExecution() {
+        readyTasks.clear();
+        pendingTasks = 0;
+        int index = 0;
+        for (TaskInfo taskInfo : executionPlan.values()) {
+            taskInfo.resetForExecution(index++);
+        }
+        for (TaskInfo taskInfo : executionPlan.values()) {
+            // A task may both depend on and be ordered after another task, only count it once
+            Set<TaskInfo> dependencies = Sets.newHashSet(Iterables.concat(taskInfo.getMustSuccessors(), taskInfo.getDependencySuccessors()));
+            for (TaskInfo dependency : dependencies) {
+                // Tasks that are not part of the plan never run, so are always complete
+                if (executionPlan.get(dependency.getTask()) == dependency) {
+                    dependency.addDependent(taskInfo);
+                }
+            }
+        }
+        if (executionTimeEstimator != null) {
+            calculateCriticalPaths();
+        }
+        for (TaskInfo taskInfo : executionPlan.values()) {
+            if (taskInfo.isReady()) {
+                pendingTasks++;
+                if (taskInfo.getIncompleteDependencies() == 0) {
+                    readyTasks.add(taskInfo);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates the critical path time of each task, visiting the tasks in reverse execution plan order so that the tasks waiting for a task have
+     * been visited before the task itself.
+     */
+    private void calculateCriticalPaths() {
+        List<TaskInfo> tasks = Lists.newArrayList(executionPlan.values());
+        for (TaskInfo taskInfo : Lists.reverse(tasks)) {
+            long longestDependentPath = 0;
+            for (TaskInfo dependent : taskInfo.getDependents()) {
+                longestDependentPath = Math.max(longestDependentPath, dependent.getCriticalPathTime());
+            }
+            long executionTime = taskInfo.isReady() || taskInfo.isMustNotRun() ? executionTimeEstimator.estimateExecutionTime(taskInfo.getTask()) : 0;
+            taskInfo.setCriticalPathTime(executionTime + longestDependentPath);
+        }
     }
 
     private void maybeRemoveProcessedShouldRunAfterEdge(Stack<GraphEdge> walkedShouldRunAfterEdges, TaskInfo taskNode) {
@@ -427,7 +508,8 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             graph.clear();
             entryTasks.clear();
             executionPlan.clear();
-            executionQueue.clear();
+            readyTasks.clear();
+            pendingTasks = 0;
             failures.clear();
             projectsWithRunningTasks.clear();
             projectsWithRunningNonParallelizableTasks.clear();
@@ -458,23 +540,19 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 if (cancellationToken.isCancellationRequested()) {
                     if (abortExecution()) {
                         tasksCancelled = true;
+                        signalWorkers();
                     }
                 }
+                if (pendingTasks == 0) {
+                    return null;
+                }
                 TaskInfo nextMatching = null;
-                boolean allTasksComplete = true;
-                Iterator<TaskInfo> iterator = executionQueue.iterator();
-                while (iterator.hasNext()) {
-                    TaskInfo taskInfo = iterator.next();
-                    allTasksComplete = allTasksComplete && taskInfo.isComplete();
-                    if (taskInfo.isReady() && taskInfo.allDependenciesComplete() && canRunWithWithCurrentlyExecutedTasks(taskInfo)) {
+                for (TaskInfo taskInfo : readyTasks) {
+                    if (canRunWithWithCurrentlyExecutedTasks(taskInfo)) {
                         nextMatching = taskInfo;
-                        iterator.remove();
                         break;
                     }
                 }
-                if (allTasksComplete) {
-                    return null;
-                }
                 if (nextMatching == null) {
                     try {
                         condition.await();
@@ -483,12 +561,14 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                     }
                 } else {
                     if (nextMatching.allDependenciesSuccessful()) {
+                        readyTasks.remove(nextMatching);
+                        pendingTasks--;
                         nextMatching.startExecution();
                         recordTaskStarted(nextMatching);
                         return nextMatching;
                     } else {
-                        nextMatching.skipExecution();
-                        condition.signalAll();
+                        skipTask(nextMatching);
+                        signalWorkers();
                     }
                 }
             }
@@ -637,12 +717,60 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
             taskInfo.finishExecution();
             recordTaskCompleted(taskInfo);
-            condition.signalAll();
+            dependencyCompleted(taskInfo);
+            signalWorkers();
         } finally {
             lock.unlock();
         }
     }
 
+    private void skipTask(TaskInfo taskInfo) {
+        taskInfo.skipExecution();
+        readyTasks.remove(taskInfo);
+        pendingTasks--;
+        dependencyCompleted(taskInfo);
+    }
+
+    private void dependencyCompleted(TaskInfo taskInfo) {
+        for (TaskInfo dependent : taskInfo.getDependents()) {
+            dependent.dependencyCompleted();
+            if (dependent.getIncompleteDependencies() == 0 && dependent.isReady()) {
+                readyTasks.add(dependent);
+            }
+        }
+    }
+
+    /**
+     * Called when a task that was complete because it was not going to run has been enforced, so its dependents need to wait for it again.
+     */
+    private void dependencyReopened(TaskInfo taskInfo) {
+        pendingTasks++;
+        for (TaskInfo dependent : taskInfo.getDependents()) {
+            dependent.dependencyReopened();
+            readyTasks.remove(dependent);
+        }
+        if (taskInfo.getIncompleteDependencies() == 0) {
+            readyTasks.add(taskInfo);
+        }
+    }
+
+    /**
+     * Wakes up as many waiting workers as there are tasks ready to run, rather than all of them. Once there are no more tasks to start, wakes up all
+     * workers so they can finish.
+     */
+    private void signalWorkers() {
+        if (pendingTasks == 0) {
+            condition.signalAll();
+            if (runningTasks.isEmpty()) {
+                completed.signalAll();
+            }
+            return;
+        }
+        for (int i = 0; i < readyTasks.size() && lock.hasWaiters(condition); i++) {
+            condition.signal();
+        }
+    }
+
     private void enforceFinalizerTasks(TaskInfo taskInfo) {
         for (TaskInfo finalizerNode : taskInfo.getFinalizers()) {
             if (finalizerNode.isRequired() || finalizerNode.isMustNotRun()) {
@@ -661,7 +789,10 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         for (TaskInfo dependencyNode : node.getDependencySuccessors()) {
             enforceWithDependencies(dependencyNode, enforcedTasks);
         }
-        if (node.isMustNotRun() || node.isRequired()) {
+        if (node.isMustNotRun()) {
+            node.enforceRun();
+            dependencyReopened(node);
+        } else if (node.isRequired()) {
             node.enforceRun();
         }
     }
@@ -691,7 +822,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         boolean aborted = false;
         for (TaskInfo taskInfo : executionPlan.values()) {
             if (taskInfo.isRequired()) {
-                taskInfo.skipExecution();
+                skipTask(taskInfo);
                 aborted = true;
             }
         }
@@ -703,7 +834,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         try {
             while (!allTasksComplete()) {
                 try {
-                    condition.await();
+                    completed.await();
                 } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 }
@@ -730,12 +861,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     }
 
     private boolean allTasksComplete() {
-        for (TaskInfo taskInfo : executionPlan.values()) {
-            if (!taskInfo.isComplete()) {
-                return false;
-            }
-        }
-        return true;
+        return pendingTasks == 0 && runningTasks.isEmpty();
     }
 
     private static class GraphEdge {
@@ -67,6 +67,11 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
     private TaskGraphState taskGraphState = TaskGraphState.EMPTY;
 
     public DefaultTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, Factory<? extends TaskExecuter> taskExecuter, BuildCancellationToken cancellationToken, TimeProvider timeProvider, BuildOperationExecutor buildOperationExecutor) {
+        this(listenerManager, taskPlanExecutor, taskExecuter, cancellationToken, timeProvider, buildOperationExecutor, null);
+    }
+
+    public DefaultTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, Factory<? extends TaskExecuter> taskExecuter, BuildCancellationToken cancellationToken, TimeProvider timeProvider, BuildOperationExecutor buildOperationExecutor,
+                                    TaskExecutionTimeEstimator executionTimeEstimator) {
         this.taskPlanExecutor = taskPlanExecutor;
         this.taskExecuter = taskExecuter;
         this.timeProvider = timeProvider;
@@ -74,7 +79,7 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         graphListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionGraphListener.class);
         taskListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionListener.class);
         internalTaskListeners = listenerManager.createAnonymousBroadcaster(InternalTaskExecutionListener.class);
-        taskExecutionPlan = new DefaultTaskExecutionPlan(cancellationToken);
+        taskExecutionPlan = new DefaultTaskExecutionPlan(cancellationToken, executionTimeEstimator);
     }
 
     public void useFailureHandler(TaskFailureHandler handler) {
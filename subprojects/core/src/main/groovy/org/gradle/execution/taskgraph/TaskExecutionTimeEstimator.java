@@ -0,0 +1,29 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.internal.TaskInternal;
+
+/**
+ * Estimates how long tasks will take to execute, so that the tasks on the critical path of the build can be started first.
+ */
+public interface TaskExecutionTimeEstimator {
+    /**
+     * Returns the estimated time to execute the given task in milliseconds, or 0 if no estimate is available.
+     */
+    long estimateExecutionTime(TaskInternal task);
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.state.TaskHistoryRepository;
+import org.gradle.internal.Factory;
+
+/**
+ * Estimates the execution time of a task from the time taken by its most recent execution, as recorded in the task history.
+ */
+public class TaskHistoryExecutionTimeEstimator implements TaskExecutionTimeEstimator {
+    private final Factory<? extends TaskHistoryRepository> taskHistoryRepository;
+
+    public TaskHistoryExecutionTimeEstimator(Factory<? extends TaskHistoryRepository> taskHistoryRepository) {
+        this.taskHistoryRepository = taskHistoryRepository;
+    }
+
+    public long estimateExecutionTime(TaskInternal task) {
+        Long executionTime = taskHistoryRepository.create().getLastExecutionTime(task);
+        return executionTime == null ? 0 : executionTime;
+    }
+}
@@ -17,8 +17,10 @@
 package org.gradle.execution.taskgraph;
 
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import org.gradle.api.internal.TaskInternal;
 
+import java.util.List;
 import java.util.TreeSet;
 
 public class TaskInfo implements Comparable<TaskInfo> {
@@ -36,6 +38,11 @@ public class TaskInfo implements Comparable<TaskInfo> {
     private final TreeSet<TaskInfo> mustSuccessors = new TreeSet<TaskInfo>();
     private final TreeSet<TaskInfo> shouldSuccessors = new TreeSet<TaskInfo>();
     private final TreeSet<TaskInfo> finalizers = new TreeSet<TaskInfo>();
+    // Bookkeeping used while the plan is executing, guarded by the lock of the execution plan
+    private int executionIndex;
+    private int incompleteDependencies;
+    private long criticalPathTime;
+    private final List<TaskInfo> dependents = Lists.newArrayList();
 
     public TaskInfo(TaskInternal task) {
         this.task = task;
@@ -196,6 +203,68 @@ public class TaskInfo implements Comparable<TaskInfo> {
         shouldSuccessors.remove(toNode);
     }
 
+    /**
+     * Returns the position of this task in the execution plan.
+     */
+    public int getExecutionIndex() {
+        return executionIndex;
+    }
+
+    /**
+     * Resets the execution bookkeeping of this task, which is at the given position in the execution plan.
+     */
+    public void resetForExecution(int executionIndex) {
+        this.executionIndex = executionIndex;
+        this.incompleteDependencies = 0;
+        this.criticalPathTime = 0;
+        this.dependents.clear();
+    }
+
+    /**
+     * Returns the estimated time to execute this task and the longest chain of tasks that wait for it, in milliseconds.
+     */
+    public long getCriticalPathTime() {
+        return criticalPathTime;
+    }
+
+    public void setCriticalPathTime(long criticalPathTime) {
+        this.criticalPathTime = criticalPathTime;
+    }
+
+    /**
+     * Returns the tasks in the execution plan that must wait for this task to complete before they can start.
+     */
+    public List<TaskInfo> getDependents() {
+        return dependents;
+    }
+
+    /**
+     * Records that the given task must wait for this task to complete.
+     */
+    public void addDependent(TaskInfo dependent) {
+        dependents.add(dependent);
+        if (!isComplete()) {
+            dependent.incompleteDependencies++;
+        }
+    }
+
+    /**
+     * Returns the number of dependencies and must run after tasks of this task in the execution plan that have not completed yet.
+     * When this is zero, {@link #allDependenciesComplete()} is true.
+     */
+    public int getIncompleteDependencies() {
+        return incompleteDependencies;
+    }
+
+    public void dependencyCompleted() {
+        assert incompleteDependencies > 0;
+        incompleteDependencies--;
+    }
+
+    public void dependencyReopened() {
+        incompleteDependencies++;
+    }
+
     public int compareTo(TaskInfo otherInfo) {
         return task.compareTo(otherInfo.getTask());
     }
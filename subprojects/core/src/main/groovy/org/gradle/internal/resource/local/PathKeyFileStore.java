@@ -18,6 +18,8 @@ package org.gradle.internal.resource.local;
 
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.Nullable;
+import org.gradle.api.Transformer;
 import org.gradle.api.file.DeleteAction;
 import org.gradle.api.file.EmptyFileVisitor;
 import org.gradle.api.file.FileVisitDetails;
@@ -200,4 +202,15 @@ public class PathKeyFileStore implements FileStore<String>, FileStoreSearcher<St
             return null;
         }
     }
+
+    /**
+     * Reads the entry with the given key using the given reader, which is passed the file of the entry.
+     *
+     * @return the result of the reader, or null if there is no entry with the given key.
+     */
+    @Nullable
+    public <T> T get(String key, Transformer<? extends T, ? super File> reader) {
+        LocallyAvailableResource resource = get(key);
+        return resource == null ? null : reader.transform(resource.getFile());
+    }
 }
@@ -22,6 +22,7 @@ import org.gradle.api.internal.*;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.state.CachingFileSnapshotter;
 import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
+import org.gradle.api.internal.changedetection.state.WatchedFileTreeCache;
 import org.gradle.api.internal.classpath.DefaultModuleRegistry;
 import org.gradle.api.internal.classpath.DefaultPluginModuleRegistry;
 import org.gradle.api.internal.classpath.ModuleRegistry;
@@ -29,7 +30,7 @@ import org.gradle.api.internal.classpath.PluginModuleRegistry;
 import org.gradle.api.internal.file.*;
 import org.gradle.api.internal.file.collections.DefaultDirectoryFileTreeFactory;
 import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
-import org.gradle.api.internal.hash.DefaultHasher;
+import org.gradle.api.internal.hash.FileHashingStrategy;
 import org.gradle.api.internal.initialization.loadercache.*;
 import org.gradle.api.tasks.util.PatternSet;
 import org.gradle.api.tasks.util.internal.CachingPatternSpecFactory;
@@ -255,7 +256,7 @@ public class GlobalScopeServices {
     }
 
     CachingFileSnapshotter createCachingFileSnapshotter(StringInterner stringInterner, MapBackedInMemoryStore inMemoryStore) {
-        return new CachingFileSnapshotter(new DefaultHasher(), inMemoryStore, stringInterner);
+        return new CachingFileSnapshotter(FileHashingStrategy.current(), inMemoryStore, stringInterner);
     }
 
     ClassLoaderCache createClassLoaderCache(ClassPathSnapshotter classPathSnapshotter) {
@@ -295,6 +296,10 @@ public class GlobalScopeServices {
         return new DefaultFileWatcherFactory(executorFactory);
     }
 
+    WatchedFileTreeCache createWatchedFileTreeCache(FileWatcherFactory fileWatcherFactory, TemporaryFileProvider temporaryFileProvider) {
+        return new WatchedFileTreeCache(fileWatcherFactory, temporaryFileProvider);
+    }
+
     StringInterner createStringInterner() {
         return new StringInterner();
     }
@@ -19,6 +19,7 @@ import org.gradle.api.Action;
 import org.gradle.api.internal.DependencyInjectingInstantiator;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.artifacts.dsl.dependencies.ProjectFinder;
+import org.gradle.api.internal.changedetection.state.TaskHistoryRepository;
 import org.gradle.api.internal.plugins.*;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.tasks.TaskExecuter;
@@ -28,6 +29,7 @@ import org.gradle.execution.*;
 import org.gradle.execution.commandline.CommandLineTaskConfigurer;
 import org.gradle.execution.commandline.CommandLineTaskParser;
 import org.gradle.execution.taskgraph.DefaultTaskGraphExecuter;
+import org.gradle.execution.taskgraph.TaskHistoryExecutionTimeEstimator;
 import org.gradle.execution.taskgraph.TaskPlanExecutor;
 import org.gradle.initialization.BuildCancellationToken;
 import org.gradle.internal.Factory;
@@ -106,7 +108,15 @@ public class GradleScopeServices extends DefaultServiceRegistry {
                 return get(TaskExecuter.class);
             }
         };
-        return new DefaultTaskGraphExecuter(listenerManager, taskPlanExecutor, taskExecuterFactory, cancellationToken, timeProvider, buildOperationExecutor);
+        // The task history is only opened if the execution time estimates are used
+        Factory<TaskHistoryRepository> taskHistoryRepositoryFactory = new Factory<TaskHistoryRepository>() {
+            @Override
+            public TaskHistoryRepository create() {
+                return get(TaskHistoryRepository.class);
+            }
+        };
+        return new DefaultTaskGraphExecuter(listenerManager, taskPlanExecutor, taskExecuterFactory, cancellationToken, timeProvider, buildOperationExecutor,
+            new TaskHistoryExecutionTimeEstimator(taskHistoryRepositoryFactory));
     }
 
     ServiceRegistryFactory createServiceRegistryFactory(final ServiceRegistry services) {
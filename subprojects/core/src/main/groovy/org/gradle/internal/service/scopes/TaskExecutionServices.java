@@ -25,8 +25,11 @@ import org.gradle.api.internal.changedetection.changes.ShortCircuitTaskArtifactS
 import org.gradle.api.internal.changedetection.state.*;
 import org.gradle.api.internal.file.FileCollectionFactory;
 import org.gradle.api.internal.file.FileResolver;
-import org.gradle.api.internal.hash.DefaultHasher;
+import org.gradle.api.internal.hash.FileHashingStrategy;
 import org.gradle.api.internal.tasks.TaskExecuter;
+import org.gradle.api.internal.tasks.cache.LocalDirectoryTaskOutputCache;
+import org.gradle.api.internal.tasks.cache.TaskOutputCache;
+import org.gradle.api.internal.tasks.cache.ZipTaskOutputPacker;
 import org.gradle.api.internal.tasks.execution.*;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.cache.CacheRepository;
@@ -45,9 +48,16 @@ import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.serialize.DefaultSerializerRegistry;
 import org.gradle.internal.serialize.SerializerRegistry;
 
+import java.io.File;
+
 public class TaskExecutionServices {
+    private static final String TASK_CACHE_ENABLED_PROPERTY = "org.gradle.cache.tasks";
+    private static final String TASK_CACHE_DIRECTORY_PROPERTY = "org.gradle.cache.tasks.directory";
+    private static final String PARALLEL_SNAPSHOTTING_PROPERTY = "org.gradle.internal.snapshotting.parallel";
+    private static final String WRITE_BEHIND_TASK_HISTORY_PROPERTY = "org.gradle.internal.taskHistory.writeBehind";
+    private static final String WATCH_FILE_TREES_PROPERTY = "org.gradle.internal.snapshotting.watch";
 
-    TaskExecuter createTaskExecuter(TaskArtifactStateRepository repository, ListenerManager listenerManager, Gradle gradle, CachingTreeVisitor treeVisitor) {
+    TaskExecuter createTaskExecuter(TaskArtifactStateRepository repository, ListenerManager listenerManager, Gradle gradle, CachingTreeVisitor treeVisitor, TaskOutputCache taskOutputCache) {
         // TODO - need a more comprehensible way to only collect inputs for the outer build
         //      - we are trying to ignore buildSrc here, but also avoid weirdness with use of GradleBuild tasks
         boolean isOuterBuild = gradle.getParent() == null;
@@ -62,9 +72,11 @@ public class TaskExecutionServices {
                         taskInputsListener,
                         new ValidatingTaskExecuter(
                             new SkipUpToDateTaskExecuter(repository,
-                                new PostExecutionAnalysisTaskExecuter(
-                                    new ExecuteActionsTaskExecuter(
-                                        listenerManager.getBroadcaster(TaskActionListener.class)
+                                createSkipCachedExecuterIfNecessary(taskOutputCache,
+                                    new PostExecutionAnalysisTaskExecuter(
+                                        new ExecuteActionsTaskExecuter(
+                                            listenerManager.getBroadcaster(TaskActionListener.class)
+                                        )
                                     )
                                 ), treeVisitor)
                         )
@@ -74,6 +86,21 @@ public class TaskExecutionServices {
         );
     }
 
+    private static TaskExecuter createSkipCachedExecuterIfNecessary(TaskOutputCache taskOutputCache, TaskExecuter delegate) {
+        if (!Boolean.getBoolean(TASK_CACHE_ENABLED_PROPERTY)) {
+            return delegate;
+        }
+        return new SkipCachedTaskExecuter(taskOutputCache, new ZipTaskOutputPacker(), delegate);
+    }
+
+    TaskOutputCache createTaskOutputCache(CacheRepository cacheRepository) {
+        String cacheDirectory = System.getProperty(TASK_CACHE_DIRECTORY_PROPERTY);
+        if (cacheDirectory != null) {
+            return new LocalDirectoryTaskOutputCache(cacheRepository, new File(cacheDirectory));
+        }
+        return new LocalDirectoryTaskOutputCache(cacheRepository, "taskOutputs");
+    }
+
     TaskArtifactStateCacheAccess createCacheAccess(Gradle gradle, CacheRepository cacheRepository, InMemoryTaskArtifactCache inMemoryTaskArtifactCache, GradleBuildEnvironment environment) {
         CacheDecorator decorator;
         if (environment.isLongLivingProcess()) {
@@ -85,31 +112,51 @@ public class TaskExecutionServices {
     }
 
     FileSnapshotter createFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner) {
-        return new CachingFileSnapshotter(new DefaultHasher(), cacheAccess, stringInterner);
+        return new CachingFileSnapshotter(FileHashingStrategy.current(), cacheAccess, stringInterner);
     }
 
-    CachingTreeVisitor createTreeVisitor() {
+    CachingTreeVisitor createTreeVisitor(GradleBuildEnvironment environment, WatchedFileTreeCache watchedFileTreeCache) {
+        if (environment.isLongLivingProcess() && Boolean.getBoolean(WATCH_FILE_TREES_PROPERTY) && WatchedFileTreeCache.isSupported()) {
+            return new CachingTreeVisitor(watchedFileTreeCache);
+        }
         return new CachingTreeVisitor();
     }
 
-    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, TaskArtifactStateCacheAccess cacheAccess, StartParameter startParameter, FileSnapshotter fileSnapshotter,
-                                                                  StringInterner stringInterner, FileResolver fileResolver, FileSystem fileSystem, FileCollectionFactory fileCollectionFactory, CachingTreeVisitor treeVisitor) {
-        FileCollectionSnapshotter fileCollectionSnapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, stringInterner, fileResolver, treeVisitor);
-        FileCollectionSnapshotter discoveredFileCollectionSnapshotter = new MinimalFileSetSnapshotter(fileSnapshotter, cacheAccess, stringInterner, fileResolver, fileSystem);
+    DefaultFileCollectionSnapshotter createFileCollectionSnapshotter(FileSnapshotter fileSnapshotter, TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner, FileResolver fileResolver,
+                                                                     CachingTreeVisitor treeVisitor, BuildOperationProcessor buildOperationProcessor) {
+        return Boolean.getBoolean(PARALLEL_SNAPSHOTTING_PROPERTY)
+            ? new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, stringInterner, fileResolver, treeVisitor, buildOperationProcessor)
+            : new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, stringInterner, fileResolver, treeVisitor);
+    }
+
+    MinimalFileSetSnapshotter createDiscoveredFileCollectionSnapshotter(FileSnapshotter fileSnapshotter, TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner, FileResolver fileResolver,
+                                                                        FileSystem fileSystem) {
+        return new MinimalFileSetSnapshotter(fileSnapshotter, cacheAccess, stringInterner, fileResolver, fileSystem);
+    }
 
-        FileCollectionSnapshotter outputFilesSnapshotter = new OutputFilesCollectionSnapshotter(fileCollectionSnapshotter, stringInterner);
+    OutputFilesCollectionSnapshotter createOutputFilesSnapshotter(DefaultFileCollectionSnapshotter fileCollectionSnapshotter, StringInterner stringInterner) {
+        return new OutputFilesCollectionSnapshotter(fileCollectionSnapshotter, stringInterner);
+    }
 
+    TaskHistoryRepository createTaskHistoryRepository(TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner, DefaultFileCollectionSnapshotter fileCollectionSnapshotter,
+                                                      MinimalFileSetSnapshotter discoveredFileCollectionSnapshotter, OutputFilesCollectionSnapshotter outputFilesSnapshotter,
+                                                      ExecutorFactory executorFactory) {
         SerializerRegistry<FileCollectionSnapshot> serializerRegistry = new DefaultSerializerRegistry<FileCollectionSnapshot>();
         fileCollectionSnapshotter.registerSerializers(serializerRegistry);
         outputFilesSnapshotter.registerSerializers(serializerRegistry);
         discoveredFileCollectionSnapshotter.registerSerializers(serializerRegistry);
 
-        TaskHistoryRepository taskHistoryRepository = new CacheBackedTaskHistoryRepository(cacheAccess,
+        return new CacheBackedTaskHistoryRepository(cacheAccess,
             new CacheBackedFileSnapshotRepository(cacheAccess,
                 serializerRegistry.build(),
                 new RandomLongIdGenerator()),
-            stringInterner);
+            stringInterner,
+            Boolean.getBoolean(WRITE_BEHIND_TASK_HISTORY_PROPERTY) ? new TaskHistoryUpdateQueue(cacheAccess, executorFactory) : null);
+    }
 
+    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, StartParameter startParameter, TaskHistoryRepository taskHistoryRepository, FileCollectionFactory fileCollectionFactory,
+                                                                  DefaultFileCollectionSnapshotter fileCollectionSnapshotter, MinimalFileSetSnapshotter discoveredFileCollectionSnapshotter,
+                                                                  OutputFilesCollectionSnapshotter outputFilesSnapshotter) {
         return new ShortCircuitTaskArtifactStateRepository(
             startParameter,
             instantiator,
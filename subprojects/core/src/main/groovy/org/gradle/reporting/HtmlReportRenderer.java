@@ -93,7 +93,8 @@ public class HtmlReportRenderer {
             this.outputDirectory = outputDirectory;
         }
 
-        Resource addResource(URL source) {
+        // Pages may be rendered concurrently
+        synchronized Resource addResource(URL source) {
             String urlString = source.toString();
             Resource resource = resources.get(urlString);
             if (resource == null) {
@@ -68,6 +68,7 @@ public class DefaultTaskArtifactStateRepositoryTest extends Specification {
         }
     }
     DefaultTaskArtifactStateRepository repository
+    TaskHistoryRepository taskHistoryRepository
     CachingTreeVisitor treeVisitor
 
     def setup() {
@@ -83,7 +84,7 @@ public class DefaultTaskArtifactStateRepositoryTest extends Specification {
         inputFilesSnapshotter.registerSerializers(serializerRegistry);
         outputFilesSnapshotter.registerSerializers(serializerRegistry);
         discoveredFilesSnapshotter.registerSerializers(serializerRegistry);
-        TaskHistoryRepository taskHistoryRepository = new CacheBackedTaskHistoryRepository(cacheAccess, new CacheBackedFileSnapshotRepository(cacheAccess, serializerRegistry.build(), new RandomLongIdGenerator()), stringInterner)
+        taskHistoryRepository = new CacheBackedTaskHistoryRepository(cacheAccess, new CacheBackedFileSnapshotRepository(cacheAccess, serializerRegistry.build(), new RandomLongIdGenerator()), stringInterner)
         repository = new DefaultTaskArtifactStateRepository(taskHistoryRepository, DirectInstantiator.INSTANCE, outputFilesSnapshotter, inputFilesSnapshotter, discoveredFilesSnapshotter, TestFiles.fileCollectionFactory())
     }
 
@@ -594,6 +595,42 @@ public class DefaultTaskArtifactStateRepositoryTest extends Specification {
         return changedFiles
     }
 
+    def "records the time taken to execute the task"() {
+        expect:
+        taskHistoryRepository.getLastExecutionTime(task) == null
+
+        when:
+        TaskArtifactState state = repository.getStateFor(task)
+        state.isUpToDate([])
+        state.beforeTask()
+        task.execute()
+        state.afterTask()
+
+        then:
+        taskHistoryRepository.getLastExecutionTime(task) >= 0
+    }
+
+    def "keeps the previous execution time when the outputs are loaded from the cache"() {
+        given:
+        TaskArtifactState state = repository.getStateFor(task)
+        state.isUpToDate([])
+        state.beforeTask()
+        task.execute()
+        state.afterTask()
+        def executionTime = taskHistoryRepository.getLastExecutionTime(task)
+        outputFile.delete()
+
+        when:
+        state = repository.getStateFor(task)
+        state.isUpToDate([])
+        state.beforeTask()
+        task.state.fromCache()
+        state.afterTask()
+
+        then:
+        taskHistoryRepository.getLastExecutionTime(task) == executionTime
+    }
+
     private void upToDate(TaskInternal task) {
         final state = repository.getStateFor(task)
         assert state.isUpToDate([])
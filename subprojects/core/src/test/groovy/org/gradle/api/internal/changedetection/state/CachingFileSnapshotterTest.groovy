@@ -17,7 +17,9 @@
 package org.gradle.api.internal.changedetection.state
 
 import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.hash.FileHashingStrategy
 import org.gradle.api.internal.hash.Hasher
+import org.gradle.api.internal.hash.Murmur3Hasher
 import org.gradle.cache.PersistentIndexedCache
 import org.gradle.internal.hash.HashUtil
 import org.gradle.internal.resource.TextResource
@@ -41,6 +43,23 @@ class CachingFileSnapshotterTest extends Specification {
         hasher = new CachingFileSnapshotter(target, cacheAccess, new StringInterner());
     }
 
+    def "uses the cache of the hashing strategy"() {
+        def murmur3Cache = Mock(PersistentIndexedCache)
+
+        when:
+        def snapshotter = new CachingFileSnapshotter(FileHashingStrategy.MURMUR3, cacheAccess, new StringInterner())
+        def result = snapshotter.snapshot(file)
+
+        then:
+        1 * cacheAccess.createCache("murmur3FileHashes", _, _) >> murmur3Cache
+        1 * murmur3Cache.get(file.getAbsolutePath()) >> null
+        1 * murmur3Cache.put(file.getAbsolutePath(), _)
+        0 * _._
+
+        and:
+        result.hash == new Murmur3Hasher().hash(file)
+    }
+
     def hashesFileWhenHashNotCached() {
         when:
         def result = hasher.snapshot(file)
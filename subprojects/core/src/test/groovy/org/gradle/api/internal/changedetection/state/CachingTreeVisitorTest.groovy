@@ -16,11 +16,13 @@
 
 package org.gradle.api.internal.changedetection.state
 
+import org.gradle.api.file.FileTreeElement
 import org.gradle.api.internal.file.DefaultSourceDirectorySet
 import org.gradle.api.internal.file.FileTreeInternal
 import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.internal.file.collections.DefaultDirectoryFileTreeFactory
 import org.gradle.api.internal.file.collections.DefaultFileCollectionResolveContext
+import org.gradle.internal.Factory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.UsesNativeServices
 import org.junit.Rule
@@ -113,6 +115,33 @@ class CachingTreeVisitorTest extends Specification {
         treeVisitor.cachedTrees.size() == 1
     }
 
+    def "syncs watched trees again once a task has finished"() {
+        given:
+        def watchedTrees = Mock(WatchedFileTreeCache)
+        def visitor = new CachingTreeVisitor(watchedTrees)
+        createSampleFiles()
+        def tree = resolveAsFileTrees()[0]
+        def otherTree = resolveAsFileTrees(null, null, testDir.file("a/b"))[0]
+        def otherTree2 = resolveAsFileTrees(null, null, testDir.file("a/b/c"))[0]
+        watchedTrees.getOrVisit(_, _) >> { File dir, Factory<Collection<FileTreeElement>> factory -> factory.create() }
+
+        when:
+        visitor.clearCache()
+        visitor.visitTreeForSnapshotting(tree, true)
+        visitor.visitTreeForSnapshotting(otherTree, true)
+
+        then:
+        1 * watchedTrees.sync()
+
+        when:
+        // another task finishes after this task's cache was cleared
+        visitor.taskFinished()
+        visitor.visitTreeForSnapshotting(otherTree2, true)
+
+        then:
+        1 * watchedTrees.sync()
+    }
+
     private def createSampleFiles() {
         [testDir.createFile("a/file1.txt"),
          testDir.createFile("a/b/file2.txt"),
@@ -121,11 +150,11 @@ class CachingTreeVisitorTest extends Specification {
          testDir.createFile("a/file5.md"),]
     }
 
-    private List<FileTreeInternal> resolveAsFileTrees(includePattern = null, includeFilter = null) {
+    private List<FileTreeInternal> resolveAsFileTrees(includePattern = null, includeFilter = null, srcDir = testDir.testDirectory) {
         def fileResolver = TestFiles.resolver()
 
         def directorySet = new DefaultSourceDirectorySet("files", fileResolver, new DefaultDirectoryFileTreeFactory())
-        directorySet.srcDir(testDir.getTestDirectory())
+        directorySet.srcDir(srcDir)
         if (includePattern) {
             directorySet.include(includePattern)
         }
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.internal.hash.HashUtil
+import org.gradle.internal.serialize.SerializerSpec
+
+class CompactFileCollectionSnapshotSerializerTest extends SerializerSpec {
+
+    def serializer = new CompactFileCollectionSnapshotSerializer()
+
+    def "reads and writes the snapshot"() {
+        when:
+        def hash = HashUtil.createHash("foo", "md5")
+        def paths = (1..40).collect { "/root/some/dir/file$it".toString() }
+        def snapshots = paths.collectEntries { [it, new FileHashSnapshot(hash)] }
+        snapshots["/root/some/dir"] = DirSnapshot.getInstance()
+        snapshots["/root/missing"] = MissingFileSnapshot.getInstance()
+        CompactFileCollectionSnapshot out = serialize(CompactFileCollectionSnapshot.of(snapshots), serializer)
+
+        then:
+        def map = out.toMap()
+        map.size() == 42
+        map["/root/some/dir"] instanceof DirSnapshot
+        map["/root/missing"] instanceof MissingFileSnapshot
+        paths.every { ((FileHashSnapshot) map[it]).hash == hash }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.internal.tasks.cache.DefaultTaskCacheKeyBuilder
+import org.gradle.internal.hash.HashUtil
+import org.gradle.internal.hash.HashValue
+import org.gradle.util.ChangeListener
+import spock.lang.Specification
+
+import static org.gradle.api.internal.changedetection.state.FileCollectionSnapshot.ChangeFilter.IgnoreAddedFiles
+
+class CompactFileCollectionSnapshotTest extends Specification {
+    def hash1 = HashUtil.createHash("1", "md5")
+    def hash2 = HashUtil.createHash("2", "md5")
+
+    def "reports added, removed and changed files"() {
+        def previous = snapshot("/a/1": file(hash1), "/a/2": file(hash1), "/a/3": dir(), "/b": missing())
+        def current = snapshot("/a/1": file(hash1), "/a/2": file(hash2), "/a/4": file(hash1), "/b": dir())
+
+        expect:
+        changes(current, previous) == ["changed /a/2", "removed /a/3", "added /a/4", "changed /b"]
+        changes(current, previous, [IgnoreAddedFiles] as Set) == ["changed /a/2", "removed /a/3", "changed /b"]
+        changes(current, current) == []
+    }
+
+    def "ignores last modified time when looking for content changes"() {
+        expect:
+        changes(snapshot("/a": file(hash1, 1)), snapshot("/a": file(hash1, 2))) == []
+    }
+
+    def "reports changes since a map backed snapshot"() {
+        def previous = new FileCollectionSnapshotImpl(["/a/1": file(hash1), "/a/2": file(hash1)])
+        def current = snapshot("/a/1": file(hash2), "/a/3": file(hash1))
+
+        expect:
+        changes(current, previous) == ["changed /a/1", "removed /a/2", "added /a/3"]
+        changes(previous, current) as Set == ["changed /a/1", "added /a/2", "removed /a/3"] as Set
+    }
+
+    def "finds the snapshot of a file"() {
+        def paths = (100..199).collect { "/some/dir/file$it".toString() }
+        def snapshots = paths.collectEntries { [it, file(new HashValue(it.bytes))] }
+        snapshots["/some/dir"] = dir()
+        def snapshot = snapshot(snapshots)
+
+        expect:
+        paths.every { path -> snapshot.snapshot.findSnapshot(new File(path)).hash == new HashValue(path.bytes) }
+        snapshot.snapshot.findSnapshot(new File("/some/dir")) == null
+        snapshot.snapshot.findSnapshot(new File("/some/dir/file")) == null
+        snapshot.snapshot.findSnapshot(new File("/some/dir/file1999")) == null
+        snapshot.snapshot.findSnapshot(new File("/other")) == null
+        snapshot([:]).snapshot.findSnapshot(new File("/other")) == null
+    }
+
+    def "lists the files, excluding directories"() {
+        expect:
+        snapshot("/a": dir(), "/a/1": file(hash1), "/b": missing()).files == [new File("/a/1"), new File("/b")]
+    }
+
+    def "updates entries from a newer snapshot"() {
+        def original = snapshot("/a/1": file(hash1), "/a/2": file(hash1), "/a/3": file(hash1))
+        def newer = snapshot("/a/0": file(hash2), "/a/2": file(hash2), "/a/3": dir())
+
+        expect:
+        entries(original.updateFrom(newer)) == ["/a/2": hash2.asHexString(), "/a/3": "dir"]
+        original.updateFrom(snapshot([:])).files.empty
+        snapshot([:]).updateFrom(newer).files.empty
+    }
+
+    def "applies changes since an older snapshot to a target snapshot"() {
+        def older = snapshot("/a/1": file(hash1), "/a/2": file(hash1), "/a/3": file(hash1, 1))
+        def current = snapshot("/a/1": file(hash1), "/a/3": file(hash1, 2), "/a/4": file(hash2))
+        def target = snapshot("/a/1": file(hash2), "/a/2": file(hash2), "/a/5": dir())
+
+        expect:
+        entries(current.applyAllChangesSince(older, target)) == ["/a/1": hash2.asHexString(), "/a/3": hash1.asHexString(), "/a/4": hash2.asHexString(), "/a/5": "dir"]
+    }
+
+    def "contributes the same cache key as a map backed snapshot"() {
+        def snapshots = ["/a/1": file(hash1), "/a/2": dir(), "/b": missing(), "/a": file(hash2)]
+        def compactKey = new DefaultTaskCacheKeyBuilder()
+        def mapKey = new DefaultTaskCacheKeyBuilder()
+
+        when:
+        snapshot(snapshots).appendToCacheKey(compactKey)
+        new FileCollectionSnapshotImpl(snapshots).appendToCacheKey(mapKey)
+
+        then:
+        compactKey.build().getHashCode() == mapKey.build().getHashCode()
+    }
+
+    private static CompactFileCollectionSnapshot snapshot(Map<String, IncrementalFileSnapshot> snapshots) {
+        return CompactFileCollectionSnapshot.of(snapshots)
+    }
+
+    private static FileHashSnapshot file(HashValue hash, long lastModified = 0) {
+        return new FileHashSnapshot(hash, lastModified)
+    }
+
+    private static DirSnapshot dir() {
+        return DirSnapshot.getInstance()
+    }
+
+    private static MissingFileSnapshot missing() {
+        return MissingFileSnapshot.getInstance()
+    }
+
+    private static Map<String, String> entries(FileCollectionSnapshot snapshot) {
+        return ((CompactFileCollectionSnapshot) snapshot).toMap().collectEntries { path, value ->
+            [path, value instanceof FileHashSnapshot ? value.hash.asHexString() : value instanceof DirSnapshot ? "dir" : "missing"]
+        }.sort()
+    }
+
+    private static List<String> changes(FileCollectionSnapshot current, FileCollectionSnapshot previous, Set<FileCollectionSnapshot.ChangeFilter> filters = [] as Set) {
+        def result = []
+        def listener = new ChangeListener<String>() {
+            void added(String fileName) {
+                result << "added $fileName".toString()
+            }
+
+            void removed(String fileName) {
+                result << "removed $fileName".toString()
+            }
+
+            void changed(String fileName) {
+                result << "changed $fileName".toString()
+            }
+        }
+        def iterator = current.iterateContentChangesSince(previous, filters)
+        while (iterator.next(listener)) {
+        }
+        return result
+    }
+}
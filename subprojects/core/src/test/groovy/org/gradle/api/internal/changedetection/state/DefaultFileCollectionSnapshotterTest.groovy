@@ -20,7 +20,11 @@ import org.gradle.api.file.FileTreeElement
 import org.gradle.api.internal.cache.StringInterner
 import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.internal.file.collections.SimpleFileCollection
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.hash.HashUtil
+import org.gradle.internal.hash.HashValue
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
+import org.gradle.internal.operations.DefaultBuildOperationQueueFactory
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.ChangeListener
@@ -470,6 +474,38 @@ public class DefaultFileCollectionSnapshotterTest extends Specification {
         target.is(original)
     }
 
+    def "parallel snapshot hashes uncached files and produces the same snapshot as a sequential snapshot"() {
+        given:
+        def dir1 = tmpDir.createDir('dir1')
+        def dir2 = tmpDir.createDir('dir2')
+        def createdFiles = (0..<150).collect { i -> (i % 2 == 0 ? dir1 : dir2).createFile("file${i}.txt").write("content ${i}") }
+        def cachedFile = createdFiles[0]
+        def processor = new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(), new DefaultExecutorFactory(), 4)
+        def splitSnapshotter = Mock(FileSnapshotter)
+        def parallelSnapshotter = new DefaultFileCollectionSnapshotter(splitSnapshotter, cacheAccess, new StringInterner(), TestFiles.resolver(), new CachingTreeVisitor(), processor)
+
+        when:
+        def parallel = parallelSnapshotter.snapshot(files(dir1, dir2), true)
+        def sequential = snapshotter.snapshot(files(dir1, dir2), true)
+        changes(parallel, sequential, listener)
+
+        then:
+        _ * splitSnapshotter.findCachedSnapshot(_) >> { FileTreeElement element ->
+            element.file == cachedFile ? Stub(FileSnapshot) { getHash() >> HashUtil.sha1(cachedFile) } : null
+        }
+        0 * splitSnapshotter.calculateHash(cachedFile)
+        149 * splitSnapshotter.calculateHash(_) >> { File file -> HashUtil.sha1(file) }
+        149 * splitSnapshotter.cacheSnapshot(_, _ as HashValue)
+        0 * listener._
+
+        and:
+        parallel.files as Set == createdFiles as Set
+        parallel.files as Set == sequential.files as Set
+
+        cleanup:
+        processor?.stop()
+    }
+
     private void changes(FileCollectionSnapshot newSnapshot, FileCollectionSnapshot oldSnapshot, ChangeListener<String> listener) {
         changes(newSnapshot.iterateContentChangesSince(oldSnapshot, [] as Set), listener)
     }
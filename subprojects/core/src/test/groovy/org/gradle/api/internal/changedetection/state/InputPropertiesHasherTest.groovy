@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.internal.tasks.cache.DefaultTaskCacheKeyBuilder
+import spock.lang.Specification
+
+class InputPropertiesHasherTest extends Specification {
+    def hasher = new InputPropertiesHasher()
+
+    def "hash does not depend on the iteration order of sets and maps"() {
+        def set1 = new LinkedHashSet(["a", "b", "c"])
+        def set2 = new LinkedHashSet(["c", "a", "b"])
+        def map1 = new LinkedHashMap([a: 1, b: [x: true, y: false]])
+        def map2 = new LinkedHashMap([b: [y: false, x: true], a: 1])
+
+        expect:
+        hash([set: set1, map: map1]) == hash([map: map2, set: set2])
+    }
+
+    def "hash depends on property values"() {
+        expect:
+        hash([value: value1]) != hash([value: value2])
+
+        where:
+        value1                     | value2
+        "a"                        | "b"
+        "1"                        | 1
+        1                          | 1L
+        [1, 2]                     | [2, 1]
+        ["a"] as Set               | ["a"]
+        [a: "b"]                   | [b: "a"]
+        null                       | "null"
+        new File("a")              | "a"
+        SomeEnum.A                 | SomeEnum.B
+        new SerializableValue("a") | new SerializableValue("b")
+    }
+
+    def "serializes other values"() {
+        expect:
+        hash([value: new SerializableValue("a")]) == hash([value: new SerializableValue("a")])
+    }
+
+    private String hash(Map<String, Object> properties) {
+        def builder = new DefaultTaskCacheKeyBuilder()
+        hasher.appendTo(properties, builder)
+        return builder.build().hashCode
+    }
+
+    static enum SomeEnum {
+        A, B
+    }
+
+    static class SerializableValue implements Serializable {
+        final String value
+
+        SerializableValue(String value) {
+            this.value = value
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+class TaskHistoryUpdateQueueTest extends ConcurrentSpec {
+    final TaskArtifactStateCacheAccess cacheAccess = Mock()
+    final updates = [].asSynchronized()
+
+    def "writes queued updates in order"() {
+        def queue = new TaskHistoryUpdateQueue(cacheAccess, executorFactory)
+
+        when:
+        queue.submit(":a", update("a"))
+        queue.submit(":b", update("b"))
+        queue.submit(":a", update("c"))
+        queue.flush()
+
+        then:
+        updates == ["a", "b", "c"]
+        (1..3) * cacheAccess.useCache("Update task history", _ as Runnable) >> { String operation, Runnable action -> action.run() }
+
+        cleanup:
+        queue?.stop()
+    }
+
+    def "writes updates queued while the writer is busy in a single batch"() {
+        def queue = new TaskHistoryUpdateQueue(cacheAccess, executorFactory)
+
+        when:
+        queue.submit(":a", {
+            instant.writing
+            thread.blockUntil.queued
+            updates << "a"
+        } as Runnable)
+        thread.blockUntil.writing
+        queue.submit(":b", update("b"))
+        queue.submit(":c", update("c"))
+        instant.queued
+        queue.flush()
+
+        then:
+        updates == ["a", "b", "c"]
+        2 * cacheAccess.useCache("Update task history", _ as Runnable) >> { String operation, Runnable action -> action.run() }
+
+        cleanup:
+        queue?.stop()
+    }
+
+    def "flushing a task waits for updates of that task to be written"() {
+        def queue = new TaskHistoryUpdateQueue(cacheAccess, executorFactory)
+        _ * cacheAccess.useCache("Update task history", _ as Runnable) >> { String operation, Runnable action -> action.run() }
+
+        when:
+        queue.submit(":a", update("a"))
+        queue.flush(":a")
+
+        then:
+        updates == ["a"]
+
+        when:
+        queue.flush(":unknown")
+
+        then:
+        noExceptionThrown()
+
+        cleanup:
+        queue?.stop()
+    }
+
+    def "writes pending updates when stopped"() {
+        def queue = new TaskHistoryUpdateQueue(cacheAccess, executorFactory)
+        _ * cacheAccess.useCache("Update task history", _ as Runnable) >> { String operation, Runnable action -> action.run() }
+
+        when:
+        queue.submit(":a", update("a"))
+        queue.submit(":b", update("b"))
+        queue.stop()
+
+        then:
+        updates == ["a", "b"]
+
+        when:
+        queue.submit(":c", update("c"))
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "rethrows failure to write an update when stopped"() {
+        def failure = new RuntimeException("broken")
+        def queue = new TaskHistoryUpdateQueue(cacheAccess, executorFactory)
+        _ * cacheAccess.useCache("Update task history", _ as Runnable) >> { String operation, Runnable action -> action.run() }
+
+        when:
+        queue.submit(":a", { throw failure } as Runnable)
+        queue.submit(":b", update("b"))
+        queue.stop()
+
+        then:
+        def e = thrown(RuntimeException)
+        e == failure
+        updates == ["b"]
+    }
+
+    def "rethrows failure to write an update when flushed"() {
+        def failure = new RuntimeException("broken")
+        def queue = new TaskHistoryUpdateQueue(cacheAccess, executorFactory)
+        _ * cacheAccess.useCache("Update task history", _ as Runnable) >> { String operation, Runnable action -> action.run() }
+
+        when:
+        queue.submit(":a", { throw failure } as Runnable)
+        queue.flush(":a")
+
+        then:
+        noExceptionThrown()
+
+        when:
+        queue.flush()
+
+        then:
+        def e = thrown(RuntimeException)
+        e == failure
+
+        cleanup:
+        queue?.stop()
+    }
+
+    private Runnable update(String name) {
+        return { updates << name } as Runnable
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.Action
+import org.gradle.api.file.FileTreeElement
+import org.gradle.api.internal.file.FileSystemSubset
+import org.gradle.api.internal.file.TemporaryFileProvider
+import org.gradle.internal.Factory
+import org.gradle.internal.filewatch.FileWatcher
+import org.gradle.internal.filewatch.FileWatcherEvent
+import org.gradle.internal.filewatch.FileWatcherFactory
+import org.gradle.internal.filewatch.FileWatcherListener
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class WatchedFileTreeCacheTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    final fileWatcher = Mock(FileWatcher)
+    final fileWatcherFactory = Mock(FileWatcherFactory)
+    final temporaryFileProvider = Stub(TemporaryFileProvider)
+    FileWatcherListener listener
+    Action<Throwable> onError
+    def syncDir = tmpDir.createDir("sync")
+    def dir = tmpDir.createDir("dir")
+    def cache = new WatchedFileTreeCache(fileWatcherFactory, temporaryFileProvider, 1000, 100)
+
+    def setup() {
+        temporaryFileProvider.createTemporaryDirectory(*_) >> syncDir
+        _ * fileWatcherFactory.watch(_, _) >> { e, l ->
+            onError = e
+            listener = l
+            fileWatcher
+        }
+    }
+
+    def "reuses the result of visiting a directory until a change is reported"() {
+        def visitor = Mock(Factory)
+        def elements = [Stub(FileTreeElement)]
+
+        when:
+        def first = cache.getOrVisit(dir, visitor)
+        def second = cache.getOrVisit(dir, visitor)
+
+        then:
+        1 * fileWatcher.watch({ FileSystemSubset subset -> subset.contains(syncDir) })
+        1 * fileWatcher.watch({ FileSystemSubset subset -> subset.contains(dir) })
+        1 * visitor.create() >> elements
+        first.is(elements)
+        second.is(elements)
+
+        when:
+        listener.onChange(fileWatcher, FileWatcherEvent.modify(dir.file("some/file.txt")))
+        def third = cache.getOrVisit(dir, visitor)
+
+        then:
+        1 * visitor.create() >> []
+        third == []
+    }
+
+    def "discards the result for a directory when an ancestor changes"() {
+        def visitor = Mock(Factory)
+
+        given:
+        visit(dir)
+
+        when:
+        listener.onChange(fileWatcher, FileWatcherEvent.delete(tmpDir.testDirectory))
+        cache.getOrVisit(dir, visitor)
+
+        then:
+        1 * visitor.create() >> []
+    }
+
+    def "keeps the result for a directory when a sibling changes"() {
+        def visitor = Mock(Factory)
+
+        given:
+        visit(dir)
+
+        when:
+        listener.onChange(fileWatcher, FileWatcherEvent.modify(tmpDir.file("dir2/file.txt")))
+        listener.onChange(fileWatcher, FileWatcherEvent.modify(tmpDir.file("dir-other")))
+        cache.getOrVisit(dir, visitor)
+
+        then:
+        0 * visitor.create()
+    }
+
+    def "discards all results when events have been lost"() {
+        def visitor = Mock(Factory)
+
+        given:
+        visit(dir)
+
+        when:
+        listener.onChange(fileWatcher, FileWatcherEvent.undefined())
+        cache.getOrVisit(dir, visitor)
+
+        then:
+        1 * visitor.create() >> []
+    }
+
+    def "does not keep the result when a change is reported while visiting"() {
+        def visitor = Mock(Factory)
+
+        given:
+        visit(dir)
+        listener.onChange(fileWatcher, FileWatcherEvent.modify(dir))
+
+        when:
+        cache.getOrVisit(dir, visitor)
+        cache.getOrVisit(dir, visitor)
+
+        then:
+        1 * visitor.create() >> {
+            listener.onChange(fileWatcher, FileWatcherEvent.create(dir.file("new.txt")))
+            []
+        }
+        1 * visitor.create() >> []
+    }
+
+    def "does not cache directories that do not exist"() {
+        def visitor = Mock(Factory)
+        def missing = tmpDir.file("missing")
+
+        when:
+        cache.getOrVisit(missing, visitor)
+        cache.getOrVisit(missing, visitor)
+
+        then:
+        2 * visitor.create() >> []
+        0 * fileWatcherFactory._
+    }
+
+    def "evicts least recently used results when too many elements are cached"() {
+        def visitor = Mock(Factory)
+        def dir2 = tmpDir.createDir("dir2")
+        def dir3 = tmpDir.createDir("dir3")
+
+        given:
+        cache.getOrVisit(dir, Stub(Factory) { create() >> elements(40) })
+        cache.getOrVisit(dir2, Stub(Factory) { create() >> elements(40) })
+        cache.getOrVisit(dir, visitor)
+        cache.getOrVisit(dir3, Stub(Factory) { create() >> elements(40) })
+
+        when:
+        cache.getOrVisit(dir, visitor)
+        cache.getOrVisit(dir2, visitor)
+
+        then:
+        1 * visitor.create() >> []
+    }
+
+    def "sync waits for the watcher to report the sync markers"() {
+        def visitor = Mock(Factory)
+
+        given:
+        visit(dir)
+        def reporter = Thread.start {
+            def reported = [] as Set
+            while (reported.size() < 2) {
+                syncDir.listFiles().each { file ->
+                    if (reported.add(file.name)) {
+                        listener.onChange(fileWatcher, FileWatcherEvent.create(file))
+                    }
+                }
+                Thread.sleep(10)
+            }
+        }
+
+        when:
+        cache.sync()
+        reporter.join()
+        cache.getOrVisit(dir, visitor)
+
+        then:
+        0 * visitor.create()
+        syncDir.list().length == 0
+    }
+
+    def "discards all results when the watcher does not report the sync markers in time"() {
+        def visitor = Mock(Factory)
+        cache = new WatchedFileTreeCache(fileWatcherFactory, temporaryFileProvider, 50, 100)
+
+        given:
+        visit(dir)
+
+        when:
+        cache.sync()
+        cache.getOrVisit(dir, visitor)
+
+        then:
+        1 * visitor.create() >> []
+    }
+
+    def "stops caching when the watcher fails"() {
+        def visitor = Mock(Factory)
+
+        given:
+        visit(dir)
+
+        when:
+        onError.execute(new RuntimeException("broken"))
+        cache.getOrVisit(dir, visitor)
+        cache.getOrVisit(dir, visitor)
+
+        then:
+        2 * visitor.create() >> []
+    }
+
+    def "stops the watcher when stopped"() {
+        given:
+        visit(dir)
+
+        when:
+        cache.stop()
+
+        then:
+        1 * fileWatcher.stop()
+        !syncDir.exists()
+    }
+
+    private void visit(File dir) {
+        cache.getOrVisit(dir, Stub(Factory) { create() >> [] })
+    }
+
+    private List<FileTreeElement> elements(int count) {
+        (1..count).collect { Stub(FileTreeElement) }
+    }
+}
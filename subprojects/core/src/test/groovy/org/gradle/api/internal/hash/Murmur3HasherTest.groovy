@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash
+
+import com.google.common.hash.Hashing
+import org.gradle.internal.hash.HashValue
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class Murmur3HasherTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    @Unroll
+    def "calculates same hash as Guava for file of #length bytes when #description"() {
+        def hasher = new Murmur3Hasher(mappingThreshold)
+        def content = new byte[length]
+        new Random(length).nextBytes(content)
+        def file = tmpDir.file("content.bin")
+        file.bytes = content
+
+        expect:
+        hasher.hash(file) == new HashValue(Hashing.murmur3_128().hashBytes(content).asBytes())
+
+        where:
+        [length, mappingThreshold, description] << [[0, 1, 7, 8, 9, 15, 16, 17, 64 * 1024 - 1, 64 * 1024, 64 * 1024 + 1, 200003], [Long.MAX_VALUE, 0L]].combinations().collect {
+            [it[0], it[1], it[1] == 0L ? "memory-mapped" : "buffered"]
+        }
+    }
+
+    def "reuses buffer for files hashed by the same thread"() {
+        def hasher = new Murmur3Hasher(Long.MAX_VALUE)
+        def file1 = tmpDir.file("one.txt")
+        file1.text = "some longer content that fills more than one block"
+        def file2 = tmpDir.file("two.txt")
+        file2.text = "short"
+
+        expect:
+        hasher.hash(file1) == new HashValue(Hashing.murmur3_128().hashBytes(file1.bytes).asBytes())
+        hasher.hash(file2) == new HashValue(Hashing.murmur3_128().hashBytes(file2.bytes).asBytes())
+        hasher.hash(file1) == new HashValue(Hashing.murmur3_128().hashBytes(file1.bytes).asBytes())
+    }
+
+    def "uses a separate cache for each hashing strategy"() {
+        expect:
+        FileHashingStrategy.MD5.cacheName != FileHashingStrategy.MURMUR3.cacheName
+        FileHashingStrategy.MD5.createHasher() instanceof DefaultHasher
+        FileHashingStrategy.MURMUR3.createHasher() instanceof Murmur3Hasher
+    }
+}
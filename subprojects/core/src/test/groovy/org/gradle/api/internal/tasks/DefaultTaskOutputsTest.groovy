@@ -74,6 +74,39 @@ class DefaultTaskOutputsTest extends Specification {
         outputs.hasOutput
     }
 
+    def "caching is not allowed by default"() {
+        when:
+        outputs.files('a')
+
+        then:
+        !outputs.cacheAllowed
+    }
+
+    def "caching is allowed when cacheIf predicate is satisfied and output files are declared"() {
+        boolean cacheable = true
+
+        when:
+        outputs.files('a')
+        outputs.cacheIf { cacheable }
+
+        then:
+        outputs.cacheAllowed
+
+        when:
+        cacheable = false
+
+        then:
+        !outputs.cacheAllowed
+    }
+
+    def "caching is not allowed when no output files are declared"() {
+        when:
+        outputs.cacheIf { true }
+
+        then:
+        !outputs.cacheAllowed
+    }
+
     public void canSpecifyUpToDatePredicateUsingClosure() {
         boolean upToDate = false
 
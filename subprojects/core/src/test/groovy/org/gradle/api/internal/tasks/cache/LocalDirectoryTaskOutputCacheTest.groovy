@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache
+
+import org.gradle.cache.CacheBuilder
+import org.gradle.cache.CacheRepository
+import org.gradle.cache.PersistentCache
+import org.gradle.internal.Factory
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class LocalDirectoryTaskOutputCacheTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cacheRepository = Mock(CacheRepository)
+    def cacheBuilder = Mock(CacheBuilder)
+    def persistentCache = Mock(PersistentCache)
+    TestFile cacheDir
+    LocalDirectoryTaskOutputCache cache
+
+    def setup() {
+        cacheDir = tmpDir.createDir("cache")
+        _ * cacheRepository.cache(cacheDir) >> cacheBuilder
+        _ * cacheBuilder.open() >> persistentCache
+        _ * cacheBuilder._ >> cacheBuilder
+        _ * persistentCache.baseDir >> cacheDir
+        _ * persistentCache.useCache(_, _ as Factory) >> { String name, Factory action -> action.create() }
+        _ * persistentCache.useCache(_, _ as Runnable) >> { String name, Runnable action -> action.run() }
+        cache = new LocalDirectoryTaskOutputCache(cacheRepository, cacheDir)
+    }
+
+    def "stores and loads entry"() {
+        def key = key("0123abcd")
+
+        when:
+        cache.store(key, { output -> output.write("content".bytes) } as TaskOutputWriter)
+        def content = null
+        def found = cache.load(key, { input -> content = input.text } as TaskOutputReader)
+
+        then:
+        found
+        content == "content"
+        !cache.load(key("4567abcd"), { input -> throw new AssertionError() } as TaskOutputReader)
+    }
+
+    def "removes entries that have not been used for a week when stopped"() {
+        def unused = unusedFile("0001")
+        def loaded = unusedFile("0002")
+        def recent = cacheDir.file("0003").createFile()
+        def partial = unusedFile("0004.part")
+        def properties = unusedFile("cache.properties")
+
+        when:
+        cache.load(key("0002"), { input -> } as TaskOutputReader)
+        cache.stop()
+
+        then:
+        !unused.exists()
+        !partial.exists()
+        loaded.exists()
+        recent.exists()
+        properties.exists()
+
+        and:
+        1 * persistentCache.close()
+    }
+
+    def "does not open cache when stopped without being used"() {
+        when:
+        cache.stop()
+
+        then:
+        0 * cacheBuilder.open()
+        0 * persistentCache._
+    }
+
+    private File unusedFile(String name) {
+        def file = cacheDir.file(name).createFile()
+        file.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(LocalDirectoryTaskOutputCache.MAX_UNUSED_DAYS + 1))
+        return file
+    }
+
+    private TaskCacheKey key(String hashCode) {
+        return Stub(TaskCacheKey) {
+            getHashCode() >> hashCode
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache
+
+import org.gradle.api.file.FileCollection
+import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class ZipTaskOutputPackerTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def packer = new ZipTaskOutputPacker()
+    def taskOutputs = Stub(TaskOutputsInternal)
+    def outputFiles = Stub(FileCollection)
+
+    def setup() {
+        _ * taskOutputs.files >> outputFiles
+    }
+
+    def "can pack and unpack file and directory outputs"() {
+        def outputDir = tmpDir.file("classes")
+        outputDir.file("org/gradle/Foo.class").text = "foo"
+        outputDir.file("org/gradle/Bar.class").text = "bar"
+        outputDir.file("empty").createDir()
+        def outputFile = tmpDir.file("report.txt")
+        outputFile.text = "report"
+        _ * outputFiles.files >> ([outputDir, outputFile] as LinkedHashSet)
+        def packed = new ByteArrayOutputStream()
+
+        when:
+        packer.pack(taskOutputs, packed)
+        outputDir.deleteDir()
+        outputFile.text = "stale"
+        packer.unpack(taskOutputs, new ByteArrayInputStream(packed.toByteArray()))
+
+        then:
+        outputDir.file("org/gradle/Foo.class").text == "foo"
+        outputDir.file("org/gradle/Bar.class").text == "bar"
+        outputDir.file("empty").directory
+        outputFile.text == "report"
+    }
+
+    def "removes stale files and outputs that did not exist when packed"() {
+        def outputDir = tmpDir.file("classes")
+        outputDir.file("Foo.class").text = "foo"
+        def missingFile = tmpDir.file("missing.txt")
+        _ * outputFiles.files >> ([outputDir, missingFile] as LinkedHashSet)
+        def packed = new ByteArrayOutputStream()
+
+        when:
+        packer.pack(taskOutputs, packed)
+        outputDir.file("Stale.class").text = "stale"
+        missingFile.text = "stale"
+        packer.unpack(taskOutputs, new ByteArrayInputStream(packed.toByteArray()))
+
+        then:
+        outputDir.assertHasDescendants("Foo.class")
+        missingFile.assertDoesNotExist()
+    }
+
+    def "does not unpack entries outside of the output directory"() {
+        def outputDir = tmpDir.file("classes")
+        def outsideFile = tmpDir.file("outside.txt")
+        _ * outputFiles.files >> ([outputDir] as LinkedHashSet)
+        def packed = new ByteArrayOutputStream()
+        def zipOutput = new ZipOutputStream(packed)
+        zipOutput.putNextEntry(new ZipEntry("dir/0/"))
+        zipOutput.closeEntry()
+        zipOutput.putNextEntry(new ZipEntry("dir/0/../outside.txt"))
+        zipOutput.write("evil".bytes)
+        zipOutput.closeEntry()
+        zipOutput.close()
+
+        when:
+        packer.unpack(taskOutputs, new ByteArrayInputStream(packed.toByteArray()))
+
+        then:
+        def e = thrown(IOException)
+        e.message == "Cached task output entry 'dir/0/../outside.txt' is outside of output directory ${outputDir}."
+        outsideFile.assertDoesNotExist()
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.execution
+
+import org.gradle.api.file.FileCollection
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.internal.changedetection.TaskArtifactState
+import org.gradle.api.internal.tasks.TaskExecuter
+import org.gradle.api.internal.tasks.TaskExecutionContext
+import org.gradle.api.internal.tasks.TaskStateInternal
+import org.gradle.api.internal.tasks.cache.TaskCacheKey
+import org.gradle.api.internal.tasks.cache.TaskOutputCache
+import org.gradle.api.internal.tasks.cache.TaskOutputPacker
+import org.gradle.api.internal.tasks.cache.TaskOutputReader
+import org.gradle.api.internal.tasks.cache.TaskOutputWriter
+import spock.lang.Specification
+
+public class SkipCachedTaskExecuterTest extends Specification {
+    def delegate = Mock(TaskExecuter)
+    def task = Mock(TaskInternal)
+    def taskOutputs = Mock(TaskOutputsInternal)
+    def taskState = Mock(TaskStateInternal)
+    def taskContext = Mock(TaskExecutionContext)
+    def taskArtifactState = Mock(TaskArtifactState)
+    def taskOutputCache = Mock(TaskOutputCache)
+    def taskOutputPacker = Mock(TaskOutputPacker)
+    def cacheKey = Mock(TaskCacheKey)
+
+    def executer = new SkipCachedTaskExecuter(taskOutputCache, taskOutputPacker, delegate)
+
+    def "skip task when cached results exist"() {
+        when:
+        executer.execute(task, taskState, taskContext)
+
+        then:
+        1 * task.getOutputs() >> taskOutputs
+        1 * taskOutputs.isCacheAllowed() >> true
+        1 * taskContext.getTaskArtifactState() >> taskArtifactState
+        1 * taskArtifactState.calculateCacheKey() >> cacheKey
+
+        then:
+        1 * taskOutputCache.load(cacheKey, _) >> { TaskCacheKey key, TaskOutputReader reader ->
+            reader.readFrom(new ByteArrayInputStream())
+            true
+        }
+        1 * taskOutputPacker.unpack(taskOutputs, _)
+        _ * taskOutputCache.getDescription() >> "test cache"
+
+        then:
+        1 * taskState.fromCache()
+        0 * delegate.execute(_, _, _)
+        0 * taskOutputCache.store(_, _)
+    }
+
+    def "executes task and stores outputs when no cached result is available"() {
+        when:
+        executer.execute(task, taskState, taskContext)
+
+        then:
+        1 * task.getOutputs() >> taskOutputs
+        1 * taskOutputs.isCacheAllowed() >> true
+        1 * taskContext.getTaskArtifactState() >> taskArtifactState
+        1 * taskArtifactState.calculateCacheKey() >> cacheKey
+        1 * taskOutputCache.load(cacheKey, _) >> false
+
+        then:
+        1 * delegate.execute(task, taskState, taskContext)
+        1 * taskState.getFailure() >> null
+
+        then:
+        1 * taskOutputCache.store(cacheKey, _) >> { TaskCacheKey key, TaskOutputWriter writer ->
+            writer.writeTo(new ByteArrayOutputStream())
+        }
+        1 * taskOutputPacker.pack(taskOutputs, _)
+        _ * taskOutputCache.getDescription() >> "test cache"
+        0 * taskState.fromCache()
+    }
+
+    def "does not store outputs when task fails"() {
+        when:
+        executer.execute(task, taskState, taskContext)
+
+        then:
+        1 * task.getOutputs() >> taskOutputs
+        1 * taskOutputs.isCacheAllowed() >> true
+        1 * taskContext.getTaskArtifactState() >> taskArtifactState
+        1 * taskArtifactState.calculateCacheKey() >> cacheKey
+        1 * taskOutputCache.load(cacheKey, _) >> false
+
+        then:
+        1 * delegate.execute(task, taskState, taskContext)
+        1 * taskState.getFailure() >> new RuntimeException()
+        0 * taskOutputCache.store(_, _)
+    }
+
+    def "executes task without using the cache when caching is not allowed"() {
+        when:
+        executer.execute(task, taskState, taskContext)
+
+        then:
+        1 * task.getOutputs() >> taskOutputs
+        1 * taskOutputs.isCacheAllowed() >> false
+
+        then:
+        1 * delegate.execute(task, taskState, taskContext)
+        0 * taskArtifactState._
+        0 * taskOutputCache._
+    }
+
+    def "executes task and removes partially unpacked outputs when loading from cache fails"() {
+        def outputFiles = Mock(FileCollection)
+
+        when:
+        executer.execute(task, taskState, taskContext)
+
+        then:
+        1 * task.getOutputs() >> taskOutputs
+        1 * taskOutputs.isCacheAllowed() >> true
+        1 * taskContext.getTaskArtifactState() >> taskArtifactState
+        1 * taskArtifactState.calculateCacheKey() >> cacheKey
+        1 * taskOutputCache.load(cacheKey, _) >> { throw new IOException("broken") }
+        _ * taskOutputCache.getDescription() >> "test cache"
+        1 * taskOutputs.getFiles() >> outputFiles
+        1 * outputFiles.iterator() >> [].iterator()
+
+        then:
+        1 * delegate.execute(task, taskState, taskContext)
+        0 * taskState.fromCache()
+    }
+}
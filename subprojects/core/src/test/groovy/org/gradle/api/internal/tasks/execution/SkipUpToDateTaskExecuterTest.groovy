@@ -77,6 +77,7 @@ public class SkipUpToDateTaskExecuterTest extends Specification {
 
         then:
         1 * taskArtifactState.afterTask()
+        1 * treeVisitor.taskFinished()
         1 * task.outputs >> outputs
         1 * outputs.setHistory(null)
         1 * taskContext.setTaskArtifactState(null)
@@ -105,6 +106,7 @@ public class SkipUpToDateTaskExecuterTest extends Specification {
         1 * taskState.getFailure() >> new RuntimeException()
 
         then:
+        1 * treeVisitor.taskFinished()
         1 * task.outputs >> outputs
         1 * outputs.setHistory(null)
         1 * taskContext.setTaskArtifactState(null)
@@ -45,8 +45,12 @@ public class BTreePersistentIndexedCacheTest {
         cacheFile = tmpDir.file("cache.bin");
     }
 
+    protected BlockStore createBlockStore(File cacheFile) {
+        return new FileBackedBlockStore(cacheFile);
+    }
+
     private void createCache() {
-        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 4, 100);
+        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 4, 100, createBlockStore(cacheFile));
     }
 
     private void verifyAndCloseCache() {
@@ -126,7 +130,7 @@ public class BTreePersistentIndexedCacheTest {
 
     @Test
     public void reusesEmptySpaceWhenPuttingEntries() {
-        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(cacheFile, stringSerializer, stringSerializer, (short) 4, 100);
+        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(cacheFile, stringSerializer, stringSerializer, (short) 4, 100, createBlockStore(cacheFile));
 
         cache.put("key_1", "abcd");
         cache.put("key_2", "abcd");
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.gradle.util.TestPrecondition;
+import org.junit.Assume;
+import org.junit.Before;
+
+import java.io.File;
+
+public class MappedFileBlockStoreBTreePersistentIndexedCacheTest extends BTreePersistentIndexedCacheTest {
+    @Before
+    public void requiresMappingSupport() {
+        Assume.assumeTrue(TestPrecondition.NOT_WINDOWS.isFulfilled());
+    }
+
+    @Override
+    protected BlockStore createBlockStore(File cacheFile) {
+        // Use tiny regions, so that blocks are split across regions
+        return new MappedFileBlockStore(cacheFile, 64);
+    }
+}
@@ -130,6 +130,34 @@ class DefaultTaskExecutionPlanParallelTaskHandlingTest extends Specification {
         noMoreTasksCurrentlyAvailableForExecution()
     }
 
+    def "task becomes available to a waiting worker once its last dependency completes"() {
+        given:
+        Task a = root.task("a", type: Parallel)
+        Task b = root.task("b", type: Parallel)
+        Task c = root.task("c", type: Parallel).dependsOn(a, b)
+
+        when:
+        addToGraphAndPopulate(c)
+        startTasks(2)
+
+        then:
+        noMoreTasksCurrentlyAvailableForExecution()
+
+        when:
+        executionPlan.taskComplete(startedTasks.remove(0))
+
+        then:
+        ConcurrentTestUtil.poll(3, 0.01) {
+            assert blockedThreads[0].state == Thread.State.WAITING
+        }
+
+        when:
+        completeAllStartedTasks()
+
+        then:
+        requestedTasksBecomeAvailableForExecution()
+    }
+
     def "two parallelizable tasks with must run after ordering are not executed in parallel"() {
         given:
         Task a = root.task("a", type: Parallel)
@@ -59,6 +59,26 @@ public class DefaultTaskExecutionPlanTest extends Specification {
         }
     }
 
+    def "starts the tasks with the longest critical path first when execution times are known"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+        def estimator = Stub(TaskExecutionTimeEstimator) {
+            estimateExecutionTime(a) >> 10
+            estimateExecutionTime(b) >> 5
+            estimateExecutionTime(c) >> 20
+        }
+        executionPlan = new DefaultTaskExecutionPlan(cancellationHandler, false, estimator)
+
+        when:
+        addToGraphAndPopulate([a, c])
+
+        then:
+        executionPlan.tasks == [a, b, c]
+        executedTasks == [b, c, a]
+    }
+
     def "schedules tasks in dependency order"() {
         given:
         Task a = task("a");
@@ -59,6 +59,7 @@ class TaskExecutionServicesTest extends Specification {
         _ * parent.get(FileCollectionFactory) >> Mock(FileCollectionFactory)
         _ * parent.get(StringInterner) >> new StringInterner()
         _ * cacheRepository.cache(gradle, 'taskArtifacts') >> cacheBuilder
+        _ * cacheRepository.cache('taskOutputs') >> cacheBuilder
         _ * cacheBuilder.withDisplayName(!null) >> cacheBuilder
         _ * cacheBuilder.withLockOptions(!null) >> cacheBuilder
         _ * cacheBuilder.open() >> Mock(PersistentCache)
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import org.gradle.internal.resource.local.DefaultLocallyAvailableExternalResource;
+import org.gradle.internal.resource.local.DefaultLocallyAvailableResource;
+import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of reading the POMs of a corpus, one POM per operation. The {@code dom} benchmark parses each POM into a DOM, as {@link PomReader}
+ * used to do, and the {@code read} benchmark creates a {@link PomReader} and reads its dependencies.
+ *
+ * <p>The corpus defaults to the local Maven repository, and can be set using {@code -Pjmh.args="-p corpus=<dir>"}. Any directory containing
+ * POMs downloaded from Maven Central will do. Add {@code -prof gc} to the JMH arguments to report the allocation per POM.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PomReaderBenchmark {
+    private static final int MAX_POMS = 2000;
+
+    @Param({""})
+    String corpus;
+
+    private final List<File> poms = new ArrayList<File>();
+    private DocumentBuilder documentBuilder;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void findPoms() throws Exception {
+        File dir = corpus.length() > 0 ? new File(corpus) : new File(System.getProperty("user.home"), ".m2/repository");
+        collectPoms(dir);
+        if (poms.isEmpty()) {
+            throw new IllegalArgumentException("No POMs found in " + dir);
+        }
+        Collections.sort(poms);
+        documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        documentBuilder.setEntityResolver(new EntityResolver() {
+            public InputSource resolveEntity(String publicId, String systemId) {
+                if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                    return new InputSource(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
+                }
+                return null;
+            }
+        });
+    }
+
+    private void collectPoms(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (poms.size() >= MAX_POMS) {
+                return;
+            }
+            if (file.isDirectory()) {
+                collectPoms(file);
+            } else if (file.getName().endsWith(".pom")) {
+                poms.add(file);
+            }
+        }
+    }
+
+    private File nextPom() {
+        File pom = poms.get(next);
+        next = (next + 1) % poms.size();
+        return pom;
+    }
+
+    @Benchmark
+    public Object dom() throws Exception {
+        File pom = nextPom();
+        InputStream inputStream = new FileInputStream(pom);
+        try {
+            return documentBuilder.parse(new PomSaxParser.AddDTDFilterInputStream(inputStream), pom.toURI().toASCIIString());
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    @Benchmark
+    public void read(Blackhole blackhole) throws Exception {
+        File pom = nextPom();
+        LocallyAvailableExternalResource resource = new DefaultLocallyAvailableExternalResource(pom.toURI(), new DefaultLocallyAvailableResource(pom));
+        PomReader pomReader = new PomReader(resource);
+        blackhole.consume(pomReader.getDependencies());
+        blackhole.consume(pomReader.getDependencyMgt());
+    }
+}
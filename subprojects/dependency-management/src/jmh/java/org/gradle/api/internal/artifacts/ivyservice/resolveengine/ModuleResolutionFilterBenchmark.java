@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
+
+import org.apache.ivy.core.module.descriptor.DefaultExcludeRule;
+import org.apache.ivy.core.module.descriptor.ExcludeRule;
+import org.apache.ivy.plugins.matcher.ExactPatternMatcher;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.IvyUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of calculating the exclude filters of a dependency graph, in the way that the dependency graph builder does. The {@code direct} benchmark
+ * combines the filters using {@link DefaultModuleResolutionFilter}, and the {@code cached} benchmark uses a {@link ModuleResolutionFilterCache}.
+ *
+ * <p>The graph is shaped like that of a Spring or Hadoop based application. It has several layers of modules, where each module depends on a few modules
+ * in the layer below. Most dependency declarations exclude some of a common set of logging, servlet and web container modules, and some modules also
+ * exclude modules from their own dependencies.</p>
+ *
+ * <p>The graph builder traverses a node again each time an incoming edge is added to it, and calculates the filter of the node from all of its incoming
+ * edges each time. The outgoing edges of the node are only traversed again when the new filter does not accept the same modules as the previous one.
+ * The benchmarks do the same, adding the incoming edges of each node one at a time.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ModuleResolutionFilterBenchmark {
+    // Groups of exclusions that are commonly declared together
+    private static final String[][][] EXCLUDE_PROFILES = {
+        {},
+        {{"commons-logging", "commons-logging"}},
+        {{"commons-logging", "commons-logging"}, {"log4j", "log4j"}},
+        {{"commons-logging", "commons-logging"}, {"log4j", "log4j"}, {"org.slf4j", "slf4j-log4j12"}},
+        {{"javax.servlet", "servlet-api"}, {"javax.servlet", "jsp-api"}, {"org.mortbay.jetty", "*"}},
+        {{"com.sun.jersey", "*"}, {"org.mortbay.jetty", "*"}, {"tomcat", "*"}},
+        {{"*", "asm"}},
+        {{"junit", "junit"}, {"jdk.tools", "jdk.tools"}, {"com.sun.jmx", "jmxri"}}
+    };
+    private static final ModuleIdentifier[] EXCLUDED_MODULES = {
+        DefaultModuleIdentifier.newId("commons-logging", "commons-logging"),
+        DefaultModuleIdentifier.newId("log4j", "log4j"),
+        DefaultModuleIdentifier.newId("org.slf4j", "slf4j-log4j12"),
+        DefaultModuleIdentifier.newId("javax.servlet", "servlet-api"),
+        DefaultModuleIdentifier.newId("org.mortbay.jetty", "jetty"),
+        DefaultModuleIdentifier.newId("com.sun.jersey", "jersey-core"),
+        DefaultModuleIdentifier.newId("asm", "asm"),
+        DefaultModuleIdentifier.newId("junit", "junit")
+    };
+
+    @Param({"6"})
+    int layers;
+
+    @Param({"40"})
+    int modulesPerLayer;
+
+    @Param({"4"})
+    int dependenciesPerModule;
+
+    private List<Node> nodes;
+
+    @Setup(Level.Trial)
+    public void createGraph() {
+        Random random = new Random(42);
+        nodes = new ArrayList<Node>();
+        List<Node> previousLayer = Collections.emptyList();
+        for (int layer = 0; layer < layers; layer++) {
+            List<Node> currentLayer = new ArrayList<Node>();
+            for (int i = 0; i < modulesPerLayer; i++) {
+                Node node = new Node(DefaultModuleIdentifier.newId("org.example.layer" + layer, "module" + i), random.nextInt(5) == 0 ? randomExcludes(random) : new ExcludeRule[0]);
+                for (int j = 0; j < dependenciesPerModule && !previousLayer.isEmpty(); j++) {
+                    Node from = previousLayer.get(random.nextInt(previousLayer.size()));
+                    from.outgoing.add(new Edge(from, node, randomExcludes(random)));
+                }
+                currentLayer.add(node);
+            }
+            nodes.addAll(currentLayer);
+            previousLayer = currentLayer;
+        }
+        for (Node node : nodes) {
+            for (Edge edge : node.outgoing) {
+                edge.to.incoming.add(edge);
+            }
+        }
+    }
+
+    private static ExcludeRule[] randomExcludes(Random random) {
+        String[][] profile = EXCLUDE_PROFILES[random.nextInt(EXCLUDE_PROFILES.length)];
+        ExcludeRule[] rules = new ExcludeRule[profile.length];
+        for (int i = 0; i < profile.length; i++) {
+            rules[i] = new DefaultExcludeRule(IvyUtil.createArtifactId(profile[i][0], profile[i][1], "*", "*", "*"), ExactPatternMatcher.INSTANCE, Collections.emptyMap());
+        }
+        return rules;
+    }
+
+    @Benchmark
+    public void direct(Blackhole blackhole) {
+        Map<Node, ModuleResolutionFilter> filters = new HashMap<Node, ModuleResolutionFilter>();
+        for (Node node : nodes) {
+            int traversals = Math.max(1, node.incoming.size());
+            for (int edgeCount = 1; edgeCount <= traversals; edgeCount++) {
+                ModuleResolutionFilter filter = null;
+                for (Edge edge : node.incoming.subList(0, Math.min(edgeCount, node.incoming.size()))) {
+                    ModuleResolutionFilter edgeFilter = DefaultModuleResolutionFilter.excludeAny(edge.excludes).intersect(filters.get(edge.from));
+                    filter = filter == null ? edgeFilter : filter.union(edgeFilter);
+                }
+                if (filter == null) {
+                    filter = DefaultModuleResolutionFilter.all();
+                }
+                filter = filter.intersect(DefaultModuleResolutionFilter.excludeAny(node.excludes));
+                ModuleResolutionFilter previous = filters.put(node, filter);
+                if (previous == null || !previous.acceptsSameModulesAs(filter)) {
+                    accept(node, filter, blackhole);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void cached(Blackhole blackhole) {
+        ModuleResolutionFilterCache cache = new ModuleResolutionFilterCache();
+        Map<Node, ModuleResolutionFilter> filters = new HashMap<Node, ModuleResolutionFilter>();
+        for (Node node : nodes) {
+            int traversals = Math.max(1, node.incoming.size());
+            for (int edgeCount = 1; edgeCount <= traversals; edgeCount++) {
+                ModuleResolutionFilter filter = null;
+                for (Edge edge : node.incoming.subList(0, Math.min(edgeCount, node.incoming.size()))) {
+                    ModuleResolutionFilter edgeFilter = cache.intersect(cache.excludeAny(edge.excludes), filters.get(edge.from));
+                    filter = filter == null ? edgeFilter : cache.union(filter, edgeFilter);
+                }
+                if (filter == null) {
+                    filter = DefaultModuleResolutionFilter.all();
+                }
+                filter = cache.intersect(filter, cache.excludeAny(node.excludes));
+                ModuleResolutionFilter previous = filters.put(node, filter);
+                if (previous == null || !previous.acceptsSameModulesAs(filter)) {
+                    accept(node, filter, blackhole);
+                }
+            }
+        }
+    }
+
+    private static void accept(Node node, ModuleResolutionFilter filter, Blackhole blackhole) {
+        for (Edge edge : node.outgoing) {
+            blackhole.consume(filter.acceptModule(edge.to.id));
+        }
+        for (ModuleIdentifier module : EXCLUDED_MODULES) {
+            blackhole.consume(filter.acceptModule(module));
+        }
+    }
+
+    private static class Node {
+        final ModuleIdentifier id;
+        final ExcludeRule[] excludes;
+        final List<Edge> incoming = new ArrayList<Edge>();
+        final List<Edge> outgoing = new ArrayList<Edge>();
+
+        Node(ModuleIdentifier id, ExcludeRule[] excludes) {
+            this.id = id;
+            this.excludes = excludes;
+        }
+    }
+
+    private static class Edge {
+        final Node from;
+        final Node to;
+        final ExcludeRule[] excludes;
+
+        Edge(Node from, Node to, ExcludeRule[] excludes) {
+            this.from = from;
+            this.to = to;
+            this.excludes = excludes;
+        }
+    }
+}
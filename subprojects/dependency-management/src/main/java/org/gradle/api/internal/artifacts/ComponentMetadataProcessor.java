@@ -22,7 +22,17 @@ public interface ComponentMetadataProcessor {
         @Override
         public void processMetadata(MutableModuleComponentResolveMetaData metadata) {
         }
+
+        @Override
+        public boolean hasRules() {
+            return false;
+        }
     };
 
     void processMetadata(MutableModuleComponentResolveMetaData metadata);
+
+    /**
+     * Returns true if any rules have been registered that may modify the meta-data of a component.
+     */
+    boolean hasRules();
 }
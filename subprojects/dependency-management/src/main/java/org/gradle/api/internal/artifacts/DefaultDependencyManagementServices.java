@@ -148,6 +148,7 @@ public class DefaultDependencyManagementServices implements DependencyManagement
                                                        ComponentIdentifierFactory componentIdentifierFactory,
                                                        CacheLockingManager cacheLockingManager,
                                                        ResolutionResultsStoreFactory resolutionResultsStoreFactory,
+                                                       ParallelArtifactDownloader artifactDownloader,
                                                        StartParameter startParameter) {
             return new ErrorHandlingConfigurationResolver(
                     new ShortCircuitEmptyConfigurationResolver(
@@ -158,6 +159,7 @@ public class DefaultDependencyManagementServices implements DependencyManagement
                                             metadataHandler,
                                             cacheLockingManager,
                                             resolutionResultsStoreFactory,
+                                            artifactDownloader,
                                             startParameter.isBuildProjectDependencies())),
                             componentIdentifierFactory)
             );
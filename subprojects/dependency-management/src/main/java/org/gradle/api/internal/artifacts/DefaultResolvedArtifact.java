@@ -27,8 +27,9 @@ public class DefaultResolvedArtifact implements ResolvedArtifact {
     private final ResolvedModuleVersion owner;
     private final IvyArtifactName artifact;
     private final ComponentArtifactIdentifier artifactId;
-    private Factory<File> artifactSource;
-    private File file;
+    // The file may be resolved concurrently by multiple threads. Each resolves the file independently, and the result is the same
+    private volatile Factory<File> artifactSource;
+    private volatile File file;
 
     public DefaultResolvedArtifact(ResolvedModuleVersion owner, IvyArtifactName artifact, ComponentArtifactIdentifier artifactId, Factory<File> artifactSource) {
         this.owner = owner;
@@ -86,10 +87,25 @@ public class DefaultResolvedArtifact implements ResolvedArtifact {
     }
 
     public File getFile() {
-        if (file == null) {
-            file = artifactSource.create();
-            artifactSource = null;
+        File result = file;
+        if (result != null) {
+            return result;
         }
-        return file;
+        Factory<File> source = artifactSource;
+        if (source == null) {
+            // Resolved by another thread
+            return file;
+        }
+        result = source.create();
+        file = result;
+        artifactSource = null;
+        return result;
+    }
+
+    /**
+     * Returns true when the file of this artifact has been resolved, so that {@link #getFile()} does not need to do any work.
+     */
+    public boolean isResolved() {
+        return file != null;
     }
 }
@@ -21,6 +21,7 @@ import org.gradle.api.internal.ClassPathRegistry;
 import org.gradle.api.internal.artifacts.dsl.dependencies.DependencyFactory;
 import org.gradle.api.internal.artifacts.ivyservice.*;
 import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.ModuleVersionsCache;
+import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.RepositoryIndexedModuleVersionsCache;
 import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.SingleFileBackedModuleVersionsCache;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.*;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache.InMemoryCachedRepositoryFactory;
@@ -36,6 +37,7 @@ import org.gradle.api.internal.artifacts.ivyservice.projectmodule.DefaultProject
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectDependencyResolver;
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectPublicationRegistry;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.DefaultArtifactDependencyResolver;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache.CrossBuildInMemoryResolvedGraphCache;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolutionResultsStoreFactory;
 import org.gradle.api.internal.artifacts.mvnsettings.*;
 import org.gradle.api.internal.artifacts.repositories.transport.RepositoryTransportFactory;
@@ -52,13 +54,13 @@ import org.gradle.api.internal.project.ProjectRegistry;
 import org.gradle.cache.CacheRepository;
 import org.gradle.initialization.ProjectAccessListener;
 import org.gradle.internal.component.external.model.ModuleComponentArtifactMetaData;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.installation.CurrentGradleInstallation;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resource.cached.ByUrlCachedExternalResourceIndex;
 import org.gradle.internal.resource.cached.ivy.ArtifactAtRepositoryCachedArtifactIndex;
 import org.gradle.internal.resource.connector.ResourceConnectorFactory;
 import org.gradle.internal.resource.local.LocallyAvailableResourceFinder;
-import org.gradle.internal.resource.local.UniquePathKeyFileStore;
 import org.gradle.internal.resource.local.ivy.LocallyAvailableResourceFinderFactory;
 import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.logging.ProgressLoggerFactory;
@@ -111,6 +113,9 @@ class DependencyManagementBuildScopeServices {
     }
 
     ModuleVersionsCache createModuleVersionsCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager) {
+        if (Boolean.getBoolean(RepositoryIndexedModuleVersionsCache.VERSION_INDEX_PROPERTY)) {
+            return new RepositoryIndexedModuleVersionsCache(timeProvider, cacheLockingManager);
+        }
         return new SingleFileBackedModuleVersionsCache(
             timeProvider,
             cacheLockingManager
@@ -149,7 +154,7 @@ class DependencyManagementBuildScopeServices {
     }
 
     ArtifactIdentifierFileStore createArtifactRevisionIdFileStore(CacheLockingManager cacheLockingManager) {
-        return new ArtifactIdentifierFileStore(new UniquePathKeyFileStore(cacheLockingManager.getFileStoreDirectory()), new TmpDirTemporaryFileProvider());
+        return new ArtifactIdentifierFileStore(cacheLockingManager.createFileStore(), new TmpDirTemporaryFileProvider());
     }
 
     MavenSettingsProvider createMavenSettingsProvider() {
@@ -219,6 +224,10 @@ class DependencyManagementBuildScopeServices {
                                                                 CacheLockingManager cacheLockingManager,
                                                                 IvyContextManager ivyContextManager,
                                                                 VersionComparator versionComparator,
+                                                                VersionSelectorScheme versionSelectorScheme,
+                                                                ExecutorFactory executorFactory,
+                                                                CrossBuildInMemoryResolvedGraphCache graphCache,
+                                                                BuildCommencedTimeProvider timeProvider,
                                                                 ServiceRegistry serviceRegistry) {
         DefaultArtifactDependencyResolver resolver = new DefaultArtifactDependencyResolver(
             serviceRegistry,
@@ -226,11 +235,19 @@ class DependencyManagementBuildScopeServices {
             dependencyDescriptorFactory,
             cacheLockingManager,
             ivyContextManager,
-            versionComparator
+            versionComparator,
+            versionSelectorScheme,
+            executorFactory,
+            graphCache,
+            timeProvider
         );
         return new CacheLockingArtifactDependencyResolver(cacheLockingManager, resolver);
     }
 
+    ParallelArtifactDownloader createParallelArtifactDownloader(CacheLockingManager cacheLockingManager, ProgressLoggerFactory progressLoggerFactory, ExecutorFactory executorFactory) {
+        return new ParallelArtifactDownloader(cacheLockingManager, progressLoggerFactory, executorFactory);
+    }
+
     ResolutionResultsStoreFactory createResolutionResultsStoreFactory(TemporaryFileProvider temporaryFileProvider) {
         return new ResolutionResultsStoreFactory(temporaryFileProvider);
     }
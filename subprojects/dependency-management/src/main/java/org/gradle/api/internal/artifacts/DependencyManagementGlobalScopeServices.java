@@ -22,6 +22,7 @@ import org.gradle.api.internal.artifacts.ivyservice.DefaultIvyContextManager;
 import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.*;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.*;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache.CrossBuildInMemoryResolvedGraphCache;
 import org.gradle.internal.resource.connector.ResourceConnectorFactory;
 import org.gradle.internal.resource.transport.file.FileConnectorFactory;
 
@@ -61,4 +62,8 @@ class DependencyManagementGlobalScopeServices {
     ResourceConnectorFactory createFileConnectorFactory() {
         return new FileConnectorFactory();
     }
+
+    CrossBuildInMemoryResolvedGraphCache createResolvedGraphCache() {
+        return new CrossBuildInMemoryResolvedGraphCache();
+    }
 }
@@ -18,6 +18,7 @@ package org.gradle.api.internal.artifacts.ivyservice;
 import net.jcip.annotations.ThreadSafe;
 import org.gradle.cache.CacheAccess;
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.resource.local.PathKeyFileStore;
 import org.gradle.internal.serialize.Serializer;
 
 import java.io.File;
@@ -50,4 +51,16 @@ public interface CacheLockingManager extends ArtifactCacheMetaData, CacheAccess
      * @return Metadata store location
      */
     File createMetaDataStore();
+
+    /**
+     * Creates the store for the artifact files of this cache, located in {@link #getFileStoreDirectory()}. The returned store may only be used
+     * where a cache returned by {@link #createCache(String, Serializer, Serializer)} may be used.
+     */
+    PathKeyFileStore createFileStore();
+
+    /**
+     * Creates the store for the module meta-data files of this cache, located in {@link #createMetaDataStore()}. The returned store may only be used
+     * where a cache returned by {@link #createCache(String, Serializer, Serializer)} may be used.
+     */
+    PathKeyFileStore createMetaDataFileStore();
 }
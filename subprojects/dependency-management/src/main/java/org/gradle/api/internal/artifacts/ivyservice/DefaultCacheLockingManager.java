@@ -15,12 +15,16 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice;
 
+import org.gradle.cache.CacheAccess;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.FileLockManager;
 import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.resource.local.PathKeyFileStore;
+import org.gradle.internal.resource.local.UniquePathKeyFileStore;
 import org.gradle.internal.serialize.Serializer;
 import org.gradle.util.VersionNumber;
 
@@ -29,23 +33,49 @@ import java.io.File;
 
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
+/**
+ * By default, the whole artifact cache is guarded by a single cross-process lock, which is held by {@link #useCache(String, Factory)}.
+ *
+ * <p>When the {@value #SHARDED_CACHE_PROPERTY} system property is set, the meta-data indexes and the file stores are instead split into
+ * {@link ModuleCacheShards}, each with its own cross-process lock that is held only while an entry is accessed. In this mode
+ * {@link #useCache(String, Factory)} only serializes the threads of this process, so processes resolving different modules do not wait for each other.
+ * As the file stores are then no longer guarded by the lock of the whole cache, the sharded layout keeps its own file stores, separate from those
+ * used by processes that run without sharding.</p>
+ */
 public class DefaultCacheLockingManager implements CacheLockingManager, Closeable {
 
     public static final VersionNumber CACHE_LAYOUT_VERSION = CacheLayout.META_DATA.getVersion();
+    public static final String SHARDED_CACHE_PROPERTY = "org.gradle.resolution.shardedCache";
 
     private final PersistentCache cache;
+    private final ModuleCacheShards shards;
+    private final File shardsDir;
+    private final CacheAccess cacheAccess;
 
     public DefaultCacheLockingManager(CacheRepository cacheRepository) {
+        this(cacheRepository, Boolean.getBoolean(SHARDED_CACHE_PROPERTY));
+    }
+
+    DefaultCacheLockingManager(CacheRepository cacheRepository, boolean sharded) {
         cache = cacheRepository
                 .store(CacheLayout.ROOT.getKey())
                 .withCrossVersionCache()
                 .withDisplayName("artifact cache")
                 .withLockOptions(mode(FileLockManager.LockMode.None)) // Don't need to lock anything until we use the caches
                 .open();
+        if (sharded) {
+            shardsDir = new File(createCacheRelativeDir(CacheLayout.META_DATA), "shards");
+            shards = new ModuleCacheShards(cacheRepository, shardsDir, ModuleCacheShards.DEFAULT_SHARD_COUNT);
+            cacheAccess = new InProcessCacheAccess();
+        } else {
+            shards = null;
+            shardsDir = null;
+            cacheAccess = cache;
+        }
     }
 
     public void close() {
-        cache.close();
+        CompositeStoppable.stoppable(shards, cache).stop();
     }
 
     public File getCacheDir() {
@@ -53,34 +83,53 @@ public class DefaultCacheLockingManager implements CacheLockingManager, Closeabl
     }
 
     public void longRunningOperation(String operationDisplayName, final Runnable action) {
-        cache.longRunningOperation(operationDisplayName, action);
+        cacheAccess.longRunningOperation(operationDisplayName, action);
     }
 
     public <T> T useCache(String operationDisplayName, Factory<? extends T> action) {
-        return cache.useCache(operationDisplayName, action);
+        return cacheAccess.useCache(operationDisplayName, action);
     }
 
     public void useCache(String operationDisplayName, Runnable action) {
-        cache.useCache(operationDisplayName, action);
+        cacheAccess.useCache(operationDisplayName, action);
     }
 
     public <T> T longRunningOperation(String operationDisplayName, Factory<? extends T> action) {
-        return cache.longRunningOperation(operationDisplayName, action);
+        return cacheAccess.longRunningOperation(operationDisplayName, action);
     }
 
     public <K, V> PersistentIndexedCache<K, V> createCache(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        if (shards != null) {
+            return shards.createCache(cacheName, keySerializer, valueSerializer);
+        }
         String cacheFileInMetaDataStore = CacheLayout.META_DATA.getKey() + "/" + cacheName;
         return cache.createCache(new PersistentIndexedCacheParameters<K, V>(cacheFileInMetaDataStore, keySerializer, valueSerializer));
     }
 
     public File getFileStoreDirectory() {
+        if (shards != null) {
+            return CacheLayout.FILE_STORE.getPath(shardsDir);
+        }
         return createCacheRelativeDir(CacheLayout.FILE_STORE);
     }
 
     public File createMetaDataStore() {
+        if (shards != null) {
+            return new File(shardsDir, "descriptors");
+        }
         return new File(createCacheRelativeDir(CacheLayout.META_DATA), "descriptors");
     }
 
+    public PathKeyFileStore createFileStore() {
+        File baseDir = getFileStoreDirectory();
+        return shards != null ? new ShardedUniquePathKeyFileStore(baseDir, shards) : new UniquePathKeyFileStore(baseDir);
+    }
+
+    public PathKeyFileStore createMetaDataFileStore() {
+        File baseDir = createMetaDataStore();
+        return shards != null ? new ShardedPathKeyFileStore(baseDir, shards) : new PathKeyFileStore(baseDir);
+    }
+
     private File createCacheRelativeDir(CacheLayout cacheLayout) {
         return cacheLayout.getPath(cache.getBaseDir());
     }
@@ -52,16 +52,18 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
     private final GlobalDependencyResolutionRules metadataHandler;
     private final CacheLockingManager cacheLockingManager;
     private final ResolutionResultsStoreFactory storeFactory;
+    private final ParallelArtifactDownloader artifactDownloader;
     private final boolean buildProjectDependencies;
 
     public DefaultConfigurationResolver(ArtifactDependencyResolver resolver, RepositoryHandler repositories,
                                         GlobalDependencyResolutionRules metadataHandler, CacheLockingManager cacheLockingManager,
-                                        ResolutionResultsStoreFactory storeFactory, boolean buildProjectDependencies) {
+                                        ResolutionResultsStoreFactory storeFactory, ParallelArtifactDownloader artifactDownloader, boolean buildProjectDependencies) {
         this.resolver = resolver;
         this.repositories = repositories;
         this.metadataHandler = metadataHandler;
         this.cacheLockingManager = cacheLockingManager;
         this.storeFactory = storeFactory;
+        this.artifactDownloader = artifactDownloader;
         this.buildProjectDependencies = buildProjectDependencies;
     }
 
@@ -107,7 +109,7 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
                 new TransientConfigurationResultsLoader(transientConfigurationResultsBuilder, graphResults, artifactResults);
 
         DefaultLenientConfiguration result = new DefaultLenientConfiguration(
-            configuration, cacheLockingManager, graphResults.getUnresolvedDependencies(), artifactResults, transientConfigurationResultsFactory);
+            configuration, cacheLockingManager, graphResults.getUnresolvedDependencies(), artifactResults, transientConfigurationResultsFactory, artifactDownloader);
         results.withResolvedConfiguration(new DefaultResolvedConfiguration(result));
     }
 }
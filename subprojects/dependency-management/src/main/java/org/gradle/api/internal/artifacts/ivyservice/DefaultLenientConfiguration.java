@@ -35,14 +35,17 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
     private final Set<UnresolvedDependency> unresolvedDependencies;
     private final ResolvedArtifacts artifactResults;
     private final Factory<TransientConfigurationResults> transientConfigurationResultsFactory;
+    private final ParallelArtifactDownloader artifactDownloader;
 
     public DefaultLenientConfiguration(Configuration configuration, CacheLockingManager cacheLockingManager, Set<UnresolvedDependency> unresolvedDependencies,
-                                       ResolvedArtifacts artifactResults, Factory<TransientConfigurationResults> transientConfigurationResultsLoader) {
+                                       ResolvedArtifacts artifactResults, Factory<TransientConfigurationResults> transientConfigurationResultsLoader,
+                                       ParallelArtifactDownloader artifactDownloader) {
         this.configuration = configuration;
         this.cacheLockingManager = cacheLockingManager;
         this.unresolvedDependencies = unresolvedDependencies;
         this.artifactResults = artifactResults;
         this.transientConfigurationResultsFactory = transientConfigurationResultsLoader;
+        this.artifactDownloader = artifactDownloader;
     }
 
     public boolean hasError() {
@@ -98,6 +101,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
      */
     public Set<ResolvedArtifact> getArtifacts(Spec<? super Dependency> dependencySpec) {
         final Set<ResolvedArtifact> allArtifacts = getAllArtifacts(dependencySpec);
+        downloadArtifacts(allArtifacts);
         return cacheLockingManager.useCache("retrieve artifacts from " + configuration, new Factory<Set<ResolvedArtifact>>() {
             public Set<ResolvedArtifact> create() {
                 return CollectionUtils.filter(allArtifacts, new Spec<ResolvedArtifact>() {
@@ -115,6 +119,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
     }
 
     private Set<File> getFiles(final Set<ResolvedArtifact> artifacts) {
+        downloadArtifacts(artifacts);
         final Set<File> files = new LinkedHashSet<File>();
         cacheLockingManager.useCache("resolve files from " + configuration, new Runnable() {
             public void run() {
@@ -129,6 +134,12 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
         return files;
     }
 
+    private void downloadArtifacts(Set<ResolvedArtifact> artifacts) {
+        if (Boolean.getBoolean(ParallelArtifactDownloader.PARALLEL_DOWNLOADS_PROPERTY)) {
+            artifactDownloader.download(configuration.toString(), artifacts);
+        }
+    }
+
     /**
      * Recursive, includes unsuccessfully resolved artifacts
      *
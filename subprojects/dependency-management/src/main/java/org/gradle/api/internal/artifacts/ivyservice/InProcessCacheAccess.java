@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.cache.CacheAccess;
+import org.gradle.internal.Factories;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link CacheAccess} that gives a single thread of this process exclusive access to the cache, without locking anything across processes.
+ * Follows the same ownership rules as the cross-process implementation: {@link #useCache} is re-entrant and a long running operation releases
+ * ownership until it completes.
+ */
+class InProcessCacheAccess implements CacheAccess {
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private Thread owner;
+    private int depth;
+
+    public <T> T useCache(String operationDisplayName, Factory<? extends T> action) {
+        lock.lock();
+        try {
+            awaitOwnership();
+            depth++;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            return action.create();
+        } finally {
+            lock.lock();
+            try {
+                depth--;
+                if (depth == 0) {
+                    owner = null;
+                    condition.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public void useCache(String operationDisplayName, Runnable action) {
+        useCache(operationDisplayName, Factories.toFactory(action));
+    }
+
+    public <T> T longRunningOperation(String operationDisplayName, Factory<? extends T> action) {
+        int releasedDepth = 0;
+        lock.lock();
+        try {
+            if (owner == Thread.currentThread()) {
+                releasedDepth = depth;
+                depth = 0;
+                owner = null;
+                condition.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        try {
+            return action.create();
+        } finally {
+            if (releasedDepth > 0) {
+                lock.lock();
+                try {
+                    awaitOwnership();
+                    depth = releasedDepth;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    public void longRunningOperation(String operationDisplayName, Runnable action) {
+        longRunningOperation(operationDisplayName, Factories.toFactory(action));
+    }
+
+    private void awaitOwnership() {
+        while (owner != null && owner != Thread.currentThread()) {
+            try {
+                condition.await();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        owner = Thread.currentThread();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.cache.internal.FileLockManager;
+import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.serialize.Serializer;
+
+import java.io.Closeable;
+import java.io.File;
+
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
+
+/**
+ * Splits the meta-data of the artifact cache into a fixed number of shards, each in its own directory with its own cross-process lock.
+ * An entry is always assigned to the same shard, so that processes working with entries in different shards do not contend for a lock.
+ *
+ * <p>Each shard is opened when it is first used. A shard is only locked for the duration of a single operation on it.</p>
+ */
+public class ModuleCacheShards implements Closeable {
+    public static final int DEFAULT_SHARD_COUNT = 16;
+
+    private final CacheRepository cacheRepository;
+    private final File baseDir;
+    private final PersistentCache[] shards;
+
+    public ModuleCacheShards(CacheRepository cacheRepository, File baseDir, int shardCount) {
+        this.cacheRepository = cacheRepository;
+        this.baseDir = baseDir;
+        this.shards = new PersistentCache[shardCount];
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the shard that holds the entry with the given key. The same key is always assigned to the same shard, regardless of the process.
+     */
+    public int shardFor(String key) {
+        return spread(key.hashCode());
+    }
+
+    /**
+     * Returns the shard that holds the entry with the given serialized key.
+     */
+    public int shardFor(byte[] key) {
+        int hash = 1;
+        for (byte b : key) {
+            hash = 31 * hash + b;
+        }
+        return spread(hash);
+    }
+
+    private int spread(int hash) {
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % shards.length;
+    }
+
+    /**
+     * Runs the given action while holding the lock of the given shard.
+     */
+    public <T> T useShard(int shard, String operationDisplayName, Factory<? extends T> action) {
+        return getShard(shard).useCache(operationDisplayName, action);
+    }
+
+    /**
+     * Creates an index with the given name in every shard. The returned cache locks the shard of each entry that it accesses, so it can be
+     * used without holding any other lock.
+     */
+    public <K, V> PersistentIndexedCache<K, V> createCache(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        return new ShardedPersistentIndexedCache<K, V>(this, cacheName, keySerializer, valueSerializer);
+    }
+
+    <K, V> PersistentIndexedCache<K, V> createShardCache(int shard, PersistentIndexedCacheParameters<K, V> parameters) {
+        return getShard(shard).createCache(parameters);
+    }
+
+    private synchronized PersistentCache getShard(int shard) {
+        if (shards[shard] == null) {
+            shards[shard] = cacheRepository
+                .cache(new File(baseDir, "shard-" + shard))
+                .withDisplayName("artifact cache shard " + shard)
+                .withLockOptions(mode(FileLockManager.LockMode.None)) // Lock on demand
+                .open();
+        }
+        return shards[shard];
+    }
+
+    public synchronized void close() {
+        try {
+            CompositeStoppable.stoppable((Object[]) shards).stop();
+        } finally {
+            for (int i = 0; i < shards.length; i++) {
+                shards[i] = null;
+            }
+        }
+    }
+}
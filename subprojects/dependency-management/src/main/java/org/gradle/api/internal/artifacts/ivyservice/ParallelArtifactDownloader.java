@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.logging.ProgressLogger;
+import org.gradle.logging.ProgressLoggerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Resolves the files of a set of artifacts on a bounded pool of worker threads, so that missing artifacts are downloaded concurrently.
+ *
+ * <p>The workers resolve each artifact through {@link ResolvedArtifact#getFile()}, which keeps the file for later use. Failures are ignored, so that
+ * the caller reports them when it asks for the file again. Artifacts whose file has already been resolved are skipped.</p>
+ *
+ * <p>The workers take ownership of the artifact cache in turn, and release it while they make remote requests. The calling thread releases the cache
+ * while it waits for the workers, and reports the overall progress of the downloads.</p>
+ */
+public class ParallelArtifactDownloader implements Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelArtifactDownloader.class);
+    public static final String PARALLEL_DOWNLOADS_PROPERTY = "org.gradle.resolution.parallelDownloads";
+    public static final int MAX_CONCURRENT_DOWNLOADS = 8;
+
+    private final CacheLockingManager cacheLockingManager;
+    private final ProgressLoggerFactory progressLoggerFactory;
+    private final StoppableExecutor executor;
+
+    public ParallelArtifactDownloader(CacheLockingManager cacheLockingManager, ProgressLoggerFactory progressLoggerFactory, ExecutorFactory executorFactory) {
+        this.cacheLockingManager = cacheLockingManager;
+        this.progressLoggerFactory = progressLoggerFactory;
+        this.executor = executorFactory.create("Artifact download", MAX_CONCURRENT_DOWNLOADS);
+    }
+
+    /**
+     * Resolves the files of the given artifacts, and waits for this to complete.
+     */
+    public void download(String displayName, Collection<? extends ResolvedArtifact> artifacts) {
+        List<ResolvedArtifact> unresolved = new ArrayList<ResolvedArtifact>();
+        for (ResolvedArtifact artifact : artifacts) {
+            if (artifact instanceof DefaultResolvedArtifact && !((DefaultResolvedArtifact) artifact).isResolved()) {
+                unresolved.add(artifact);
+            }
+        }
+        if (unresolved.size() < 2) {
+            return;
+        }
+
+        final CompletionService<ResolvedArtifact> completionService = new ExecutorCompletionService<ResolvedArtifact>(executor);
+        int submitted = 0;
+        for (final ResolvedArtifact artifact : unresolved) {
+            try {
+                completionService.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            artifact.getFile();
+                        } catch (Throwable e) {
+                            LOGGER.debug("Could not download {}.", artifact, e);
+                        }
+                    }
+                }, artifact);
+                submitted++;
+            } catch (RejectedExecutionException e) {
+                // Stopped, the caller resolves the remaining artifacts itself
+                break;
+            }
+        }
+
+        final int total = submitted;
+        final ProgressLogger progressLogger = progressLoggerFactory.newOperation(ParallelArtifactDownloader.class);
+        progressLogger.setDescription(String.format("Download artifacts for %s", displayName));
+        progressLogger.started();
+        try {
+            cacheLockingManager.longRunningOperation(String.format("Download artifacts for %s", displayName), new Runnable() {
+                @Override
+                public void run() {
+                    for (int completed = 1; completed <= total; completed++) {
+                        try {
+                            completionService.take();
+                        } catch (InterruptedException e) {
+                            throw UncheckedException.throwAsUncheckedException(e);
+                        }
+                        progressLogger.progress(String.format("%d/%d artifacts", completed, total));
+                    }
+                }
+            });
+        } finally {
+            progressLogger.completed();
+        }
+    }
+
+    /**
+     * Waits for the downloads in progress to finish.
+     */
+    @Override
+    public void stop() {
+        executor.stop();
+    }
+}
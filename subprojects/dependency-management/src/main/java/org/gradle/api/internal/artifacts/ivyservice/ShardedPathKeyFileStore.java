@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.Action;
+import org.gradle.api.Transformer;
+import org.gradle.internal.Factory;
+import org.gradle.internal.resource.local.LocallyAvailableResource;
+import org.gradle.internal.resource.local.PathKeyFileStore;
+import org.gradle.util.GFileUtils;
+
+import java.io.File;
+
+/**
+ * A {@link PathKeyFileStore} that holds the lock of the shard of a path while the file at that path is added or looked up. This prevents
+ * another process from seeing, and cleaning up, a file that is still being written.
+ *
+ * <p>The lock is released once {@link #get(String)} returns, so the file may be replaced while the caller reads it. Use
+ * {@link #get(String, Transformer)} to read the file while holding the lock.</p>
+ */
+public class ShardedPathKeyFileStore extends PathKeyFileStore {
+    private final ModuleCacheShards shards;
+
+    public ShardedPathKeyFileStore(File baseDir, ModuleCacheShards shards) {
+        super(baseDir);
+        this.shards = shards;
+    }
+
+    @Override
+    public LocallyAvailableResource get(final String key) {
+        return shards.useShard(shards.shardFor(key), "read from file store", new Factory<LocallyAvailableResource>() {
+            public LocallyAvailableResource create() {
+                return ShardedPathKeyFileStore.super.get(key);
+            }
+        });
+    }
+
+    @Override
+    public <T> T get(final String key, final Transformer<? extends T, ? super File> reader) {
+        return shards.useShard(shards.shardFor(key), "read from file store", new Factory<T>() {
+            public T create() {
+                LocallyAvailableResource resource = ShardedPathKeyFileStore.super.get(key);
+                return resource == null ? null : reader.transform(resource.getFile());
+            }
+        });
+    }
+
+    @Override
+    protected LocallyAvailableResource doAdd(final File destination, final String failureDescription, final Action<File> action) {
+        return shards.useShard(shards.shardFor(GFileUtils.relativePath(getBaseDir(), destination)), "add to file store", new Factory<LocallyAvailableResource>() {
+            public LocallyAvailableResource create() {
+                return ShardedPathKeyFileStore.super.doAdd(destination, failureDescription, action);
+            }
+        });
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A {@link PersistentIndexedCache} that spreads its entries over the shards of a {@link ModuleCacheShards}. Entries are assigned to a shard
+ * using their serialized key, so the assignment does not depend on the {@code hashCode()} of the key type.
+ */
+class ShardedPersistentIndexedCache<K, V> implements PersistentIndexedCache<K, V> {
+    private final ModuleCacheShards shards;
+    private final String cacheName;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final PersistentIndexedCache<K, V>[] shardCaches;
+
+    @SuppressWarnings("unchecked")
+    ShardedPersistentIndexedCache(ModuleCacheShards shards, String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this.shards = shards;
+        this.cacheName = cacheName;
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.shardCaches = new PersistentIndexedCache[shards.getShardCount()];
+    }
+
+    public V get(final K key) {
+        final int shard = shardFor(key);
+        return shards.useShard(shard, "read " + cacheName, new Factory<V>() {
+            public V create() {
+                return getShardCache(shard).get(key);
+            }
+        });
+    }
+
+    public void put(final K key, final V value) {
+        final int shard = shardFor(key);
+        shards.useShard(shard, "write " + cacheName, new Factory<Object>() {
+            public Object create() {
+                getShardCache(shard).put(key, value);
+                return null;
+            }
+        });
+    }
+
+    public void remove(final K key) {
+        final int shard = shardFor(key);
+        shards.useShard(shard, "remove from " + cacheName, new Factory<Object>() {
+            public Object create() {
+                getShardCache(shard).remove(key);
+                return null;
+            }
+        });
+    }
+
+    private int shardFor(K key) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(bytes);
+        try {
+            keySerializer.write(encoder, key);
+            encoder.flush();
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        return shards.shardFor(bytes.toByteArray());
+    }
+
+    private synchronized PersistentIndexedCache<K, V> getShardCache(int shard) {
+        if (shardCaches[shard] == null) {
+            shardCaches[shard] = shards.createShardCache(shard, new PersistentIndexedCacheParameters<K, V>(cacheName, keySerializer, valueSerializer));
+        }
+        return shardCaches[shard];
+    }
+
+    @Override
+    public String toString() {
+        return "sharded cache " + cacheName;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.Action;
+import org.gradle.internal.Factory;
+import org.gradle.internal.resource.local.LocallyAvailableResource;
+import org.gradle.internal.resource.local.UniquePathKeyFileStore;
+import org.gradle.util.GFileUtils;
+
+import java.io.File;
+
+/**
+ * The {@link UniquePathKeyFileStore} counterpart of {@link ShardedPathKeyFileStore}, for files whose path contains a checksum of their content.
+ */
+public class ShardedUniquePathKeyFileStore extends UniquePathKeyFileStore {
+    private final ModuleCacheShards shards;
+
+    public ShardedUniquePathKeyFileStore(File baseDir, ModuleCacheShards shards) {
+        super(baseDir);
+        this.shards = shards;
+    }
+
+    @Override
+    public LocallyAvailableResource get(final String key) {
+        return shards.useShard(shards.shardFor(key), "read from file store", new Factory<LocallyAvailableResource>() {
+            public LocallyAvailableResource create() {
+                return ShardedUniquePathKeyFileStore.super.get(key);
+            }
+        });
+    }
+
+    @Override
+    protected LocallyAvailableResource doAdd(final File destination, final String failureDescription, final Action<File> action) {
+        return shards.useShard(shards.shardFor(GFileUtils.relativePath(getBaseDir(), destination)), "add to file store", new Factory<LocallyAvailableResource>() {
+            public LocallyAvailableResource create() {
+                return ShardedUniquePathKeyFileStore.super.doAdd(destination, failureDescription, action);
+            }
+        });
+    }
+}
@@ -25,6 +25,11 @@ import org.gradle.api.internal.artifacts.configurations.MutationValidator;
 public interface DependencySubstitutionsInternal extends DependencySubstitutions {
     boolean hasDependencySubstitutionRules();
 
+    /**
+     * Returns true if any rule has been registered, including those registered with {@link #allWithDependencyResolveDetails(Action)}.
+     */
+    boolean hasRules();
+
     Action<DependencySubstitution> getDependencySubstitutionRule();
 
     DependencySubstitutions allWithDependencyResolveDetails(Action<? super DependencyResolveDetails> rule);
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.dynamicversions;
+
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.util.BuildCommencedTimeProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ModuleVersionsCache} that keeps the version listings of all modules of a repository together, in a single cache entry per repository.
+ *
+ * <p>The listings of a repository are read the first time a module of the repository is looked up, and all later lookups are answered from memory.
+ * New listings are kept in memory until this cache is stopped at the end of the build. They are then merged into the listings that have been persisted
+ * in the meantime, keeping the most recent listing of each module, so that listings written by other processes are not lost.</p>
+ *
+ * <p>As the listings of a repository are read and written as a whole, listings that have not been refreshed for {@value #MAX_ENTRY_AGE_DAYS} days are discarded
+ * when the listings are written, and at most {@value #MAX_MODULES_PER_REPOSITORY} of the most recent listings are kept for each repository. A module whose
+ * listing has been discarded is listed again the next time it is resolved.</p>
+ *
+ * <p>This cache can be used by multiple threads concurrently, as long as each thread owns the artifact cache.</p>
+ */
+public class RepositoryIndexedModuleVersionsCache implements ModuleVersionsCache, Stoppable {
+    /**
+     * When set to true, this cache is used instead of {@link SingleFileBackedModuleVersionsCache}.
+     */
+    public static final String VERSION_INDEX_PROPERTY = "org.gradle.resolution.versionIndex";
+    static final int MAX_ENTRY_AGE_DAYS = 30;
+    static final int MAX_MODULES_PER_REPOSITORY = 5000;
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryIndexedModuleVersionsCache.class);
+
+    private final BuildCommencedTimeProvider timeProvider;
+    private final CacheLockingManager cacheLockingManager;
+    private final ConcurrentMap<String, RepositoryListings> repositories = new ConcurrentHashMap<String, RepositoryListings>();
+    private PersistentIndexedCache<String, Map<ModuleIdentifier, ModuleVersionsCacheEntry>> cache;
+
+    public RepositoryIndexedModuleVersionsCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager) {
+        this.timeProvider = timeProvider;
+        this.cacheLockingManager = cacheLockingManager;
+    }
+
+    private synchronized PersistentIndexedCache<String, Map<ModuleIdentifier, ModuleVersionsCacheEntry>> getCache() {
+        if (cache == null) {
+            cache = cacheLockingManager.createCache("module-versions-index", new RepositoryIdSerializer(), new RepositoryListingsSerializer());
+        }
+        return cache;
+    }
+
+    public void cacheModuleVersionList(ModuleComponentRepository repository, ModuleIdentifier moduleId, Set<String> listedVersions) {
+        LOGGER.debug("Caching version list in module versions index: Using '{}' for '{}'", listedVersions, moduleId);
+        getListings(repository.getId()).update(moduleId, new ModuleVersionsCacheEntry(listedVersions, timeProvider.getCurrentTime()));
+    }
+
+    public CachedModuleVersionList getCachedModuleResolution(ModuleComponentRepository repository, ModuleIdentifier moduleId) {
+        ModuleVersionsCacheEntry entry = getListings(repository.getId()).get(moduleId);
+        if (entry == null) {
+            return null;
+        }
+        return new DefaultCachedModuleVersionList(entry, timeProvider);
+    }
+
+    private RepositoryListings getListings(String repositoryId) {
+        RepositoryListings listings = repositories.get(repositoryId);
+        if (listings == null) {
+            Map<ModuleIdentifier, ModuleVersionsCacheEntry> persisted = getCache().get(repositoryId);
+            listings = new RepositoryListings(persisted);
+            RepositoryListings existing = repositories.putIfAbsent(repositoryId, listings);
+            if (existing != null) {
+                listings = existing;
+            }
+        }
+        return listings;
+    }
+
+    /**
+     * Writes the listings that have been updated during this build.
+     */
+    @Override
+    public void stop() {
+        final Map<String, RepositoryListings> updatedRepositories = new HashMap<String, RepositoryListings>();
+        for (Map.Entry<String, RepositoryListings> entry : repositories.entrySet()) {
+            if (!entry.getValue().updates.isEmpty()) {
+                updatedRepositories.put(entry.getKey(), entry.getValue());
+            }
+        }
+        repositories.clear();
+        if (updatedRepositories.isEmpty()) {
+            return;
+        }
+        final long expiredBefore = timeProvider.getCurrentTime() - TimeUnit.DAYS.toMillis(MAX_ENTRY_AGE_DAYS);
+        cacheLockingManager.useCache("Store module version listings", new Runnable() {
+            public void run() {
+                for (Map.Entry<String, RepositoryListings> entry : updatedRepositories.entrySet()) {
+                    Map<ModuleIdentifier, ModuleVersionsCacheEntry> persisted = getCache().get(entry.getKey());
+                    getCache().put(entry.getKey(), entry.getValue().mergeInto(persisted, expiredBefore));
+                }
+            }
+        });
+    }
+
+    private static class RepositoryListings {
+        private final ConcurrentMap<ModuleIdentifier, ModuleVersionsCacheEntry> entries = new ConcurrentHashMap<ModuleIdentifier, ModuleVersionsCacheEntry>();
+        private final ConcurrentMap<ModuleIdentifier, ModuleVersionsCacheEntry> updates = new ConcurrentHashMap<ModuleIdentifier, ModuleVersionsCacheEntry>();
+
+        RepositoryListings(Map<ModuleIdentifier, ModuleVersionsCacheEntry> persisted) {
+            if (persisted != null) {
+                entries.putAll(persisted);
+            }
+        }
+
+        ModuleVersionsCacheEntry get(ModuleIdentifier moduleId) {
+            return entries.get(moduleId);
+        }
+
+        void update(ModuleIdentifier moduleId, ModuleVersionsCacheEntry entry) {
+            entries.put(moduleId, entry);
+            updates.put(moduleId, entry);
+        }
+
+        Map<ModuleIdentifier, ModuleVersionsCacheEntry> mergeInto(Map<ModuleIdentifier, ModuleVersionsCacheEntry> persisted, long expiredBefore) {
+            Map<ModuleIdentifier, ModuleVersionsCacheEntry> merged = new HashMap<ModuleIdentifier, ModuleVersionsCacheEntry>();
+            if (persisted != null) {
+                merged.putAll(persisted);
+            }
+            for (Map.Entry<ModuleIdentifier, ModuleVersionsCacheEntry> entry : updates.entrySet()) {
+                ModuleVersionsCacheEntry other = merged.get(entry.getKey());
+                if (other == null || other.createTimestamp <= entry.getValue().createTimestamp) {
+                    merged.put(entry.getKey(), entry.getValue());
+                }
+            }
+            Iterator<ModuleVersionsCacheEntry> iterator = merged.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().createTimestamp < expiredBefore) {
+                    iterator.remove();
+                }
+            }
+            if (merged.size() > MAX_MODULES_PER_REPOSITORY) {
+                List<Map.Entry<ModuleIdentifier, ModuleVersionsCacheEntry>> entries = new ArrayList<Map.Entry<ModuleIdentifier, ModuleVersionsCacheEntry>>(merged.entrySet());
+                Collections.sort(entries, new Comparator<Map.Entry<ModuleIdentifier, ModuleVersionsCacheEntry>>() {
+                    public int compare(Map.Entry<ModuleIdentifier, ModuleVersionsCacheEntry> o1, Map.Entry<ModuleIdentifier, ModuleVersionsCacheEntry> o2) {
+                        long t1 = o1.getValue().createTimestamp;
+                        long t2 = o2.getValue().createTimestamp;
+                        return t1 < t2 ? 1 : t1 > t2 ? -1 : 0;
+                    }
+                });
+                merged = new HashMap<ModuleIdentifier, ModuleVersionsCacheEntry>();
+                for (Map.Entry<ModuleIdentifier, ModuleVersionsCacheEntry> entry : entries.subList(0, MAX_MODULES_PER_REPOSITORY)) {
+                    merged.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return merged;
+        }
+    }
+
+    private static class RepositoryIdSerializer implements Serializer<String> {
+        public void write(Encoder encoder, String value) throws Exception {
+            encoder.writeString(value);
+        }
+
+        public String read(Decoder decoder) throws Exception {
+            return decoder.readString();
+        }
+    }
+
+    /**
+     * Writes the listings grouped by module group, so that each group is written once only.
+     */
+    static class RepositoryListingsSerializer implements Serializer<Map<ModuleIdentifier, ModuleVersionsCacheEntry>> {
+        public void write(Encoder encoder, Map<ModuleIdentifier, ModuleVersionsCacheEntry> value) throws Exception {
+            Map<String, List<ModuleIdentifier>> modulesByGroup = new LinkedHashMap<String, List<ModuleIdentifier>>();
+            for (ModuleIdentifier moduleId : value.keySet()) {
+                List<ModuleIdentifier> modules = modulesByGroup.get(moduleId.getGroup());
+                if (modules == null) {
+                    modules = new ArrayList<ModuleIdentifier>();
+                    modulesByGroup.put(moduleId.getGroup(), modules);
+                }
+                modules.add(moduleId);
+            }
+            encoder.writeSmallInt(modulesByGroup.size());
+            for (Map.Entry<String, List<ModuleIdentifier>> group : modulesByGroup.entrySet()) {
+                encoder.writeString(group.getKey());
+                encoder.writeSmallInt(group.getValue().size());
+                for (ModuleIdentifier moduleId : group.getValue()) {
+                    ModuleVersionsCacheEntry entry = value.get(moduleId);
+                    encoder.writeString(moduleId.getName());
+                    encoder.writeLong(entry.createTimestamp);
+                    encoder.writeSmallInt(entry.moduleVersionListing.size());
+                    for (String version : entry.moduleVersionListing) {
+                        encoder.writeString(version);
+                    }
+                }
+            }
+        }
+
+        public Map<ModuleIdentifier, ModuleVersionsCacheEntry> read(Decoder decoder) throws Exception {
+            Map<ModuleIdentifier, ModuleVersionsCacheEntry> listings = new HashMap<ModuleIdentifier, ModuleVersionsCacheEntry>();
+            int groupCount = decoder.readSmallInt();
+            for (int i = 0; i < groupCount; i++) {
+                String group = decoder.readString();
+                int moduleCount = decoder.readSmallInt();
+                for (int j = 0; j < moduleCount; j++) {
+                    String name = decoder.readString();
+                    long createTimestamp = decoder.readLong();
+                    int versionCount = decoder.readSmallInt();
+                    Set<String> versions = new LinkedHashSet<String>(versionCount);
+                    for (int k = 0; k < versionCount; k++) {
+                        versions.add(decoder.readString());
+                    }
+                    listings.put(new DefaultModuleIdentifier(group, name), new ModuleVersionsCacheEntry(versions, createTimestamp));
+                }
+            }
+            return listings;
+        }
+    }
+}
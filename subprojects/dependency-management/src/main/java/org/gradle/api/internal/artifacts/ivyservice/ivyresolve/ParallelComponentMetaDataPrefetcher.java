@@ -0,0 +1,205 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve;
+
+import org.apache.ivy.Ivy;
+import org.gradle.api.Action;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.component.model.DependencyMetaData;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
+import org.gradle.internal.resolve.result.BuildableComponentIdResolveResult;
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentIdResolveResult;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Fetches the meta-data of external components on a bounded pool of worker threads, ahead of the dependency graph traversal.
+ *
+ * <p>The fetched meta-data is not handed to the traversal directly. Instead, the prefetch goes through the same repository chain as the traversal
+ * does, which keeps the result in its in-memory and persistent caches. The traversal then resolves each component as it would without prefetching,
+ * so the order of resolution and the resulting graph stay the same. When the traversal needs a component that is still being fetched, it waits for
+ * the prefetch to finish rather than fetching the component a second time.</p>
+ *
+ * <p>For a static version of an external module, the meta-data of the component is fetched. For a dynamic version, the version listings of the module
+ * are refreshed and the selected version is fetched, using the same selection rules as the traversal. As the dependencies of a configuration are all
+ * prefetched when the configuration is selected, the dynamic versions of a whole level of the graph are resolved together, rather than one at a time as
+ * the traversal reaches them. Dependency substitution and conflict resolution may mean that a prefetched component is not used.</p>
+ *
+ * <p>The traversal thread owns the artifact cache while it resolves the graph. The workers take ownership of the cache in turn, and release it while
+ * they make remote requests, as the traversal thread does. The traversal thread releases the cache while it waits for a prefetch.</p>
+ */
+public class ParallelComponentMetaDataPrefetcher implements ComponentMetaDataPrefetcher, ComponentMetaDataResolver, DependencyToComponentIdResolver, Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelComponentMetaDataPrefetcher.class);
+    public static final int MAX_CONCURRENT_FETCHES = 8;
+
+    private final ComponentMetaDataResolver delegate;
+    private final DependencyToComponentIdResolver idDelegate;
+    private final ComponentMetaDataResolver repositoryResolver;
+    private final DependencyToComponentIdResolver repositoryIdResolver;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final CacheLockingManager cacheLockingManager;
+    private final IvyContextManager ivyContextManager;
+    private final StoppableExecutor executor;
+    // Only used by the traversal thread
+    private final Map<ComponentIdentifier, CountDownLatch> prefetches = new HashMap<ComponentIdentifier, CountDownLatch>();
+    private final Map<ModuleVersionSelector, CountDownLatch> selectorPrefetches = new HashMap<ModuleVersionSelector, CountDownLatch>();
+    private volatile boolean stopped;
+
+    /**
+     * @param componentSource The resolvers to use to resolve dependencies and components for the traversal.
+     * @param repositorySource The resolvers to use to prefetch. Should only resolve components from repositories.
+     */
+    public ParallelComponentMetaDataPrefetcher(ComponentResolvers componentSource, ComponentResolvers repositorySource, VersionSelectorScheme versionSelectorScheme,
+                                               CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager, ExecutorFactory executorFactory) {
+        this.delegate = componentSource.getComponentResolver();
+        this.idDelegate = componentSource.getComponentIdResolver();
+        this.repositoryResolver = repositorySource.getComponentResolver();
+        this.repositoryIdResolver = repositorySource.getComponentIdResolver();
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.cacheLockingManager = cacheLockingManager;
+        this.ivyContextManager = ivyContextManager;
+        this.executor = executorFactory.create("Dependency meta-data prefetch", MAX_CONCURRENT_FETCHES);
+    }
+
+    @Override
+    public void prefetch(final DependencyMetaData dependency) {
+        if (stopped || !(dependency.getSelector() instanceof ModuleComponentSelector)) {
+            return;
+        }
+        final ComponentOverrideMetadata overrideMetadata = DefaultComponentOverrideMetadata.forDependency(dependency);
+        if (overrideMetadata.getClientModule() != null) {
+            // Client modules are not fetched from a repository
+            return;
+        }
+        final ModuleVersionSelector requested = dependency.getRequested();
+        if (versionSelectorScheme.parseSelector(requested.getVersion()).isDynamic()) {
+            if (!selectorPrefetches.containsKey(requested)) {
+                selectorPrefetches.put(requested, submit(requested, new Runnable() {
+                    @Override
+                    public void run() {
+                        repositoryIdResolver.resolve(dependency, new DefaultBuildableComponentIdResolveResult());
+                    }
+                }));
+            }
+            return;
+        }
+        final ComponentIdentifier id = DefaultModuleComponentIdentifier.newId(requested.getGroup(), requested.getName(), requested.getVersion());
+        if (!prefetches.containsKey(id)) {
+            prefetches.put(id, submit(id, new Runnable() {
+                @Override
+                public void run() {
+                    repositoryResolver.resolve(id, overrideMetadata, new DefaultBuildableComponentResolveResult());
+                }
+            }));
+        }
+    }
+
+    private CountDownLatch submit(final Object target, final Runnable fetch) {
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    fetch(target, fetch);
+                } catch (Throwable e) {
+                    // The traversal resolves the dependency again, and reports any failure
+                    LOGGER.debug("Could not prefetch meta-data for {}.", target, e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        });
+        return done;
+    }
+
+    private void fetch(final Object target, final Runnable fetch) {
+        ivyContextManager.withIvy(new Action<Ivy>() {
+            @Override
+            public void execute(Ivy ivy) {
+                cacheLockingManager.useCache(String.format("Prefetch %s", target), new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!stopped) {
+                            fetch.run();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public void resolve(DependencyMetaData dependency, BuildableComponentIdResolveResult result) {
+        awaitPrefetch(selectorPrefetches.get(dependency.getRequested()), dependency.getRequested());
+        idDelegate.resolve(dependency, result);
+    }
+
+    @Override
+    public void resolve(ComponentIdentifier identifier, ComponentOverrideMetadata componentOverrideMetadata, BuildableComponentResolveResult result) {
+        awaitPrefetch(prefetches.get(identifier), identifier);
+        delegate.resolve(identifier, componentOverrideMetadata, result);
+    }
+
+    private void awaitPrefetch(final CountDownLatch prefetch, Object target) {
+        if (prefetch != null && prefetch.getCount() > 0) {
+            cacheLockingManager.longRunningOperation(String.format("Wait for prefetch of %s", target), new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        prefetch.await();
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Discards the prefetches that have not started yet, and waits for the others to finish.
+     */
+    @Override
+    public void stop() {
+        stopped = true;
+        cacheLockingManager.longRunningOperation("Stop meta-data prefetch", new Runnable() {
+            @Override
+            public void run() {
+                executor.stop();
+            }
+        });
+    }
+}
@@ -75,12 +75,21 @@ public class ResolveIvyFactory {
     public ComponentResolvers create(ResolutionStrategyInternal resolutionStrategy,
                                   Collection<? extends ResolutionAwareRepository> repositories,
                                   ComponentMetadataProcessor metadataProcessor) {
+        return create(resolutionStrategy, resolutionStrategy.getCachePolicy(), repositories, metadataProcessor);
+    }
+
+    /**
+     * Creates the resolvers for the given repositories, using the given cache policy instead of the cache policy of the resolution strategy.
+     */
+    public ComponentResolvers create(ResolutionStrategyInternal resolutionStrategy,
+                                  CachePolicy cachePolicy,
+                                  Collection<? extends ResolutionAwareRepository> repositories,
+                                  ComponentMetadataProcessor metadataProcessor) {
         if (repositories.isEmpty()) {
             return new NoRepositoriesResolver();
         }
 
         ResolutionRules resolutionRules = resolutionStrategy.getResolutionRules();
-        CachePolicy cachePolicy = resolutionStrategy.getCachePolicy();
 
         startParameterResolutionOverride.addResolutionRules(resolutionRules);
 
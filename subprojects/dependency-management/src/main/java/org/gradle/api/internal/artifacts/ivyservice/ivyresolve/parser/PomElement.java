@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An element of a POM, as retained by {@link PomSaxParser}. Holds only the name, the text and the child elements.
+ */
+final class PomElement {
+    private final String name;
+    private String text = "";
+    private List<PomElement> children = Collections.emptyList();
+
+    PomElement(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the text directly contained by this element, including CDATA sections but excluding the text of child elements.
+     */
+    public String getText() {
+        return text;
+    }
+
+    void setText(String text) {
+        this.text = text;
+    }
+
+    public List<PomElement> getChildren() {
+        return children;
+    }
+
+    void addChild(PomElement child) {
+        if (children.isEmpty()) {
+            children = new ArrayList<PomElement>(4);
+        }
+        children.add(child);
+    }
+
+    public static String getTextContent(PomElement element) {
+        return element.getText();
+    }
+
+    public static String getFirstChildText(PomElement parentElem, String name) {
+        PomElement node = getFirstChildElement(parentElem, name);
+        if (node != null) {
+            return node.getText();
+        } else {
+            return null;
+        }
+    }
+
+    public static PomElement getFirstChildElement(PomElement parentElem, String name) {
+        if (parentElem == null) {
+            return null;
+        }
+        for (PomElement child : parentElem.children) {
+            if (name.equals(child.name)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    public static List<PomElement> getAllChilds(PomElement parent) {
+        if (parent == null) {
+            return Collections.emptyList();
+        }
+        return parent.children;
+    }
+}
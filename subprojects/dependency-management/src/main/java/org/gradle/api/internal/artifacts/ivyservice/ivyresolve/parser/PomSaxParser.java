@@ -0,0 +1,253 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import com.google.common.collect.ImmutableSet;
+import org.gradle.internal.UncheckedException;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parses a POM in a single streaming pass, retaining only those elements that {@link PomReader} uses.
+ *
+ * <p>The build section, reporting, repositories and most other content of a POM are skipped as they are read, so the cost of parsing a POM does not depend on
+ * their size. Property references are not replaced while parsing, as the properties of the parent POM are not known yet.</p>
+ */
+final class PomSaxParser {
+    private static final String PROJECT = "project";
+    private static final String MODEL = "model";
+    private static final String DISTRIBUTION_MGT = "distributionManagement";
+    private static final String RELOCATION = "relocation";
+    private static final String PROFILES = "profiles";
+    private static final String PROFILE = "profile";
+    private static final Set<String> PROJECT_CHILDREN = ImmutableSet.of(
+        "parent", "groupId", "artifactId", "version", "packaging", "description", "url", "licenses",
+        DISTRIBUTION_MGT, "properties", "dependencies", "dependencyManagement", PROFILES);
+    private static final Set<String> PROFILE_CHILDREN = ImmutableSet.of(
+        "id", "activation", "properties", "dependencies", "dependencyManagement");
+
+    private static final SAXParserFactory PARSER_FACTORY = SAXParserFactory.newInstance();
+    // Creating a parser is expensive relative to parsing a typical POM, so each thread reuses its parser
+    private static final ThreadLocal<SAXParser> PARSER = new ThreadLocal<SAXParser>() {
+        @Override
+        protected SAXParser initialValue() {
+            try {
+                synchronized (PARSER_FACTORY) {
+                    return PARSER_FACTORY.newSAXParser();
+                }
+            } catch (Exception e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+    };
+
+    static {
+        PARSER_FACTORY.setValidating(false);
+        PARSER_FACTORY.setNamespaceAware(false);
+    }
+
+    private PomSaxParser() {}
+
+    /**
+     * Parses the given POM content. Returns the root element, which may not be a {@code project} element.
+     */
+    public static PomElement parse(InputStream stream, String systemId) throws IOException, SAXException {
+        InputSource inputSource = new InputSource(new AddDTDFilterInputStream(stream));
+        inputSource.setSystemId(systemId);
+        PomHandler handler = new PomHandler();
+        SAXParser parser = PARSER.get();
+        try {
+            parser.parse(inputSource, handler);
+        } finally {
+            parser.reset();
+        }
+        return handler.root;
+    }
+
+    private static class PomHandler extends DefaultHandler {
+        private final List<PomElement> elements = new ArrayList<PomElement>();
+        private final List<StringBuilder> texts = new ArrayList<StringBuilder>();
+        private PomElement root;
+        private int skipDepth;
+
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId) throws IOException, SAXException {
+            if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                return new InputSource(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
+            }
+            return null;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (skipDepth > 0 || !isRetained(qName)) {
+                skipDepth++;
+                return;
+            }
+            PomElement element = new PomElement(qName);
+            if (root == null) {
+                root = element;
+            } else {
+                elements.get(elements.size() - 1).addChild(element);
+            }
+            elements.add(element);
+            texts.add(null);
+        }
+
+        private boolean isRetained(String name) {
+            int depth = elements.size();
+            if (depth == 0) {
+                return true;
+            }
+            String rootName = root.getName();
+            if (!PROJECT.equals(rootName) && !MODEL.equals(rootName)) {
+                return false;
+            }
+            if (depth == 1) {
+                return PROJECT_CHILDREN.contains(name);
+            }
+            String section = elements.get(1).getName();
+            if (DISTRIBUTION_MGT.equals(section)) {
+                return depth > 2 || RELOCATION.equals(name);
+            }
+            if (PROFILES.equals(section)) {
+                if (depth == 2) {
+                    return PROFILE.equals(name);
+                }
+                if (depth == 3) {
+                    return PROFILE_CHILDREN.contains(name);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (skipDepth > 0 || elements.isEmpty()) {
+                return;
+            }
+            int index = texts.size() - 1;
+            StringBuilder text = texts.get(index);
+            if (text == null) {
+                text = new StringBuilder(length);
+                texts.set(index, text);
+            }
+            text.append(ch, start, length);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (skipDepth > 0) {
+                skipDepth--;
+                return;
+            }
+            int index = elements.size() - 1;
+            StringBuilder text = texts.remove(index);
+            PomElement element = elements.remove(index);
+            if (text != null) {
+                element.setText(text.toString());
+            }
+        }
+    }
+
+    public static final class AddDTDFilterInputStream extends FilterInputStream {
+        private static final int MARK = 10000;
+        private static final String DOCTYPE = "<!DOCTYPE project SYSTEM \"m2-entities.ent\">\n";
+
+        private int count;
+        private byte[] prefix = DOCTYPE.getBytes();
+
+        public AddDTDFilterInputStream(InputStream in) throws IOException {
+            super(new BufferedInputStream(in));
+
+            this.in.mark(MARK);
+
+            // The DTD must be inserted after the UTF-8 byte order mark, if there is one
+            int byte1 = this.in.read();
+            int byte2 = this.in.read();
+            int byte3 = this.in.read();
+
+            if (byte1 == 239 && byte2 == 187 && byte3 == 191) {
+                // skip the UTF-8 BOM
+                this.in.mark(MARK);
+            } else {
+                this.in.reset();
+            }
+
+            int bytesToSkip = 0;
+            LineNumberReader reader = new LineNumberReader(new InputStreamReader(this.in, "UTF-8"), 100);
+            String firstLine = reader.readLine();
+            if (firstLine != null) {
+                String trimmed = firstLine.trim();
+                if (trimmed.startsWith("<?xml ")) {
+                    int endIndex = trimmed.indexOf("?>");
+                    String xmlDecl = trimmed.substring(0, endIndex + 2);
+                    prefix = (xmlDecl + "\n" + DOCTYPE).getBytes();
+                    bytesToSkip = xmlDecl.getBytes().length;
+                }
+            }
+
+            this.in.reset();
+            for (int i = 0; i < bytesToSkip; i++) {
+                this.in.read();
+            }
+        }
+
+        public int read() throws IOException {
+            if (count < prefix.length) {
+                return prefix[count++];
+            }
+
+            return super.read();
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (b == null) {
+                throw new NullPointerException();
+            } else if ((off < 0) || (off > b.length) || (len < 0)
+                    || ((off + len) > b.length) || ((off + len) < 0)) {
+                throw new IndexOutOfBoundsException();
+            } else if (len == 0) {
+                return 0;
+            }
+
+            int nbrBytesCopied = 0;
+
+            if (count < prefix.length) {
+                int nbrBytesFromPrefix = Math.min(prefix.length - count, len);
+                System.arraycopy(prefix, count, b, off, nbrBytesFromPrefix);
+                nbrBytesCopied = nbrBytesFromPrefix;
+            }
+
+            if (nbrBytesCopied < len) {
+                nbrBytesCopied += in.read(b, off + nbrBytesCopied, len - nbrBytesCopied);
+            }
+
+            count += nbrBytesCopied;
+            return nbrBytesCopied;
+        }
+    }
+}
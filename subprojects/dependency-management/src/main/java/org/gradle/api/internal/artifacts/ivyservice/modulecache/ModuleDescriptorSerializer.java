@@ -0,0 +1,411 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import org.apache.ivy.core.module.descriptor.*;
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.gradle.api.internal.artifacts.ivyservice.IvyUtil;
+import org.gradle.api.internal.artifacts.ivyservice.NamespaceId;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.ResolverStrategy;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Serializer;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializes an Ivy {@link ModuleDescriptor} to a compact binary format, so that cached meta-data can be loaded without parsing an ivy.xml.
+ *
+ * <p>Covers the same content as {@link org.gradle.api.internal.artifacts.ivyservice.IvyXmlModuleDescriptorWriter}: the module info, configurations,
+ * published artifacts, dependencies with their conf mappings, artifacts, include and exclude rules, and the module level exclude rules.</p>
+ */
+public class ModuleDescriptorSerializer implements Serializer<ModuleDescriptor> {
+    private final ResolverStrategy resolverStrategy;
+    private final Field dependencyConfigField;
+
+    public ModuleDescriptorSerializer(ResolverStrategy resolverStrategy) {
+        this.resolverStrategy = resolverStrategy;
+        try {
+            dependencyConfigField = DefaultDependencyDescriptor.class.getDeclaredField("confs");
+        } catch (NoSuchFieldException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        dependencyConfigField.setAccessible(true);
+    }
+
+    public void write(Encoder encoder, ModuleDescriptor md) throws Exception {
+        writeInfo(encoder, md);
+        writeConfigurations(encoder, md);
+        writeArtifacts(encoder, md);
+        writeDependencies(encoder, md);
+        writeExcludeRules(encoder, md.getAllExcludeRules());
+    }
+
+    public ModuleDescriptor read(Decoder decoder) throws Exception {
+        DefaultModuleDescriptor md = new DefaultModuleDescriptor(XmlModuleDescriptorParser.getInstance(), null);
+        readInfo(decoder, md);
+        readConfigurations(decoder, md);
+        readArtifacts(decoder, md);
+        readDependencies(decoder, md);
+        for (ExcludeRule rule : readExcludeRules(decoder)) {
+            md.addExcludeRule(rule);
+        }
+        return md;
+    }
+
+    private void writeInfo(Encoder encoder, ModuleDescriptor md) throws IOException {
+        writeModuleRevisionId(encoder, md.getResolvedModuleRevisionId());
+        encoder.writeNullableString(md.getStatus());
+        Date publicationDate = md.getResolvedPublicationDate();
+        encoder.writeBoolean(publicationDate != null);
+        if (publicationDate != null) {
+            encoder.writeLong(publicationDate.getTime());
+        }
+        encoder.writeBoolean(md.isDefault());
+        encoder.writeNullableString(md.getDescription());
+        encoder.writeNullableString(md.getHomePage());
+
+        License[] licenses = md.getLicenses();
+        encoder.writeSmallInt(licenses.length);
+        for (License license : licenses) {
+            encoder.writeNullableString(license.getName());
+            encoder.writeNullableString(license.getUrl());
+        }
+
+        writeStringMap(encoder, md.getExtraAttributesNamespaces());
+
+        Map<NamespaceId, String> extraInfo = new LinkedHashMap<NamespaceId, String>();
+        for (Object o : md.getExtraInfo().entrySet()) {
+            Map.Entry entry = (Map.Entry) o;
+            if (entry.getValue() == null || entry.getValue().toString().length() == 0) {
+                continue;
+            }
+            NamespaceId key = entry.getKey() instanceof NamespaceId ? (NamespaceId) entry.getKey() : new NamespaceId("", entry.getKey().toString());
+            extraInfo.put(key, entry.getValue().toString());
+        }
+        encoder.writeSmallInt(extraInfo.size());
+        for (Map.Entry<NamespaceId, String> entry : extraInfo.entrySet()) {
+            encoder.writeNullableString(entry.getKey().getNamespace());
+            encoder.writeString(entry.getKey().getName());
+            encoder.writeString(entry.getValue());
+        }
+    }
+
+    private void readInfo(Decoder decoder, DefaultModuleDescriptor md) throws IOException {
+        md.setModuleRevisionId(readModuleRevisionId(decoder));
+        md.setStatus(decoder.readNullableString());
+        if (decoder.readBoolean()) {
+            md.setPublicationDate(new Date(decoder.readLong()));
+        }
+        md.setDefault(decoder.readBoolean());
+        md.setDescription(decoder.readNullableString());
+        md.setHomePage(decoder.readNullableString());
+
+        int licenses = decoder.readSmallInt();
+        for (int i = 0; i < licenses; i++) {
+            md.addLicense(new License(decoder.readNullableString(), decoder.readNullableString()));
+        }
+
+        for (Map.Entry<String, String> entry : readStringMap(decoder).entrySet()) {
+            md.addExtraAttributeNamespace(entry.getKey(), entry.getValue());
+        }
+
+        int extraInfo = decoder.readSmallInt();
+        for (int i = 0; i < extraInfo; i++) {
+            NamespaceId key = new NamespaceId(decoder.readNullableString(), decoder.readString());
+            md.getExtraInfo().put(key, decoder.readString());
+        }
+    }
+
+    private void writeConfigurations(Encoder encoder, ModuleDescriptor md) throws IOException {
+        Configuration[] configurations = md.getConfigurations();
+        encoder.writeSmallInt(configurations.length);
+        for (Configuration conf : configurations) {
+            encoder.writeString(conf.getName());
+            encoder.writeBoolean(conf.getVisibility() == Configuration.Visibility.PUBLIC);
+            encoder.writeNullableString(conf.getDescription());
+            writeStrings(encoder, conf.getExtends());
+            encoder.writeBoolean(conf.isTransitive());
+            encoder.writeNullableString(conf.getDeprecated());
+            writeStringMap(encoder, conf.getQualifiedExtraAttributes());
+        }
+    }
+
+    private void readConfigurations(Decoder decoder, DefaultModuleDescriptor md) throws IOException {
+        int count = decoder.readSmallInt();
+        for (int i = 0; i < count; i++) {
+            String name = decoder.readString();
+            Configuration.Visibility visibility = decoder.readBoolean() ? Configuration.Visibility.PUBLIC : Configuration.Visibility.PRIVATE;
+            String description = decoder.readNullableString();
+            String[] extendsFrom = readStrings(decoder);
+            boolean transitive = decoder.readBoolean();
+            String deprecated = decoder.readNullableString();
+            Configuration conf = new Configuration(name, visibility, description, extendsFrom, transitive, deprecated);
+            for (Map.Entry<String, String> entry : readStringMap(decoder).entrySet()) {
+                conf.setExtraAttribute(entry.getKey(), entry.getValue());
+            }
+            md.addConfiguration(conf);
+        }
+    }
+
+    private void writeArtifacts(Encoder encoder, ModuleDescriptor md) throws IOException {
+        Artifact[] artifacts = md.getAllArtifacts();
+        encoder.writeSmallInt(artifacts.length);
+        for (Artifact artifact : artifacts) {
+            encoder.writeString(artifact.getName());
+            encoder.writeString(artifact.getType());
+            encoder.writeNullableString(artifact.getExt());
+            writeStrings(encoder, artifact.getConfigurations());
+            writeStringMap(encoder, artifact.getQualifiedExtraAttributes());
+        }
+    }
+
+    private void readArtifacts(Decoder decoder, DefaultModuleDescriptor md) throws IOException {
+        int count = decoder.readSmallInt();
+        for (int i = 0; i < count; i++) {
+            String name = decoder.readString();
+            String type = decoder.readString();
+            String ext = decoder.readNullableString();
+            String[] confs = readStrings(decoder);
+            MDArtifact artifact = new MDArtifact(md, name, type, ext, null, readStringMap(decoder));
+            for (String conf : confs) {
+                artifact.addConfiguration(conf);
+                md.addArtifact(conf, artifact);
+            }
+        }
+    }
+
+    private void writeDependencies(Encoder encoder, ModuleDescriptor md) throws IOException {
+        DependencyDescriptor[] dependencies = md.getDependencies();
+        encoder.writeSmallInt(dependencies.length);
+        for (DependencyDescriptor dependency : dependencies) {
+            writeModuleRevisionId(encoder, dependency.getDependencyRevisionId());
+            writeModuleRevisionId(encoder, dependency.getDynamicConstraintDependencyRevisionId());
+            encoder.writeBoolean(dependency.isForce());
+            encoder.writeBoolean(dependency.isChanging());
+            encoder.writeBoolean(dependency.isTransitive());
+
+            Map<String, List<String>> confMappings = getConfMappings(dependency);
+            encoder.writeSmallInt(confMappings.size());
+            for (Map.Entry<String, List<String>> entry : confMappings.entrySet()) {
+                encoder.writeString(entry.getKey());
+                writeStrings(encoder, entry.getValue().toArray(new String[0]));
+            }
+
+            DependencyArtifactDescriptor[] artifacts = dependency.getAllDependencyArtifacts();
+            encoder.writeSmallInt(artifacts.length);
+            for (DependencyArtifactDescriptor artifact : artifacts) {
+                encoder.writeString(artifact.getName());
+                encoder.writeString(artifact.getType());
+                encoder.writeNullableString(artifact.getExt());
+                encoder.writeNullableString(artifact.getUrl() == null ? null : artifact.getUrl().toString());
+                writeStrings(encoder, artifact.getConfigurations());
+                writeStringMap(encoder, artifact.getQualifiedExtraAttributes());
+            }
+
+            IncludeRule[] includeRules = dependency.getAllIncludeRules();
+            encoder.writeSmallInt(includeRules.length);
+            for (IncludeRule rule : includeRules) {
+                writeRule(encoder, rule.getId(), rule.getMatcher(), rule.getConfigurations(), rule.getQualifiedExtraAttributes());
+            }
+
+            writeExcludeRules(encoder, dependency.getAllExcludeRules());
+        }
+    }
+
+    private void readDependencies(Decoder decoder, DefaultModuleDescriptor md) throws IOException {
+        int count = decoder.readSmallInt();
+        for (int i = 0; i < count; i++) {
+            ModuleRevisionId revisionId = readModuleRevisionId(decoder);
+            ModuleRevisionId dynamicRevisionId = readModuleRevisionId(decoder);
+            boolean force = decoder.readBoolean();
+            boolean changing = decoder.readBoolean();
+            boolean transitive = decoder.readBoolean();
+            DefaultDependencyDescriptor dependency = new DefaultDependencyDescriptor(md, revisionId, dynamicRevisionId, force, changing, transitive);
+
+            int confMappings = decoder.readSmallInt();
+            for (int j = 0; j < confMappings; j++) {
+                String moduleConf = decoder.readString();
+                for (String dependencyConf : readStrings(decoder)) {
+                    dependency.addDependencyConfiguration(moduleConf, dependencyConf);
+                }
+            }
+
+            int artifacts = decoder.readSmallInt();
+            for (int j = 0; j < artifacts; j++) {
+                String name = decoder.readString();
+                String type = decoder.readString();
+                String ext = decoder.readNullableString();
+                String url = decoder.readNullableString();
+                String[] confs = readStrings(decoder);
+                DefaultDependencyArtifactDescriptor artifact = new DefaultDependencyArtifactDescriptor(dependency, name, type, ext, url == null ? null : new URL(url), readStringMap(decoder));
+                for (String conf : confs) {
+                    artifact.addConfiguration(conf);
+                    dependency.addDependencyArtifact(conf, artifact);
+                }
+            }
+
+            int includeRules = decoder.readSmallInt();
+            for (int j = 0; j < includeRules; j++) {
+                ArtifactId id = readArtifactId(decoder);
+                PatternMatcher matcher = readMatcher(decoder);
+                String[] confs = readStrings(decoder);
+                DefaultIncludeRule rule = new DefaultIncludeRule(id, matcher, readStringMap(decoder));
+                for (String conf : confs) {
+                    rule.addConfiguration(conf);
+                    dependency.addIncludeRule(conf, rule);
+                }
+            }
+
+            for (ExcludeRule rule : readExcludeRules(decoder)) {
+                for (String conf : rule.getConfigurations()) {
+                    dependency.addExcludeRule(conf, rule);
+                }
+            }
+
+            md.addDependency(dependency);
+        }
+    }
+
+    private void writeExcludeRules(Encoder encoder, ExcludeRule[] rules) throws IOException {
+        encoder.writeSmallInt(rules.length);
+        for (ExcludeRule rule : rules) {
+            writeRule(encoder, rule.getId(), rule.getMatcher(), rule.getConfigurations(), rule.getQualifiedExtraAttributes());
+        }
+    }
+
+    private ExcludeRule[] readExcludeRules(Decoder decoder) throws IOException {
+        ExcludeRule[] rules = new ExcludeRule[decoder.readSmallInt()];
+        for (int i = 0; i < rules.length; i++) {
+            ArtifactId id = readArtifactId(decoder);
+            PatternMatcher matcher = readMatcher(decoder);
+            String[] confs = readStrings(decoder);
+            DefaultExcludeRule rule = new DefaultExcludeRule(id, matcher, readStringMap(decoder));
+            for (String conf : confs) {
+                rule.addConfiguration(conf);
+            }
+            rules[i] = rule;
+        }
+        return rules;
+    }
+
+    private void writeRule(Encoder encoder, ArtifactId id, PatternMatcher matcher, String[] confs, Map<String, String> extraAttributes) throws IOException {
+        encoder.writeString(id.getModuleId().getOrganisation());
+        encoder.writeString(id.getModuleId().getName());
+        encoder.writeString(id.getName());
+        encoder.writeString(id.getType());
+        encoder.writeString(id.getExt());
+        encoder.writeString(matcher.getName());
+        writeStrings(encoder, confs);
+        writeStringMap(encoder, extraAttributes);
+    }
+
+    private ArtifactId readArtifactId(Decoder decoder) throws IOException {
+        String org = decoder.readString();
+        String module = decoder.readString();
+        return new ArtifactId(IvyUtil.createModuleId(org, module), decoder.readString(), decoder.readString(), decoder.readString());
+    }
+
+    private PatternMatcher readMatcher(Decoder decoder) throws IOException {
+        String name = decoder.readString();
+        PatternMatcher matcher = resolverStrategy.getPatternMatcher(name);
+        if (matcher == null) {
+            throw new IllegalArgumentException("unknown matcher " + name);
+        }
+        return matcher;
+    }
+
+    private void writeModuleRevisionId(Encoder encoder, ModuleRevisionId id) throws IOException {
+        encoder.writeString(id.getOrganisation());
+        encoder.writeString(id.getName());
+        encoder.writeNullableString(id.getBranch());
+        encoder.writeNullableString(id.getRevision());
+        writeStringMap(encoder, id.getQualifiedExtraAttributes());
+    }
+
+    private ModuleRevisionId readModuleRevisionId(Decoder decoder) throws IOException {
+        String org = decoder.readString();
+        String name = decoder.readString();
+        String branch = decoder.readNullableString();
+        String revision = decoder.readNullableString();
+        return IvyUtil.createModuleRevisionId(org, name, branch, revision, readStringMap(decoder), false);
+    }
+
+    private Map<String, List<String>> getConfMappings(DependencyDescriptor dependency) {
+        // Reach into the descriptor for the raw mappings, for the same reason as IvyXmlModuleDescriptorWriter does
+        if (dependency instanceof DefaultDependencyDescriptor) {
+            try {
+                return (Map<String, List<String>>) dependencyConfigField.get(dependency);
+            } catch (IllegalAccessException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        Map<String, List<String>> confMappings = new LinkedHashMap<String, List<String>>();
+        for (String moduleConf : dependency.getModuleConfigurations()) {
+            confMappings.put(moduleConf, Arrays.asList(dependency.getDependencyConfigurations(moduleConf)));
+        }
+        return confMappings;
+    }
+
+    private static void writeStrings(Encoder encoder, String[] values) throws IOException {
+        encoder.writeSmallInt(values.length);
+        for (String value : values) {
+            encoder.writeString(value);
+        }
+    }
+
+    private static String[] readStrings(Decoder decoder) throws IOException {
+        String[] values = new String[decoder.readSmallInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = decoder.readString();
+        }
+        return values;
+    }
+
+    private static void writeStringMap(Encoder encoder, Map<?, ?> values) throws IOException {
+        if (values == null) {
+            encoder.writeSmallInt(0);
+            return;
+        }
+        encoder.writeSmallInt(values.size());
+        for (Map.Entry<?, ?> entry : values.entrySet()) {
+            encoder.writeString(entry.getKey().toString());
+            encoder.writeString(entry.getValue().toString());
+        }
+    }
+
+    private static Map<String, String> readStringMap(Decoder decoder) throws IOException {
+        int count = decoder.readSmallInt();
+        Map<String, String> values = new LinkedHashMap<String, String>(count);
+        for (int i = 0; i < count; i++) {
+            values.put(decoder.readString(), decoder.readString());
+        }
+        return values;
+    }
+}
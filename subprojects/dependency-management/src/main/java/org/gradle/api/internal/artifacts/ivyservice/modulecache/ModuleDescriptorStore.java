@@ -17,37 +17,42 @@ package org.gradle.api.internal.artifacts.ivyservice.modulecache;
 
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.gradle.api.Action;
+import org.gradle.api.Transformer;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
-import org.gradle.api.internal.artifacts.ivyservice.IvyModuleDescriptorWriter;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository;
-import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.DescriptorParseContext;
-import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.IvyXmlModuleDescriptorParser;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.resource.local.LocallyAvailableResource;
 import org.gradle.internal.resource.local.PathKeyFileStore;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 
+/**
+ * Stores the module descriptors of cached modules in a binary format, one file per module and repository.
+ */
 public class ModuleDescriptorStore {
 
-    public static final String FILE_PATH_PATTERN = "%s/%s/%s/%s/ivy.xml";
-    private final IvyXmlModuleDescriptorParser descriptorParser;
+    public static final String FILE_PATH_PATTERN = "%s/%s/%s/%s/descriptor.bin";
     private final PathKeyFileStore metaDataStore;
-    private final IvyModuleDescriptorWriter descriptorWriter;
+    private final Serializer<ModuleDescriptor> descriptorSerializer;
 
-    public ModuleDescriptorStore(PathKeyFileStore metaDataStore, IvyModuleDescriptorWriter descriptorWriter, IvyXmlModuleDescriptorParser ivyXmlModuleDescriptorParser) {
+    public ModuleDescriptorStore(PathKeyFileStore metaDataStore, Serializer<ModuleDescriptor> descriptorSerializer) {
         this.metaDataStore = metaDataStore;
-        this.descriptorWriter = descriptorWriter;
-        this.descriptorParser = ivyXmlModuleDescriptorParser;
+        this.descriptorSerializer = descriptorSerializer;
     }
 
     public ModuleDescriptor getModuleDescriptor(ModuleComponentRepository repository, ModuleComponentIdentifier moduleComponentIdentifier) {
         String filePath = getFilePath(repository, moduleComponentIdentifier);
-        final LocallyAvailableResource resource = metaDataStore.get(filePath);
-        if (resource != null) {
-            return parseModuleDescriptorFile(resource.getFile());
-        }
-        return null;
+        // Decode while the store still holds the file, as another process may replace it as soon as it is released
+        return metaDataStore.get(filePath, new Transformer<ModuleDescriptor, File>() {
+            public ModuleDescriptor transform(File moduleDescriptorFile) {
+                return readModuleDescriptorFile(moduleDescriptorFile);
+            }
+        });
     }
 
     public LocallyAvailableResource putModuleDescriptor(ModuleComponentRepository repository, ModuleComponentIdentifier moduleComponentIdentifier, final ModuleDescriptor moduleDescriptor) {
@@ -55,7 +60,13 @@ public class ModuleDescriptorStore {
         return metaDataStore.add(filePath, new Action<File>() {
             public void execute(File moduleDescriptorFile) {
                 try {
-                    descriptorWriter.write(moduleDescriptor, moduleDescriptorFile);
+                    moduleDescriptorFile.getParentFile().mkdirs();
+                    KryoBackedEncoder encoder = new KryoBackedEncoder(new FileOutputStream(moduleDescriptorFile));
+                    try {
+                        descriptorSerializer.write(encoder, moduleDescriptor);
+                    } finally {
+                        encoder.close();
+                    }
                 } catch (Exception e) {
                     throw UncheckedException.throwAsUncheckedException(e);
                 }
@@ -63,9 +74,17 @@ public class ModuleDescriptorStore {
         });
     }
 
-    private ModuleDescriptor parseModuleDescriptorFile(File moduleDescriptorFile) {
-        DescriptorParseContext parserSettings = new CachedModuleDescriptorParseContext();
-        return descriptorParser.parseMetaData(parserSettings, moduleDescriptorFile, false).getDescriptor();
+    private ModuleDescriptor readModuleDescriptorFile(File moduleDescriptorFile) {
+        try {
+            KryoBackedDecoder decoder = new KryoBackedDecoder(new FileInputStream(moduleDescriptorFile));
+            try {
+                return descriptorSerializer.read(decoder);
+            } finally {
+                decoder.close();
+            }
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
     }
 
     private String getFilePath(ModuleComponentRepository repository, ModuleComponentIdentifier moduleComponentIdentifier) {
@@ -22,6 +22,7 @@ import org.gradle.api.internal.artifacts.ArtifactDependencyResolver;
 import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
 import org.gradle.api.internal.artifacts.ResolveContext;
 import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
 import org.gradle.api.internal.artifacts.ivyservice.ContextualArtifactResolver;
 import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager;
@@ -29,31 +30,55 @@ import org.gradle.api.internal.artifacts.ivyservice.clientmodule.ClientModuleRes
 import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionResolver;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ComponentResolvers;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ErrorHandlingArtifactResolver;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ParallelComponentMetaDataPrefetcher;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ResolveIvyFactory;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ResolverProviderFactory;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionComparator;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.DependencyDescriptorFactory;
 import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.StrictConflictResolution;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ResolvedArtifactsGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyGraphVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache.CachedDependencyGraph;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache.CachedResultAges;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache.CrossBuildInMemoryResolvedGraphCache;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache.DependencyGraphRecorder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache.GraphCacheKeyCalculator;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache.RecordingCachePolicy;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.ConflictHandler;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.DefaultConflictHandler;
 import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.internal.component.model.ComponentResolveMetaData;
+import org.gradle.internal.component.model.ConfigurationMetaData;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.hash.HashValue;
 import org.gradle.internal.resolve.resolver.ArtifactResolver;
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
 import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
 import org.gradle.internal.resolve.resolver.ResolveContextToComponentResolver;
 import org.gradle.internal.resolve.result.BuildableComponentResolveResult;
 import org.gradle.internal.service.ServiceRegistry;
+import org.gradle.util.BuildCommencedTimeProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
 
 public class DefaultArtifactDependencyResolver implements ArtifactDependencyResolver {
+    /**
+     * When set to true, the meta-data of external components and the version listings of dynamic versions are fetched concurrently while the dependency
+     * graph is traversed.
+     */
+    public static final String PARALLEL_METADATA_PROPERTY = "org.gradle.resolution.parallelMetadata";
+    /**
+     * When set to true, the resolved dependency graph of a configuration is kept in memory and reused by later builds in the same process, for as long as
+     * the cached results it was resolved from have not expired.
+     */
+    public static final String GRAPH_CACHE_PROPERTY = "org.gradle.resolution.graphCache";
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultArtifactDependencyResolver.class);
     private final ServiceRegistry serviceRegistry;
     private final DependencyDescriptorFactory dependencyDescriptorFactory;
@@ -61,15 +86,26 @@ public class DefaultArtifactDependencyResolver implements ArtifactDependencyReso
     private final CacheLockingManager cacheLockingManager;
     private final IvyContextManager ivyContextManager;
     private final VersionComparator versionComparator;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final ExecutorFactory executorFactory;
+    private final CrossBuildInMemoryResolvedGraphCache graphCache;
+    private final BuildCommencedTimeProvider timeProvider;
+    private final CachedResultAges cachedResultAges = new CachedResultAges();
 
     public DefaultArtifactDependencyResolver(ServiceRegistry serviceRegistry, ResolveIvyFactory ivyFactory, DependencyDescriptorFactory dependencyDescriptorFactory,
-                                             CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager, VersionComparator versionComparator) {
+                                             CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager, VersionComparator versionComparator,
+                                             VersionSelectorScheme versionSelectorScheme, ExecutorFactory executorFactory, CrossBuildInMemoryResolvedGraphCache graphCache,
+                                             BuildCommencedTimeProvider timeProvider) {
         this.serviceRegistry = serviceRegistry;
         this.ivyFactory = ivyFactory;
         this.dependencyDescriptorFactory = dependencyDescriptorFactory;
         this.cacheLockingManager = cacheLockingManager;
         this.ivyContextManager = ivyContextManager;
         this.versionComparator = versionComparator;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.executorFactory = executorFactory;
+        this.graphCache = graphCache;
+        this.timeProvider = timeProvider;
     }
 
     @Override
@@ -78,31 +114,96 @@ public class DefaultArtifactDependencyResolver implements ArtifactDependencyReso
        ivyContextManager.withIvy(new Action<Ivy>() {
             public void execute(Ivy ivy) {
                 LOGGER.debug("Resolving {}", resolveContext);
-                ComponentResolvers componentSource = createComponentSource(resolveContext, repositories, metadataHandler);
-                DependencyGraphBuilder builder = createDependencyGraphBuilder(componentSource, resolveContext.getResolutionStrategy(), metadataHandler);
+                if (Boolean.getBoolean(GRAPH_CACHE_PROPERTY)) {
+                    resolveUsingGraphCache(resolveContext, repositories, metadataHandler, graphVisitor, artifactsVisitor);
+                    return;
+                }
+                ComponentResolvers repositorySource = ivyFactory.create(resolveContext.getResolutionStrategy(), repositories, metadataHandler.getComponentMetadataProcessor());
+                resolveGraph(resolveContext, new DefaultResolveContextToComponentResolver(), repositorySource, metadataHandler, graphVisitor, artifactsVisitor);
+            }
+        });
+    }
 
-                ArtifactResolver artifactResolver = new ErrorHandlingArtifactResolver(new ContextualArtifactResolver(cacheLockingManager, ivyContextManager, componentSource.getArtifactResolver()));
-                DependencyGraphVisitor artifactsGraphVisitor = new ResolvedArtifactsGraphVisitor(artifactsVisitor, artifactResolver);
+    private void resolveUsingGraphCache(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules metadataHandler,
+                                        DependencyGraphVisitor graphVisitor, DependencyArtifactsVisitor artifactsVisitor) {
+        ResolutionStrategyInternal resolutionStrategy = resolveContext.getResolutionStrategy();
+        CachePolicy cachePolicy = resolutionStrategy.getCachePolicy();
+        // Creating the resolvers applies the command-line resolution rules to the cache policy, so do this before checking whether a cached graph has expired
+        ComponentResolvers repositorySource = ivyFactory.create(resolutionStrategy, new RecordingCachePolicy(cachePolicy, cachedResultAges), repositories, metadataHandler.getComponentMetadataProcessor());
 
-                // Resolve the dependency graph
-                builder.resolve(resolveContext, new CompositeDependencyGraphVisitor(graphVisitor, artifactsGraphVisitor));
+        ComponentResolveMetaData rootComponent = resolveContext.toRootComponentMetaData();
+        HashValue cacheKey = GraphCacheKeyCalculator.calculateKey(resolveContext, rootComponent, repositories, metadataHandler);
+        long currentTime = timeProvider.getCurrentTime();
+        if (cacheKey != null) {
+            CachedDependencyGraph cachedGraph = graphCache.get(cacheKey, cachePolicy, currentTime);
+            if (cachedGraph != null) {
+                LOGGER.debug("Using cached dependency graph with {} nodes for {}", cachedGraph.getNodeCount(), resolveContext);
+                ConfigurationMetaData rootConfiguration = rootComponent.getConfiguration(resolveContext.getName());
+                ComponentResolvers componentSource = createComponentSource(resolveContext, repositorySource);
+                cachedGraph.replay(rootConfiguration, new CompositeDependencyGraphVisitor(graphVisitor, createArtifactsGraphVisitor(componentSource, artifactsVisitor)));
+                return;
             }
-        });
+        }
+
+        ResolveContextToComponentResolver requestResolver = new FixedRootComponentResolver(rootComponent);
+        if (cacheKey == null) {
+            resolveGraph(resolveContext, requestResolver, repositorySource, metadataHandler, graphVisitor, artifactsVisitor);
+            return;
+        }
+        DependencyGraphRecorder recorder = new DependencyGraphRecorder(cachedResultAges, versionSelectorScheme, currentTime);
+        resolveGraph(resolveContext, requestResolver, repositorySource, metadataHandler, new CompositeDependencyGraphVisitor(graphVisitor, recorder), artifactsVisitor);
+        CachedDependencyGraph graph = recorder.getGraph();
+        if (graph != null) {
+            graphCache.put(cacheKey, graph);
+        }
+    }
+
+    private void resolveGraph(ResolveContext resolveContext, ResolveContextToComponentResolver requestResolver, ComponentResolvers repositorySource,
+                              GlobalDependencyResolutionRules metadataHandler, DependencyGraphVisitor graphVisitor, DependencyArtifactsVisitor artifactsVisitor) {
+        ComponentResolvers componentSource = createComponentSource(resolveContext, repositorySource);
+
+        DependencyToComponentIdResolver componentIdResolver = componentSource.getComponentIdResolver();
+        ComponentMetaDataResolver componentMetaDataResolver = componentSource.getComponentResolver();
+        ParallelComponentMetaDataPrefetcher prefetcher = null;
+        if (Boolean.getBoolean(PARALLEL_METADATA_PROPERTY)) {
+            prefetcher = new ParallelComponentMetaDataPrefetcher(componentSource, repositorySource, versionSelectorScheme, cacheLockingManager, ivyContextManager, executorFactory);
+            componentIdResolver = prefetcher;
+            componentMetaDataResolver = prefetcher;
+        }
+        try {
+            DependencyGraphBuilder builder = createDependencyGraphBuilder(componentIdResolver, componentMetaDataResolver, prefetcher, requestResolver, resolveContext.getResolutionStrategy(), metadataHandler);
+
+            // Resolve the dependency graph
+            builder.resolve(resolveContext, new CompositeDependencyGraphVisitor(graphVisitor, createArtifactsGraphVisitor(componentSource, artifactsVisitor)));
+        } finally {
+            if (prefetcher != null) {
+                prefetcher.stop();
+            }
+        }
+    }
+
+    private DependencyGraphVisitor createArtifactsGraphVisitor(ComponentResolvers componentSource, DependencyArtifactsVisitor artifactsVisitor) {
+        ArtifactResolver artifactResolver = new ErrorHandlingArtifactResolver(new ContextualArtifactResolver(cacheLockingManager, ivyContextManager, componentSource.getArtifactResolver()));
+        return new ResolvedArtifactsGraphVisitor(artifactsVisitor, artifactResolver);
     }
 
-    private DependencyGraphBuilder createDependencyGraphBuilder(ComponentResolvers componentSource, ResolutionStrategyInternal resolutionStrategy, GlobalDependencyResolutionRules metadataHandler) {
+    private DependencyGraphBuilder createDependencyGraphBuilder(DependencyToComponentIdResolver idResolver, ComponentMetaDataResolver metaDataResolver, ComponentMetaDataPrefetcher prefetcher,
+                                                                ResolveContextToComponentResolver requestResolver, ResolutionStrategyInternal resolutionStrategy,
+                                                                GlobalDependencyResolutionRules metadataHandler) {
 
-        DependencyToComponentIdResolver componentIdResolver = new DependencySubstitutionResolver(componentSource.getComponentIdResolver(), resolutionStrategy.getDependencySubstitutionRule());
-        ComponentMetaDataResolver componentMetaDataResolver = new ClientModuleResolver(componentSource.getComponentResolver(), dependencyDescriptorFactory);
+        DependencyToComponentIdResolver componentIdResolver = new DependencySubstitutionResolver(idResolver, resolutionStrategy.getDependencySubstitutionRule());
+        ComponentMetaDataResolver componentMetaDataResolver = new ClientModuleResolver(metaDataResolver, dependencyDescriptorFactory);
 
         DependencyToConfigurationResolver dependencyToConfigurationResolver = new DefaultDependencyToConfigurationResolver();
-        ResolveContextToComponentResolver requestResolver = createResolveContextConverter();
         ConflictHandler conflictHandler = createConflictHandler(resolutionStrategy, metadataHandler);
 
-        return new DependencyGraphBuilder(componentIdResolver, componentMetaDataResolver, requestResolver, dependencyToConfigurationResolver, conflictHandler);
+        if (prefetcher == null) {
+            return new DependencyGraphBuilder(componentIdResolver, componentMetaDataResolver, requestResolver, dependencyToConfigurationResolver, conflictHandler);
+        }
+        return new DependencyGraphBuilder(componentIdResolver, componentMetaDataResolver, requestResolver, dependencyToConfigurationResolver, conflictHandler, prefetcher);
     }
 
-    private ComponentResolversChain createComponentSource(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules metadataHandler) {
+    private ComponentResolversChain createComponentSource(ResolveContext resolveContext, ComponentResolvers repositorySource) {
         List<ResolverProviderFactory> resolverFactories = allServices(ResolverProviderFactory.class);
         List<ComponentResolvers> resolvers = Lists.newArrayList();
         for (ResolverProviderFactory factory : resolverFactories) {
@@ -110,15 +211,10 @@ public class DefaultArtifactDependencyResolver implements ArtifactDependencyReso
                 resolvers.add(factory.create(resolveContext));
             }
         }
-        ResolutionStrategyInternal resolutionStrategy = resolveContext.getResolutionStrategy();
-        resolvers.add(ivyFactory.create(resolutionStrategy, repositories, metadataHandler.getComponentMetadataProcessor()));
+        resolvers.add(repositorySource);
         return new ComponentResolversChain(resolvers);
     }
 
-    private ResolveContextToComponentResolver createResolveContextConverter() {
-        return new DefaultResolveContextToComponentResolver();
-    }
-
     private ConflictHandler createConflictHandler(ResolutionStrategyInternal resolutionStrategy, GlobalDependencyResolutionRules metadataHandler) {
         ModuleConflictResolver conflictResolver;
         if (resolutionStrategy.getConflictResolution() instanceof StrictConflictResolution) {
@@ -141,4 +237,20 @@ public class DefaultArtifactDependencyResolver implements ArtifactDependencyReso
         }
     }
 
+    /**
+     * Uses root component meta-data that has already been created from the resolve context.
+     */
+    private static class FixedRootComponentResolver implements ResolveContextToComponentResolver {
+        private final ComponentResolveMetaData rootComponent;
+
+        private FixedRootComponentResolver(ComponentResolveMetaData rootComponent) {
+            this.rootComponent = rootComponent;
+        }
+
+        @Override
+        public void resolve(ResolveContext resolveContext, BuildableComponentResolveResult result) {
+            result.resolved(rootComponent);
+        }
+    }
+
 }
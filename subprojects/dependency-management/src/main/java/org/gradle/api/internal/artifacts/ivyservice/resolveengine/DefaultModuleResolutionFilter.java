@@ -37,6 +37,10 @@ import java.util.*;
  * <p>Also, this class attempts to be quite accurate in determining if 2 specs will match exactly the same set of modules. {@link org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder} uses this to avoid traversing the
  * dependency graph of a particular version that has already been traversed when a new incoming edge is added (eg a newly discovered dependency) and when an incoming edge is removed (eg a conflict
  * evicts a version that depends on the given version). </p>
+ *
+ * <p>The exact match module exclusions of a spec are indexed by group, module name and module id, so that a module can be checked using hash lookups rather
+ * than by evaluating each exclusion. Specs are immutable and implement {@link Object#equals(Object)} based on the exclusions they contain, so that equal specs can be
+ * interned using a {@link ModuleResolutionFilterCache}. </p>
  */
 public abstract class DefaultModuleResolutionFilter implements ModuleResolutionFilter {
     private static final AcceptAllSpec ALL_SPEC = new AcceptAllSpec();
@@ -105,7 +109,7 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
         if (specs.size() == 1) {
             return specs.get(0);
         }
-        return new UnionSpec(specs);
+        return new UnionSpec(new LinkedHashSet<DefaultModuleResolutionFilter>(specs));
     }
 
     protected void unpackUnion(Collection<DefaultModuleResolutionFilter> specs) {
@@ -260,6 +264,9 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
 
     private static class ExcludeRuleBackedSpec extends CompositeSpec {
         private final Set<DefaultModuleResolutionFilter> excludeSpecs = new HashSet<DefaultModuleResolutionFilter>();
+        // Calculated on demand, as many specs are only used to calculate other specs
+        private volatile ExcludeSpecIndex index;
+        private int hashCode;
 
         private ExcludeRuleBackedSpec(Iterable<ExcludeRule> excludeRules) {
             for (ExcludeRule rule : excludeRules) {
@@ -295,6 +302,24 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
             this.excludeSpecs.addAll(specs);
         }
 
+        private ExcludeSpecIndex getIndex() {
+            ExcludeSpecIndex index = this.index;
+            if (index == null) {
+                index = new ExcludeSpecIndex(excludeSpecs);
+                this.index = index;
+            }
+            return index;
+        }
+
+        @Override
+        public int hashCode() {
+            // Specs are immutable, so the hash code can be cached
+            if (hashCode == 0) {
+                hashCode = excludeSpecs.hashCode();
+            }
+            return hashCode;
+        }
+
         @Override
         Collection<DefaultModuleResolutionFilter> getSpecs() {
             return excludeSpecs;
@@ -307,40 +332,19 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
 
         @Override
         protected boolean acceptsAllModules() {
-            for (DefaultModuleResolutionFilter excludeSpec : excludeSpecs) {
-                if (!excludeSpec.acceptsAllModules()) {
-                    return false;
-                }
-            }
-            return true;
+            return getIndex().acceptsAllModules();
         }
 
         public boolean acceptModule(ModuleIdentifier element) {
-            for (DefaultModuleResolutionFilter excludeSpec : excludeSpecs) {
-                if (!excludeSpec.acceptModule(element)) {
-                    return false;
-                }
-            }
-            return true;
+            return getIndex().acceptModule(element);
         }
 
         public boolean acceptArtifact(ModuleIdentifier module, IvyArtifactName artifact) {
-            for (DefaultModuleResolutionFilter excludeSpec : excludeSpecs) {
-                if (!excludeSpec.acceptArtifact(module, artifact)) {
-                    return false;
-                }
-            }
-            return true;
+            return getIndex().acceptArtifact(module, artifact);
         }
 
         public boolean acceptsAllArtifacts() {
-            for (DefaultModuleResolutionFilter spec : excludeSpecs) {
-                if (!spec.acceptsAllArtifacts()) {
-                    return false;
-                }
-            }
-
-            return true;
+            return getIndex().acceptsAllArtifacts();
         }
 
         @Override
@@ -449,13 +453,92 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
         }
     }
 
+    /**
+     * An index of a set of exclude specs. Exact match module exclusions are looked up by group, module name or module id, and only the remaining
+     * specs are evaluated.
+     */
+    private static class ExcludeSpecIndex {
+        private final Set<String> excludedGroups = new HashSet<String>();
+        private final Set<String> excludedModuleNames = new HashSet<String>();
+        private final Set<ModuleIdentifier> excludedModuleIds = new HashSet<ModuleIdentifier>();
+        private final boolean excludesAllModules;
+        private final DefaultModuleResolutionFilter[] moduleSpecs;
+        private final DefaultModuleResolutionFilter[] artifactSpecs;
+
+        ExcludeSpecIndex(Collection<DefaultModuleResolutionFilter> excludeSpecs) {
+            boolean excludesAllModules = false;
+            List<DefaultModuleResolutionFilter> moduleSpecs = new ArrayList<DefaultModuleResolutionFilter>();
+            List<DefaultModuleResolutionFilter> artifactSpecs = new ArrayList<DefaultModuleResolutionFilter>();
+            for (DefaultModuleResolutionFilter spec : excludeSpecs) {
+                if (spec instanceof GroupNameExcludeSpec) {
+                    excludedGroups.add(((GroupNameExcludeSpec) spec).group);
+                } else if (spec instanceof ModuleNameExcludeSpec) {
+                    excludedModuleNames.add(((ModuleNameExcludeSpec) spec).module);
+                } else if (spec instanceof ModuleIdExcludeSpec) {
+                    excludedModuleIds.add(((ModuleIdExcludeSpec) spec).moduleId);
+                } else if (spec instanceof ExcludeAllModulesSpec) {
+                    excludesAllModules = true;
+                } else if (!spec.acceptsAllModules()) {
+                    moduleSpecs.add(spec);
+                }
+                if (!spec.acceptsAllArtifacts()) {
+                    artifactSpecs.add(spec);
+                }
+            }
+            this.excludesAllModules = excludesAllModules;
+            this.moduleSpecs = moduleSpecs.toArray(new DefaultModuleResolutionFilter[0]);
+            this.artifactSpecs = artifactSpecs.toArray(new DefaultModuleResolutionFilter[0]);
+        }
+
+        boolean acceptsAllModules() {
+            return !excludesAllModules && excludedGroups.isEmpty() && excludedModuleNames.isEmpty() && excludedModuleIds.isEmpty() && moduleSpecs.length == 0;
+        }
+
+        boolean acceptModule(ModuleIdentifier module) {
+            if (excludesAllModules
+                || excludedGroups.contains(module.getGroup())
+                || excludedModuleNames.contains(module.getName())
+                || excludedModuleIds.contains(module)) {
+                return false;
+            }
+            for (DefaultModuleResolutionFilter spec : moduleSpecs) {
+                if (!spec.acceptModule(module)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean acceptArtifact(ModuleIdentifier module, IvyArtifactName artifact) {
+            for (DefaultModuleResolutionFilter spec : artifactSpecs) {
+                if (!spec.acceptArtifact(module, artifact)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean acceptsAllArtifacts() {
+            return artifactSpecs.length == 0;
+        }
+    }
+
     private static class UnionSpec extends CompositeSpec {
-        private final List<DefaultModuleResolutionFilter> specs;
+        private final Set<DefaultModuleResolutionFilter> specs;
+        private int hashCode;
 
-        public UnionSpec(List<DefaultModuleResolutionFilter> specs) {
+        public UnionSpec(Set<DefaultModuleResolutionFilter> specs) {
             this.specs = specs;
         }
 
+        @Override
+        public int hashCode() {
+            if (hashCode == 0) {
+                hashCode = specs.hashCode();
+            }
+            return hashCode;
+        }
+
         @Override
         Collection<DefaultModuleResolutionFilter> getSpecs() {
             return specs;
@@ -537,7 +620,8 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
 
         @Override
         public int hashCode() {
-            return moduleId.hashCode();
+            // Not moduleId.hashCode(), which is zero for modules whose group and name are the same, such as log4j:log4j
+            return 31 * moduleId.getGroup().hashCode() + moduleId.getName().hashCode();
         }
 
         @Override
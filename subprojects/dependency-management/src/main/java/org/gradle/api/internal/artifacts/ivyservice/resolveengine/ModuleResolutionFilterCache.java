@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
+
+import org.apache.ivy.core.module.descriptor.ExcludeRule;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns the {@link ModuleResolutionFilter} instances created while resolving a dependency graph, and memoises the results of combining them.
+ *
+ * <p>The same exclude rules are applied to many edges of the graph, and the same filters are combined each time a node is traversed. Interning means
+ * that equal filters are represented by the same instance, so that the identity checks in {@link DefaultModuleResolutionFilter} apply, and the
+ * results of {@link ModuleResolutionFilter#union(ModuleResolutionFilter)} and {@link ModuleResolutionFilter#intersect(ModuleResolutionFilter)} can be
+ * looked up by identity. The filter for a given sequence of exclude rule instances is also reused, rather than being created each time the rules of a
+ * dependency or configuration are applied.</p>
+ *
+ * <p>Not thread-safe. An instance should only be used for a single resolution.</p>
+ */
+public class ModuleResolutionFilterCache {
+    private final Map<ModuleResolutionFilter, ModuleResolutionFilter> filters = new HashMap<ModuleResolutionFilter, ModuleResolutionFilter>();
+    private final Map<ExcludeRules, ModuleResolutionFilter> excludeRuleFilters = new HashMap<ExcludeRules, ModuleResolutionFilter>();
+    private final Map<FilterPair, ModuleResolutionFilter> unions = new HashMap<FilterPair, ModuleResolutionFilter>();
+    private final Map<FilterPair, ModuleResolutionFilter> intersections = new HashMap<FilterPair, ModuleResolutionFilter>();
+
+    /**
+     * Returns a filter that accepts only those module versions that do not match any of the given exclude rules.
+     */
+    public ModuleResolutionFilter excludeAny(ExcludeRule... excludeRules) {
+        if (excludeRules.length == 0) {
+            return DefaultModuleResolutionFilter.all();
+        }
+        ExcludeRules key = new ExcludeRules(excludeRules);
+        ModuleResolutionFilter filter = excludeRuleFilters.get(key);
+        if (filter == null) {
+            filter = intern(DefaultModuleResolutionFilter.excludeAny(excludeRules));
+            excludeRuleFilters.put(key, filter);
+        }
+        return filter;
+    }
+
+    /**
+     * Returns a filter that accepts only those module versions that do not match any of the given exclude rules.
+     */
+    public ModuleResolutionFilter excludeAny(Collection<ExcludeRule> excludeRules) {
+        return excludeAny(excludeRules.toArray(new ExcludeRule[0]));
+    }
+
+    /**
+     * Returns the union of the given filters, which should have been created by this cache.
+     */
+    public ModuleResolutionFilter union(ModuleResolutionFilter one, ModuleResolutionFilter two) {
+        if (one == two) {
+            return one;
+        }
+        FilterPair key = new FilterPair(one, two);
+        ModuleResolutionFilter union = unions.get(key);
+        if (union == null) {
+            union = intern(one.union(two));
+            unions.put(key, union);
+        }
+        return union;
+    }
+
+    /**
+     * Returns the intersection of the given filters, which should have been created by this cache.
+     */
+    public ModuleResolutionFilter intersect(ModuleResolutionFilter one, ModuleResolutionFilter two) {
+        if (one == two) {
+            return one;
+        }
+        FilterPair key = new FilterPair(one, two);
+        ModuleResolutionFilter intersection = intersections.get(key);
+        if (intersection == null) {
+            intersection = intern(one.intersect(two));
+            intersections.put(key, intersection);
+        }
+        return intersection;
+    }
+
+    private ModuleResolutionFilter intern(ModuleResolutionFilter filter) {
+        ModuleResolutionFilter interned = filters.get(filter);
+        if (interned == null) {
+            filters.put(filter, filter);
+            return filter;
+        }
+        return interned;
+    }
+
+    /**
+     * A sequence of exclude rules, compared by identity. The meta-data of a component returns the same rule instances each time it is queried.
+     */
+    private static class ExcludeRules {
+        private final ExcludeRule[] rules;
+        private final int hashCode;
+
+        private ExcludeRules(ExcludeRule[] rules) {
+            this.rules = rules;
+            int hashCode = rules.length;
+            for (ExcludeRule rule : rules) {
+                hashCode = 31 * hashCode + System.identityHashCode(rule);
+            }
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            ExcludeRules other = (ExcludeRules) obj;
+            if (other.rules.length != rules.length) {
+                return false;
+            }
+            for (int i = 0; i < rules.length; i++) {
+                if (rules[i] != other.rules[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * A pair of interned filters, compared by identity.
+     */
+    private static class FilterPair {
+        private final ModuleResolutionFilter one;
+        private final ModuleResolutionFilter two;
+
+        private FilterPair(ModuleResolutionFilter one, ModuleResolutionFilter two) {
+            this.one = one;
+            this.two = two;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            FilterPair other = (FilterPair) obj;
+            return one == other.one && two == other.two;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(one) + System.identityHashCode(two);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
+
+import org.gradle.internal.component.model.DependencyMetaData;
+
+/**
+ * Allows the meta-data of a dependency to be fetched ahead of the graph traversal reaching it.
+ *
+ * <p>A prefetch is only a hint. The traversal resolves every dependency itself and does not depend on whether or when a prefetch completes.</p>
+ */
+public interface ComponentMetaDataPrefetcher {
+    ComponentMetaDataPrefetcher NO_OP = new ComponentMetaDataPrefetcher() {
+        @Override
+        public void prefetch(DependencyMetaData dependency) {
+        }
+    };
+
+    /**
+     * Starts fetching the meta-data of the component the given dependency refers to, when this is possible without resolving the graph.
+     */
+    void prefetch(DependencyMetaData dependency);
+}
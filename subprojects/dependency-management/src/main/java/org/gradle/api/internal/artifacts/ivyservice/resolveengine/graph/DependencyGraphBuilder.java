@@ -54,22 +54,30 @@ public class DependencyGraphBuilder {
     private final ResolveContextToComponentResolver moduleResolver;
     private final DependencyToComponentIdResolver idResolver;
     private final ComponentMetaDataResolver metaDataResolver;
+    private final ComponentMetaDataPrefetcher prefetcher;
 
     public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
                                   ResolveContextToComponentResolver resolveContextToComponentResolver, DependencyToConfigurationResolver dependencyToConfigurationResolver,
                                   ConflictHandler conflictHandler) {
+        this(componentIdResolver, componentMetaDataResolver, resolveContextToComponentResolver, dependencyToConfigurationResolver, conflictHandler, ComponentMetaDataPrefetcher.NO_OP);
+    }
+
+    public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
+                                  ResolveContextToComponentResolver resolveContextToComponentResolver, DependencyToConfigurationResolver dependencyToConfigurationResolver,
+                                  ConflictHandler conflictHandler, ComponentMetaDataPrefetcher prefetcher) {
         this.idResolver = componentIdResolver;
         this.metaDataResolver = componentMetaDataResolver;
         this.moduleResolver = resolveContextToComponentResolver;
         this.conflictHandler = conflictHandler;
         this.dependencyToConfigurationResolver = dependencyToConfigurationResolver;
+        this.prefetcher = prefetcher;
     }
 
     public void resolve(ResolveContext resolveContext, DependencyGraphVisitor modelVisitor) {
         DefaultBuildableComponentResolveResult rootModule = new DefaultBuildableComponentResolveResult();
         moduleResolver.resolve(resolveContext, rootModule);
 
-        ResolveState resolveState = new ResolveState(rootModule, resolveContext.getName(), idResolver, metaDataResolver, dependencyToConfigurationResolver);
+        ResolveState resolveState = new ResolveState(rootModule, resolveContext.getName(), idResolver, metaDataResolver, dependencyToConfigurationResolver, prefetcher);
         conflictHandler.registerResolver(new DirectDependencyForcingResolver(resolveState.root.moduleRevision));
 
         traverseGraph(resolveState, conflictHandler);
@@ -268,8 +276,8 @@ public class DependencyGraphBuilder {
 
         public ModuleResolutionFilter getSelector() {
             Set<String> hierarchy = from.metaData.getHierarchy();
-            ModuleResolutionFilter selector = DefaultModuleResolutionFilter.excludeAny(dependencyMetaData.getExcludeRules(hierarchy));
-            return selector.intersect(resolutionFilter);
+            ModuleResolutionFilter selector = resolveState.moduleResolutionFilters.excludeAny(dependencyMetaData.getExcludeRules(hierarchy));
+            return resolveState.moduleResolutionFilters.intersect(selector, resolutionFilter);
         }
 
         public ComponentSelector getRequested() {
@@ -315,14 +323,18 @@ public class DependencyGraphBuilder {
         private final DependencyToComponentIdResolver idResolver;
         private final ComponentMetaDataResolver metaDataResolver;
         private final DependencyToConfigurationResolver dependencyToConfigurationResolver;
+        private final ComponentMetaDataPrefetcher prefetcher;
+        private final ModuleResolutionFilterCache moduleResolutionFilters = new ModuleResolutionFilterCache();
         private final Set<ConfigurationNode> queued = new HashSet<ConfigurationNode>();
         private final LinkedList<ConfigurationNode> queue = new LinkedList<ConfigurationNode>();
 
         public ResolveState(ComponentResolveResult rootResult, String rootConfigurationName, DependencyToComponentIdResolver idResolver,
-                            ComponentMetaDataResolver metaDataResolver, DependencyToConfigurationResolver dependencyToConfigurationResolver) {
+                            ComponentMetaDataResolver metaDataResolver, DependencyToConfigurationResolver dependencyToConfigurationResolver,
+                            ComponentMetaDataPrefetcher prefetcher) {
             this.idResolver = idResolver;
             this.metaDataResolver = metaDataResolver;
             this.dependencyToConfigurationResolver = dependencyToConfigurationResolver;
+            this.prefetcher = prefetcher;
             ModuleVersionResolveState rootVersion = getRevision(rootResult.getId());
             rootVersion.setMetaData(rootResult.getMetaData());
             root = new RootConfigurationNode(rootVersion, new ResolvedConfigurationIdentifier(rootVersion.id, rootConfigurationName), this);
@@ -386,6 +398,7 @@ public class DependencyGraphBuilder {
             if (queued.add(configuration)) {
                 queue.addLast(configuration);
             }
+            configuration.prefetchDependencies();
         }
 
         /**
@@ -616,6 +629,7 @@ public class DependencyGraphBuilder {
         private final ConfigurationMetaData metaData;
         private final ResolveState resolveState;
         private ModuleResolutionFilter previousTraversal;
+        private boolean prefetched;
 
         private ConfigurationNode(ResolvedConfigurationIdentifier id, ModuleVersionResolveState moduleRevision, ResolveState resolveState) {
             this.id = id;
@@ -669,6 +683,32 @@ public class DependencyGraphBuilder {
             return metaData.isTransitive();
         }
 
+        /**
+         * Starts fetching the meta-data of the dependencies of this configuration, so that the meta-data of the whole next level of the graph is
+         * fetched concurrently while the traversal works through the current level. Ignores exclude rules, as these can still change.
+         */
+        public void prefetchDependencies() {
+            if (prefetched || moduleRevision.state != ModuleState.Selected) {
+                return;
+            }
+            if (this != resolveState.root && !hasTransitiveIncomingEdges()) {
+                return;
+            }
+            prefetched = true;
+            for (DependencyMetaData dependency : metaData.getDependencies()) {
+                resolveState.prefetcher.prefetch(dependency);
+            }
+        }
+
+        private boolean hasTransitiveIncomingEdges() {
+            for (DependencyEdge edge : incomingEdges) {
+                if (edge.isTransitive()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         public void visitOutgoingDependencies(Collection<DependencyEdge> target) {
             // If this configuration's version is in conflict, don't do anything
             // If not traversed before, add all selected outgoing edges
@@ -755,10 +795,10 @@ public class DependencyGraphBuilder {
                 resolutionFilter = transitiveEdges.get(0).getSelector();
                 for (int i = 1; i < transitiveEdges.size(); i++) {
                     DependencyEdge dependencyEdge = transitiveEdges.get(i);
-                    resolutionFilter = resolutionFilter.union(dependencyEdge.getSelector());
+                    resolutionFilter = resolveState.moduleResolutionFilters.union(resolutionFilter, dependencyEdge.getSelector());
                 }
             }
-            resolutionFilter = resolutionFilter.intersect(DefaultModuleResolutionFilter.excludeAny(metaData.getExcludeRules()));
+            resolutionFilter = resolveState.moduleResolutionFilters.intersect(resolutionFilter, resolveState.moduleResolutionFilters.excludeAny(metaData.getExcludeRules()));
             return resolutionFilter;
         }
 
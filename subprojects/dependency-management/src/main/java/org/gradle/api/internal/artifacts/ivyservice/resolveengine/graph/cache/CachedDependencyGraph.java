@@ -0,0 +1,315 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.result.ComponentSelectionReason;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.ModuleResolutionFilter;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelection;
+import org.gradle.internal.component.local.model.DslOriginDependencyMetaData;
+import org.gradle.internal.component.model.ComponentArtifactMetaData;
+import org.gradle.internal.component.model.ConfigurationMetaData;
+import org.gradle.internal.component.model.DependencyMetaData;
+import org.gradle.internal.resolve.ModuleVersionResolveException;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A detached copy of a resolved dependency graph, which can be replayed to a {@link DependencyGraphVisitor} in a later build.
+ *
+ * <p>The copy does not reference any of the state of the build that resolved it, other than the immutable meta-data of the external components in the graph.
+ * The root configuration and the declared dependencies of the root are taken from the build that replays the graph.</p>
+ */
+public class CachedDependencyGraph {
+    private final List<NodeState> nodes;
+    private final List<EdgeState> edges;
+    private final int rootIndex;
+    private final List<CachedResultAges.ExpiryCheck> expiryChecks;
+    private final long timestamp;
+
+    CachedDependencyGraph(List<NodeState> nodes, List<EdgeState> edges, int rootIndex, List<CachedResultAges.ExpiryCheck> expiryChecks, long timestamp) {
+        this.nodes = nodes;
+        this.edges = edges;
+        this.rootIndex = rootIndex;
+        this.expiryChecks = expiryChecks;
+        this.timestamp = timestamp;
+    }
+
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    /**
+     * Returns true if none of the cached results that the graph was calculated from must be refreshed, according to the given cache policy.
+     */
+    public boolean isUpToDate(CachePolicy cachePolicy, long currentTime) {
+        long elapsed = Math.max(0, currentTime - timestamp);
+        for (CachedResultAges.ExpiryCheck check : expiryChecks) {
+            if (check.mustRefresh(cachePolicy, elapsed)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Visits the graph, in the same order as it was visited when it was resolved.
+     *
+     * @param rootConfiguration The root configuration of the build that replays the graph. Must declare the same dependencies as the configuration that the graph was resolved for.
+     */
+    public void replay(ConfigurationMetaData rootConfiguration, DependencyGraphVisitor visitor) {
+        ReplayedNode[] replayedNodes = new ReplayedNode[nodes.size()];
+        for (int i = 0; i < replayedNodes.length; i++) {
+            NodeState node = nodes.get(i);
+            replayedNodes[i] = new ReplayedNode(node, i == rootIndex ? rootConfiguration : node.metaData);
+        }
+
+        List<DependencyMetaData> rootDependencies = rootConfiguration.getDependencies();
+        ReplayedEdge[] replayedEdges = new ReplayedEdge[edges.size()];
+        for (int i = 0; i < replayedEdges.length; i++) {
+            EdgeState edge = edges.get(i);
+            ModuleDependency moduleDependency = null;
+            if (edge.rootDependencyIndex >= 0) {
+                moduleDependency = ((DslOriginDependencyMetaData) rootDependencies.get(edge.rootDependencyIndex)).getSource();
+            }
+            Map<ConfigurationMetaData, Set<ComponentArtifactMetaData>> artifacts = new IdentityHashMap<ConfigurationMetaData, Set<ComponentArtifactMetaData>>();
+            for (Map.Entry<Integer, Set<ComponentArtifactMetaData>> entry : edge.artifacts.entrySet()) {
+                artifacts.put(replayedNodes[entry.getKey()].metaData, entry.getValue());
+            }
+            replayedEdges[i] = new ReplayedEdge(edge, replayedNodes[edge.fromIndex], moduleDependency, artifacts);
+        }
+
+        for (ReplayedNode node : replayedNodes) {
+            node.incomingEdges = edgesAt(node.state.incomingEdges, replayedEdges);
+            node.outgoingEdges = edgesAt(node.state.outgoingEdges, replayedEdges);
+        }
+
+        ReplayedNode root = replayedNodes[rootIndex];
+        visitor.start(root);
+        for (ReplayedNode node : replayedNodes) {
+            visitor.visitNode(node);
+        }
+        for (ReplayedNode node : replayedNodes) {
+            visitor.visitEdge(node);
+        }
+        visitor.finish(root);
+    }
+
+    private static Set<DependencyGraphEdge> edgesAt(int[] indexes, ReplayedEdge[] edges) {
+        if (indexes.length == 0) {
+            return Collections.emptySet();
+        }
+        Set<DependencyGraphEdge> result = new LinkedHashSet<DependencyGraphEdge>(indexes.length);
+        for (int index : indexes) {
+            result.add(edges[index]);
+        }
+        return result;
+    }
+
+    static class NodeState implements ModuleVersionSelection {
+        private final ResolvedConfigurationIdentifier nodeId;
+        private final ModuleVersionIdentifier id;
+        private final ComponentIdentifier componentId;
+        private final ModuleVersionIdentifier selectedId;
+        private final ComponentSelectionReason selectionReason;
+        private final ComponentIdentifier selectedComponentId;
+        private final ConfigurationMetaData metaData;
+        private final int[] incomingEdges;
+        private final int[] outgoingEdges;
+
+        NodeState(DependencyGraphNode node, ConfigurationMetaData metaData, int[] incomingEdges, int[] outgoingEdges) {
+            this.nodeId = node.getNodeId();
+            this.id = node.toId();
+            this.componentId = node.getComponentId();
+            this.selectedId = node.getSelection().getId();
+            this.selectionReason = node.getSelection().getSelectionReason();
+            this.selectedComponentId = node.getSelection().getComponentId();
+            this.metaData = metaData;
+            this.incomingEdges = incomingEdges;
+            this.outgoingEdges = outgoingEdges;
+        }
+
+        @Override
+        public ModuleVersionIdentifier getId() {
+            return selectedId;
+        }
+
+        @Override
+        public ComponentSelectionReason getSelectionReason() {
+            return selectionReason;
+        }
+
+        @Override
+        public ComponentIdentifier getComponentId() {
+            return selectedComponentId;
+        }
+    }
+
+    static class EdgeState {
+        private final int fromIndex;
+        private final int rootDependencyIndex;
+        private final ModuleVersionSelector requestedModuleVersion;
+        private final ModuleResolutionFilter selector;
+        private final ComponentSelector requested;
+        private final ModuleVersionIdentifier selected;
+        private final ComponentSelectionReason reason;
+        private final Map<Integer, Set<ComponentArtifactMetaData>> artifacts;
+
+        EdgeState(DependencyGraphEdge edge, int fromIndex, int rootDependencyIndex, Map<Integer, Set<ComponentArtifactMetaData>> artifacts) {
+            this.fromIndex = fromIndex;
+            this.rootDependencyIndex = rootDependencyIndex;
+            this.requestedModuleVersion = edge.getRequestedModuleVersion();
+            this.selector = edge.getSelector();
+            this.requested = edge.getRequested();
+            this.selected = edge.getSelected();
+            this.reason = edge.getReason();
+            this.artifacts = artifacts;
+        }
+    }
+
+    private static class ReplayedNode implements DependencyGraphNode {
+        private final NodeState state;
+        private final ConfigurationMetaData metaData;
+        private Set<DependencyGraphEdge> incomingEdges;
+        private Set<DependencyGraphEdge> outgoingEdges;
+
+        ReplayedNode(NodeState state, ConfigurationMetaData metaData) {
+            this.state = state;
+            this.metaData = metaData;
+        }
+
+        @Override
+        public ResolvedConfigurationIdentifier getNodeId() {
+            return state.nodeId;
+        }
+
+        @Override
+        public ModuleVersionIdentifier toId() {
+            return state.id;
+        }
+
+        @Override
+        public ComponentIdentifier getComponentId() {
+            return state.componentId;
+        }
+
+        @Override
+        public ModuleVersionSelection getSelection() {
+            return state;
+        }
+
+        @Override
+        public Set<DependencyGraphEdge> getIncomingEdges() {
+            return incomingEdges;
+        }
+
+        @Override
+        public Set<DependencyGraphEdge> getOutgoingEdges() {
+            return outgoingEdges;
+        }
+
+        @Override
+        public ConfigurationMetaData getMetaData() {
+            return metaData;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s(%s)", state.id, state.nodeId.getConfiguration());
+        }
+    }
+
+    private static class ReplayedEdge implements DependencyGraphEdge {
+        private final EdgeState state;
+        private final ReplayedNode from;
+        private final ModuleDependency moduleDependency;
+        private final Map<ConfigurationMetaData, Set<ComponentArtifactMetaData>> artifacts;
+
+        ReplayedEdge(EdgeState state, ReplayedNode from, ModuleDependency moduleDependency, Map<ConfigurationMetaData, Set<ComponentArtifactMetaData>> artifacts) {
+            this.state = state;
+            this.from = from;
+            this.moduleDependency = moduleDependency;
+            this.artifacts = artifacts;
+        }
+
+        @Override
+        public DependencyGraphNode getFrom() {
+            return from;
+        }
+
+        @Override
+        public ModuleVersionSelector getRequestedModuleVersion() {
+            return state.requestedModuleVersion;
+        }
+
+        @Override
+        public ModuleResolutionFilter getSelector() {
+            return state.selector;
+        }
+
+        @Override
+        public Set<ComponentArtifactMetaData> getArtifacts(ConfigurationMetaData metaData) {
+            Set<ComponentArtifactMetaData> result = artifacts.get(metaData);
+            return result == null ? Collections.<ComponentArtifactMetaData>emptySet() : result;
+        }
+
+        @Override
+        public ModuleDependency getModuleDependency() {
+            return moduleDependency;
+        }
+
+        @Override
+        public ComponentSelector getRequested() {
+            return state.requested;
+        }
+
+        @Override
+        public ModuleVersionResolveException getFailure() {
+            return null;
+        }
+
+        @Override
+        public ModuleVersionIdentifier getSelected() {
+            return state.selected;
+        }
+
+        @Override
+        public ComponentSelectionReason getReason() {
+            return state.reason;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s -> %s", from, state.requested);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ResolvedModuleVersion;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.DefaultResolvedModuleVersion;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records the age of the cached version listings and module meta-data that have been used during a build. A result that had to be refreshed
+ * is recorded with an age of 0. The ages are used to decide when a dependency graph calculated from these results has expired.
+ *
+ * <p>The ages are collected for the whole build, as a result is only checked against the cache policy the first time it is used in a build.</p>
+ */
+public class CachedResultAges {
+    private final Map<ModuleIdentifier, VersionListAge> versionLists = Maps.newHashMap();
+    private final Map<ModuleComponentIdentifier, ModuleAge> modules = Maps.newHashMap();
+    private final Map<ModuleComponentIdentifier, Long> missingModules = Maps.newHashMap();
+
+    public synchronized void versionListUsed(ModuleIdentifier module, Set<ModuleVersionIdentifier> versions, long ageMillis) {
+        VersionListAge previous = versionLists.get(module);
+        if (previous == null || previous.ageMillis < ageMillis) {
+            versionLists.put(module, new VersionListAge(versions, ageMillis));
+        }
+    }
+
+    public synchronized void moduleUsed(ModuleComponentIdentifier component, ResolvedModuleVersion version, boolean changing, long ageMillis) {
+        ModuleAge previous = modules.get(component);
+        if (previous == null) {
+            modules.put(component, new ModuleAge(version, changing, ageMillis));
+        } else {
+            modules.put(component, new ModuleAge(version, changing || previous.changing, Math.max(ageMillis, previous.ageMillis)));
+        }
+    }
+
+    public synchronized void missingModuleUsed(ModuleComponentIdentifier component, long ageMillis) {
+        Long previous = missingModules.get(component);
+        if (previous == null || previous < ageMillis) {
+            missingModules.put(component, ageMillis);
+        }
+    }
+
+    /**
+     * Returns the check for the version listing used to select the given version of a module. When the listing was not found in the cache, it was fetched during this build.
+     */
+    ExpiryCheck versionListCheck(ModuleIdentifier module, ModuleVersionIdentifier selected) {
+        VersionListAge versionList;
+        synchronized (this) {
+            versionList = versionLists.get(module);
+        }
+        if (versionList == null) {
+            return new VersionListCheck(module, Collections.singleton(selected), 0);
+        }
+        return new VersionListCheck(module, versionList.versions, versionList.ageMillis);
+    }
+
+    /**
+     * Returns the checks for the meta-data of the given component, and for any repository that the component was found to be missing from.
+     */
+    List<ExpiryCheck> moduleChecks(ModuleComponentIdentifier component, ModuleVersionIdentifier id, boolean changing) {
+        ModuleAge module;
+        Long missingAge;
+        synchronized (this) {
+            module = modules.get(component);
+            missingAge = missingModules.get(component);
+        }
+        List<ExpiryCheck> checks = Lists.newArrayList();
+        if (module == null) {
+            checks.add(new ModuleCheck(component, new DefaultResolvedModuleVersion(id), changing, 0));
+        } else {
+            checks.add(new ModuleCheck(component, module.version, changing || module.changing, module.ageMillis));
+        }
+        if (missingAge != null) {
+            checks.add(new MissingModuleCheck(component, missingAge));
+        }
+        return checks;
+    }
+
+    private static class VersionListAge {
+        private final Set<ModuleVersionIdentifier> versions;
+        private final long ageMillis;
+
+        private VersionListAge(Set<ModuleVersionIdentifier> versions, long ageMillis) {
+            this.versions = versions;
+            this.ageMillis = ageMillis;
+        }
+    }
+
+    private static class ModuleAge {
+        private final ResolvedModuleVersion version;
+        private final boolean changing;
+        private final long ageMillis;
+
+        private ModuleAge(ResolvedModuleVersion version, boolean changing, long ageMillis) {
+            this.version = version;
+            this.changing = changing;
+            this.ageMillis = ageMillis;
+        }
+    }
+
+    /**
+     * Asks a cache policy whether a cached result, used at a given age, must be refreshed after some time has passed.
+     */
+    abstract static class ExpiryCheck {
+        protected final long ageMillis;
+
+        protected ExpiryCheck(long ageMillis) {
+            this.ageMillis = ageMillis;
+        }
+
+        abstract boolean mustRefresh(CachePolicy cachePolicy, long elapsedMillis);
+    }
+
+    private static class VersionListCheck extends ExpiryCheck {
+        private final ModuleIdentifier module;
+        private final Set<ModuleVersionIdentifier> versions;
+
+        private VersionListCheck(ModuleIdentifier module, Set<ModuleVersionIdentifier> versions, long ageMillis) {
+            super(ageMillis);
+            this.module = module;
+            this.versions = versions;
+        }
+
+        @Override
+        boolean mustRefresh(CachePolicy cachePolicy, long elapsedMillis) {
+            return cachePolicy.mustRefreshVersionList(module, versions, ageMillis + elapsedMillis);
+        }
+    }
+
+    private static class ModuleCheck extends ExpiryCheck {
+        private final ModuleComponentIdentifier component;
+        private final ResolvedModuleVersion version;
+        private final boolean changing;
+
+        private ModuleCheck(ModuleComponentIdentifier component, ResolvedModuleVersion version, boolean changing, long ageMillis) {
+            super(ageMillis);
+            this.component = component;
+            this.version = version;
+            this.changing = changing;
+        }
+
+        @Override
+        boolean mustRefresh(CachePolicy cachePolicy, long elapsedMillis) {
+            if (changing) {
+                return cachePolicy.mustRefreshChangingModule(component, version, ageMillis + elapsedMillis);
+            }
+            return cachePolicy.mustRefreshModule(component, version, ageMillis + elapsedMillis);
+        }
+    }
+
+    private static class MissingModuleCheck extends ExpiryCheck {
+        private final ModuleComponentIdentifier component;
+
+        private MissingModuleCheck(ModuleComponentIdentifier component, long ageMillis) {
+            super(ageMillis);
+            this.component = component;
+        }
+
+        @Override
+        boolean mustRefresh(CachePolicy cachePolicy, long elapsedMillis) {
+            return cachePolicy.mustRefreshMissingModule(component, ageMillis + elapsedMillis);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.internal.hash.HashValue;
+
+/**
+ * Keeps the resolved dependency graphs of configurations in memory, so that they can be reused by later builds in the same process.
+ *
+ * <p>A graph is discarded once any of the cached version listings or module meta-data that it was resolved from would have been refreshed by the build
+ * that looks it up. The graphs are softly referenced, so that the garbage collector reclaims them before the daemon runs out of memory.</p>
+ */
+public class CrossBuildInMemoryResolvedGraphCache {
+    private final Cache<HashValue, CachedDependencyGraph> graphs = CacheBuilder.newBuilder().maximumSize(500).softValues().build();
+
+    @Nullable
+    public CachedDependencyGraph get(HashValue key, CachePolicy cachePolicy, long currentTime) {
+        CachedDependencyGraph graph = graphs.getIfPresent(key);
+        if (graph == null) {
+            return null;
+        }
+        if (!graph.isUpToDate(cachePolicy, currentTime)) {
+            graphs.invalidate(key);
+            return null;
+        }
+        return graph;
+    }
+
+    public void put(HashValue key, CachedDependencyGraph graph) {
+        graphs.put(key, graph);
+    }
+}
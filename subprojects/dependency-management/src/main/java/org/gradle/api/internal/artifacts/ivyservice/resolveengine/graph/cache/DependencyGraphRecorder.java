@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.internal.component.local.model.DslOriginDependencyMetaData;
+import org.gradle.internal.component.local.model.LocalConfigurationMetaData;
+import org.gradle.internal.component.model.ComponentArtifactMetaData;
+import org.gradle.internal.component.model.DependencyMetaData;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link DependencyGraphVisitor} that takes a {@link CachedDependencyGraph} copy of the graph once it has been visited.
+ *
+ * <p>Only graphs that were resolved from the meta-data of external components, and without any failures, are copied.</p>
+ */
+public class DependencyGraphRecorder implements DependencyGraphVisitor {
+    private final CachedResultAges cachedResultAges;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final long timestamp;
+    private final List<DependencyGraphNode> nodes = Lists.newArrayList();
+    private CachedDependencyGraph graph;
+
+    public DependencyGraphRecorder(CachedResultAges cachedResultAges, VersionSelectorScheme versionSelectorScheme, long timestamp) {
+        this.cachedResultAges = cachedResultAges;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public void start(DependencyGraphNode root) {
+    }
+
+    @Override
+    public void visitNode(DependencyGraphNode resolvedConfiguration) {
+        nodes.add(resolvedConfiguration);
+    }
+
+    @Override
+    public void visitEdge(DependencyGraphNode resolvedConfiguration) {
+    }
+
+    @Override
+    public void finish(DependencyGraphNode root) {
+        graph = copyGraph(root);
+        nodes.clear();
+    }
+
+    /**
+     * Returns the copy of the graph, or null if the graph cannot be cached.
+     */
+    @Nullable
+    public CachedDependencyGraph getGraph() {
+        return graph;
+    }
+
+    @Nullable
+    private CachedDependencyGraph copyGraph(DependencyGraphNode root) {
+        if (!root.getIncomingEdges().isEmpty()) {
+            return null;
+        }
+
+        Map<DependencyGraphNode, Integer> nodeIndexes = new IdentityHashMap<DependencyGraphNode, Integer>();
+        for (DependencyGraphNode node : nodes) {
+            if (node != root && (!(node.getComponentId() instanceof ModuleComponentIdentifier) || node.getMetaData() instanceof LocalConfigurationMetaData)) {
+                return null;
+            }
+            nodeIndexes.put(node, nodeIndexes.size());
+        }
+        Integer rootIndex = nodeIndexes.get(root);
+        if (rootIndex == null) {
+            return null;
+        }
+
+        List<DependencyGraphEdge> edges = Lists.newArrayList();
+        Map<DependencyGraphEdge, Integer> edgeIndexes = new IdentityHashMap<DependencyGraphEdge, Integer>();
+        for (DependencyGraphNode node : nodes) {
+            for (DependencyGraphEdge edge : node.getOutgoingEdges()) {
+                if (edge.getFailure() != null) {
+                    return null;
+                }
+                edgeIndexes.put(edge, edges.size());
+                edges.add(edge);
+            }
+        }
+
+        List<Map<Integer, Set<ComponentArtifactMetaData>>> edgeArtifacts = Lists.newArrayListWithCapacity(edges.size());
+        for (int i = 0; i < edges.size(); i++) {
+            edgeArtifacts.add(Maps.<Integer, Set<ComponentArtifactMetaData>>newHashMap());
+        }
+        List<CachedDependencyGraph.NodeState> nodeStates = Lists.newArrayListWithCapacity(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            DependencyGraphNode node = nodes.get(i);
+            int[] incomingEdges = indexesOf(node.getIncomingEdges(), edgeIndexes);
+            int[] outgoingEdges = indexesOf(node.getOutgoingEdges(), edgeIndexes);
+            if (incomingEdges == null || outgoingEdges == null) {
+                return null;
+            }
+            for (DependencyGraphEdge edge : node.getIncomingEdges()) {
+                Set<ComponentArtifactMetaData> artifacts = edge.getArtifacts(node.getMetaData());
+                if (!artifacts.isEmpty()) {
+                    edgeArtifacts.get(edgeIndexes.get(edge)).put(i, artifacts);
+                }
+            }
+            nodeStates.add(new CachedDependencyGraph.NodeState(node, node == root ? null : node.getMetaData(), incomingEdges, outgoingEdges));
+        }
+
+        List<DependencyMetaData> rootDependencies = root.getMetaData().getDependencies();
+        List<CachedDependencyGraph.EdgeState> edgeStates = Lists.newArrayListWithCapacity(edges.size());
+        for (int i = 0; i < edges.size(); i++) {
+            DependencyGraphEdge edge = edges.get(i);
+            int rootDependencyIndex = -1;
+            if (edge.getFrom() == root && edge.getModuleDependency() != null) {
+                rootDependencyIndex = indexOfSource(rootDependencies, edge.getModuleDependency());
+                if (rootDependencyIndex < 0) {
+                    return null;
+                }
+            }
+            edgeStates.add(new CachedDependencyGraph.EdgeState(edge, nodeIndexes.get(edge.getFrom()), rootDependencyIndex, edgeArtifacts.get(i)));
+        }
+
+        return new CachedDependencyGraph(nodeStates, edgeStates, rootIndex, expiryChecks(root, edges), timestamp);
+    }
+
+    private List<CachedResultAges.ExpiryCheck> expiryChecks(DependencyGraphNode root, List<DependencyGraphEdge> edges) {
+        List<CachedResultAges.ExpiryCheck> checks = Lists.newArrayList();
+        Set<ComponentIdentifier> components = Sets.newHashSet();
+        for (DependencyGraphNode node : nodes) {
+            if (node != root && components.add(node.getComponentId())) {
+                checks.addAll(cachedResultAges.moduleChecks((ModuleComponentIdentifier) node.getComponentId(), node.toId(), node.getMetaData().getComponent().isChanging()));
+            }
+        }
+        Set<ModuleVersionSelector> dynamicSelectors = Sets.newHashSet();
+        for (DependencyGraphEdge edge : edges) {
+            ModuleVersionSelector requested = edge.getRequestedModuleVersion();
+            if (requested.getVersion() != null && versionSelectorScheme.parseSelector(requested.getVersion()).isDynamic() && dynamicSelectors.add(requested)) {
+                checks.add(cachedResultAges.versionListCheck(DefaultModuleIdentifier.newId(requested.getGroup(), requested.getName()), edge.getSelected()));
+            }
+        }
+        return checks;
+    }
+
+    @Nullable
+    private static int[] indexesOf(Set<DependencyGraphEdge> edges, Map<DependencyGraphEdge, Integer> edgeIndexes) {
+        int[] indexes = new int[edges.size()];
+        int i = 0;
+        for (DependencyGraphEdge edge : edges) {
+            Integer index = edgeIndexes.get(edge);
+            if (index == null) {
+                return null;
+            }
+            indexes[i++] = index;
+        }
+        return indexes;
+    }
+
+    private static int indexOfSource(List<DependencyMetaData> dependencies, ModuleDependency source) {
+        for (int i = 0; i < dependencies.size(); i++) {
+            DependencyMetaData dependency = dependencies.get(i);
+            if (dependency instanceof DslOriginDependencyMetaData && ((DslOriginDependencyMetaData) dependency).getSource() == source) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
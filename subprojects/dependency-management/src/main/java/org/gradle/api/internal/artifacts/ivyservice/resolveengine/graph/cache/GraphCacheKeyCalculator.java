@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import org.apache.ivy.core.module.descriptor.ExcludeRule;
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.ClientModule;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.ResolveContext;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConfiguredModuleComponentRepository;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.api.internal.artifacts.repositories.resolver.ExternalResourceResolver;
+import org.gradle.internal.component.local.model.DslOriginDependencyMetaData;
+import org.gradle.internal.component.model.ComponentResolveMetaData;
+import org.gradle.internal.component.model.ConfigurationMetaData;
+import org.gradle.internal.component.model.DependencyMetaData;
+import org.gradle.internal.component.model.IvyArtifactName;
+import org.gradle.internal.hash.HashUtil;
+import org.gradle.internal.hash.HashValue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Calculates the key of the dependency graph of a configuration in the {@link CrossBuildInMemoryResolvedGraphCache}, from everything that the graph was resolved from,
+ * other than the cached results of the repositories.
+ *
+ * <p>A configuration is not cached when its graph may depend on something that cannot be captured in the key, such as the behaviour of a rule or the
+ * contents of a project or a local repository.</p>
+ */
+public class GraphCacheKeyCalculator {
+    /**
+     * Returns the key for the given configuration, or null if its dependency graph should not be cached.
+     */
+    @Nullable
+    public static HashValue calculateKey(ResolveContext resolveContext, ComponentResolveMetaData rootComponent, Collection<? extends ResolutionAwareRepository> repositories,
+                                         GlobalDependencyResolutionRules metadataHandler) {
+        ResolutionStrategyInternal resolutionStrategy = resolveContext.getResolutionStrategy();
+        if (resolutionStrategy.getDependencySubstitution().hasRules()
+            || !resolutionStrategy.getComponentSelection().getRules().isEmpty()
+            || metadataHandler.getComponentMetadataProcessor().hasRules()
+            || metadataHandler.getModuleMetadataProcessor().getModuleReplacements().hasReplacements()) {
+            return null;
+        }
+        ConfigurationMetaData rootConfiguration = rootComponent.getConfiguration(resolveContext.getName());
+        if (rootConfiguration == null || repositories.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder key = new StringBuilder();
+        key.append(rootComponent.getComponentId()).append('|').append(rootComponent.getId()).append('|').append(rootComponent.getStatus()).append('\n');
+        key.append(rootConfiguration.getName()).append('|').append(rootConfiguration.getHierarchy()).append('|').append(rootConfiguration.isTransitive()).append('\n');
+        appendExcludeRules(key, rootConfiguration.getExcludeRules());
+        for (DependencyMetaData dependency : rootConfiguration.getDependencies()) {
+            if (!appendDependency(key, dependency, rootConfiguration)) {
+                return null;
+            }
+        }
+        for (ModuleVersionSelector forcedModule : resolutionStrategy.getForcedModules()) {
+            key.append("force ").append(forcedModule.getGroup()).append(':').append(forcedModule.getName()).append(':').append(forcedModule.getVersion()).append('\n');
+        }
+        key.append(resolutionStrategy.getConflictResolution().getClass().getName()).append('\n');
+        for (ResolutionAwareRepository repository : repositories) {
+            ConfiguredModuleComponentRepository resolver = repository.createResolver();
+            if (!(resolver instanceof ExternalResourceResolver) || resolver.isLocal()) {
+                return null;
+            }
+            key.append("repo ").append(resolver.getClass().getName()).append('|').append(resolver.getName()).append('|').append(resolver.getId()).append('|').append(resolver.isDynamicResolveMode()).append('\n');
+        }
+        return HashUtil.createHash(key.toString(), "MD5");
+    }
+
+    private static boolean appendDependency(StringBuilder key, DependencyMetaData dependency, ConfigurationMetaData rootConfiguration) {
+        if (!(dependency.getSelector() instanceof ModuleComponentSelector)) {
+            return false;
+        }
+        if (dependency instanceof DslOriginDependencyMetaData && ((DslOriginDependencyMetaData) dependency).getSource() instanceof ClientModule) {
+            return false;
+        }
+        ModuleVersionSelector requested = dependency.getRequested();
+        key.append("dependency ").append(requested.getGroup()).append(':').append(requested.getName()).append(':').append(requested.getVersion())
+            .append('|').append(dependency.isForce()).append('|').append(dependency.isChanging()).append('|').append(dependency.isTransitive())
+            .append('|').append(dependency.getDynamicConstraintVersion()).append('\n');
+        for (String moduleConfiguration : dependency.getModuleConfigurations()) {
+            key.append(moduleConfiguration).append("->").append(Arrays.toString(dependency.getDependencyConfigurations(moduleConfiguration, rootConfiguration.getName()))).append('\n');
+        }
+        for (IvyArtifactName artifact : dependency.getArtifacts()) {
+            key.append("artifact ").append(artifact.getName()).append('|').append(artifact.getType()).append('|').append(artifact.getExtension())
+                .append('|').append(artifact.getClassifier()).append('|').append(new TreeMap<String, String>(artifact.getAttributes())).append('\n');
+        }
+        appendExcludeRules(key, Arrays.asList(dependency.getExcludeRules(rootConfiguration.getHierarchy())));
+        return true;
+    }
+
+    private static void appendExcludeRules(StringBuilder key, Collection<ExcludeRule> excludeRules) {
+        for (ExcludeRule excludeRule : excludeRules) {
+            ArtifactId id = excludeRule.getId();
+            key.append("exclude ").append(id.getModuleId().getOrganisation()).append(':').append(id.getModuleId().getName())
+                .append('|').append(id.getName()).append('|').append(id.getType()).append('|').append(id.getExt())
+                .append('|').append(excludeRule.getMatcher().getName()).append('|').append(Arrays.toString(excludeRule.getConfigurations())).append('\n');
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import org.gradle.api.artifacts.ArtifactIdentifier;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ResolvedModuleVersion;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+
+import java.io.File;
+import java.util.Set;
+
+/**
+ * A {@link CachePolicy} that records the age of each cached version listing and module meta-data that it is asked about.
+ */
+public class RecordingCachePolicy implements CachePolicy {
+    private final CachePolicy delegate;
+    private final CachedResultAges ages;
+
+    public RecordingCachePolicy(CachePolicy delegate, CachedResultAges ages) {
+        this.delegate = delegate;
+        this.ages = ages;
+    }
+
+    @Override
+    public boolean mustRefreshVersionList(ModuleIdentifier selector, Set<ModuleVersionIdentifier> moduleVersions, long ageMillis) {
+        boolean mustRefresh = delegate.mustRefreshVersionList(selector, moduleVersions, ageMillis);
+        ages.versionListUsed(selector, moduleVersions, mustRefresh ? 0 : ageMillis);
+        return mustRefresh;
+    }
+
+    @Override
+    public boolean mustRefreshMissingModule(ModuleComponentIdentifier component, long ageMillis) {
+        boolean mustRefresh = delegate.mustRefreshMissingModule(component, ageMillis);
+        ages.missingModuleUsed(component, mustRefresh ? 0 : ageMillis);
+        return mustRefresh;
+    }
+
+    @Override
+    public boolean mustRefreshModule(ModuleComponentIdentifier component, ResolvedModuleVersion resolvedModuleVersion, long ageMillis) {
+        boolean mustRefresh = delegate.mustRefreshModule(component, resolvedModuleVersion, ageMillis);
+        ages.moduleUsed(component, resolvedModuleVersion, false, mustRefresh ? 0 : ageMillis);
+        return mustRefresh;
+    }
+
+    @Override
+    public boolean mustRefreshChangingModule(ModuleComponentIdentifier component, ResolvedModuleVersion resolvedModuleVersion, long ageMillis) {
+        boolean mustRefresh = delegate.mustRefreshChangingModule(component, resolvedModuleVersion, ageMillis);
+        ages.moduleUsed(component, resolvedModuleVersion, true, mustRefresh ? 0 : ageMillis);
+        return mustRefresh;
+    }
+
+    @Override
+    public boolean mustRefreshModuleArtifacts(ModuleVersionIdentifier moduleVersionId, Set<ArtifactIdentifier> artifacts, long ageMillis, boolean belongsToChangingModule, boolean moduleDescriptorInSync) {
+        return delegate.mustRefreshModuleArtifacts(moduleVersionId, artifacts, ageMillis, belongsToChangingModule, moduleDescriptorInSync);
+    }
+
+    @Override
+    public boolean mustRefreshArtifact(ArtifactIdentifier artifactIdentifier, File cachedArtifactFile, long ageMillis, boolean belongsToChangingModule, boolean moduleDescriptorInSync) {
+        return delegate.mustRefreshArtifact(artifactIdentifier, cachedArtifactFile, ageMillis, belongsToChangingModule, moduleDescriptorInSync);
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.result;
+
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.result.ComponentSelectionReason;
+import org.gradle.api.artifacts.result.DependencyResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.gradle.api.internal.artifacts.ModuleVersionIdentifierSerializer;
+import org.gradle.api.internal.artifacts.result.DefaultResolvedDependencyResult;
+import org.gradle.api.internal.artifacts.result.DefaultUnresolvedDependencyResult;
+import org.gradle.api.internal.cache.BinaryStore;
+import org.gradle.internal.resolve.ModuleVersionResolveException;
+import org.gradle.internal.serialize.Decoder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A resolution result whose components are decoded on demand from the records written by {@link StreamingResolutionResultBuilder}.
+ *
+ * <p>While the records are written, this graph keeps the position of the records of each component, and the components that depend on it. Reading
+ * a component decodes its own records only. A bounded number of decoded components is kept in memory, so that walking part of a large graph does not
+ * load the whole graph.</p>
+ *
+ * <p>The same component may be decoded more than once. Its instances are equal to each other, but the dependency results of each instance are distinct.</p>
+ */
+class LazyResolvedGraph {
+    static final int MAX_DECODED_COMPONENTS = 1000;
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final ModuleVersionIdentifierSerializer moduleVersionIdentifierSerializer = new ModuleVersionIdentifierSerializer();
+    private final ModuleVersionSelectionSerializer moduleVersionSelectionSerializer = new ModuleVersionSelectionSerializer();
+    private final InternalDependencyResultSerializer internalDependencyResultSerializer = new InternalDependencyResultSerializer();
+    private final ComponentIdentifierSerializer componentIdentifierSerializer = new ComponentIdentifierSerializer();
+    private final Map<ModuleVersionIdentifier, Node> nodes = new HashMap<ModuleVersionIdentifier, Node>();
+    private final List<Node> nodesByIndex = new ArrayList<Node>();
+    private Node root;
+
+    private final Object lock = new Object();
+    private final Map<Node, DecodedComponent> decoded = new LinkedHashMap<Node, DecodedComponent>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Node, DecodedComponent> eldest) {
+            return size() > MAX_DECODED_COMPONENTS;
+        }
+    };
+    private BinaryStore.BinaryData data;
+    private Map<ComponentSelector, ModuleVersionResolveException> failures;
+
+    /**
+     * Called when the root record has been written at the given position.
+     */
+    void root(ModuleVersionIdentifier id, int position) {
+        root = getNode(id);
+        root.position = position;
+    }
+
+    /**
+     * Called when a module record has been written at the given position. Only the first record for a component is used.
+     */
+    void module(ModuleVersionIdentifier id, int position) {
+        Node node = getNode(id);
+        if (node.position == -1) {
+            node.position = position;
+        }
+    }
+
+    /**
+     * Called when a dependency record has been written at the given position.
+     */
+    void dependencies(ModuleVersionIdentifier from, int position, Collection<? extends InternalDependencyResult> dependencies) {
+        Node fromNode = getNode(from);
+        fromNode.addDependencies(position);
+        for (InternalDependencyResult dependency : dependencies) {
+            if (dependency.getFailure() == null) {
+                getNode(dependency.getSelected()).addDependent(fromNode.index);
+            }
+        }
+    }
+
+    private Node getNode(ModuleVersionIdentifier id) {
+        Node node = nodes.get(id);
+        if (node == null) {
+            node = new Node(nodesByIndex.size(), id);
+            nodes.put(id, node);
+            nodesByIndex.add(node);
+        }
+        return node;
+    }
+
+    /**
+     * Called when all records have been written.
+     */
+    ResolvedComponentResult complete(BinaryStore.BinaryData data, Map<ComponentSelector, ModuleVersionResolveException> failures) {
+        this.data = data;
+        this.failures = failures;
+        return new LazyComponentResult(root);
+    }
+
+    private DecodedComponent decode(Node node) {
+        synchronized (lock) {
+            DecodedComponent component = decoded.get(node);
+            if (component == null) {
+                component = readComponent(node);
+                decoded.put(node, component);
+            }
+            return component;
+        }
+    }
+
+    private DecodedComponent readComponent(final Node node) {
+        final DecodedComponent component = data.read(node.position, new BinaryStore.ReadAction<DecodedComponent>() {
+            public DecodedComponent read(Decoder decoder) throws IOException {
+                byte type = decoder.readByte();
+                if (type == StreamingResolutionResultBuilder.ROOT) {
+                    moduleVersionIdentifierSerializer.read(decoder);
+                    return new DecodedComponent(componentIdentifierSerializer.read(decoder), VersionSelectionReasons.ROOT);
+                }
+                if (type == StreamingResolutionResultBuilder.MODULE) {
+                    ModuleVersionSelection selection = moduleVersionSelectionSerializer.read(decoder);
+                    return new DecodedComponent(selection.getComponentId(), selection.getSelectionReason());
+                }
+                throw new IOException("Unexpected value type read for " + node.id + ": " + type);
+            }
+        });
+        for (int i = 0; i < node.dependencyCount; i++) {
+            data.read(node.dependencyPositions[i], new BinaryStore.ReadAction<Void>() {
+                public Void read(Decoder decoder) throws IOException {
+                    decoder.readByte();
+                    moduleVersionIdentifierSerializer.read(decoder);
+                    int size = decoder.readSmallInt();
+                    for (int j = 0; j < size; j++) {
+                        component.dependencies.add(internalDependencyResultSerializer.read(decoder, failures));
+                    }
+                    return null;
+                }
+            });
+        }
+        return component;
+    }
+
+    private static class Node {
+        final int index;
+        final ModuleVersionIdentifier id;
+        int position = -1;
+        int[] dependencyPositions = NO_POSITIONS;
+        int dependencyCount;
+        int[] dependents = NO_POSITIONS;
+        int dependentCount;
+
+        Node(int index, ModuleVersionIdentifier id) {
+            this.index = index;
+            this.id = id;
+        }
+
+        void addDependencies(int position) {
+            if (dependencyCount == dependencyPositions.length) {
+                dependencyPositions = Arrays.copyOf(dependencyPositions, Math.max(2, dependencyCount * 2));
+            }
+            dependencyPositions[dependencyCount++] = position;
+        }
+
+        void addDependent(int from) {
+            if (dependentCount > 0 && dependents[dependentCount - 1] == from) {
+                return;
+            }
+            if (dependentCount == dependents.length) {
+                dependents = Arrays.copyOf(dependents, Math.max(2, dependentCount * 2));
+            }
+            dependents[dependentCount++] = from;
+        }
+    }
+
+    private static class DecodedComponent {
+        final ComponentIdentifier componentId;
+        final ComponentSelectionReason selectionReason;
+        final List<InternalDependencyResult> dependencies = new ArrayList<InternalDependencyResult>();
+        Set<DependencyResult> dependencyResults;
+
+        DecodedComponent(ComponentIdentifier componentId, ComponentSelectionReason selectionReason) {
+            this.componentId = componentId;
+            this.selectionReason = selectionReason;
+        }
+    }
+
+    private class LazyComponentResult implements ResolvedComponentResult {
+        private final Node node;
+
+        LazyComponentResult(Node node) {
+            this.node = node;
+        }
+
+        public ComponentIdentifier getId() {
+            return decode(node).componentId;
+        }
+
+        public ComponentSelectionReason getSelectionReason() {
+            return decode(node).selectionReason;
+        }
+
+        public ModuleVersionIdentifier getModuleVersion() {
+            return node.id;
+        }
+
+        public Set<? extends DependencyResult> getDependencies() {
+            DecodedComponent component = decode(node);
+            synchronized (lock) {
+                if (component.dependencyResults == null) {
+                    component.dependencyResults = Collections.unmodifiableSet(createDependencyResults(component));
+                }
+                return component.dependencyResults;
+            }
+        }
+
+        private Set<DependencyResult> createDependencyResults(DecodedComponent component) {
+            // A component has one dependency result for each distinct requested and selected pair, as for a graph that is loaded in full
+            Map<List<Object>, DependencyResult> results = new LinkedHashMap<List<Object>, DependencyResult>();
+            for (InternalDependencyResult dependency : component.dependencies) {
+                if (dependency.getFailure() != null) {
+                    List<Object> key = Arrays.<Object>asList(dependency.getRequested());
+                    if (!results.containsKey(key)) {
+                        results.put(key, new DefaultUnresolvedDependencyResult(dependency.getRequested(), dependency.getReason(), this, dependency.getFailure()));
+                    }
+                } else {
+                    List<Object> key = Arrays.<Object>asList(dependency.getRequested(), dependency.getSelected());
+                    if (!results.containsKey(key)) {
+                        ResolvedComponentResult selected = new LazyComponentResult(nodes.get(dependency.getSelected()));
+                        results.put(key, new DefaultResolvedDependencyResult(dependency.getRequested(), selected, this));
+                    }
+                }
+            }
+            return new LinkedHashSet<DependencyResult>(results.values());
+        }
+
+        public Set<? extends ResolvedDependencyResult> getDependents() {
+            Set<ResolvedDependencyResult> dependents = new LinkedHashSet<ResolvedDependencyResult>();
+            Set<Integer> seen = new HashSet<Integer>();
+            for (int i = 0; i < node.dependentCount; i++) {
+                int from = node.dependents[i];
+                if (!seen.add(from)) {
+                    continue;
+                }
+                for (DependencyResult dependency : new LazyComponentResult(nodesByIndex.get(from)).getDependencies()) {
+                    if (dependency instanceof ResolvedDependencyResult && equals(((ResolvedDependencyResult) dependency).getSelected())) {
+                        dependents.add((ResolvedDependencyResult) dependency);
+                    }
+                }
+            }
+            return Collections.unmodifiableSet(dependents);
+        }
+
+        private LazyResolvedGraph getGraph() {
+            return LazyResolvedGraph.this;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof LazyComponentResult)) {
+                return false;
+            }
+            LazyComponentResult other = (LazyComponentResult) obj;
+            return other.getGraph() == getGraph() && other.node == node;
+        }
+
+        @Override
+        public int hashCode() {
+            return node.index;
+        }
+
+        @Override
+        public String toString() {
+            return getId().getDisplayName();
+        }
+    }
+}
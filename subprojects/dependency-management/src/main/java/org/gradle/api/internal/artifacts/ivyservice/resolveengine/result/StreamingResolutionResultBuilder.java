@@ -39,10 +39,15 @@ import java.util.*;
 import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
 
 public class StreamingResolutionResultBuilder implements ResolutionResultBuilder {
-
-    private final static byte ROOT = 1;
-    private final static byte MODULE = 2;
-    private final static byte DEPENDENCY = 3;
+    /**
+     * When this system property is set to true, the components of the resolution result are decoded from the store on demand,
+     * rather than loading the whole graph into memory on first access.
+     */
+    public static final String LAZY_RESULTS_PROPERTY = "org.gradle.resolution.lazyResults";
+
+    final static byte ROOT = 1;
+    final static byte MODULE = 2;
+    final static byte DEPENDENCY = 3;
     private final static byte DONE = 4;
 
     private final Map<ComponentSelector, ModuleVersionResolveException> failures = new HashMap<ComponentSelector, ModuleVersionResolveException>();
@@ -52,10 +57,16 @@ public class StreamingResolutionResultBuilder implements ResolutionResultBuilder
     private final Store<ResolvedComponentResult> cache;
     private final InternalDependencyResultSerializer internalDependencyResultSerializer = new InternalDependencyResultSerializer();
     private final ComponentIdentifierSerializer componentIdentifierSerializer = new ComponentIdentifierSerializer();
+    private final LazyResolvedGraph lazyGraph;
 
     public StreamingResolutionResultBuilder(BinaryStore store, Store<ResolvedComponentResult> cache) {
+        this(store, cache, Boolean.getBoolean(LAZY_RESULTS_PROPERTY));
+    }
+
+    StreamingResolutionResultBuilder(BinaryStore store, Store<ResolvedComponentResult> cache, boolean lazy) {
         this.store = store;
         this.cache = cache;
+        this.lazyGraph = lazy ? new LazyResolvedGraph() : null;
     }
 
     public ResolutionResult complete() {
@@ -65,11 +76,22 @@ public class StreamingResolutionResultBuilder implements ResolutionResultBuilder
             }
         });
         BinaryStore.BinaryData data = store.done();
+        if (lazyGraph != null) {
+            final ResolvedComponentResult root = lazyGraph.complete(data, failures);
+            return new DefaultResolutionResult(new Factory<ResolvedComponentResult>() {
+                public ResolvedComponentResult create() {
+                    return root;
+                }
+            });
+        }
         RootFactory rootSource = new RootFactory(data, failures, cache);
         return new DefaultResolutionResult(rootSource);
     }
 
     public ResolutionResultBuilder start(final ModuleVersionIdentifier root, final ComponentIdentifier componentIdentifier) {
+        if (lazyGraph != null) {
+            lazyGraph.root(root, store.getWritePosition());
+        }
         store.write(new BinaryStore.WriteAction() {
             public void write(Encoder encoder) throws IOException {
                 encoder.writeByte(ROOT);
@@ -84,6 +106,9 @@ public class StreamingResolutionResultBuilder implements ResolutionResultBuilder
 
     public void resolvedModuleVersion(final ModuleVersionSelection moduleVersion) {
         if (visitedModules.add(moduleVersion.getId())) {
+            if (lazyGraph != null) {
+                lazyGraph.module(moduleVersion.getId(), store.getWritePosition());
+            }
             store.write(new BinaryStore.WriteAction() {
                 public void write(Encoder encoder) throws IOException {
                     encoder.writeByte(MODULE);
@@ -95,6 +120,9 @@ public class StreamingResolutionResultBuilder implements ResolutionResultBuilder
 
     public void resolvedConfiguration(final ModuleVersionIdentifier from, final Collection<? extends InternalDependencyResult> dependencies) {
         if (!dependencies.isEmpty()) {
+            if (lazyGraph != null) {
+                lazyGraph.dependencies(from, store.getWritePosition(), dependencies);
+            }
             store.write(new BinaryStore.WriteAction() {
                 public void write(Encoder encoder) throws IOException {
                     encoder.writeByte(DEPENDENCY);
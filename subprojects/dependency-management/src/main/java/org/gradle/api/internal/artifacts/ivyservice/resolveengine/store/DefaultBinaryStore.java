@@ -27,6 +27,7 @@ import java.io.*;
 import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
 
 class DefaultBinaryStore implements BinaryStore, Closeable {
+    private static final int RANDOM_READ_BUFFER_SIZE = 512;
     private File file;
     private KryoBackedEncoder encoder;
     private int offset = -1;
@@ -57,6 +58,13 @@ class DefaultBinaryStore implements BinaryStore, Closeable {
         }
     }
 
+    public int getWritePosition() {
+        if (offset == -1) {
+            return 0;
+        }
+        return encoder.getWritePosition() - offset;
+    }
+
     private String diagnose() {
         return toString() + " (exist: " + file.exists() + ")";
     }
@@ -126,6 +134,20 @@ class DefaultBinaryStore implements BinaryStore, Closeable {
             }
         }
 
+        public <T> T read(int position, BinaryStore.ReadAction<T> readAction) {
+            try {
+                RandomAccessFile randomAccess = new RandomAccessFile(inputFile, "r");
+                try {
+                    randomAccess.seek(offset + position);
+                    return readAction.read(new KryoBackedDecoder(new RandomAccessFileInputStream(randomAccess), RANDOM_READ_BUFFER_SIZE));
+                } finally {
+                    randomAccess.close();
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Problems reading data from " + sourceDescription, e);
+            }
+        }
+
         public void close() {
             try {
                 if (resources != null) {
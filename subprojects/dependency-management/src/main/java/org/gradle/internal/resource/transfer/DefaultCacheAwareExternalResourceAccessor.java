@@ -49,6 +49,7 @@ import java.io.InputStream;
 import java.net.URI;
 
 public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExternalResourceAccessor {
+    public static final String CONDITIONAL_GET_PROPERTY = "org.gradle.resolution.conditionalGet";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultCacheAwareExternalResourceAccessor.class);
 
@@ -58,8 +59,17 @@ public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExte
     private final TemporaryFileProvider temporaryFileProvider;
     private final CacheLockingManager cacheLockingManager;
     private final ExternalResourceCachePolicy externalResourceCachePolicy = new DefaultExternalResourceCachePolicy();
+    private final boolean conditionalGet;
 
     public DefaultCacheAwareExternalResourceAccessor(ExternalResourceRepository delegate, CachedExternalResourceIndex<String> cachedExternalResourceIndex, BuildCommencedTimeProvider timeProvider, TemporaryFileProvider temporaryFileProvider, CacheLockingManager cacheLockingManager) {
+        this(delegate, cachedExternalResourceIndex, timeProvider, temporaryFileProvider, cacheLockingManager, Boolean.getBoolean(CONDITIONAL_GET_PROPERTY));
+    }
+
+    /**
+     * @param conditionalGet whether an expired cached resource is revalidated with a conditional GET request, instead of a HEAD request that is followed by a GET request when the resource has changed.
+     */
+    public DefaultCacheAwareExternalResourceAccessor(ExternalResourceRepository delegate, CachedExternalResourceIndex<String> cachedExternalResourceIndex, BuildCommencedTimeProvider timeProvider, TemporaryFileProvider temporaryFileProvider, CacheLockingManager cacheLockingManager, boolean conditionalGet) {
+        this.conditionalGet = conditionalGet;
         this.delegate = delegate;
         this.cachedExternalResourceIndex = cachedExternalResourceIndex;
         this.timeProvider = timeProvider;
@@ -81,6 +91,13 @@ public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExte
             return new DefaultLocallyAvailableExternalResource(location, new DefaultLocallyAvailableResource(cached.getCachedFile()), cached.getExternalResourceMetaData());
         }
 
+        // Revalidate the cached version, fetching the resource in the same request when it has changed.
+        // When there are local candidates, the checksum of the remote resource is checked first instead, so that a matching candidate can be used without a download
+        boolean hasLocalCandidates = localCandidates != null && !localCandidates.isNone();
+        if (conditionalGet && !hasLocalCandidates && cached != null && canRevalidate(cached.getExternalResourceMetaData())) {
+            return revalidate(location, fileStore, cached);
+        }
+
         // Get the metadata first to see if it's there
         final ExternalResourceMetaData remoteMetaData = delegate.getResourceMetaData(location);
         if (remoteMetaData == null) {
@@ -106,7 +123,6 @@ public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExte
         }
 
         // Either no cached, or it's changed. See if we can find something local with the same checksum
-        boolean hasLocalCandidates = localCandidates != null && !localCandidates.isNone();
         if (hasLocalCandidates) {
             // The “remote” may have already given us the checksum
             HashValue remoteChecksum = remoteMetaData.getSha1();
@@ -132,6 +148,24 @@ public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExte
         return copyToCache(location, fileStore, delegate.withProgressLogging().getResource(location));
     }
 
+    private LocallyAvailableExternalResource revalidate(URI location, ResourceFileStore fileStore, CachedExternalResource cached) {
+        ConditionalReadResult<ExternalResource> result = delegate.withProgressLogging().getResourceIfChanged(location, cached.getExternalResourceMetaData());
+        if (result.isMissing()) {
+            return null;
+        }
+        if (result.isUnchanged()) {
+            LOGGER.info("Cached resource {} is up-to-date (lastModified: {}).", location, cached.getExternalLastModified());
+            return new DefaultLocallyAvailableExternalResource(location, new DefaultLocallyAvailableResource(cached.getCachedFile()), cached.getExternalResourceMetaData());
+        }
+
+        // The resource has changed and its content is already being sent, so there is no point looking for a local candidate
+        return copyToCache(location, fileStore, result.getResource());
+    }
+
+    private static boolean canRevalidate(@Nullable ExternalResourceMetaData metaData) {
+        return metaData != null && (metaData.getEtag() != null || metaData.getLastModified() != null);
+    }
+
     private HashValue getResourceSha1(URI location) {
         try {
             URI sha1Location = new URI(location.toASCIIString() + ".sha1");
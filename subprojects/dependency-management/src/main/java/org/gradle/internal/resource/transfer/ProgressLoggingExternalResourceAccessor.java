@@ -41,6 +41,16 @@ public class ProgressLoggingExternalResourceAccessor extends AbstractProgressLog
         }
     }
 
+    public ConditionalReadResult<ExternalResourceReadResponse> openResourceIfChanged(URI location, ExternalResourceMetaData cachedMetaData) {
+        ConditionalReadResult<ExternalResourceReadResponse> result = delegate.openResourceIfChanged(location, cachedMetaData);
+        ExternalResourceReadResponse resource = result.getResource();
+        if (resource != null) {
+            return ConditionalReadResult.<ExternalResourceReadResponse>changed(new ProgressLoggingExternalResource(location, resource));
+        } else {
+            return result;
+        }
+    }
+
     @Nullable
     public ExternalResourceMetaData getMetaData(URI location) {
         return delegate.getMetaData(location);
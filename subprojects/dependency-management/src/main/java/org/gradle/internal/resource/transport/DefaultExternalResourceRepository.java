@@ -64,6 +64,15 @@ public class DefaultExternalResourceRepository implements ExternalResourceReposi
         return response == null ? null : new DefaultExternalResource(source, response);
     }
 
+    public ConditionalReadResult<ExternalResource> getResourceIfChanged(URI source, ExternalResourceMetaData cachedMetaData) {
+        ConditionalReadResult<ExternalResourceReadResponse> result = accessor.openResourceIfChanged(source, cachedMetaData);
+        if (result.isUnchanged()) {
+            return ConditionalReadResult.unchanged();
+        }
+        ExternalResourceReadResponse response = result.getResource();
+        return response == null ? ConditionalReadResult.<ExternalResource>missing() : ConditionalReadResult.<ExternalResource>changed(new DefaultExternalResource(source, response));
+    }
+
     public ExternalResourceMetaData getResourceMetaData(URI source) {
         return accessor.getMetaData(source);
     }
@@ -21,6 +21,7 @@ import org.gradle.api.resources.ResourceException;
 import org.gradle.internal.resource.ExternalResource;
 import org.gradle.internal.resource.local.LocalResource;
 import org.gradle.internal.resource.metadata.ExternalResourceMetaData;
+import org.gradle.internal.resource.transfer.ConditionalReadResult;
 
 import java.io.IOException;
 import java.net.URI;
@@ -41,6 +42,14 @@ public interface ExternalResourceRepository {
     @Nullable
     ExternalResource getResource(URI source) throws ResourceException;
 
+    /**
+     * Attempts to fetch the given resource, unless it has not changed since the given meta-data was obtained for it.
+     *
+     * @return The result. Caller is responsible for closing the resource, when the result has one.
+     * @throws ResourceException On failure to fetch resource.
+     */
+    ConditionalReadResult<ExternalResource> getResourceIfChanged(URI source, ExternalResourceMetaData cachedMetaData) throws ResourceException;
+
     /**
      * Transfer a resource to the repository
      *
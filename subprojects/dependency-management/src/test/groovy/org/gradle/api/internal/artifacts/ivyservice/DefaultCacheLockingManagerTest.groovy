@@ -19,6 +19,8 @@ import org.gradle.cache.CacheBuilder
 import org.gradle.cache.CacheRepository
 import org.gradle.cache.PersistentCache
 import org.gradle.cache.internal.FileLockManager
+import org.gradle.internal.Factory
+import org.gradle.internal.serialize.BaseSerializerFactory
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
@@ -71,4 +73,35 @@ class DefaultCacheLockingManagerTest extends Specification {
         1 * directoryCacheBuilder.open() >> persistentCache
         _ * persistentCache.baseDir >> testCacheDir
     }
+
+    def "Uses shards for caches and file stores when sharding is enabled"() {
+        given:
+        TestFile testCacheDir = temporaryFolder.file("test/cache")
+
+        when:
+        def cacheLockingManager = new DefaultCacheLockingManager(cacheRepository, true)
+        def cache = cacheLockingManager.createCache("test", BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER)
+        def fileStore = cacheLockingManager.createFileStore()
+        def metaDataStore = cacheLockingManager.createMetaDataFileStore()
+        def result = cacheLockingManager.useCache("operation", { "result" } as Factory)
+
+        then:
+        cache instanceof ShardedPersistentIndexedCache
+        fileStore instanceof ShardedUniquePathKeyFileStore
+        metaDataStore instanceof ShardedPathKeyFileStore
+        result == "result"
+
+        and:
+        def shardsDir = new File(testCacheDir, CacheLayout.META_DATA.key + "/shards")
+        cacheLockingManager.fileStoreDirectory == new File(shardsDir, CacheLayout.FILE_STORE.key)
+        cacheLockingManager.createMetaDataStore() == new File(shardsDir, "descriptors")
+
+        and:
+        1 * cacheRepository.store(CacheLayout.ROOT.getKey()) >> directoryCacheBuilder
+        1 * directoryCacheBuilder.open() >> persistentCache
+        _ * directoryCacheBuilder._ >> directoryCacheBuilder
+        _ * persistentCache.baseDir >> testCacheDir
+        0 * persistentCache.useCache(_, _)
+        0 * persistentCache.createCache(_)
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.cache.CacheBuilder
+import org.gradle.cache.CacheRepository
+import org.gradle.cache.PersistentCache
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.cache.internal.FileLockManager
+import org.gradle.internal.Factory
+import org.gradle.internal.serialize.BaseSerializerFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode
+
+class ModuleCacheShardsTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder
+    CacheRepository cacheRepository = Mock()
+    CacheBuilder cacheBuilder = Mock()
+    PersistentCache shardCache = Mock()
+    PersistentIndexedCache<String, String> indexedCache = Mock()
+
+    def "assigns keys to shards consistently"() {
+        def shards = new ModuleCacheShards(cacheRepository, temporaryFolder.testDirectory, 16)
+
+        expect:
+        (0..<200).collect { shards.shardFor("group:module-$it") } == (0..<200).collect { shards.shardFor("group:module-$it") }
+        (0..<200).collect { shards.shardFor("group:module-$it") }.every { it >= 0 && it < 16 }
+        (0..<200).collect { shards.shardFor("group:module-$it") }.toSet().size() == 16
+    }
+
+    def "opens shard on first use and locks it for each operation"() {
+        def shards = new ModuleCacheShards(cacheRepository, temporaryFolder.testDirectory, 4)
+        def shard = shards.shardFor("key")
+
+        when:
+        def result1 = shards.useShard(shard, "op", { "result1" } as Factory)
+        def result2 = shards.useShard(shard, "op", { "result2" } as Factory)
+
+        then:
+        result1 == "result1"
+        result2 == "result2"
+
+        and:
+        1 * cacheRepository.cache(temporaryFolder.file("shard-$shard")) >> cacheBuilder
+        1 * cacheBuilder.withDisplayName("artifact cache shard $shard") >> cacheBuilder
+        1 * cacheBuilder.withLockOptions(mode(FileLockManager.LockMode.None)) >> cacheBuilder
+        1 * cacheBuilder.open() >> shardCache
+        2 * shardCache.useCache("op", _) >> { String name, Factory action -> action.create() }
+        0 * _
+    }
+
+    def "sharded cache accesses entry while holding lock of its shard"() {
+        def shards = new ModuleCacheShards(cacheRepository, temporaryFolder.testDirectory, 1)
+        def cache = shards.createCache("test", BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER)
+
+        when:
+        cache.put("key", "value")
+        def value = cache.get("key")
+        cache.remove("key")
+
+        then:
+        value == "value"
+
+        and:
+        1 * cacheRepository.cache(temporaryFolder.file("shard-0")) >> cacheBuilder
+        1 * cacheBuilder.open() >> shardCache
+        _ * cacheBuilder._ >> cacheBuilder
+        1 * shardCache.createCache({ it.cacheName == "test" }) >> indexedCache
+        3 * shardCache.useCache(_, _) >> { String name, Factory action -> action.create() }
+        1 * indexedCache.put("key", "value")
+        1 * indexedCache.get("key") >> "value"
+        1 * indexedCache.remove("key")
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.artifacts.ResolvedArtifact
+import org.gradle.api.artifacts.ResolvedModuleVersion
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact
+import org.gradle.internal.Factory
+import org.gradle.internal.component.model.IvyArtifactName
+import org.gradle.logging.ProgressLogger
+import org.gradle.logging.ProgressLoggerFactory
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+class ParallelArtifactDownloaderTest extends ConcurrentSpec {
+    def cacheLockingManager = Mock(CacheLockingManager)
+    def progressLogger = Mock(ProgressLogger)
+    def progressLoggerFactory = Stub(ProgressLoggerFactory) {
+        newOperation(ParallelArtifactDownloader) >> progressLogger
+    }
+    def downloader = new ParallelArtifactDownloader(cacheLockingManager, progressLoggerFactory, executorFactory)
+
+    def cleanup() {
+        downloader.stop()
+    }
+
+    def "resolves the files of the artifacts concurrently"() {
+        def file1 = new File("file1")
+        def file2 = new File("file2")
+        def source1 = Mock(Factory)
+        def source2 = Mock(Factory)
+        def artifact1 = artifact(source1)
+        def artifact2 = artifact(source2)
+
+        when:
+        async {
+            downloader.download("config", [artifact1, artifact2])
+        }
+
+        then:
+        1 * cacheLockingManager.longRunningOperation(_, _ as Runnable) >> { String description, Runnable action -> action.run() }
+        1 * source1.create() >> {
+            instant.started1
+            thread.blockUntil.started2
+            file1
+        }
+        1 * source2.create() >> {
+            instant.started2
+            thread.blockUntil.started1
+            file2
+        }
+
+        and:
+        artifact1.resolved
+        artifact2.resolved
+        artifact1.file == file1
+        artifact2.file == file2
+    }
+
+    def "reports progress while waiting for the downloads to complete"() {
+        when:
+        downloader.download("config", [artifact(new File("file1")), artifact(new File("file2"))])
+
+        then:
+        1 * progressLogger.setDescription("Download artifacts for config")
+        1 * progressLogger.started()
+
+        then:
+        1 * cacheLockingManager.longRunningOperation("Download artifacts for config", _ as Runnable) >> { String description, Runnable action -> action.run() }
+        1 * progressLogger.progress("1/2 artifacts")
+
+        then:
+        1 * progressLogger.progress("2/2 artifacts")
+
+        then:
+        1 * progressLogger.completed()
+        0 * progressLogger._
+    }
+
+    def "does nothing when there are fewer than two artifacts to resolve"() {
+        def source = Mock(Factory)
+        def resolved = artifact(new File("file"))
+        resolved.file
+
+        when:
+        downloader.download("config", [resolved, artifact(source), Stub(ResolvedArtifact)])
+
+        then:
+        0 * source._
+        0 * cacheLockingManager._
+        0 * progressLogger._
+    }
+
+    def "ignores failure to resolve an artifact"() {
+        def source = Mock(Factory)
+        def failure = new RuntimeException("broken")
+        def artifact = artifact(source)
+
+        when:
+        downloader.download("config", [artifact, artifact(new File("other"))])
+
+        then:
+        1 * cacheLockingManager.longRunningOperation(_, _ as Runnable) >> { String description, Runnable action -> action.run() }
+        1 * source.create() >> { throw failure }
+        noExceptionThrown()
+        !artifact.resolved
+
+        when:
+        artifact.file
+
+        then:
+        1 * source.create() >> { throw failure }
+        def e = thrown(RuntimeException)
+        e == failure
+    }
+
+    def artifact(File file) {
+        return artifact(Stub(Factory) { create() >> file })
+    }
+
+    def artifact(Factory source) {
+        return new DefaultResolvedArtifact(Stub(ResolvedModuleVersion), Stub(IvyArtifactName), Stub(ComponentArtifactIdentifier), source)
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.Action
+import org.gradle.api.Transformer
+import org.gradle.cache.CacheBuilder
+import org.gradle.cache.CacheRepository
+import org.gradle.cache.PersistentCache
+import org.gradle.internal.Factory
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+
+import java.util.concurrent.locks.ReentrantLock
+
+class ShardedPathKeyFileStoreTest extends ConcurrentSpec {
+    @Rule TestNameTestDirectoryProvider temporaryFolder
+    def lock = new ReentrantLock()
+    CacheRepository cacheRepository = Mock()
+    CacheBuilder cacheBuilder = Mock()
+    PersistentCache shardCache = Mock()
+    ShardedPathKeyFileStore store
+
+    def setup() {
+        _ * cacheRepository.cache(_) >> cacheBuilder
+        _ * cacheBuilder.open() >> shardCache
+        _ * cacheBuilder._ >> cacheBuilder
+        _ * shardCache.useCache(_, _) >> { String name, Factory action ->
+            lock.lock()
+            try {
+                return action.create()
+            } finally {
+                lock.unlock()
+            }
+        }
+        def shards = new ModuleCacheShards(cacheRepository, temporaryFolder.file("shards"), 1)
+        store = new ShardedPathKeyFileStore(temporaryFolder.file("store"), shards)
+    }
+
+    def "reads entry while holding lock of its shard"() {
+        when:
+        store.add("a/b/entry.txt", { File file -> file.text = "content" } as Action)
+
+        then:
+        store.get("a/b/entry.txt", { File file -> assert lock.heldByCurrentThread; file.text } as Transformer) == "content"
+        store.get("a/b/missing.txt", { File file -> throw new AssertionError() } as Transformer) == null
+    }
+
+    def "reader does not see entry that is being replaced"() {
+        def value = null
+        store.add("a/b/entry.txt", { File file -> file.text = "old" } as Action)
+
+        when:
+        async {
+            start {
+                store.add("a/b/entry.txt", { File file ->
+                    file.text = "partial"
+                    instant.writing
+                    thread.blockUntil.reading
+                    file.text = "new"
+                } as Action)
+            }
+            start {
+                thread.blockUntil.writing
+                instant.reading
+                value = store.get("a/b/entry.txt", { File file -> file.text } as Transformer)
+            }
+        }
+
+        then:
+        value == "new"
+    }
+}
@@ -47,6 +47,26 @@ class DefaultDependencySubstitutionsSpec extends Specification {
         0 * details._
     }
 
+    def "has rules when rules are registered with all() or in legacy format"() {
+        expect:
+        !substitutions.hasRules()
+
+        when:
+        substitutions.allWithDependencyResolveDetails(Mock(Action))
+
+        then:
+        substitutions.hasRules()
+        !substitutions.hasDependencySubstitutionRules()
+        substitutions.copy().hasRules()
+
+        when:
+        substitutions.all(Mock(Action))
+
+        then:
+        substitutions.hasRules()
+        substitutions.hasDependencySubstitutionRules()
+    }
+
     def "all() matches modules and projects"() {
         given:
         def action = Mock(Action)
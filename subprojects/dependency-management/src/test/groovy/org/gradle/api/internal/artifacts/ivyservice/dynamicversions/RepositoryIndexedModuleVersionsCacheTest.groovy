@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.dynamicversions
+
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.testfixtures.internal.InMemoryIndexedCache
+import org.gradle.util.BuildCommencedTimeProvider
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class RepositoryIndexedModuleVersionsCacheTest extends Specification {
+    def store = new InMemoryIndexedCache<String, Map>(new RepositoryIndexedModuleVersionsCache.RepositoryListingsSerializer())
+    def persistentCache = Mock(PersistentIndexedCache)
+    def cacheLockingManager = Stub(CacheLockingManager) {
+        createCache("module-versions-index", _, _) >> persistentCache
+        useCache(_, _ as Runnable) >> { String description, Runnable action -> action.run() }
+    }
+    def timeProvider = Stub(BuildCommencedTimeProvider) {
+        getCurrentTime() >> 1000
+    }
+    def repository = Stub(ModuleComponentRepository) {
+        getId() >> "repo"
+    }
+    def otherRepository = Stub(ModuleComponentRepository) {
+        getId() >> "other"
+    }
+    def moduleA = new DefaultModuleIdentifier("group", "a")
+    def moduleB = new DefaultModuleIdentifier("group", "b")
+    def moduleC = new DefaultModuleIdentifier("other-group", "c")
+    def cache = new RepositoryIndexedModuleVersionsCache(timeProvider, cacheLockingManager)
+
+    def setup() {
+        persistentCache.get(_) >> { String key -> store.get(key) }
+        persistentCache.put(_, _) >> { String key, Map value -> store.put(key, value) }
+    }
+
+    def "reads the listings of a repository once and answers lookups from memory"() {
+        given:
+        store.put("repo", [(moduleA): new ModuleVersionsCacheEntry(["1.0", "1.1"] as LinkedHashSet, 400), (moduleC): new ModuleVersionsCacheEntry(["2.0"] as Set, 900)])
+
+        when:
+        def a = cache.getCachedModuleResolution(repository, moduleA)
+        def b = cache.getCachedModuleResolution(repository, moduleB)
+        def c = cache.getCachedModuleResolution(repository, moduleC)
+        def otherA = cache.getCachedModuleResolution(otherRepository, moduleA)
+
+        then:
+        1 * persistentCache.get("repo") >> { String key -> store.get(key) }
+        1 * persistentCache.get("other") >> null
+        0 * persistentCache._
+
+        and:
+        a.moduleVersions as List == ["1.0", "1.1"]
+        a.ageMillis == 600
+        b == null
+        c.moduleVersions == ["2.0"] as Set
+        c.ageMillis == 100
+        otherA == null
+    }
+
+    def "keeps new listings in memory until stopped"() {
+        when:
+        cache.cacheModuleVersionList(repository, moduleA, ["1.0", "1.2"] as Set)
+        def a = cache.getCachedModuleResolution(repository, moduleA)
+
+        then:
+        0 * persistentCache.put(_, _)
+
+        and:
+        a.moduleVersions == ["1.0", "1.2"] as Set
+        a.ageMillis == 0
+
+        when:
+        cache.stop()
+
+        then:
+        1 * persistentCache.put("repo", _) >> { String key, Map value -> store.put(key, value) }
+
+        and:
+        store.get("repo").get(moduleA).moduleVersionListing == ["1.0", "1.2"] as Set
+    }
+
+    def "merges new listings into the listings that were persisted in the meantime"() {
+        given:
+        cache.getCachedModuleResolution(repository, moduleA)
+        cache.cacheModuleVersionList(repository, moduleA, ["1.0"] as Set)
+        cache.cacheModuleVersionList(repository, moduleB, ["3.0"] as Set)
+
+        and:
+        store.put("repo", [(moduleB): new ModuleVersionsCacheEntry(["3.0", "3.1"] as Set, 2000), (moduleC): new ModuleVersionsCacheEntry(["2.0"] as Set, 500)])
+
+        when:
+        cache.stop()
+
+        then:
+        def listings = store.get("repo")
+        listings.size() == 3
+        listings.get(moduleA).moduleVersionListing == ["1.0"] as Set
+        listings.get(moduleA).createTimestamp == 1000
+        listings.get(moduleB).moduleVersionListing == ["3.0", "3.1"] as Set
+        listings.get(moduleB).createTimestamp == 2000
+        listings.get(moduleC).moduleVersionListing == ["2.0"] as Set
+    }
+
+    def "discards expired listings and keeps the most recent listings when written"() {
+        given:
+        def expiredTimestamp = 1000 - TimeUnit.DAYS.toMillis(RepositoryIndexedModuleVersionsCache.MAX_ENTRY_AGE_DAYS) - 1
+        def persisted = [(moduleC): new ModuleVersionsCacheEntry(["2.0"] as Set, expiredTimestamp)]
+        (1..RepositoryIndexedModuleVersionsCache.MAX_MODULES_PER_REPOSITORY).each {
+            persisted.put(new DefaultModuleIdentifier("group", "module-$it"), new ModuleVersionsCacheEntry(["1.0"] as Set, it % 2 == 0 ? 500 : 100))
+        }
+        store.put("repo", persisted)
+        cache.cacheModuleVersionList(repository, moduleA, ["1.0"] as Set)
+
+        when:
+        cache.stop()
+
+        then:
+        def listings = store.get("repo")
+        listings.size() == RepositoryIndexedModuleVersionsCache.MAX_MODULES_PER_REPOSITORY
+        listings.get(moduleA).createTimestamp == 1000
+        !listings.containsKey(moduleC)
+        listings.get(new DefaultModuleIdentifier("group", "module-2")) != null
+        listings.values().count { it.createTimestamp == 100 } == RepositoryIndexedModuleVersionsCache.MAX_MODULES_PER_REPOSITORY / 2 - 1
+    }
+
+    def "does not write listings of repositories that have not been updated"() {
+        given:
+        store.put("repo", [(moduleA): new ModuleVersionsCacheEntry(["1.0"] as Set, 400)])
+        cache.getCachedModuleResolution(repository, moduleA)
+        cache.cacheModuleVersionList(otherRepository, moduleA, ["1.1"] as Set)
+
+        when:
+        cache.stop()
+
+        then:
+        1 * persistentCache.put("other", _)
+        0 * persistentCache.put("repo", _)
+    }
+}
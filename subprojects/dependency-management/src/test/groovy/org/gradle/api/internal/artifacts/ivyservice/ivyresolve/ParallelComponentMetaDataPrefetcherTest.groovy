@@ -0,0 +1,236 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve
+
+import org.gradle.api.Action
+import org.gradle.api.artifacts.ClientModule
+import org.gradle.api.artifacts.ModuleDependency
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
+import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.local.model.DefaultProjectComponentSelector
+import org.gradle.internal.component.local.model.DslOriginDependencyMetaDataWrapper
+import org.gradle.internal.component.model.ComponentOverrideMetadata
+import org.gradle.internal.component.model.DependencyMetaData
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
+import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver
+import org.gradle.internal.resolve.result.BuildableComponentIdResolveResult
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionSelector.newSelector
+import static org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier.newId
+
+class ParallelComponentMetaDataPrefetcherTest extends ConcurrentSpec {
+    def delegate = Mock(ComponentMetaDataResolver)
+    def idDelegate = Mock(DependencyToComponentIdResolver)
+    def repositoryResolver = Mock(ComponentMetaDataResolver)
+    def repositoryIdResolver = Mock(DependencyToComponentIdResolver)
+    def componentSource = Stub(ComponentResolvers) {
+        getComponentResolver() >> delegate
+        getComponentIdResolver() >> idDelegate
+    }
+    def repositorySource = Stub(ComponentResolvers) {
+        getComponentResolver() >> repositoryResolver
+        getComponentIdResolver() >> repositoryIdResolver
+    }
+    def cacheLockingManager = Stub(CacheLockingManager) {
+        useCache(_, _ as Runnable) >> { String description, Runnable action -> action.run() }
+        longRunningOperation(_, _ as Runnable) >> { String description, Runnable action -> action.run() }
+    }
+    def ivyContextManager = Stub(IvyContextManager) {
+        withIvy(_ as Action) >> { Action action -> action.execute(null) }
+    }
+    def prefetcher = new ParallelComponentMetaDataPrefetcher(componentSource, repositorySource, new DefaultVersionSelectorScheme(new DefaultVersionComparator()),
+        cacheLockingManager, ivyContextManager, executorFactory)
+
+    def "fetches meta-data of a static module version using the repository resolver"() {
+        def dependency = dependency("group", "module", "1.2")
+
+        when:
+        async {
+            prefetcher.prefetch(dependency)
+            prefetcher.stop()
+        }
+
+        then:
+        1 * repositoryResolver.resolve(newId("group", "module", "1.2"), _, _)
+        0 * repositoryResolver._
+        0 * repositoryIdResolver._
+        0 * delegate._
+    }
+
+    def "resolves dynamic versions using the repository resolver"() {
+        def range = dependency("group", "module", "1.+")
+        def latest = dependency("group", "module", "latest.integration")
+
+        when:
+        async {
+            prefetcher.prefetch(range)
+            prefetcher.prefetch(latest)
+            prefetcher.prefetch(dependency("group", "module", "1.+"))
+            prefetcher.stop()
+        }
+
+        then:
+        1 * repositoryIdResolver.resolve(range, _)
+        1 * repositoryIdResolver.resolve(latest, _)
+        0 * repositoryIdResolver._
+        0 * repositoryResolver._
+        0 * idDelegate._
+    }
+
+    def "does not fetch meta-data for project dependencies or client modules"() {
+        def projectDependency = Stub(DependencyMetaData) {
+            getSelector() >> DefaultProjectComponentSelector.newSelector(":project")
+            getRequested() >> newSelector("group", "project", "1.2")
+        }
+        def clientModule = new DslOriginDependencyMetaDataWrapper(dependency("group", "client", "1.2"), Stub(ClientModule))
+
+        when:
+        async {
+            prefetcher.prefetch(projectDependency)
+            prefetcher.prefetch(clientModule)
+            prefetcher.prefetch(new DslOriginDependencyMetaDataWrapper(dependency("group", "client", "1.+"), Stub(ClientModule)))
+            prefetcher.stop()
+        }
+
+        then:
+        0 * repositoryResolver._
+        0 * repositoryIdResolver._
+        0 * delegate._
+    }
+
+    def "fetches meta-data of a given component once only"() {
+        def dependency = dependency("group", "module", "1.2")
+        def other = new DslOriginDependencyMetaDataWrapper(dependency("group", "module", "1.2"), Stub(ModuleDependency))
+
+        when:
+        async {
+            prefetcher.prefetch(dependency)
+            prefetcher.prefetch(other)
+            prefetcher.prefetch(dependency)
+            prefetcher.stop()
+        }
+
+        then:
+        1 * repositoryResolver.resolve(newId("group", "module", "1.2"), _, _)
+        0 * repositoryResolver._
+        0 * delegate._
+    }
+
+    def "resolve waits for prefetch of the component to complete before delegating"() {
+        def id = newId("group", "module", "1.2")
+        def result = Stub(BuildableComponentResolveResult)
+
+        when:
+        async {
+            prefetcher.prefetch(dependency("group", "module", "1.2"))
+            thread.blockUntil.fetchStarted
+            prefetcher.resolve(id, Stub(ComponentOverrideMetadata), result)
+            instant.resolved
+            prefetcher.stop()
+        }
+
+        then:
+        1 * repositoryResolver.resolve(id, _, _) >> {
+            instant.fetchStarted
+            thread.block()
+            instant.fetched
+        }
+        1 * delegate.resolve(id, _, result)
+
+        and:
+        instant.resolved > instant.fetched
+    }
+
+    def "resolving a dynamic version waits for prefetch of the version to complete before delegating"() {
+        def dependency = dependency("group", "module", "1.+")
+        def result = Stub(BuildableComponentIdResolveResult)
+
+        when:
+        async {
+            prefetcher.prefetch(dependency)
+            thread.blockUntil.fetchStarted
+            prefetcher.resolve(dependency("group", "module", "1.+"), result)
+            instant.resolved
+            prefetcher.stop()
+        }
+
+        then:
+        1 * repositoryIdResolver.resolve(dependency, _) >> {
+            instant.fetchStarted
+            thread.block()
+            instant.fetched
+        }
+        1 * idDelegate.resolve(_, result)
+
+        and:
+        instant.resolved > instant.fetched
+    }
+
+    def "does not wait when resolving a component that has not been prefetched"() {
+        def id = newId("group", "module", "1.2")
+        def overrideMetadata = Stub(ComponentOverrideMetadata)
+        def result = Stub(BuildableComponentResolveResult)
+
+        when:
+        prefetcher.resolve(id, overrideMetadata, result)
+
+        then:
+        1 * delegate.resolve(id, overrideMetadata, result)
+        0 * repositoryResolver._
+        0 * delegate._
+    }
+
+    def "ignores failure to prefetch a component"() {
+        def id = newId("group", "module", "1.2")
+        def result = Stub(BuildableComponentResolveResult)
+
+        when:
+        async {
+            prefetcher.prefetch(dependency("group", "module", "1.2"))
+            prefetcher.stop()
+            prefetcher.resolve(id, Stub(ComponentOverrideMetadata), result)
+        }
+
+        then:
+        1 * repositoryResolver.resolve(id, _, _) >> { throw new RuntimeException("broken") }
+        1 * delegate.resolve(id, _, result)
+        noExceptionThrown()
+    }
+
+    def "does not start fetching after it has been stopped"() {
+        when:
+        prefetcher.stop()
+        prefetcher.prefetch(dependency("group", "module", "1.2"))
+
+        then:
+        0 * repositoryResolver._
+        0 * delegate._
+    }
+
+    def dependency(String group, String module, String version) {
+        return Stub(DependencyMetaData) {
+            getSelector() >> DefaultModuleComponentSelector.newSelector(group, module, version)
+            getRequested() >> newSelector(group, module, version)
+        }
+    }
+}
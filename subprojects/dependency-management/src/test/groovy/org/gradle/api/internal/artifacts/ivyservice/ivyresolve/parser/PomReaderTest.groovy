@@ -880,4 +880,88 @@ class PomReaderTest extends AbstractPomReaderTest {
         pomReader.artifactId == pomReader.parentArtifactId
         pomReader.version == pomReader.parentVersion
     }
+
+    def "ignores dependencies declared outside of the dependencies and dependency management sections"() {
+        when:
+        pomFile << """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+    <dependencies>
+        <dependency>
+            <groupId>group-two</groupId>
+            <artifactId>artifact-two</artifactId>
+            <version>version-two</version>
+        </dependency>
+    </dependencies>
+    <build>
+        <plugins>
+            <plugin>
+                <groupId>plugin-group</groupId>
+                <artifactId>plugin</artifactId>
+                <dependencies>
+                    <dependency>
+                        <groupId>group-three</groupId>
+                        <artifactId>artifact-three</artifactId>
+                        <version>version-three</version>
+                    </dependency>
+                </dependencies>
+            </plugin>
+        </plugins>
+    </build>
+    <profiles>
+        <profile>
+            <id>profile-1</id>
+            <activation>
+                <activeByDefault>true</activeByDefault>
+            </activation>
+            <build>
+                <dependencies>
+                    <dependency>
+                        <groupId>group-four</groupId>
+                        <artifactId>artifact-four</artifactId>
+                        <version>version-four</version>
+                    </dependency>
+                </dependencies>
+            </build>
+        </profile>
+    </profiles>
+    <distributionManagement>
+        <repository>
+            <groupId>group-five</groupId>
+        </repository>
+    </distributionManagement>
+</project>
+"""
+        pomReader = new PomReader(locallyAvailableExternalResource)
+
+        then:
+        pomReader.dependencies.size() == 1
+        assertResolvedPomDependency(new MavenDependencyKey('group-two', 'artifact-two', 'jar', null), 'version-two')
+        pomReader.dependencyMgt.isEmpty()
+        pomReader.relocation == null
+    }
+
+    def "reads text containing entities, CDATA sections and comments"() {
+        when:
+        pomFile << """<?xml version="1.0" encoding="UTF-8"?>
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+    <description>one &amp; two<!-- comment --> <![CDATA[<three>]]>&nbsp;</description>
+    <properties>
+        <some.prop>a<nested>ignored</nested>b</some.prop>
+    </properties>
+</project>
+"""
+        pomReader = new PomReader(locallyAvailableExternalResource)
+
+        then:
+        pomReader.description == 'one & two <three>\u00a0'
+        pomReader.pomProperties == ['some.prop': 'ab']
+    }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache
+
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor
+import org.apache.ivy.plugins.matcher.ExactPatternMatcher
+import org.apache.ivy.plugins.matcher.GlobPatternMatcher
+import org.apache.ivy.plugins.matcher.RegexpPatternMatcher
+import org.gradle.api.internal.artifacts.ivyservice.IvyXmlModuleDescriptorWriter
+import org.gradle.api.internal.artifacts.ivyservice.NamespaceId
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.DescriptorParseContext
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.IvyXmlModuleDescriptorParser
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.ResolverStrategy
+import org.gradle.internal.serialize.SerializerSpec
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+
+import static org.gradle.api.internal.artifacts.ivyservice.IvyUtil.createModuleRevisionId
+
+class ModuleDescriptorSerializerTest extends SerializerSpec {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+
+    ResolverStrategy resolverStrategy = Stub()
+    ModuleDescriptorSerializer serializer = new ModuleDescriptorSerializer(resolverStrategy)
+    IvyXmlModuleDescriptorWriter writer = new IvyXmlModuleDescriptorWriter()
+
+    def setup() {
+        resolverStrategy.getPatternMatcher("exact") >> ExactPatternMatcher.INSTANCE
+        resolverStrategy.getPatternMatcher("glob") >> GlobPatternMatcher.INSTANCE
+        resolverStrategy.getPatternMatcher("regexp") >> RegexpPatternMatcher.INSTANCE
+    }
+
+    def "serializes full Ivy descriptor"() {
+        def ivyFile = temporaryFolder.file("ivy.xml")
+        ivyFile.text = getClass().getResource("/org/gradle/api/internal/artifacts/ivyservice/ivyresolve/parser/test-full.xml").text
+        def md = new IvyXmlModuleDescriptorParser(resolverStrategy).parseMetaData(Stub(DescriptorParseContext), ivyFile, false).descriptor
+
+        when:
+        def result = serialize(md, serializer)
+
+        then:
+        ivyXml(result) == ivyXml(md)
+        result.dependencies.length == md.dependencies.length
+        result.allExcludeRules.length == 2
+        result.allExcludeRules[0].matcher == GlobPatternMatcher.INSTANCE
+    }
+
+    def "serializes module info"() {
+        def md = new DefaultModuleDescriptor(createModuleRevisionId("org", "module", "branch", "1.2", [:]), "release", new Date(1234567))
+        md.description = "some module"
+        md.homePage = "http://some.org"
+        md.extraInfo.put(new NamespaceId("http://some.org/ns", "extra"), "some value")
+        md.extraInfo.put(new NamespaceId("http://some.org/ns", "empty"), "")
+
+        when:
+        def result = serialize(md, serializer)
+
+        then:
+        result.moduleRevisionId == md.moduleRevisionId
+        result.status == "release"
+        result.publicationDate == new Date(1234567)
+        result.description == "some module"
+        result.homePage == "http://some.org"
+        result.extraInfo == [(new NamespaceId("http://some.org/ns", "extra")): "some value"]
+        result.configurations.length == 0
+        result.dependencies.length == 0
+    }
+
+    def "fails for unknown pattern matcher"() {
+        def ivyFile = temporaryFolder.file("ivy.xml")
+        ivyFile.text = """
+<ivy-module version="2.0">
+    <info organisation="org" module="module" revision="1.0"/>
+    <dependencies>
+        <dependency org="other" name="other" rev="1.0">
+            <exclude module="*" matcher="glob"/>
+        </dependency>
+    </dependencies>
+</ivy-module>
+"""
+        def md = new IvyXmlModuleDescriptorParser(resolverStrategy).parseMetaData(Stub(DescriptorParseContext), ivyFile, false).descriptor
+        def bytes = toBytes(md, serializer)
+
+        when:
+        fromBytes(bytes, new ModuleDescriptorSerializer(Stub(ResolverStrategy)))
+
+        then:
+        IllegalArgumentException e = thrown()
+        e.message == "unknown matcher glob"
+    }
+
+    private String ivyXml(ModuleDescriptor md) {
+        def file = temporaryFolder.file("${System.identityHashCode(md)}.xml")
+        writer.write(md, file)
+        return file.text
+    }
+}
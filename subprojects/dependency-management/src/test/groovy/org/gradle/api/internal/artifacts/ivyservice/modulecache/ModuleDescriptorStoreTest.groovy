@@ -17,13 +17,12 @@
 package org.gradle.api.internal.artifacts.ivyservice.modulecache
 
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor
+import org.gradle.api.Transformer
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier
-import org.gradle.api.internal.artifacts.ivyservice.IvyModuleDescriptorWriter
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository
-import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.IvyXmlModuleDescriptorParser
-
 import org.gradle.internal.resource.local.LocallyAvailableResource
 import org.gradle.internal.resource.local.PathKeyFileStore
+import org.gradle.internal.serialize.Serializer
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
@@ -36,12 +35,11 @@ class ModuleDescriptorStoreTest extends Specification {
     ModuleComponentRepository repository = Mock()
     LocallyAvailableResource fileStoreEntry = Mock()
     ModuleDescriptor moduleDescriptor = Mock()
-    IvyModuleDescriptorWriter ivyModuleDescriptorWriter = Mock()
-    IvyXmlModuleDescriptorParser ivyXmlModuleDescriptorParser = Mock()
+    Serializer<ModuleDescriptor> descriptorSerializer = Mock()
     ModuleComponentIdentifier moduleComponentIdentifier = Mock()
 
     def setup() {
-        store = new ModuleDescriptorStore(pathKeyFileStore, ivyModuleDescriptorWriter, ivyXmlModuleDescriptorParser);
+        store = new ModuleDescriptorStore(pathKeyFileStore, descriptorSerializer);
         _ * repository.getId() >> "repositoryId"
         _ * moduleComponentIdentifier.group >> "org.test"
         _ * moduleComponentIdentifier.module >> "testArtifact"
@@ -50,7 +48,7 @@ class ModuleDescriptorStoreTest extends Specification {
 
     def "getModuleDescriptorFile returns null for not cached descriptors"() {
         when:
-        pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/ivy.xml") >> null
+        pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/descriptor.bin", _) >> null
         then:
         null == store.getModuleDescriptor(repository, moduleComponentIdentifier)
     }
@@ -59,7 +57,7 @@ class ModuleDescriptorStoreTest extends Specification {
         when:
         store.getModuleDescriptor(repository, moduleComponentIdentifier);
         then:
-        1 * pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/ivy.xml") >> null
+        1 * pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/descriptor.bin", _) >> null
     }
 
     def "putModuleDescriptor uses PathKeyFileStore to write file"() {
@@ -68,9 +66,22 @@ class ModuleDescriptorStoreTest extends Specification {
         when:
         store.putModuleDescriptor(repository, moduleComponentIdentifier, moduleDescriptor);
         then:
-        1 * pathKeyFileStore.add("org.test/testArtifact/1.0/repositoryId/ivy.xml", _) >> { path, action ->
+        1 * pathKeyFileStore.add("org.test/testArtifact/1.0/repositoryId/descriptor.bin", _) >> { path, action ->
             action.execute(descriptorFile); fileStoreEntry
         };
-        1 * ivyModuleDescriptorWriter.write(moduleDescriptor, descriptorFile)
+        1 * descriptorSerializer.write(_, moduleDescriptor)
+    }
+
+    def "getModuleDescriptor reads descriptor from file"() {
+        setup:
+        File descriptorFile = temporaryFolder.createFile("fileStoreEntry")
+        when:
+        def result = store.getModuleDescriptor(repository, moduleComponentIdentifier)
+        then:
+        result == moduleDescriptor
+        1 * pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/descriptor.bin", _) >> { String key, Transformer reader ->
+            reader.transform(descriptorFile)
+        }
+        1 * descriptorSerializer.read(_) >> moduleDescriptor
     }
 }
\ No newline at end of file
@@ -29,8 +29,10 @@ import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
 import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
 import org.gradle.api.internal.artifacts.ivyservice.DefaultLenientConfiguration
+import org.gradle.api.internal.artifacts.ivyservice.ParallelArtifactDownloader
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultResolvedArtifactsBuilder
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ResolvedArtifactsGraphVisitor
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyArtifactsVisitor
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyGraphVisitor
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder
@@ -109,7 +111,7 @@ class DependencyGraphBuilderTest extends Specification {
         def artifactResults = artifactsBuilder.resolve()
 
         new DefaultLenientConfiguration(configuration, Stub(CacheLockingManager), graphResults.getUnresolvedDependencies(),
-                artifactResults, new TransientConfigurationResultsLoader(transientConfigurationResultsBuilder, graphResults, artifactResults))
+                artifactResults, new TransientConfigurationResultsLoader(transientConfigurationResultsBuilder, graphResults, artifactResults), Stub(ParallelArtifactDownloader))
     }
 
     def "does not resolve a given module selector more than once"() {
@@ -635,6 +637,37 @@ class DependencyGraphBuilderTest extends Specification {
         artifacts(result) == ids(a, b)
     }
 
+    def "prefetches dependencies of each traversed configuration"() {
+        given:
+        def prefetcher = Mock(ComponentMetaDataPrefetcher)
+        builder = new DependencyGraphBuilder(idResolver, metaDataResolver, moduleResolver, dependencyToConfigurationResolver, new DefaultConflictHandler(conflictResolver, moduleReplacements), prefetcher)
+        def a = revision('a')
+        def b = revision('b')
+        def c = revision('c')
+        def d = revision('d')
+        def e = revision('e')
+        traverses root, a
+        traverses root, b
+        traverses a, c
+        doesNotResolve b, c
+        traverses a, d, transitive: false
+        doesNotResolve d, e
+
+        when:
+        def result = resolve()
+        result.rethrowFailure()
+
+        then:
+        modules(result) == ids(a, c, d, b)
+
+        and:
+        1 * prefetcher.prefetch({ it.requested.name == 'a' })
+        1 * prefetcher.prefetch({ it.requested.name == 'b' })
+        2 * prefetcher.prefetch({ it.requested.name == 'c' })
+        1 * prefetcher.prefetch({ it.requested.name == 'd' })
+        0 * prefetcher._
+    }
+
     def "reports shortest incoming paths for a failed dependency"() {
         given:
         def a = revision('a')
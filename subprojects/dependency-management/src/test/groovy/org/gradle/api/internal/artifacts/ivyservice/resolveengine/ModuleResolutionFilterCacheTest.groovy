@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine
+
+import org.apache.ivy.core.module.descriptor.DefaultExcludeRule
+import org.apache.ivy.plugins.matcher.ExactPatternMatcher
+import org.apache.ivy.plugins.matcher.RegexpPatternMatcher
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.IvyUtil
+import spock.lang.Specification
+
+class ModuleResolutionFilterCacheTest extends Specification {
+    def cache = new ModuleResolutionFilterCache()
+
+    def "returns the same instance for equal sets of exclude rules"() {
+        when:
+        def filter = cache.excludeAny(excludeRule("org", "module"), excludeRule("org", "*"), regexpExcludeRule("o.*", "m.*"))
+        def same = cache.excludeAny([regexpExcludeRule("o.*", "m.*"), excludeRule("org", "*"), excludeRule("org", "module")])
+        def different = cache.excludeAny(excludeRule("org", "module"))
+
+        then:
+        filter.is(same)
+        !filter.is(different)
+        !filter.acceptModule(DefaultModuleIdentifier.newId("org", "other"))
+        different.acceptModule(DefaultModuleIdentifier.newId("org", "other"))
+    }
+
+    def "returns the same instance for equal unions and intersections"() {
+        def filter1 = cache.excludeAny(excludeRule("org", "module"), excludeRule("org", "module2"))
+        def filter2 = cache.excludeAny(excludeRule("org", "module"), excludeRule("org", "module3"))
+        def filter3 = cache.excludeAny(regexpExcludeRule("org", "module"))
+
+        expect:
+        cache.union(filter1, filter2).is(cache.union(filter1, filter2))
+        cache.union(filter1, filter2).is(cache.excludeAny(excludeRule("org", "module")))
+        cache.union(filter1, filter3).is(cache.union(filter1, filter3))
+        cache.intersect(filter1, filter3).is(cache.intersect(filter3, filter1))
+        cache.intersect(filter1, filter2).is(cache.excludeAny(excludeRule("org", "module"), excludeRule("org", "module2"), excludeRule("org", "module3")))
+    }
+
+    def "union and intersection of a filter with itself is the filter"() {
+        def filter = cache.excludeAny(excludeRule("org", "module"))
+
+        expect:
+        cache.union(filter, filter).is(filter)
+        cache.intersect(filter, filter).is(filter)
+    }
+
+    def "union and intersection with the accept-all filter"() {
+        def all = cache.excludeAny()
+        def filter = cache.excludeAny(excludeRule("org", "module"))
+
+        expect:
+        all.is(DefaultModuleResolutionFilter.all())
+        cache.union(filter, all).is(all)
+        cache.intersect(filter, all).is(filter)
+        cache.intersect(all, filter).is(filter)
+    }
+
+    def excludeRule(String org, String module) {
+        new DefaultExcludeRule(IvyUtil.createArtifactId(org, module, "*", "*", "*"), ExactPatternMatcher.INSTANCE, [:])
+    }
+
+    def regexpExcludeRule(String org, String module) {
+        new DefaultExcludeRule(IvyUtil.createArtifactId(org, module, "*", "*", "*"), RegexpPatternMatcher.INSTANCE, [:])
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache
+
+import org.gradle.api.artifacts.ModuleDependency
+import org.gradle.api.artifacts.ModuleVersionIdentifier
+import org.gradle.api.artifacts.ModuleVersionSelector
+import org.gradle.api.artifacts.component.ComponentIdentifier
+import org.gradle.api.artifacts.component.ComponentSelector
+import org.gradle.api.artifacts.result.ComponentSelectionReason
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.DefaultModuleResolutionFilter
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.ModuleResolutionFilter
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelection
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.VersionSelectionReasons
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.local.model.DefaultProjectComponentIdentifier
+import org.gradle.internal.component.local.model.DslOriginDependencyMetaData
+import org.gradle.internal.component.model.ComponentArtifactMetaData
+import org.gradle.internal.component.model.ComponentResolveMetaData
+import org.gradle.internal.component.model.ConfigurationMetaData
+import org.gradle.internal.resolve.ModuleVersionResolveException
+import spock.lang.Specification
+
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier.newId
+
+class DependencyGraphRecorderTest extends Specification {
+    def ages = new CachedResultAges()
+    def recorder = new DependencyGraphRecorder(ages, new DefaultVersionSelectorScheme(new DefaultVersionComparator()), 1000)
+    def moduleDependency = Stub(ModuleDependency)
+    def rootDependency = Stub(DslOriginDependencyMetaData) {
+        getSource() >> moduleDependency
+    }
+    def root = node("root", new DefaultProjectComponentIdentifier(":"), rootConfiguration([rootDependency]))
+
+    def "replays recorded graph in the same order"() {
+        def a = node("a")
+        def b = node("b")
+        def artifact = Stub(ComponentArtifactMetaData)
+        def rootToA = edge(root, a, "a", "1.0", moduleDependency, [artifact])
+        def aToB = edge(a, b, "b", "1.0")
+        def visitor = Mock(DependencyGraphVisitor)
+
+        def currentModuleDependency = Stub(ModuleDependency)
+        def currentRootDependency = Stub(DslOriginDependencyMetaData) {
+            getSource() >> currentModuleDependency
+        }
+        def currentRoot = rootConfiguration([currentRootDependency])
+
+        when:
+        record(root, a, b)
+        recorder.graph.replay(currentRoot, visitor)
+
+        then:
+        1 * visitor.start({ it.nodeId == root.nodeId && it.metaData == currentRoot })
+        then:
+        1 * visitor.visitNode({ it.nodeId == root.nodeId && it.outgoingEdges.size() == 1 })
+        then:
+        1 * visitor.visitNode({ it.nodeId == a.nodeId && it.metaData == a.metaData && it.selection.id == a.toId() })
+        then:
+        1 * visitor.visitNode({ it.nodeId == b.nodeId })
+        then:
+        1 * visitor.visitEdge({ it.nodeId == root.nodeId })
+        then:
+        1 * visitor.visitEdge({ DependencyGraphNode node ->
+            def incoming = node.incomingEdges as List
+            node.nodeId == a.nodeId && incoming.size() == 1 && incoming[0].moduleDependency == currentModuleDependency &&
+                incoming[0].from.nodeId == root.nodeId && incoming[0].getArtifacts(node.metaData) == [artifact] as Set &&
+                incoming[0].requested == rootToA.requested && incoming[0].selected == rootToA.selected
+        })
+        then:
+        1 * visitor.visitEdge({ DependencyGraphNode node ->
+            def incoming = node.incomingEdges as List
+            node.nodeId == b.nodeId && incoming.size() == 1 && incoming[0].moduleDependency == null &&
+                incoming[0].from.nodeId == a.nodeId && incoming[0].getArtifacts(node.metaData).empty && incoming[0].selector == aToB.selector
+        })
+        then:
+        1 * visitor.finish({ it.nodeId == root.nodeId })
+        0 * visitor._
+    }
+
+    def "does not record graph with failed dependency"() {
+        def a = node("a")
+        edge(root, a, "a", "1.0", moduleDependency, [], new ModuleVersionResolveException(newId("group", "a", "1.0"), "broken"))
+
+        when:
+        record(root, a)
+
+        then:
+        recorder.graph == null
+    }
+
+    def "does not record graph that contains a project"() {
+        def a = node("a", new DefaultProjectComponentIdentifier(":a"))
+        edge(root, a, "a", "1.0", moduleDependency)
+
+        when:
+        record(root, a)
+
+        then:
+        recorder.graph == null
+    }
+
+    def "graph expires when a cached result that it was resolved from must be refreshed"() {
+        def a = node("a")
+        edge(root, a, "a", "1.+", moduleDependency)
+        def cachePolicy = Mock(CachePolicy)
+        def moduleId = DefaultModuleIdentifier.newId("group", "a")
+        def versions = [newId("group", "a", "1.0"), newId("group", "a", "1.1")] as Set
+        ages.versionListUsed(moduleId, versions, 200)
+        ages.moduleUsed(a.componentId, null, false, 300)
+
+        when:
+        record(root, a)
+        def upToDate = recorder.graph.isUpToDate(cachePolicy, 1500)
+
+        then:
+        upToDate
+        1 * cachePolicy.mustRefreshModule(a.componentId, null, 800) >> false
+        1 * cachePolicy.mustRefreshVersionList(moduleId, versions, 700) >> false
+
+        when:
+        upToDate = recorder.graph.isUpToDate(cachePolicy, 5000)
+
+        then:
+        !upToDate
+        1 * cachePolicy.mustRefreshModule(a.componentId, null, 4300) >> false
+        1 * cachePolicy.mustRefreshVersionList(moduleId, versions, 4200) >> true
+    }
+
+    def "uses age 0 for results that were not found in the cache"() {
+        def a = node("a", DefaultModuleComponentIdentifier.newId("group", "a", "1.0"), configuration(true))
+        edge(root, a, "a", "latest.integration", moduleDependency)
+        def cachePolicy = Mock(CachePolicy)
+
+        when:
+        record(root, a)
+        def upToDate = recorder.graph.isUpToDate(cachePolicy, 1500)
+
+        then:
+        !upToDate
+        1 * cachePolicy.mustRefreshChangingModule(a.componentId, { it.id == a.toId() }, 500) >> false
+        1 * cachePolicy.mustRefreshVersionList(DefaultModuleIdentifier.newId("group", "a"), [a.toId()] as Set, 500) >> true
+    }
+
+    def record(TestNode... nodes) {
+        recorder.start(root)
+        nodes.each { recorder.visitNode(it) }
+        nodes.each { recorder.visitEdge(it) }
+        recorder.finish(root)
+    }
+
+    def rootConfiguration(List dependencies) {
+        return Stub(ConfigurationMetaData) {
+            getDependencies() >> dependencies
+        }
+    }
+
+    def configuration(boolean changing = false) {
+        def component = Stub(ComponentResolveMetaData) {
+            isChanging() >> changing
+        }
+        return Stub(ConfigurationMetaData) {
+            getComponent() >> component
+        }
+    }
+
+    def node(String name, ComponentIdentifier componentId = DefaultModuleComponentIdentifier.newId("group", name, "1.0"), ConfigurationMetaData metaData = configuration()) {
+        return new TestNode(newId("group", name, "1.0"), componentId, metaData)
+    }
+
+    def edge(TestNode from, TestNode to, String name, String version, ModuleDependency moduleDependency = null, List artifacts = [], ModuleVersionResolveException failure = null) {
+        def edge = new TestEdge(from: from, selector: DefaultModuleResolutionFilter.all(), moduleDependency: moduleDependency, failure: failure,
+            requestedModuleVersion: Stub(ModuleVersionSelector) {
+                getGroup() >> "group"
+                getName() >> name
+                getVersion() >> version
+            },
+            requested: DefaultModuleComponentSelector.newSelector("group", name, version),
+            selected: failure == null ? to.toId() : null,
+            reason: VersionSelectionReasons.REQUESTED,
+            artifacts: artifacts as Set)
+        from.outgoingEdges << edge
+        if (failure == null) {
+            to.incomingEdges << edge
+        }
+        return edge
+    }
+
+    static class TestNode implements DependencyGraphNode, ModuleVersionSelection {
+        final ModuleVersionIdentifier id
+        final ComponentIdentifier componentId
+        final ConfigurationMetaData metaData
+        final ResolvedConfigurationIdentifier nodeId
+        final Set<DependencyGraphEdge> incomingEdges = new LinkedHashSet<DependencyGraphEdge>()
+        final Set<DependencyGraphEdge> outgoingEdges = new LinkedHashSet<DependencyGraphEdge>()
+
+        TestNode(ModuleVersionIdentifier id, ComponentIdentifier componentId, ConfigurationMetaData metaData) {
+            this.id = id
+            this.componentId = componentId
+            this.metaData = metaData
+            this.nodeId = new ResolvedConfigurationIdentifier(id, "default")
+        }
+
+        ModuleVersionIdentifier toId() {
+            return id
+        }
+
+        ModuleVersionSelection getSelection() {
+            return this
+        }
+
+        ComponentSelectionReason getSelectionReason() {
+            return VersionSelectionReasons.REQUESTED
+        }
+    }
+
+    static class TestEdge implements DependencyGraphEdge {
+        DependencyGraphNode from
+        ModuleVersionSelector requestedModuleVersion
+        ModuleResolutionFilter selector
+        ModuleDependency moduleDependency
+        ComponentSelector requested
+        ModuleVersionResolveException failure
+        ModuleVersionIdentifier selected
+        ComponentSelectionReason reason
+        Set<ComponentArtifactMetaData> artifacts
+
+        Set<ComponentArtifactMetaData> getArtifacts(ConfigurationMetaData metaData) {
+            return artifacts
+        }
+    }
+}
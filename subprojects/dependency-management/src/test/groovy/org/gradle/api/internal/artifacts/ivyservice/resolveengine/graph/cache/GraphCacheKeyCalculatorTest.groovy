@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache
+
+import org.gradle.api.Action
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules
+import org.gradle.api.internal.artifacts.ResolveContext
+import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.DefaultResolutionStrategy
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository
+import org.gradle.internal.component.model.ComponentResolveMetaData
+import spock.lang.Specification
+
+class GraphCacheKeyCalculatorTest extends Specification {
+    def resolveContext = Mock(ResolveContext)
+    def rootComponent = Mock(ComponentResolveMetaData)
+    def repository = Mock(ResolutionAwareRepository)
+    def rules = Mock(GlobalDependencyResolutionRules)
+    def resolutionStrategy = new DefaultResolutionStrategy()
+
+    def setup() {
+        _ * resolveContext.resolutionStrategy >> { resolutionStrategy }
+    }
+
+    def "does not cache graph of configuration with eachDependency rule"() {
+        given:
+        resolutionStrategy.eachDependency(Mock(Action))
+
+        expect:
+        GraphCacheKeyCalculator.calculateKey(resolveContext, rootComponent, [repository], rules) == null
+    }
+
+    def "does not cache graph of configuration with dependency substitution rule"() {
+        given:
+        resolutionStrategy.dependencySubstitution.all(Mock(Action))
+
+        expect:
+        GraphCacheKeyCalculator.calculateKey(resolveContext, rootComponent, [repository], rules) == null
+    }
+
+    def "does not cache graph of configuration whose eachDependency rule was copied"() {
+        given:
+        def original = new DefaultResolutionStrategy()
+        original.eachDependency(Mock(Action))
+        resolutionStrategy = original.copy()
+
+        expect:
+        GraphCacheKeyCalculator.calculateKey(resolveContext, rootComponent, [repository], rules) == null
+    }
+}
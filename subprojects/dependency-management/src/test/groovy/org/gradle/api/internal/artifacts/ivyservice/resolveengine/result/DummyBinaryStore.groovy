@@ -30,6 +30,10 @@ public class DummyBinaryStore implements BinaryStore {
         write.write(output)
     }
 
+    int getWritePosition() {
+        bytes.size()
+    }
+
     BinaryStore.BinaryData done() {
         new BinaryStore.BinaryData() {
             Decoder decoder
@@ -40,6 +44,11 @@ public class DummyBinaryStore implements BinaryStore {
                 readAction.read(decoder)
             }
 
+            def <T> T read(int position, BinaryStore.ReadAction<T> readAction) {
+                def data = bytes.toByteArray()
+                readAction.read(new InputStreamBackedDecoder(new ByteArrayInputStream(data, position, data.length - position)))
+            }
+
             void close() {
                 decoder = null
             }
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.result
+
+import org.gradle.api.artifacts.result.ResolvedDependencyResult
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier.newId
+import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.VersionSelectionReasons.REQUESTED
+
+class LazyStreamingResolutionResultBuilderTest extends StreamingResolutionResultBuilderTest {
+    def setup() {
+        builder = new StreamingResolutionResultBuilder(new DummyBinaryStore(), new DummyStore(), true)
+    }
+
+    def "components are equal when decoded more than once"() {
+        def count = LazyResolvedGraph.MAX_DECODED_COMPONENTS + 10
+        builder.start(newId("org", "root", "1.0"), new DefaultModuleComponentIdentifier("org", "root", "1.0"))
+        (0..<count).each {
+            builder.resolvedModuleVersion(new DefaultModuleVersionSelection(newId("org", "dep$it", "1.0"), REQUESTED, new DefaultModuleComponentIdentifier("org", "dep$it", "1.0")))
+        }
+        builder.resolvedConfiguration(newId("org", "root", "1.0"), (0..<count).collect {
+            new DefaultInternalDependencyResult(DefaultModuleComponentSelector.newSelector("org", "dep$it", "1.0"), newId("org", "dep$it", "1.0"), REQUESTED, null)
+        })
+
+        when:
+        def result = builder.complete()
+        def first = result.root.dependencies.first().selected
+
+        then:
+        result.allComponents.size() == count + 1
+
+        when:
+        def decodedAgain = ((ResolvedDependencyResult) first.dependents.first()).selected
+
+        then:
+        decodedAgain == first
+        decodedAgain.hashCode() == first.hashCode()
+        decodedAgain.id == DefaultModuleComponentIdentifier.newId("org", "dep0", "1.0")
+    }
+
+    def "dependents are found for component with several dependents"() {
+        builder.start(newId("org", "root", "1.0"), new DefaultModuleComponentIdentifier("org", "root", "1.0"))
+        builder.resolvedModuleVersion(sel("org", "a", "1.0"))
+        builder.resolvedModuleVersion(sel("org", "b", "1.0"))
+        builder.resolvedModuleVersion(sel("org", "c", "1.0"))
+        builder.resolvedConfiguration(newId("org", "root", "1.0"), [dep("a"), dep("b")])
+        builder.resolvedConfiguration(newId("org", "a", "1.0"), [dep("c")])
+        builder.resolvedConfiguration(newId("org", "b", "1.0"), [dep("c")])
+
+        when:
+        def root = builder.complete().root
+        def c = root.dependencies.first().selected.dependencies.first().selected
+
+        then:
+        c.id == DefaultModuleComponentIdentifier.newId("org", "c", "1.0")
+        c.dependents*.from*.id == [DefaultModuleComponentIdentifier.newId("org", "a", "1.0"), DefaultModuleComponentIdentifier.newId("org", "b", "1.0")]
+        c.dependents.every { it.selected == c }
+    }
+
+    private DefaultModuleVersionSelection sel(String org, String name, String ver) {
+        new DefaultModuleVersionSelection(newId(org, name, ver), REQUESTED, new DefaultModuleComponentIdentifier(org, name, ver))
+    }
+
+    private DefaultInternalDependencyResult dep(String name) {
+        new DefaultInternalDependencyResult(DefaultModuleComponentSelector.newSelector("org", name, "1.0"), newId("org", name, "1.0"), REQUESTED, null)
+    }
+}
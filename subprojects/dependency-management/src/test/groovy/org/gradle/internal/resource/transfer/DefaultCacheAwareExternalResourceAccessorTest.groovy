@@ -45,7 +45,8 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         createTemporaryFile(_, _, _) >> tempFile
     }
     final cacheLockingManager = Mock(CacheLockingManager)
-    final cache = new DefaultCacheAwareExternalResourceAccessor(repository, index, timeProvider, temporaryFileProvider, cacheLockingManager)
+    final cache = new DefaultCacheAwareExternalResourceAccessor(repository, index, timeProvider, temporaryFileProvider, cacheLockingManager, false)
+    final revalidatingCache = new DefaultCacheAwareExternalResourceAccessor(repository, index, timeProvider, temporaryFileProvider, cacheLockingManager, true)
 
     def "returns null when the request resource is not cached and does not exist in the remote repository"() {
         def uri = new URI("scheme:thing")
@@ -332,4 +333,169 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         1 * index.store("scheme:thing", cachedFile, remoteMetaData)
         0 * _._
     }
+
+    def "reuses cached resource when revalidation shows it has not changed"() {
+        given:
+        def cached = Mock(CachedExternalResource)
+        def fileStore = Mock(CacheAwareExternalResourceAccessor.ResourceFileStore)
+        def cachedMetaData = Mock(ExternalResourceMetaData)
+        def uri = new URI("scheme:thing")
+
+        when:
+        def result = revalidatingCache.getResource(uri, fileStore, null)
+
+        then:
+        result.localResource.file == cachedFile
+        result.metaData == cachedMetaData
+
+        and:
+        1 * index.lookup("scheme:thing") >> cached
+        timeProvider.currentTime >> 24000L
+        cached.cachedAt >> 23999L
+        cached.externalResourceMetaData >> cachedMetaData
+        cached.cachedFile >> cachedFile
+        cachedMetaData.etag >> "etag"
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.getResourceIfChanged(uri, cachedMetaData) >> ConditionalReadResult.unchanged()
+        0 * _._
+    }
+
+    def "downloads resource in the revalidation request when it has changed"() {
+        given:
+        def cached = Mock(CachedExternalResource)
+        def fileStore = Mock(CacheAwareExternalResourceAccessor.ResourceFileStore)
+        def cachedMetaData = Mock(ExternalResourceMetaData)
+        def remoteMetaData = Mock(ExternalResourceMetaData)
+        def remoteResource = Mock(ExternalResource)
+        def uri = new URI("scheme:thing")
+        def localResource = new DefaultLocallyAvailableResource(cachedFile)
+
+        when:
+        def result = revalidatingCache.getResource(uri, fileStore, null)
+
+        then:
+        result.localResource.file == cachedFile
+        result.metaData == remoteMetaData
+
+        and:
+        1 * index.lookup("scheme:thing") >> cached
+        timeProvider.currentTime >> 24000L
+        cached.cachedAt >> 23999L
+        cached.externalResourceMetaData >> cachedMetaData
+        cachedMetaData.etag >> null
+        cachedMetaData.lastModified >> new Date(1000)
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.getResourceIfChanged(uri, cachedMetaData) >> ConditionalReadResult.changed(remoteResource)
+        1 * remoteResource.withContent(_) >> { ExternalResource.ContentAction a ->
+            a.execute(new ByteArrayInputStream(), remoteMetaData)
+        }
+        1 * remoteResource.close()
+        0 * _._
+
+        and:
+        1 * cacheLockingManager.useCache(_, _) >> { String description, org.gradle.internal.Factory factory ->
+            return factory.create()
+        }
+        1 * fileStore.moveIntoCache(tempFile) >> localResource
+        1 * index.store("scheme:thing", cachedFile, remoteMetaData)
+        0 * _._
+    }
+
+    def "returns null when revalidation shows that the cached resource no longer exists"() {
+        given:
+        def cached = Mock(CachedExternalResource)
+        def fileStore = Mock(CacheAwareExternalResourceAccessor.ResourceFileStore)
+        def cachedMetaData = Mock(ExternalResourceMetaData)
+        def uri = new URI("scheme:thing")
+
+        when:
+        def result = revalidatingCache.getResource(uri, fileStore, null)
+
+        then:
+        result == null
+
+        and:
+        1 * index.lookup("scheme:thing") >> cached
+        timeProvider.currentTime >> 24000L
+        cached.cachedAt >> 23999L
+        cached.externalResourceMetaData >> cachedMetaData
+        cachedMetaData.etag >> "etag"
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.getResourceIfChanged(uri, cachedMetaData) >> ConditionalReadResult.missing()
+        0 * _._
+    }
+
+    def "uses HEAD request to revalidate cached resource when conditional GET is not enabled"() {
+        given:
+        def cached = Mock(CachedExternalResource)
+        def fileStore = Mock(CacheAwareExternalResourceAccessor.ResourceFileStore)
+        def cachedMetaData = Mock(ExternalResourceMetaData)
+        def remoteMetaData = Mock(ExternalResourceMetaData)
+        def uri = new URI("scheme:thing")
+
+        when:
+        def result = cache.getResource(uri, fileStore, null)
+
+        then:
+        result.localResource.file == cachedFile
+        result.metaData == cachedMetaData
+
+        and:
+        1 * index.lookup("scheme:thing") >> cached
+        timeProvider.currentTime >> 24000L
+        cached.cachedAt >> 23999L
+        cached.externalResourceMetaData >> cachedMetaData
+        cached.cachedFile >> cachedFile
+        cachedMetaData.etag >> "etag"
+        cachedMetaData.lastModified >> null
+        cachedMetaData.contentLength >> 0
+        1 * repository.getResourceMetaData(uri) >> remoteMetaData
+        remoteMetaData.etag >> "etag"
+        0 * _._
+    }
+
+    def "checks local candidates instead of using conditional GET when there are any"() {
+        given:
+        def localCandidates = Mock(LocallyAvailableResourceCandidates)
+        def cached = Mock(CachedExternalResource)
+        def candidate = tempDir.createFile("candidate-file")
+        def sha1 = HashUtil.createHash(candidate, "sha1")
+        def fileStore = Mock(CacheAwareExternalResourceAccessor.ResourceFileStore)
+        def cachedMetaData = Mock(ExternalResourceMetaData)
+        def remoteMetaData = Mock(ExternalResourceMetaData)
+        def localCandidate = Mock(LocallyAvailableResource)
+        def uri = new URI("scheme:thing")
+        def localResource = new DefaultLocallyAvailableResource(cachedFile)
+
+        when:
+        def result = revalidatingCache.getResource(uri, fileStore, localCandidates)
+
+        then:
+        result.localResource.file == cachedFile
+        result.metaData == remoteMetaData
+
+        and:
+        1 * index.lookup("scheme:thing") >> cached
+        timeProvider.currentTime >> 24000L
+        cached.cachedAt >> 23999L
+        cached.externalResourceMetaData >> cachedMetaData
+        cachedMetaData.etag >> "old-etag"
+        cachedMetaData.lastModified >> null
+        cachedMetaData.contentLength >> 0
+        localCandidates.none >> false
+        1 * repository.getResourceMetaData(uri) >> remoteMetaData
+        remoteMetaData.etag >> "new-etag"
+        remoteMetaData.sha1 >> sha1
+        1 * localCandidates.findByHashValue(sha1) >> localCandidate
+        localCandidate.file >> candidate
+        0 * _._
+
+        and:
+        1 * cacheLockingManager.useCache(_, _) >> { String description, org.gradle.internal.Factory factory ->
+            return factory.create()
+        }
+        1 * fileStore.moveIntoCache(tempFile) >> localResource
+        1 * index.store("scheme:thing", cachedFile, remoteMetaData)
+        0 * _._
+    }
 }
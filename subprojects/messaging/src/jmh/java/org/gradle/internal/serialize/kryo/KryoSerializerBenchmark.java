@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.serialize.kryo;
+
+import org.gradle.internal.serialize.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing and reading a batch of records that mix strings, numbers and maps, as the task history and dependency caches do. Compares
+ * the Kryo backed encoder and decoder with the stream backed ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class KryoSerializerBenchmark {
+    private static final int RECORDS = 100;
+
+    @Param({"kryo", "stream"})
+    String codec;
+
+    private final Serializer<Map<String, String>> mapSerializer = BaseSerializerFactory.NO_NULL_STRING_MAP_SERIALIZER;
+    private final Map<String, String> properties = new LinkedHashMap<String, String>();
+    private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    private byte[] serialized;
+
+    @Setup
+    public void createRecords() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            properties.put("property" + i, "some value for property " + i);
+        }
+        write();
+        serialized = outputStream.toByteArray();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public int write() throws Exception {
+        outputStream.reset();
+        FlushableEncoder encoder = codec.equals("kryo") ? new KryoBackedEncoder(outputStream) : new OutputStreamBackedEncoder(outputStream);
+        for (int i = 0; i < RECORDS; i++) {
+            encoder.writeString("org.gradle.sample:module-" + i);
+            encoder.writeSmallInt(i);
+            encoder.writeLong(1000000000000L + i);
+            encoder.writeBoolean(i % 2 == 0);
+            mapSerializer.write(encoder, properties);
+        }
+        encoder.flush();
+        return outputStream.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long read() throws Exception {
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(serialized);
+        Decoder decoder = codec.equals("kryo") ? new KryoBackedDecoder(inputStream) : new InputStreamBackedDecoder(inputStream);
+        long result = 0;
+        for (int i = 0; i < RECORDS; i++) {
+            result += decoder.readString().length();
+            result += decoder.readSmallInt();
+            result += decoder.readLong();
+            result += decoder.readBoolean() ? 1 : 0;
+            result += mapSerializer.read(decoder).size();
+        }
+        return result;
+    }
+}
@@ -58,6 +58,9 @@ import java.util.Collections;
 
 public class HttpClientConfigurer {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientConfigurer.class);
+    // Allows for concurrent artifact downloads and meta-data fetches from a single host, plus the resolving thread
+    static final int MAX_CONNECTIONS_PER_ROUTE = 10;
+    static final int MAX_CONNECTIONS_TOTAL = 50;
 
     private final HttpSettings httpSettings;
 
@@ -73,9 +76,15 @@ public class HttpClientConfigurer {
         configureProxy(builder, credentialsProvider, httpSettings);
         configureRetryHandler(builder);
         configureUserAgent(builder);
+        configureConnectionPool(builder);
         builder.setDefaultCredentialsProvider(credentialsProvider);
     }
 
+    private void configureConnectionPool(HttpClientBuilder builder) {
+        builder.setMaxConnPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        builder.setMaxConnTotal(MAX_CONNECTIONS_TOTAL);
+    }
+
     private void configureSslSocketConnectionFactory(HttpClientBuilder builder, SslContextFactory sslContextFactory) {
         builder.setSSLSocketFactory(new SSLConnectionSocketFactory(sslContextFactory.createSslContext(), new DefaultHostnameVerifier(null)));
     }
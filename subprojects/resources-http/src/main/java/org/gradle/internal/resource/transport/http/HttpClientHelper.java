@@ -16,30 +16,44 @@
 
 package org.gradle.internal.resource.transport.http;
 
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.DateUtils;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
+import org.gradle.api.Nullable;
 import org.gradle.api.UncheckedIOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Date;
 
 /**
  * Provides some convenience and unified logging.
+ *
+ * <p>Requests may be performed concurrently from multiple threads. The underlying client is shared, so that connections are pooled,
+ * while each thread uses its own execution context.</p>
  */
 public class HttpClientHelper implements Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientHelper.class);
     private CloseableHttpClient client;
-    private final BasicHttpContext httpContext = new BasicHttpContext();
+    private final ThreadLocal<HttpContext> httpContext = new ThreadLocal<HttpContext>() {
+        @Override
+        protected HttpContext initialValue() {
+            return new BasicHttpContext();
+        }
+    };
     private final HttpSettings settings;
 
     public HttpClientHelper(HttpSettings settings) {
@@ -62,6 +76,21 @@ public class HttpClientHelper implements Closeable {
         return processResponse(source, "GET", performRawGet(source));
     }
 
+    /**
+     * Performs a GET that the server may answer with a 304 (Not Modified) response when the resource still has the given entity tag
+     * or has not been modified since the given date.
+     */
+    public HttpResponse performConditionalGet(String source, @Nullable String etag, @Nullable Date lastModified) {
+        HttpGet request = new HttpGet(source);
+        if (etag != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        }
+        if (lastModified != null) {
+            request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, DateUtils.formatDate(lastModified));
+        }
+        return processResponse(source, "GET", performRequest(request));
+    }
+
     public HttpResponse performRequest(HttpRequestBase request) {
         String method = request.getMethod();
 
@@ -90,6 +119,10 @@ public class HttpClientHelper implements Closeable {
         return statusCode == 404;
     }
 
+    public boolean wasNotModified(HttpResponse response) {
+        return response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED;
+    }
+
     public boolean wasSuccessful(HttpResponse response) {
         int statusCode = response.getStatusLine().getStatusCode();
         return statusCode >= 200 && statusCode < 400;
@@ -97,9 +130,10 @@ public class HttpClientHelper implements Closeable {
 
     public HttpResponse performHttpRequest(HttpRequestBase request) throws IOException {
         // Without this, HTTP Client prohibits multiple redirects to the same location within the same context
-        httpContext.removeAttribute(HttpClientContext.REDIRECT_LOCATIONS);
+        HttpContext context = httpContext.get();
+        context.removeAttribute(HttpClientContext.REDIRECT_LOCATIONS);
         LOGGER.debug("Performing HTTP {}: {}", request.getMethod(), request.getURI());
-        return getClient().execute(request, httpContext);
+        return getClient().execute(request, context);
     }
 
     private HttpResponse processResponse(String source, String method, HttpResponse response) {
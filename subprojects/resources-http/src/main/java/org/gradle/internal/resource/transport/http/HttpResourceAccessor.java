@@ -20,8 +20,12 @@ import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.gradle.api.Nullable;
+import org.gradle.internal.Factory;
 import org.gradle.internal.resource.metadata.ExternalResourceMetaData;
+import org.gradle.internal.resource.metadata.ExternalResourceMetaDataCompare;
+import org.gradle.internal.resource.transfer.ConditionalReadResult;
 import org.gradle.internal.resource.transfer.ExternalResourceAccessor;
+import org.gradle.internal.resource.transfer.ExternalResourceReadResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,14 +33,26 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
+/**
+ * Reads resources over HTTP.
+ *
+ * <p>Resources may be read concurrently from multiple threads. Abandoned resources are tracked per thread, so that a thread
+ * never closes a resource that another thread is still reading.</p>
+ */
 public class HttpResourceAccessor implements ExternalResourceAccessor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpResourceAccessor.class);
     private final HttpClientHelper http;
 
-    private final List<HttpResponseResource> openResources = new ArrayList<HttpResponseResource>();
+    private final ThreadLocal<List<HttpResponseResource>> openResources = new ThreadLocal<List<HttpResponseResource>>() {
+        @Override
+        protected List<HttpResponseResource> initialValue() {
+            return new ArrayList<HttpResponseResource>();
+        }
+    };
 
     public HttpResourceAccessor(HttpClientHelper http) {
         this.http = http;
@@ -57,6 +73,57 @@ public class HttpResourceAccessor implements ExternalResourceAccessor {
         return null;
     }
 
+    /**
+     * Reads the resource using a conditional GET, using the entity tag and last modified date of the cached copy. A server that does not
+     * support conditional requests sends the resource instead. In that case, the response is abandoned without reading the content
+     * when its meta-data shows that the resource is unchanged.
+     */
+    public ConditionalReadResult<ExternalResourceReadResponse> openResourceIfChanged(URI uri, ExternalResourceMetaData cachedMetaData) {
+        String etag = cachedMetaData.getEtag();
+        Date lastModified = cachedMetaData.getLastModified();
+        if (etag == null && lastModified == null) {
+            return ConditionalReadResult.<ExternalResourceReadResponse>of(openResource(uri));
+        }
+
+        abortOpenResources();
+        String location = uri.toString();
+        LOGGER.debug("Constructing external resource if changed: {}", location);
+
+        HttpResponse response = http.performConditionalGet(location, etag, lastModified);
+        if (response == null) {
+            return ConditionalReadResult.missing();
+        }
+        if (http.wasNotModified(response)) {
+            discard(response);
+            return ConditionalReadResult.unchanged();
+        }
+
+        final HttpResponseResource resource = wrapResponse(uri, response);
+        boolean isUnchanged = ExternalResourceMetaDataCompare.isDefinitelyUnchanged(cachedMetaData, new Factory<ExternalResourceMetaData>() {
+            public ExternalResourceMetaData create() {
+                return resource.getMetaData();
+            }
+        });
+        if (isUnchanged) {
+            discard(response);
+            return ConditionalReadResult.unchanged();
+        }
+        return ConditionalReadResult.<ExternalResourceReadResponse>changed(recordOpenGetResource(resource));
+    }
+
+    /**
+     * Releases the connection of a response without reading its content.
+     */
+    private static void discard(HttpResponse response) {
+        if (response instanceof Closeable) {
+            try {
+                ((Closeable) response).close();
+            } catch (IOException e) {
+                LOGGER.debug("Failed to close response", e);
+            }
+        }
+    }
+
     /**
      * Same as #getResource except that it always gives access to the response body,
      * irrespective of the returned HTTP status code. Never returns {@code null}.
@@ -87,11 +154,12 @@ public class HttpResourceAccessor implements ExternalResourceAccessor {
     }
 
     private HttpResponseResource recordOpenGetResource(HttpResponseResource httpResource) {
-        openResources.add(httpResource);
+        openResources.get().add(httpResource);
         return httpResource;
     }
 
     private void abortOpenResources() {
+        List<HttpResponseResource> openResources = this.openResources.get();
         for (Closeable openResource : openResources) {
             LOGGER.warn("Forcing close on abandoned resource: {}", openResource);
             try {
@@ -108,7 +176,7 @@ public class HttpResourceAccessor implements ExternalResourceAccessor {
             @Override
             public void close() throws IOException {
                 super.close();
-                HttpResourceAccessor.this.openResources.remove(this);
+                HttpResourceAccessor.this.openResources.get().remove(this);
             }
         };
     }
@@ -21,6 +21,7 @@ import com.amazonaws.services.s3.model.S3Object;
 import org.gradle.internal.resource.local.LocalResource;
 import org.gradle.internal.resource.metadata.DefaultExternalResourceMetaData;
 import org.gradle.internal.resource.metadata.ExternalResourceMetaData;
+import org.gradle.internal.resource.transfer.ConditionalReadResult;
 import org.gradle.internal.resource.transfer.ExternalResourceConnector;
 import org.gradle.internal.resource.transfer.ExternalResourceReadResponse;
 import org.slf4j.Logger;
@@ -69,6 +70,10 @@ public class S3ResourceConnector implements ExternalResourceConnector {
                 null); // Passing null for sha1 - TODO - consider using the etag which is an MD5 hash of the file (when less than 5Gb)
     }
 
+    public ConditionalReadResult<ExternalResourceReadResponse> openResourceIfChanged(URI location, ExternalResourceMetaData cachedMetaData) {
+        return ConditionalReadResult.openIfChanged(this, location, cachedMetaData);
+    }
+
     @Override
     public void upload(LocalResource resource, URI destination) throws IOException {
         LOGGER.debug("Attempting to upload stream to : {}", destination);
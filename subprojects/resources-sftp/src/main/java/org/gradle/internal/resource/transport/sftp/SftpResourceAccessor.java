@@ -22,6 +22,7 @@ import org.gradle.api.artifacts.repositories.PasswordCredentials;
 import org.gradle.internal.resource.ResourceExceptions;
 import org.gradle.internal.resource.metadata.DefaultExternalResourceMetaData;
 import org.gradle.internal.resource.metadata.ExternalResourceMetaData;
+import org.gradle.internal.resource.transfer.ConditionalReadResult;
 import org.gradle.internal.resource.transfer.ExternalResourceAccessor;
 import org.gradle.internal.resource.transfer.ExternalResourceReadResponse;
 
@@ -70,4 +71,8 @@ public class SftpResourceAccessor implements ExternalResourceAccessor {
         ExternalResourceMetaData metaData = getMetaData(location);
         return metaData != null ? new SftpResource(sftpClientFactory, metaData, location, credentials) : null;
     }
+
+    public ConditionalReadResult<ExternalResourceReadResponse> openResourceIfChanged(URI location, ExternalResourceMetaData cachedMetaData) {
+        return ConditionalReadResult.openIfChanged(this, location, cachedMetaData);
+    }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.internal.resource.transfer;
+
+import org.gradle.api.Nullable;
+import org.gradle.internal.Factory;
+import org.gradle.internal.resource.metadata.ExternalResourceMetaData;
+import org.gradle.internal.resource.metadata.ExternalResourceMetaDataCompare;
+
+import java.net.URI;
+
+/**
+ * The outcome of reading a resource only if it has changed since a copy of it was cached: the resource is either missing, unchanged, or
+ * has changed and its content is available.
+ *
+ * @param <T> The type of the resource.
+ */
+public class ConditionalReadResult<T> {
+    private static final ConditionalReadResult<?> MISSING = new ConditionalReadResult<Object>(false, null);
+    private static final ConditionalReadResult<?> UNCHANGED = new ConditionalReadResult<Object>(true, null);
+
+    private final boolean unchanged;
+    private final T resource;
+
+    private ConditionalReadResult(boolean unchanged, T resource) {
+        this.unchanged = unchanged;
+        this.resource = resource;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> ConditionalReadResult<T> missing() {
+        return (ConditionalReadResult<T>) MISSING;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> ConditionalReadResult<T> unchanged() {
+        return (ConditionalReadResult<T>) UNCHANGED;
+    }
+
+    public static <T> ConditionalReadResult<T> changed(T resource) {
+        return new ConditionalReadResult<T>(false, resource);
+    }
+
+    /**
+     * Returns a {@link #changed(Object)} result for the given resource, or a {@link #missing()} result when there is no resource.
+     */
+    public static <T> ConditionalReadResult<T> of(@Nullable T resource) {
+        return resource == null ? ConditionalReadResult.<T>missing() : changed(resource);
+    }
+
+    /**
+     * Reads a resource conditionally using an accessor that cannot make the read itself conditional. Compares the meta-data of the
+     * resource with the cached meta-data first, and only reads the resource when it may have changed.
+     */
+    public static ConditionalReadResult<ExternalResourceReadResponse> openIfChanged(ExternalResourceAccessor accessor, URI location, ExternalResourceMetaData cachedMetaData) {
+        final ExternalResourceMetaData remoteMetaData = accessor.getMetaData(location);
+        if (remoteMetaData == null) {
+            return missing();
+        }
+        boolean isUnchanged = ExternalResourceMetaDataCompare.isDefinitelyUnchanged(cachedMetaData, new Factory<ExternalResourceMetaData>() {
+            public ExternalResourceMetaData create() {
+                return remoteMetaData;
+            }
+        });
+        if (isUnchanged) {
+            return unchanged();
+        }
+        return of(accessor.openResource(location));
+    }
+
+    public boolean isMissing() {
+        return !unchanged && resource == null;
+    }
+
+    public boolean isUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * Returns the resource, when it has changed. The caller is responsible for closing the resource.
+     */
+    @Nullable
+    public T getResource() {
+        return resource;
+    }
+}
@@ -47,6 +47,11 @@ public class DefaultExternalResourceConnector implements ExternalResourceConnect
         return accessor.getMetaData(location);
     }
 
+    @Override
+    public ConditionalReadResult<ExternalResourceReadResponse> openResourceIfChanged(URI location, ExternalResourceMetaData cachedMetaData) {
+        return accessor.openResourceIfChanged(location, cachedMetaData);
+    }
+
     @Nullable
     @Override
     public List<String> list(URI parent) {
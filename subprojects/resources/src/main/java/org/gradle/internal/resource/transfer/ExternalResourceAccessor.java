@@ -53,5 +53,17 @@ public interface ExternalResourceAccessor {
      */
     @Nullable
     ExternalResourceMetaData getMetaData(URI location) throws ResourceException;
-    
+
+    /**
+     * Reads the resource at the given location, unless it has not changed since the given meta-data was obtained for it.
+     *
+     * Implementations that cannot make the read itself conditional can use {@link ConditionalReadResult#openIfChanged(ExternalResourceAccessor, URI, ExternalResourceMetaData)}.
+     *
+     * @param location The address of the resource to obtain
+     * @param cachedMetaData The meta-data of the copy of the resource that the caller already has
+     * @return The result. Caller is responsible for closing the resource, when the result has one.
+     * @throws ResourceException If the resource may exist, but not could be obtained for some reason.
+     */
+    ConditionalReadResult<ExternalResourceReadResponse> openResourceIfChanged(URI location, ExternalResourceMetaData cachedMetaData) throws ResourceException;
+
 }
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.messaging.actor.Actor;
+import org.gradle.messaging.actor.ActorFactory;
+import org.gradle.messaging.dispatch.DispatchException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Manages a set of parallel TestClassProcessors. Test classes are collected until all of them are known, then handed out longest first, using the
+ * duration of each class in a previous execution. Each processor pulls the next test class from a shared queue when it completes a test class, so
+ * that processors which happen to get short test classes take on more of them.
+ *
+ * <p>The completion of a test class is detected from its events, so this should only be used for test frameworks that execute each test class as
+ * soon as it is received.</p>
+ */
+public class DurationBalancedTestClassProcessor implements TestClassProcessor {
+    private static final Logger LOGGER = Logging.getLogger(DurationBalancedTestClassProcessor.class);
+    // A short test class is queued in a worker ahead of time, so that the worker does not sit idle while the completion of the previous class
+    // travels back. Longer classes are only handed to a worker once it is free, so that they do not wait behind another long class
+    static final int MAX_CLASSES_IN_FLIGHT = 2;
+    static final long QUEUE_AHEAD_THRESHOLD = 1000;
+    private static final long MIN_STALL_TIMEOUT = 60 * 1000;
+
+    private final int maxProcessors;
+    private final Factory<TestClassProcessor> factory;
+    private final ActorFactory actorFactory;
+    private final Map<String, Long> previousDurations;
+    private final long stallTimeout;
+    private final List<TestClassRunInfo> testClasses = new ArrayList<TestClassRunInfo>();
+    private final Object lock = new Object();
+    private final LinkedList<TestClassRunInfo> queue = new LinkedList<TestClassRunInfo>();
+    private final List<ForkResultProcessor> forks = new ArrayList<ForkResultProcessor>();
+    private final List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
+    private final List<Actor> actors = new ArrayList<Actor>();
+    private TestResultProcessor resultProcessor;
+    private Actor resultProcessorActor;
+    // The time of the last event received from any processor, written without holding the lock as output events can be frequent
+    private volatile long lastProgress;
+    private long defaultDuration;
+
+    public DurationBalancedTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory, Map<String, Long> previousDurations) {
+        this(maxProcessors, factory, actorFactory, previousDurations, Math.max(MIN_STALL_TIMEOUT, 2 * longest(previousDurations)));
+    }
+
+    DurationBalancedTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory, Map<String, Long> previousDurations, long stallTimeout) {
+        this.maxProcessors = maxProcessors;
+        this.factory = factory;
+        this.actorFactory = actorFactory;
+        this.previousDurations = previousDurations;
+        this.stallTimeout = stallTimeout;
+    }
+
+    private static long longest(Map<String, Long> durations) {
+        long longest = 0;
+        for (Long duration : durations.values()) {
+            longest = Math.max(longest, duration);
+        }
+        return longest;
+    }
+
+    @Override
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        resultProcessorActor = actorFactory.createActor(resultProcessor);
+        this.resultProcessor = resultProcessorActor.getProxy(TestResultProcessor.class);
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        testClasses.add(testClass);
+    }
+
+    @Override
+    public void stop() {
+        try {
+            try {
+                processTestClasses();
+            } finally {
+                CompositeStoppable.stoppable(processors).add(actors).add(resultProcessorActor).stop();
+            }
+        } catch (DispatchException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+    }
+
+    private void processTestClasses() {
+        if (testClasses.isEmpty()) {
+            return;
+        }
+        sortLongestFirst();
+        synchronized (lock) {
+            queue.addAll(testClasses);
+            int processorCount = Math.min(maxProcessors, testClasses.size());
+            for (int i = 0; i < processorCount; i++) {
+                forks.add(startProcessor());
+            }
+            for (ForkResultProcessor fork : forks) {
+                fork.pull();
+            }
+            lastProgress = System.currentTimeMillis();
+            while (!queue.isEmpty()) {
+                long remaining = lastProgress + stallTimeout - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    // A worker that has died never reports the completion of its test classes. Rather than waiting forever, hand out the rest.
+                    // A worker that is busy with a long test class still reports its tests and their output, so it is not taken for a dead one
+                    LOGGER.info("No test event has been received in {} ms, assigning the remaining {} test classes round-robin.", stallTimeout, queue.size());
+                    for (int i = 0; !queue.isEmpty(); i++) {
+                        forks.get(i % forks.size()).dispatch(queue.removeFirst());
+                    }
+                    return;
+                }
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
+    }
+
+    private void sortLongestFirst() {
+        // Test classes that did not run before are assumed to take the average time
+        long total = 0;
+        int count = 0;
+        for (TestClassRunInfo testClass : testClasses) {
+            Long duration = previousDurations.get(testClass.getTestClassName());
+            if (duration != null) {
+                total += duration;
+                count++;
+            }
+        }
+        defaultDuration = count == 0 ? 0 : total / count;
+        Collections.sort(testClasses, new Comparator<TestClassRunInfo>() {
+            @Override
+            public int compare(TestClassRunInfo o1, TestClassRunInfo o2) {
+                long duration1 = estimate(o1);
+                long duration2 = estimate(o2);
+                return duration1 > duration2 ? -1 : duration1 == duration2 ? 0 : 1;
+            }
+        });
+    }
+
+    private long estimate(TestClassRunInfo testClass) {
+        Long duration = previousDurations.get(testClass.getTestClassName());
+        return duration != null ? duration : defaultDuration;
+    }
+
+    private ForkResultProcessor startProcessor() {
+        TestClassProcessor processor = factory.create();
+        Actor actor = actorFactory.createActor(processor);
+        processor = actor.getProxy(TestClassProcessor.class);
+        actors.add(actor);
+        processors.add(processor);
+        ForkResultProcessor fork = new ForkResultProcessor(processor);
+        processor.startProcessing(fork);
+        return fork;
+    }
+
+    /**
+     * Receives the results of a single processor, and pulls the next test class whenever the processor completes one.
+     */
+    private class ForkResultProcessor implements TestResultProcessor {
+        private final TestClassProcessor processor;
+        private final List<String> inFlight = new ArrayList<String>();
+        private final Map<Object, String> runningClasses = new HashMap<Object, String>();
+
+        ForkResultProcessor(TestClassProcessor processor) {
+            this.processor = processor;
+        }
+
+        @Override
+        public void started(TestDescriptorInternal test, TestStartEvent event) {
+            lastProgress = System.currentTimeMillis();
+            synchronized (lock) {
+                if (test.isComposite() && test.getClassName() != null && inFlight.contains(test.getClassName())) {
+                    runningClasses.put(test.getId(), test.getClassName());
+                }
+            }
+            resultProcessor.started(test, event);
+        }
+
+        @Override
+        public void completed(Object testId, TestCompleteEvent event) {
+            lastProgress = System.currentTimeMillis();
+            resultProcessor.completed(testId, event);
+            synchronized (lock) {
+                String className = runningClasses.remove(testId);
+                if (className != null) {
+                    inFlight.remove(className);
+                    pull();
+                    lock.notifyAll();
+                }
+            }
+        }
+
+        @Override
+        public void output(Object testId, TestOutputEvent event) {
+            lastProgress = System.currentTimeMillis();
+            resultProcessor.output(testId, event);
+        }
+
+        @Override
+        public void failure(Object testId, Throwable result) {
+            lastProgress = System.currentTimeMillis();
+            resultProcessor.failure(testId, result);
+        }
+
+        void pull() {
+            while (!queue.isEmpty() && (inFlight.isEmpty() || inFlight.size() < MAX_CLASSES_IN_FLIGHT && estimate(queue.getFirst()) < QUEUE_AHEAD_THRESHOLD)) {
+                dispatch(queue.removeFirst());
+            }
+        }
+
+        void dispatch(TestClassRunInfo testClass) {
+            inFlight.add(testClass.getTestClassName());
+            processor.processTestClass(testClass);
+        }
+    }
+}
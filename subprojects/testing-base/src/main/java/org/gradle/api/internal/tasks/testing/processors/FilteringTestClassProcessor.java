@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.specs.Spec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Only passes the test classes that satisfy a spec on to the delegate processor.
+ */
+public class FilteringTestClassProcessor implements TestClassProcessor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FilteringTestClassProcessor.class);
+    private final TestClassProcessor delegate;
+    private final Spec<? super TestClassRunInfo> spec;
+    private int selected;
+    private int skipped;
+
+    public FilteringTestClassProcessor(TestClassProcessor delegate, Spec<? super TestClassRunInfo> spec) {
+        this.delegate = delegate;
+        this.spec = spec;
+    }
+
+    @Override
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        delegate.startProcessing(resultProcessor);
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        if (spec.isSatisfiedBy(testClass)) {
+            selected++;
+            delegate.processTestClass(testClass);
+        } else {
+            skipped++;
+            LOGGER.debug("Skipping test class {}.", testClass.getTestClassName());
+        }
+    }
+
+    @Override
+    public void stop() {
+        LOGGER.info("Executing {} test classes, skipped {} test classes.", selected, skipped);
+        delegate.stop();
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.gradle.api.Action;
+import org.gradle.api.JavaVersion;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.Factory;
+import org.gradle.internal.jvm.Jvm;
+import org.gradle.process.JavaForkOptions;
+import org.gradle.process.internal.JavaExecHandleBuilder;
+import org.gradle.process.internal.WorkerProcess;
+import org.gradle.process.internal.WorkerProcessBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A {@link TestClassProcessor} that runs the test classes in a worker process from a {@link TestWorkerPool}, rather than in a new worker process.
+ *
+ * <p>The classpath of the test task is split in two: the entries that contain the test framework are loaded by the system ClassLoader of the worker
+ * process and must be the same for every test task that uses the worker, the other entries are loaded by a ClassLoader that only lives for the
+ * session of this processor.</p>
+ */
+public class PooledForkingTestClassProcessor implements TestClassProcessor {
+    // Packages used by the shared test framework packages, which must be loaded by the same ClassLoader
+    private static final List<String> FRAMEWORK_DEPENDENCY_PACKAGES = Arrays.asList("org.hamcrest");
+    // Whether a jar contains any of the framework packages, by jar path, size, timestamp and packages. Listing a jar is expensive and the same jars
+    // are on the classpath of every test task
+    private static final Cache<String, Boolean> JAR_CONTENTS = CacheBuilder.newBuilder().maximumSize(10000).build();
+
+    private final TestWorkerPool workerPool;
+    private final Factory<WorkerProcessBuilder> workerFactory;
+    private final WorkerTestClassProcessorFactory processorFactory;
+    private final JavaForkOptions options;
+    private final Iterable<File> classPath;
+    private final Action<WorkerProcessBuilder> buildConfigAction;
+    private PooledTestWorker worker;
+    private TestResultProcessor resultProcessor;
+
+    public PooledForkingTestClassProcessor(TestWorkerPool workerPool, Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory,
+                                           JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction) {
+        this.workerPool = workerPool;
+        this.workerFactory = workerFactory;
+        this.processorFactory = processorFactory;
+        this.options = options;
+        this.classPath = classPath;
+        this.buildConfigAction = buildConfigAction;
+    }
+
+    /**
+     * Returns true when a worker process started with the given options can be used by more than one test task. Java agents, such as coverage
+     * tools or debuggers, often only report or release their resources when the process exits.
+     *
+     * <p>The worker must also run on the JVM of the build, and that JVM must be Java 7 or later: the ClassLoader of each session can only release
+     * the jars it has opened from Java 7 on, and the version of another java executable is not known without running it.</p>
+     */
+    public static boolean canReuseWorker(JavaForkOptions options) {
+        if (!JavaVersion.current().isJava7Compatible() || options.getExecutable() == null
+            || !new File(options.getExecutable()).getAbsoluteFile().equals(Jvm.current().getJavaExecutable().getAbsoluteFile())) {
+            return false;
+        }
+        for (String jvmArg : options.getAllJvmArgs()) {
+            if (jvmArg.startsWith("-javaagent") || jvmArg.startsWith("-agentlib") || jvmArg.startsWith("-agentpath")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        this.resultProcessor = resultProcessor;
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        if (worker == null) {
+            worker = startSession();
+        }
+
+        worker.processTestClass(testClass);
+    }
+
+    private PooledTestWorker startSession() {
+        final WorkerProcessBuilder builder = workerFactory.create();
+        builder.setBaseName("Gradle Test Worker");
+        options.copyTo(builder.getJavaCommand());
+        buildConfigAction.execute(builder);
+        builder.worker(new ReusableTestWorker());
+
+        List<String> frameworkPackages = new ArrayList<String>(builder.getSharedPackages());
+        frameworkPackages.addAll(FRAMEWORK_DEPENDENCY_PACKAGES);
+        List<File> frameworkClasspath = new ArrayList<File>();
+        List<File> sessionClasspath = new ArrayList<File>();
+        splitClasspath(classPath, frameworkPackages, frameworkClasspath, sessionClasspath);
+        builder.applicationClasspath(frameworkClasspath);
+
+        PooledTestWorker worker = workerPool.acquire(workerKey(builder, frameworkClasspath), new Factory<WorkerProcess>() {
+            public WorkerProcess create() {
+                return builder.build();
+            }
+        });
+        long sessionId = workerPool.nextSessionId();
+        try {
+            worker.startSession(new TestWorkerSession(processorFactory, sessionClasspath, sessionId, "Gradle Test Executor " + sessionId), resultProcessor);
+        } catch (RuntimeException e) {
+            workerPool.release(worker);
+            throw e;
+        }
+        return worker;
+    }
+
+    private static Object workerKey(WorkerProcessBuilder builder, List<File> frameworkClasspath) {
+        JavaExecHandleBuilder javaCommand = builder.getJavaCommand();
+        List<String> frameworkFiles = new ArrayList<String>();
+        for (File file : frameworkClasspath) {
+            frameworkFiles.add(file.getAbsolutePath() + ":" + file.lastModified());
+        }
+        return Arrays.asList(javaCommand.getExecutable(), javaCommand.getAllJvmArgs(), javaCommand.getActualEnvironment(),
+            javaCommand.getWorkingDir(), new ArrayList<String>(builder.getSharedPackages()), builder.getLogLevel(), builder.getGradleUserHomeDir(), frameworkFiles);
+    }
+
+    /**
+     * Splits the given classpath into the entries that contain any of the given packages, and the other entries.
+     */
+    static void splitClasspath(Iterable<File> classPath, Collection<String> packages, Collection<File> matching, Collection<File> other) {
+        List<String> packagePaths = new ArrayList<String>();
+        for (String packageName : packages) {
+            packagePaths.add(packageName.replace('.', '/') + "/");
+        }
+        for (File file : classPath) {
+            if (containsAny(file, packagePaths)) {
+                matching.add(file);
+            } else {
+                other.add(file);
+            }
+        }
+    }
+
+    private static boolean containsAny(File file, List<String> packagePaths) {
+        if (file.isDirectory()) {
+            for (String packagePath : packagePaths) {
+                if (new File(file, packagePath).isDirectory()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (!file.isFile()) {
+            return false;
+        }
+        String key = file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified() + ":" + packagePaths;
+        Boolean contains = JAR_CONTENTS.getIfPresent(key);
+        if (contains == null) {
+            contains = jarContainsAny(file, packagePaths);
+            JAR_CONTENTS.put(key, contains);
+        }
+        return contains;
+    }
+
+    private static boolean jarContainsAny(File file, List<String> packagePaths) {
+        try {
+            ZipFile zipFile = new ZipFile(file);
+            try {
+                for (String packagePath : packagePaths) {
+                    if (zipFile.getEntry(packagePath) != null) {
+                        return true;
+                    }
+                }
+                // Not every jar has entries for its directories
+                for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements();) {
+                    String name = entries.nextElement().getName();
+                    for (String packagePath : packagePaths) {
+                        if (name.startsWith(packagePath)) {
+                            return true;
+                        }
+                    }
+                }
+                return false;
+            } finally {
+                zipFile.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Could not read classpath entry %s.", file), e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (worker != null) {
+            try {
+                worker.stopSession();
+            } finally {
+                workerPool.release(worker);
+                worker = null;
+            }
+        }
+    }
+}
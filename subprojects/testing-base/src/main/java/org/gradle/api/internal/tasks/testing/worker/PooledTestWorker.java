@@ -0,0 +1,220 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.internal.WorkerProcess;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link ReusableTestWorker} process owned by a {@link TestWorkerPool}, which runs one session at a time.
+ */
+class PooledTestWorker implements Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledTestWorker.class);
+    static final int STOP_TIMEOUT = 10000;
+
+    private final Object key;
+    private final WorkerProcess workerProcess;
+    private final Object lock = new Object();
+    private RemoteReusableTestWorker remoteWorker;
+    private TestResultProcessor sessionResultProcessor;
+    private boolean sessionRunning;
+    private ArrayList<String> isolationProblems;
+    private boolean processStopped;
+    private Throwable processFailure;
+
+    PooledTestWorker(Object key, WorkerProcess workerProcess) {
+        this.key = key;
+        this.workerProcess = workerProcess;
+    }
+
+    /**
+     * Returns the key that identifies the test tasks that can use this worker.
+     */
+    Object getKey() {
+        return key;
+    }
+
+    /**
+     * Starts the worker process. The given executor is used to wait for the process to stop, so that a session does not hang when the process
+     * stops unexpectedly.
+     */
+    void start(Executor executor) {
+        workerProcess.start();
+
+        ObjectConnection connection = workerProcess.getConnection();
+        connection.useParameterSerializer(TestEventSerializer.create());
+        connection.addIncoming(TestWorkerSessionResultProcessor.class, new SessionResultProcessor());
+        remoteWorker = connection.addOutgoing(RemoteReusableTestWorker.class);
+        connection.connect();
+
+        executor.execute(new Runnable() {
+            public void run() {
+                Throwable failure = null;
+                try {
+                    workerProcess.waitForStop();
+                } catch (Throwable t) {
+                    failure = t;
+                }
+                synchronized (lock) {
+                    processStopped = true;
+                    processFailure = failure;
+                    lock.notifyAll();
+                }
+            }
+        });
+    }
+
+    void startSession(TestWorkerSession session, TestResultProcessor resultProcessor) {
+        synchronized (lock) {
+            sessionResultProcessor = resultProcessor;
+            sessionRunning = true;
+            isolationProblems = null;
+        }
+        remoteWorker.startSession(session);
+        remoteWorker.startProcessing();
+    }
+
+    void processTestClass(TestClassRunInfo testClass) {
+        remoteWorker.processTestClass(testClass);
+    }
+
+    /**
+     * Stops the current session, blocking until the worker has finished executing the tests of the session.
+     */
+    void stopSession() {
+        remoteWorker.stop();
+        synchronized (lock) {
+            try {
+                while (sessionRunning && !processStopped) {
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                throw new UncheckedException(e);
+            }
+            sessionRunning = false;
+            if (processFailure != null) {
+                throw UncheckedException.throwAsUncheckedException(processFailure);
+            }
+        }
+    }
+
+    /**
+     * Returns the reasons why this worker cannot run another session, or an empty list when it can.
+     */
+    List<String> getReuseProblems() {
+        synchronized (lock) {
+            List<String> problems = new ArrayList<String>();
+            if (processStopped) {
+                problems.add("the worker process has stopped");
+            } else if (isolationProblems == null) {
+                problems.add("the previous session did not complete");
+            } else {
+                problems.addAll(isolationProblems);
+            }
+            return problems;
+        }
+    }
+
+    boolean isAlive() {
+        synchronized (lock) {
+            return !processStopped;
+        }
+    }
+
+    /**
+     * Stops the worker process, blocking until it has exited or the stop timeout has expired. A process that does not exit in time is left to the
+     * shutdown hooks of this process.
+     */
+    @Override
+    public void stop() {
+        synchronized (lock) {
+            if (processStopped) {
+                return;
+            }
+        }
+        remoteWorker.stopWorker();
+        long expiry = System.currentTimeMillis() + STOP_TIMEOUT;
+        synchronized (lock) {
+            try {
+                for (long remaining = STOP_TIMEOUT; !processStopped && remaining > 0; remaining = expiry - System.currentTimeMillis()) {
+                    lock.wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                throw new UncheckedException(e);
+            }
+            if (!processStopped) {
+                LOGGER.warn("Timeout waiting for {} to stop.", workerProcess);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return workerProcess.toString();
+    }
+
+    private TestResultProcessor getSessionResultProcessor() {
+        synchronized (lock) {
+            return sessionResultProcessor;
+        }
+    }
+
+    private class SessionResultProcessor implements TestWorkerSessionResultProcessor {
+        @Override
+        public void started(TestDescriptorInternal test, TestStartEvent event) {
+            getSessionResultProcessor().started(test, event);
+        }
+
+        @Override
+        public void completed(Object testId, TestCompleteEvent event) {
+            getSessionResultProcessor().completed(testId, event);
+        }
+
+        @Override
+        public void output(Object testId, TestOutputEvent event) {
+            getSessionResultProcessor().output(testId, event);
+        }
+
+        @Override
+        public void failure(Object testId, Throwable result) {
+            getSessionResultProcessor().failure(testId, result);
+        }
+
+        @Override
+        public void sessionCompleted(ArrayList<String> isolationProblems) {
+            synchronized (lock) {
+                PooledTestWorker.this.isolationProblems = isolationProblems;
+                sessionRunning = false;
+                lock.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+/**
+ * A test worker that runs the tests of several test tasks, one session after another. A session is started with {@link #startSession(TestWorkerSession)},
+ * after which the worker behaves as a {@link RemoteTestClassProcessor}. The session ends with {@link #stop()}.
+ */
+public interface RemoteReusableTestWorker extends RemoteTestClassProcessor {
+    /**
+     * Does not block.
+     */
+    void startSession(TestWorkerSession session);
+
+    /**
+     * Stops the worker process. Does not block.
+     */
+    void stopWorker();
+}
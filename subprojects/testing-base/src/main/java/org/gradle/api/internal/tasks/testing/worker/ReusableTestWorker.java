@@ -0,0 +1,192 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classpath.DefaultClassPath;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.service.DefaultServiceRegistry;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.internal.WorkerProcessContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A test worker that runs the tests of one test task after another. The test framework is loaded by the system ClassLoader of the worker process,
+ * and the test classes of each session by a new ClassLoader that is discarded when the session stops.
+ *
+ * <p>When a session stops, its system properties are reset and the worker checks that the tests have not left anything running that could affect the
+ * next session. The problems found are reported with the end of the session, and the worker is then not reused.</p>
+ */
+public class ReusableTestWorker implements Action<WorkerProcessContext>, RemoteReusableTestWorker, Serializable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReusableTestWorker.class);
+    private static final long THREAD_STOP_TIMEOUT = 100;
+    private transient CountDownLatch stopped;
+    private transient ObjectConnection serverConnection;
+    private transient TestWorkerSessionResultProcessor resultProcessor;
+    private transient Session session;
+
+    @Override
+    public void execute(WorkerProcessContext workerProcessContext) {
+        LOGGER.info("{} started.", workerProcessContext.getDisplayName());
+
+        stopped = new CountDownLatch(1);
+        serverConnection = workerProcessContext.getServerConnection();
+        serverConnection.useParameterSerializer(TestEventSerializer.create());
+        resultProcessor = serverConnection.addOutgoing(TestWorkerSessionResultProcessor.class);
+        serverConnection.addIncoming(RemoteReusableTestWorker.class, this);
+        serverConnection.connect();
+
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            throw new UncheckedException(e);
+        } finally {
+            LOGGER.info("{} stopped.", workerProcessContext.getDisplayName());
+        }
+    }
+
+    @Override
+    public void startSession(TestWorkerSession details) {
+        Thread.currentThread().setName("Test worker");
+        LOGGER.info("{} started executing tests.", details.getDisplayName());
+        session = new Session(details, serverConnection);
+    }
+
+    @Override
+    public void startProcessing() {
+        Thread.currentThread().setName("Test worker");
+        session.processor.startProcessing(resultProcessor);
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        Thread.currentThread().setName("Test worker");
+        try {
+            session.processor.processTestClass(testClass);
+        } finally {
+            // Clean the interrupted status
+            Thread.interrupted();
+        }
+    }
+
+    @Override
+    public void stop() {
+        Thread.currentThread().setName("Test worker");
+        ArrayList<String> isolationProblems = new ArrayList<String>();
+        if (session == null) {
+            // startSession() failed, so the worker may have been left in any state
+            isolationProblems.add("the test session did not start");
+            resultProcessor.sessionCompleted(isolationProblems);
+            return;
+        }
+        try {
+            session.processor.stop();
+        } catch (RuntimeException e) {
+            isolationProblems.add("the test session failed: " + e);
+            throw e;
+        } finally {
+            isolationProblems.addAll(session.close());
+            LOGGER.info("{} finished executing tests.", session.details.getDisplayName());
+            session = null;
+            resultProcessor.sessionCompleted(isolationProblems);
+        }
+    }
+
+    @Override
+    public void stopWorker() {
+        stopped.countDown();
+    }
+
+    private static class Session {
+        private final TestWorkerSession details;
+        private final Properties systemProperties;
+        private final Set<Thread> threads;
+        private final URLClassLoader applicationClassLoader;
+        private final DefaultServiceRegistry testServices;
+        private final TestClassProcessor processor;
+
+        Session(final TestWorkerSession details, final ObjectConnection serverConnection) {
+            this.details = details;
+            systemProperties = (Properties) System.getProperties().clone();
+            threads = new HashSet<Thread>(Thread.getAllStackTraces().keySet());
+            applicationClassLoader = new URLClassLoader(new DefaultClassPath(details.getApplicationClasspath()).getAsURLArray(), ClassLoader.getSystemClassLoader());
+
+            System.setProperty(TestWorker.WORKER_ID_SYS_PROPERTY, String.valueOf(details.getId()));
+
+            WorkerProcessContext sessionContext = new WorkerProcessContext() {
+                public Object getWorkerId() {
+                    return details.getId();
+                }
+
+                public String getDisplayName() {
+                    return details.getDisplayName();
+                }
+
+                public ClassLoader getApplicationClassLoader() {
+                    return applicationClassLoader;
+                }
+
+                public ObjectConnection getServerConnection() {
+                    return serverConnection;
+                }
+            };
+            testServices = new TestWorker.TestFrameworkServiceRegistry(sessionContext);
+            processor = TestWorker.createProcessor(details.getProcessorFactory(), sessionContext, testServices);
+        }
+
+        /**
+         * Releases the resources of this session and restores the state of the worker, returning the problems that prevent the worker from being reused.
+         */
+        ArrayList<String> close() {
+            // Clean out any security manager the tests might have installed
+            System.setSecurityManager(null);
+            testServices.close();
+
+            ArrayList<String> problems = new ArrayList<String>();
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (!threads.contains(thread) && !thread.isDaemon() && isStillRunning(thread)) {
+                    problems.add(String.format("thread '%s' started by the tests is still running", thread.getName()));
+                }
+            }
+
+            System.setProperties(systemProperties);
+            CompositeStoppable.stoppable((Object) applicationClassLoader).stop();
+            return problems;
+        }
+
+        private static boolean isStillRunning(Thread thread) {
+            try {
+                thread.join(THREAD_STOP_TIMEOUT);
+            } catch (InterruptedException e) {
+                throw new UncheckedException(e);
+            }
+            return thread.isAlive();
+        }
+    }
+}
@@ -22,6 +22,8 @@ import org.gradle.api.tasks.testing.TestResult;
 import org.gradle.internal.id.CompositeIdGenerator;
 import org.gradle.internal.serialize.*;
 
+import java.util.ArrayList;
+
 public class TestEventSerializer {
     public static Serializer<Object[]> create() {
         BaseSerializerFactory factory = new BaseSerializerFactory();
@@ -37,6 +39,8 @@ public class TestEventSerializer {
         registry.register(TestCompleteEvent.class, new TestCompleteEventSerializer());
         registry.register(DefaultTestOutputEvent.class, new DefaultTestOutputEventSerializer());
         registry.register(Throwable.class, factory.getSerializerFor(Throwable.class));
+        registry.useJavaSerialization(TestWorkerSession.class);
+        registry.useJavaSerialization(ArrayList.class);
         return new ObjectArraySerializer(registry.build());
     }
 
@@ -80,6 +80,19 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
     }
 
     private void startReceivingTests(WorkerProcessContext workerProcessContext, ServiceRegistry testServices) {
+        processor = createProcessor(factory, workerProcessContext, testServices);
+
+        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
+        serverConnection.useParameterSerializer(TestEventSerializer.create());
+        this.resultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
+        serverConnection.addIncoming(RemoteTestClassProcessor.class, this);
+        serverConnection.connect();
+    }
+
+    /**
+     * Creates the processor that runs the test classes received by a worker, in the application ClassLoader of the given context.
+     */
+    static TestClassProcessor createProcessor(WorkerTestClassProcessorFactory factory, WorkerProcessContext workerProcessContext, ServiceRegistry testServices) {
         TestClassProcessor targetProcessor = factory.create(testServices);
         IdGenerator<Object> idGenerator = testServices.get(IdGenerator.class);
 
@@ -87,13 +100,7 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
                 workerProcessContext.getDisplayName(), testServices.get(TimeProvider.class));
         ContextClassLoaderProxy<TestClassProcessor> proxy = new ContextClassLoaderProxy<TestClassProcessor>(
                 TestClassProcessor.class, targetProcessor, workerProcessContext.getApplicationClassLoader());
-        processor = proxy.getSource();
-
-        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
-        serverConnection.useParameterSerializer(TestEventSerializer.create());
-        this.resultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
-        serverConnection.addIncoming(RemoteTestClassProcessor.class, this);
-        serverConnection.connect();
+        return proxy.getSource();
     }
 
     @Override
@@ -123,7 +130,7 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         }
     }
 
-    private static class TestFrameworkServiceRegistry extends DefaultServiceRegistry {
+    static class TestFrameworkServiceRegistry extends DefaultServiceRegistry {
         private final WorkerProcessContext workerProcessContext;
 
         public TestFrameworkServiceRegistry(WorkerProcessContext workerProcessContext) {
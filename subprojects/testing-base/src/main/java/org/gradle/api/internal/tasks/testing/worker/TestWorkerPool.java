@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.process.internal.WorkerProcess;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps test worker processes alive between test tasks, so that later test tasks, in this build or in later builds run by the same process, can
+ * use an already started and warmed up JVM. A worker is only handed out to test tasks that would start a worker process with the same key.
+ *
+ * <p>At most one idle worker per available processor is kept; the least recently used workers are stopped first. Workers are only pooled when
+ * {@link PooledForkingTestClassProcessor#canReuseWorker} allows it, which excludes JVMs older than Java 7 as they cannot close the jars opened by
+ * a session.</p>
+ */
+public class TestWorkerPool implements Stoppable {
+    /**
+     * When this system property is set to true, JUnit test tasks run their tests in pooled worker processes.
+     */
+    public static final String REUSE_WORKERS_PROPERTY = "org.gradle.testing.reuseWorkers";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestWorkerPool.class);
+
+    private final StoppableExecutor executor;
+    private final int maxIdleWorkers;
+    private final AtomicLong nextSessionId = new AtomicLong();
+    private final LinkedList<PooledTestWorker> idleWorkers = new LinkedList<PooledTestWorker>();
+    private boolean stopped;
+
+    public TestWorkerPool(ExecutorFactory executorFactory) {
+        this(executorFactory, Runtime.getRuntime().availableProcessors());
+    }
+
+    TestWorkerPool(ExecutorFactory executorFactory, int maxIdleWorkers) {
+        this.executor = executorFactory.create("Test worker pool");
+        this.maxIdleWorkers = maxIdleWorkers;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(REUSE_WORKERS_PROPERTY);
+    }
+
+    long nextSessionId() {
+        return nextSessionId.incrementAndGet();
+    }
+
+    /**
+     * Returns an idle worker with the given key, or starts a new one when there is none.
+     */
+    PooledTestWorker acquire(Object key, Factory<WorkerProcess> workerProcessFactory) {
+        synchronized (idleWorkers) {
+            for (Iterator<PooledTestWorker> iterator = idleWorkers.iterator(); iterator.hasNext();) {
+                PooledTestWorker worker = iterator.next();
+                if (!worker.isAlive()) {
+                    iterator.remove();
+                } else if (worker.getKey().equals(key)) {
+                    iterator.remove();
+                    LOGGER.debug("Reusing {}.", worker);
+                    return worker;
+                }
+            }
+        }
+
+        PooledTestWorker worker = new PooledTestWorker(key, workerProcessFactory.create());
+        worker.start(executor);
+        return worker;
+    }
+
+    /**
+     * Returns a worker whose session has stopped to the pool. The worker is stopped when it cannot be reused, or when there are too many idle workers.
+     */
+    void release(PooledTestWorker worker) {
+        List<String> problems = worker.getReuseProblems();
+        if (!problems.isEmpty()) {
+            LOGGER.info("Not reusing {}, because {}.", worker, problems);
+            worker.stop();
+            return;
+        }
+
+        PooledTestWorker evicted = null;
+        synchronized (idleWorkers) {
+            if (stopped) {
+                evicted = worker;
+            } else {
+                idleWorkers.addFirst(worker);
+                if (idleWorkers.size() > maxIdleWorkers) {
+                    evicted = idleWorkers.removeLast();
+                }
+            }
+        }
+        if (evicted != null) {
+            evicted.stop();
+        }
+    }
+
+    @Override
+    public void stop() {
+        List<PooledTestWorker> workers;
+        synchronized (idleWorkers) {
+            stopped = true;
+            workers = new ArrayList<PooledTestWorker>(idleWorkers);
+            idleWorkers.clear();
+        }
+        CompositeStoppable.stoppable(workers).stop();
+        executor.stop(PooledTestWorker.STOP_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+}
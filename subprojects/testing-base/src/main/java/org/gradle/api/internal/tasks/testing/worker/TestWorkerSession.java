@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The test task specific details of a session of a {@link RemoteReusableTestWorker}.
+ */
+public class TestWorkerSession implements Serializable {
+    private final WorkerTestClassProcessorFactory processorFactory;
+    private final List<File> applicationClasspath;
+    private final long id;
+    private final String displayName;
+
+    public TestWorkerSession(WorkerTestClassProcessorFactory processorFactory, List<File> applicationClasspath, long id, String displayName) {
+        this.processorFactory = processorFactory;
+        this.applicationClasspath = applicationClasspath;
+        this.id = id;
+        this.displayName = displayName;
+    }
+
+    public WorkerTestClassProcessorFactory getProcessorFactory() {
+        return processorFactory;
+    }
+
+    /**
+     * The classpath to load the test classes from, in addition to the classpath of the worker process.
+     */
+    public List<File> getApplicationClasspath() {
+        return applicationClasspath;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
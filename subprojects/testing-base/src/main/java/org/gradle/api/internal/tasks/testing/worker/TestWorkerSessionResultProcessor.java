@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+
+import java.util.ArrayList;
+
+/**
+ * Receives the results of a session of a {@link RemoteReusableTestWorker}. The end of the session is reported on the same channel as its results,
+ * so that it is received after all of them.
+ */
+public interface TestWorkerSessionResultProcessor extends TestResultProcessor {
+    /**
+     * Called when the session has stopped.
+     *
+     * @param isolationProblems The reasons why the worker should not be used for another session. Empty when the worker can be reused.
+     */
+    void sessionCompleted(ArrayList<String> isolationProblems);
+}
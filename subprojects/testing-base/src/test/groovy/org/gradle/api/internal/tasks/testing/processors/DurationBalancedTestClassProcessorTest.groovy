@@ -0,0 +1,230 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassDescriptor
+import org.gradle.api.internal.tasks.testing.DefaultTestMethodDescriptor
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.TestStartEvent
+import org.gradle.internal.Factory
+import org.gradle.messaging.actor.Actor
+import org.gradle.messaging.actor.ActorFactory
+import org.gradle.messaging.dispatch.MethodInvocation
+import spock.lang.Specification
+
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class DurationBalancedTestClassProcessorTest extends Specification {
+    private final Factory<TestClassProcessor> factory = Mock()
+    private final TestResultProcessor resultProcessor = Mock()
+    private final ActorFactory actorFactory = Stub() {
+        createActor(_) >> { args -> new DirectActor(args[0]) }
+    }
+
+    def doesNothingWhenNoTestsProcessed() {
+        def processor = new DurationBalancedTestClassProcessor(2, factory, actorFactory, [:])
+        processor.startProcessing(resultProcessor)
+
+        when:
+        processor.stop()
+
+        then:
+        0 * factory.create()
+    }
+
+    def handsOutLongestTestClassesFirstAndPullsNextTestClassWhenProcessorCompletesOne() {
+        def processor = new DurationBalancedTestClassProcessor(2, factory, actorFactory, [slow: 5000L, medium: 3000L, fast: 1500L])
+        def busyProcessor = new RecordingProcessor(false)
+        def completingProcessor = new RecordingProcessor(true)
+        processor.startProcessing(resultProcessor)
+
+        when:
+        ["fast", "unknown", "medium", "slow"].each { processor.processTestClass(testClass(it)) }
+        processor.stop()
+
+        then:
+        2 * factory.create() >>> [busyProcessor, completingProcessor]
+        3 * resultProcessor.started(_, _)
+        3 * resultProcessor.completed(_, _)
+
+        and:
+        busyProcessor.received == ["slow"]
+        // a test class without previous duration is assumed to take the average duration
+        completingProcessor.received == ["unknown", "medium", "fast"]
+        busyProcessor.stopped
+        completingProcessor.stopped
+    }
+
+    def queuesShortTestClassesAheadInProcessors() {
+        def processor = new DurationBalancedTestClassProcessor(2, factory, actorFactory, [a: 40L, b: 30L, c: 20L, d: 10L])
+        def processor1 = new RecordingProcessor(false)
+        def processor2 = new RecordingProcessor(false)
+        processor.startProcessing(resultProcessor)
+
+        when:
+        ["a", "b", "c", "d"].each { processor.processTestClass(testClass(it)) }
+        processor.stop()
+
+        then:
+        2 * factory.create() >>> [processor1, processor2]
+        processor1.received == ["a", "b"]
+        processor2.received == ["c", "d"]
+    }
+
+    def handsOutRemainingTestClassesRoundRobinWhenNoTestClassCompletes() {
+        def processor = new DurationBalancedTestClassProcessor(2, factory, actorFactory, [a: 5000L, b: 4000L, c: 3000L, d: 2000L, e: 1500L], 10)
+        def processor1 = new RecordingProcessor(false)
+        def processor2 = new RecordingProcessor(false)
+        processor.startProcessing(resultProcessor)
+
+        when:
+        ["e", "d", "c", "b", "a"].each { processor.processTestClass(testClass(it)) }
+        processor.stop()
+
+        then:
+        2 * factory.create() >>> [processor1, processor2]
+        processor1.received == ["a", "c", "e"]
+        processor2.received == ["b", "d"]
+        processor1.stopped
+        processor2.stopped
+    }
+
+    def doesNotTakeProcessorThatIsRunningLongTestClassForStalledWhenNoDurationsAreKnown() {
+        def processor = new DurationBalancedTestClassProcessor(2, factory, actorFactory, [:], 200)
+        // Each test class runs the given number of 10 ms tests, so "a" and "c" run longer than the stall timeout
+        def processor1 = new RunningProcessor([a: 80, b: 1])
+        def processor2 = new RunningProcessor([c: 30, d: 1, e: 1])
+        processor.startProcessing(resultProcessor)
+
+        when:
+        ["a", "b", "c", "d", "e"].each { processor.processTestClass(testClass(it)) }
+        processor.stop()
+
+        then:
+        2 * factory.create() >>> [processor1, processor2]
+        processor1.received == ["a", "b"]
+        processor2.received == ["c", "d", "e"]
+    }
+
+    def startsNoMoreProcessorsThanThereAreTestClasses() {
+        def processor = new DurationBalancedTestClassProcessor(4, factory, actorFactory, [:])
+        def processor1 = new RecordingProcessor(true)
+        processor.startProcessing(resultProcessor)
+
+        when:
+        processor.processTestClass(testClass("a"))
+        processor.stop()
+
+        then:
+        1 * factory.create() >> processor1
+        processor1.received == ["a"]
+    }
+
+    private TestClassRunInfo testClass(String name) {
+        return Stub(TestClassRunInfo) {
+            getTestClassName() >> name
+        }
+    }
+
+    private static class RecordingProcessor implements TestClassProcessor {
+        final boolean completesTestClasses
+        final List<String> received = []
+        TestResultProcessor resultProcessor
+        boolean stopped
+
+        RecordingProcessor(boolean completesTestClasses) {
+            this.completesTestClasses = completesTestClasses
+        }
+
+        void startProcessing(TestResultProcessor resultProcessor) {
+            this.resultProcessor = resultProcessor
+        }
+
+        void processTestClass(TestClassRunInfo testClass) {
+            received << testClass.testClassName
+            if (completesTestClasses) {
+                def descriptor = new DefaultTestClassDescriptor(testClass.testClassName + "-id", testClass.testClassName)
+                resultProcessor.started(descriptor, new TestStartEvent(0))
+                resultProcessor.completed(descriptor.id, new TestCompleteEvent(0))
+            }
+        }
+
+        void stop() {
+            stopped = true
+        }
+    }
+
+    private static class RunningProcessor implements TestClassProcessor {
+        final Map<String, Integer> testCounts
+        final List<String> received = []
+        final ExecutorService executor = Executors.newSingleThreadExecutor()
+        TestResultProcessor resultProcessor
+
+        RunningProcessor(Map<String, Integer> testCounts) {
+            this.testCounts = testCounts
+        }
+
+        void startProcessing(TestResultProcessor resultProcessor) {
+            this.resultProcessor = resultProcessor
+        }
+
+        void processTestClass(TestClassRunInfo testClass) {
+            def className = testClass.testClassName
+            received << className
+            executor.execute {
+                def descriptor = new DefaultTestClassDescriptor(className + "-id", className)
+                resultProcessor.started(descriptor, new TestStartEvent(0))
+                testCounts[className].times { index ->
+                    def test = new DefaultTestMethodDescriptor("$className-$index", className, "test$index")
+                    resultProcessor.started(test, new TestStartEvent(0, descriptor.id))
+                    Thread.sleep(10)
+                    resultProcessor.completed(test.id, new TestCompleteEvent(0))
+                }
+                resultProcessor.completed(descriptor.id, new TestCompleteEvent(0))
+            }
+        }
+
+        void stop() {
+            executor.shutdown()
+            executor.awaitTermination(10, TimeUnit.SECONDS)
+        }
+    }
+
+    private static class DirectActor implements Actor {
+        final Object target
+
+        DirectActor(Object target) {
+            this.target = target
+        }
+
+        def <T> T getProxy(Class<T> type) {
+            return type.cast(target)
+        }
+
+        void dispatch(MethodInvocation message) {
+            throw new UnsupportedOperationException()
+        }
+
+        void stop() {
+        }
+    }
+}
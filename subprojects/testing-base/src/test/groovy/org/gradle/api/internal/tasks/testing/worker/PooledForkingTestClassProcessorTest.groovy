@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.internal.jvm.Jvm
+import org.gradle.process.JavaForkOptions
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class PooledForkingTestClassProcessorTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def "splits classpath into entries that contain the given packages and other entries"() {
+        def frameworkDir = tmpDir.createDir("framework")
+        frameworkDir.file("org/junit/Test.class").createFile()
+        def frameworkJar = tmpDir.file("hamcrest.jar")
+        def frameworkJarContents = tmpDir.createDir("hamcrest")
+        frameworkJarContents.file("org/hamcrest/Matcher.class").createFile()
+        frameworkJarContents.zipTo(frameworkJar)
+        def testClassesDir = tmpDir.createDir("classes")
+        testClassesDir.file("org/junitx/SomeTest.class").createFile()
+        def libJar = tmpDir.file("lib.jar")
+        def libJarContents = tmpDir.createDir("lib")
+        libJarContents.file("org/Lib.class").createFile()
+        libJarContents.zipTo(libJar)
+        def missing = tmpDir.file("missing.jar")
+
+        def framework = []
+        def session = []
+
+        when:
+        PooledForkingTestClassProcessor.splitClasspath([testClassesDir, frameworkDir, libJar, frameworkJar, missing], ["org.junit", "org.hamcrest"], framework, session)
+
+        then:
+        framework == [frameworkDir, frameworkJar]
+        session == [testClassesDir, libJar, missing]
+    }
+
+    def "checks the contents of a jar again when it has changed"() {
+        def jar = tmpDir.file("lib.jar")
+        def jarContents = tmpDir.createDir("lib")
+        jarContents.file("org/Lib.class").createFile()
+        jarContents.zipTo(jar)
+
+        def framework = []
+        def session = []
+
+        when:
+        PooledForkingTestClassProcessor.splitClasspath([jar], ["org.junit"], framework, session)
+
+        then:
+        framework == []
+        session == [jar]
+
+        when:
+        jarContents.file("org/junit/Test.class").createFile()
+        jarContents.zipTo(jar)
+        framework.clear()
+        session.clear()
+        PooledForkingTestClassProcessor.splitClasspath([jar], ["org.junit"], framework, session)
+
+        then:
+        framework == [jar]
+        session == []
+    }
+
+    def "does not reuse workers that use java agents"() {
+        def options = Stub(JavaForkOptions) {
+            getExecutable() >> Jvm.current().javaExecutable.absolutePath
+            getAllJvmArgs() >> jvmArgs
+        }
+
+        expect:
+        PooledForkingTestClassProcessor.canReuseWorker(options) == reusable
+
+        where:
+        jvmArgs                                               | reusable
+        []                                                    | true
+        ["-Xmx512m", "-Dsome.property=value"]                 | true
+        ["-Xmx512m", "-javaagent:jacocoagent.jar=destfile=x"] | false
+        ["-agentlib:jdwp=transport=dt_socket,server=y"]       | false
+        ["-agentpath:/lib/libagent.so"]                       | false
+    }
+
+    def "does not reuse workers that run on another java executable"() {
+        def options = Stub(JavaForkOptions) {
+            getExecutable() >> tmpDir.file("other-jdk/bin/java").absolutePath
+            getAllJvmArgs() >> []
+        }
+
+        expect:
+        !PooledForkingTestClassProcessor.canReuseWorker(options)
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.StoppableExecutor
+import org.gradle.messaging.remote.ObjectConnection
+import org.gradle.process.internal.WorkerProcess
+import spock.lang.Specification
+
+class TestWorkerPoolTest extends Specification {
+    def executor = Mock(StoppableExecutor)
+    def executorFactory = Stub(ExecutorFactory) {
+        create(_) >> executor
+    }
+    def pool = new TestWorkerPool(executorFactory, 1)
+    def watchers = []
+    def created = 0
+    def stopped = []
+
+    def setup() {
+        _ * executor.execute(_) >> { Runnable watcher -> watchers << watcher }
+    }
+
+    def "reuses idle worker with the same key"() {
+        when:
+        def worker = runSession("key", [])
+        def reused = pool.acquire("key", processFactory([]))
+
+        then:
+        reused.is(worker)
+        created == 1
+
+        when:
+        def other = pool.acquire("other", processFactory([]))
+
+        then:
+        !other.is(worker)
+        created == 2
+    }
+
+    def "stops worker whose session reports isolation problems"() {
+        when:
+        def worker = runSession("key", ["thread 'leaked' started by the tests is still running"])
+
+        then:
+        stopped == [0]
+        !worker.alive
+
+        when:
+        def next = pool.acquire("key", processFactory([]))
+
+        then:
+        !next.is(worker)
+        created == 2
+    }
+
+    def "stops least recently used idle worker when there are too many idle workers"() {
+        when:
+        def first = runSession("first", [])
+        def second = runSession("second", [])
+
+        then:
+        stopped == [0]
+        !first.alive
+        second.alive
+    }
+
+    def "stops idle workers when stopped"() {
+        def worker = runSession("key", [])
+
+        when:
+        pool.stop()
+
+        then:
+        stopped == [0]
+        !worker.alive
+        1 * executor.stop(_, _)
+    }
+
+    private PooledTestWorker runSession(Object key, List<String> isolationProblems) {
+        def worker = pool.acquire(key, processFactory(isolationProblems))
+        worker.startSession(new TestWorkerSession(null, [], pool.nextSessionId(), "session"), Stub(TestResultProcessor))
+        worker.stopSession()
+        pool.release(worker)
+        return worker
+    }
+
+    private Factory<WorkerProcess> processFactory(List<String> isolationProblems) {
+        def index = -1
+        def remote = Mock(RemoteReusableTestWorker)
+        def connection = Stub(ObjectConnection)
+        TestWorkerSessionResultProcessor sessionResultProcessor = null
+        connection.addIncoming(TestWorkerSessionResultProcessor, _) >> { Class type, TestWorkerSessionResultProcessor processor -> sessionResultProcessor = processor }
+        connection.addOutgoing(RemoteReusableTestWorker) >> remote
+        remote.stop() >> { sessionResultProcessor.sessionCompleted(new ArrayList<String>(isolationProblems)) }
+        remote.stopWorker() >> {
+            stopped << index
+            watchers[index].run()
+        }
+        def process = Stub(WorkerProcess) {
+            getConnection() >> connection
+        }
+        return {
+            index = created++
+            return process
+        } as Factory
+    }
+}
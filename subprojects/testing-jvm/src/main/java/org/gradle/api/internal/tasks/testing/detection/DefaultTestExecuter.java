@@ -18,13 +18,20 @@ package org.gradle.api.internal.tasks.testing.detection;
 
 import org.gradle.api.file.FileTree;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.internal.tasks.testing.junit.JUnitTestFramework;
+import org.gradle.api.internal.tasks.testing.processors.DurationBalancedTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.processors.FilteringTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.PooledForkingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
+import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.internal.Factory;
 import org.gradle.internal.TrueTimeProvider;
@@ -32,24 +39,70 @@ import org.gradle.internal.progress.OperationIdGenerator;
 import org.gradle.messaging.actor.ActorFactory;
 import org.gradle.process.internal.WorkerProcessBuilder;
 
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * The default test class scanner factory.
  */
 public class DefaultTestExecuter implements TestExecuter {
+    /**
+     * When this system property is set to true, test classes are distributed across parallel forks longest first, using the durations of the
+     * previous execution, rather than round-robin.
+     */
+    public static final String DURATION_BALANCED_FORKS_PROPERTY = "org.gradle.testing.durationBalancedForks";
+
     private final Factory<WorkerProcessBuilder> workerFactory;
     private final ActorFactory actorFactory;
+    private final Map<String, Long> previousClassDurations;
+    private final TestWorkerPool workerPool;
+    private final Spec<? super TestClassRunInfo> testClassSelection;
 
     public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactory) {
+        this(workerFactory, actorFactory, Collections.<String, Long>emptyMap(), null, null);
+    }
+
+    /**
+     * @param workerPool The pool to take reusable worker processes from, or null to always start new worker processes.
+     * @param testClassSelection The test classes to execute, or null to execute all test classes.
+     */
+    public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactory, Map<String, Long> previousClassDurations,
+                               TestWorkerPool workerPool, Spec<? super TestClassRunInfo> testClassSelection) {
         this.workerFactory = workerFactory;
         this.actorFactory = actorFactory;
+        this.previousClassDurations = previousClassDurations;
+        this.workerPool = workerPool;
+        this.testClassSelection = testClassSelection;
+    }
+
+    /**
+     * Returns true when the test classes of the given task are distributed using their previous durations. Only test frameworks that run each test
+     * class as soon as it is received report the completion of test classes early enough for this.
+     */
+    public static boolean isDurationBalanced(Test testTask) {
+        return Boolean.getBoolean(DURATION_BALANCED_FORKS_PROPERTY) && testTask.getMaxParallelForks() > 1 && testTask.getTestFramework() instanceof JUnitTestFramework;
+    }
+
+    /**
+     * Returns true when the tests of the given task run in worker processes from the worker pool. Only JUnit is supported, as the classes of the
+     * other test frameworks are not separated from the test classes when the classpath is split.
+     */
+    private boolean isReusingWorkers(Test testTask) {
+        return workerPool != null && TestWorkerPool.isEnabled() && testTask.getTestFramework() instanceof JUnitTestFramework
+            && PooledForkingTestClassProcessor.canReuseWorker(testTask);
     }
 
     @Override
     public void execute(final Test testTask, TestResultProcessor testResultProcessor) {
         final TestFramework testFramework = testTask.getTestFramework();
         final WorkerTestClassProcessorFactory testInstanceFactory = testFramework.getProcessorFactory();
+        final boolean reuseWorkers = isReusingWorkers(testTask);
         final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
             public TestClassProcessor create() {
+                if (reuseWorkers) {
+                    return new PooledForkingTestClassProcessor(workerPool, workerFactory, testInstanceFactory, testTask,
+                        testTask.getClasspath(), testFramework.getWorkerConfigurationAction());
+                }
                 return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
                     testTask.getClasspath(), testFramework.getWorkerConfigurationAction());
             }
@@ -60,8 +113,17 @@ public class DefaultTestExecuter implements TestExecuter {
             }
         };
 
-        TestClassProcessor processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(),
-            reforkingProcessorFactory, actorFactory);
+        TestClassProcessor processor;
+        if (isDurationBalanced(testTask)) {
+            processor = new DurationBalancedTestClassProcessor(testTask.getMaxParallelForks(),
+                reforkingProcessorFactory, actorFactory, previousClassDurations);
+        } else {
+            processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(),
+                reforkingProcessorFactory, actorFactory);
+        }
+        if (testClassSelection != null) {
+            processor = new FilteringTestClassProcessor(processor, testClassSelection);
+        }
 
         final FileTree testClassFiles = testTask.getCandidateClassFiles();
 
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.impact;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
+import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
+import org.gradle.api.internal.tasks.testing.junit.result.TestOutputStore;
+import org.gradle.api.internal.tasks.testing.junit.result.TestResultSerializer;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.concurrent.CompositeStoppable;
+
+import java.io.File;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Carries the results of the test classes that were skipped by {@link TestImpactAnalysis} over from the binary results of the previous execution of a test task,
+ * so that the test reports still include every test class. The results are given new ids, and their output is copied into the output store of the current execution
+ * one output event at a time.
+ */
+public class SkippedTestClassResults {
+    private final File previousResultsDir;
+
+    /**
+     * @param previousResultsDir The binary results directory of the previous execution.
+     */
+    public SkippedTestClassResults(File previousResultsDir) {
+        this.previousResultsDir = previousResultsDir;
+    }
+
+    /**
+     * Adds the previous results of the given test classes to the results of the current execution, unless the current execution has results for them.
+     *
+     * @return The number of test classes whose results were added.
+     */
+    public int addTo(final Set<String> skippedClasses, final Map<String, TestClassResult> results, final TestOutputStore.Writer outputWriter) {
+        TestResultSerializer serializer = new TestResultSerializer(previousResultsDir);
+        if (skippedClasses.isEmpty() || !serializer.isHasResults()) {
+            return 0;
+        }
+        final long[] nextId = {maxId(results) + 1};
+        final int[] added = {0};
+        final TestOutputStore.Reader outputReader = new TestOutputStore(previousResultsDir).reader();
+        try {
+            serializer.read(new Action<TestClassResult>() {
+                public void execute(TestClassResult previousResult) {
+                    String className = previousResult.getClassName();
+                    if (!skippedClasses.contains(className) || results.containsKey(className)) {
+                        return;
+                    }
+                    TestClassResult classResult = new TestClassResult(nextId[0]++, className, previousResult.getStartTime());
+                    for (TestOutputEvent.Destination destination : TestOutputEvent.Destination.values()) {
+                        if (!outputReader.hasOutput(previousResult.getId(), destination)) {
+                            continue;
+                        }
+                        outputReader.writeNonTestOutput(previousResult.getId(), destination, new OutputForwarder(outputWriter, classResult.getId(), 0, destination));
+                        for (TestMethodResult methodResult : previousResult.getResults()) {
+                            outputReader.writeTestOutput(previousResult.getId(), methodResult.getId(), destination, new OutputForwarder(outputWriter, classResult.getId(), methodResult.getId(), destination));
+                        }
+                    }
+                    for (TestMethodResult methodResult : previousResult.getResults()) {
+                        classResult.add(methodResult);
+                    }
+                    results.put(className, classResult);
+                    added[0]++;
+                }
+            });
+        } finally {
+            CompositeStoppable.stoppable(outputReader).stop();
+        }
+        return added[0];
+    }
+
+    private static long maxId(Map<String, TestClassResult> results) {
+        long maxId = 0;
+        for (TestClassResult classResult : results.values()) {
+            maxId = Math.max(maxId, classResult.getId());
+            for (TestMethodResult methodResult : classResult.getResults()) {
+                maxId = Math.max(maxId, methodResult.getId());
+            }
+        }
+        return maxId;
+    }
+
+    /**
+     * Writes each chunk of output it receives to the output store as a separate output event.
+     */
+    private static class OutputForwarder extends Writer {
+        private final TestOutputStore.Writer outputWriter;
+        private final long classId;
+        private final long testId;
+        private final TestOutputEvent.Destination destination;
+
+        OutputForwarder(TestOutputStore.Writer outputWriter, long classId, long testId, TestOutputEvent.Destination destination) {
+            this.outputWriter = outputWriter;
+            this.classId = classId;
+            this.testId = testId;
+            this.destination = destination;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            if (length > 0) {
+                outputWriter.onOutput(classId, testId, new DefaultTestOutputEvent(destination, new String(buffer, offset, length)));
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
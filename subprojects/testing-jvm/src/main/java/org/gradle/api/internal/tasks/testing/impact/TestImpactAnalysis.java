@@ -0,0 +1,335 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.impact;
+
+import com.google.common.collect.Sets;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.EmptyFileVisitor;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.internal.changedetection.state.FileSnapshotter;
+import org.gradle.api.internal.file.collections.DirectoryFileTree;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAnalysis;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.DefaultClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassDependentsAccumulator;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysis;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysisData;
+import org.gradle.api.internal.tasks.compile.incremental.deps.DependentsSet;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.specs.Spec;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Selects the test classes of a test task that can be affected by the changes made since the previous execution of the task. A test class is selected when
+ * it, or any class it transitively depends on, has changed, or when it failed in the previous execution.
+ *
+ * <p>The class dependencies are calculated from the class files in the directories of the test runtime classpath, using the same analysis as incremental
+ * Java compilation. The class files are hashed using the file snapshotter of the task history, and only the classes that have changed since the previous
+ * execution are analyzed again. All test classes are selected whenever the analysis cannot be trusted: when there is no previous state, or when the test configuration,
+ * a jar or a resource has changed, or when a changed class can affect any class that uses it, for example because it declares a constant.</p>
+ */
+public class TestImpactAnalysis implements Spec<TestClassRunInfo> {
+    /**
+     * When this system property is set to true, test tasks only execute the test classes that can be affected by the changes since their previous execution.
+     */
+    public static final String TEST_IMPACT_ANALYSIS_PROPERTY = "org.gradle.testing.impactAnalysis";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestImpactAnalysis.class);
+    private static final int STATE_VERSION = 2;
+
+    private final File stateFile;
+    private final FileSnapshotter fileSnapshotter;
+    private final DefaultClassDependenciesAnalyzer analyzer = new DefaultClassDependenciesAnalyzer();
+    private State currentState;
+    private Set<String> selectedClasses;
+    private final Set<String> skippedClasses = Sets.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    public TestImpactAnalysis(File stateFile, FileSnapshotter fileSnapshotter) {
+        this.stateFile = stateFile;
+        this.fileSnapshotter = fileSnapshotter;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(TEST_IMPACT_ANALYSIS_PROPERTY);
+    }
+
+    /**
+     * Snapshots the given classpath and selects the test classes affected by the changes since the previous execution. Must be called before the state of
+     * the previous execution is removed.
+     *
+     * @param configuration The settings of the test task that influence the outcome of every test class.
+     */
+    public void analyze(Iterable<File> classpath, List<String> configuration) {
+        State previousState = readPreviousState();
+        currentState = snapshot(classpath, configuration, previousState);
+        ClassDependentsAccumulator accumulator = new ClassDependentsAccumulator("");
+        for (Map.Entry<String, ClassAnalysis> entry : currentState.analyses.entrySet()) {
+            accumulator.addClass(entry.getKey(), entry.getValue().isDependencyToAll(), entry.getValue().getClassDependencies());
+        }
+        ClassSetAnalysis classSetAnalysis = new ClassSetAnalysis(new ClassSetAnalysisData(accumulator.getDependentsMap()));
+        selectedClasses = selectTestClasses(previousState, currentState, classSetAnalysis);
+    }
+
+    private Set<String> selectTestClasses(State previousState, State currentState, ClassSetAnalysis classSetAnalysis) {
+        if (previousState == null) {
+            LOGGER.info("Executing all test classes, as the state of the previous execution is not available.");
+            return null;
+        }
+        if (!previousState.configuration.equals(currentState.configuration)) {
+            LOGGER.info("Executing all test classes, as the test configuration has changed.");
+            return null;
+        }
+        if (!previousState.files.equals(currentState.files)) {
+            LOGGER.info("Executing all test classes, as a jar or resource on the test runtime classpath has changed.");
+            return null;
+        }
+
+        Set<String> changedClasses = new HashSet<String>();
+        for (Map.Entry<String, String> entry : currentState.classes.entrySet()) {
+            if (!entry.getValue().equals(previousState.classes.get(entry.getKey()))) {
+                changedClasses.add(entry.getKey());
+            }
+        }
+        for (String className : previousState.classes.keySet()) {
+            if (!currentState.classes.containsKey(className)) {
+                changedClasses.add(className);
+            }
+        }
+
+        DependentsSet dependents = classSetAnalysis.getRelevantDependents(changedClasses);
+        if (dependents.isDependencyToAll()) {
+            LOGGER.info("Executing all test classes, as a changed class can affect all classes that use it.");
+            return null;
+        }
+
+        LOGGER.info("{} classes have changed since the previous execution, {} test classes failed in the previous execution.", changedClasses.size(), previousState.failedTestClasses.size());
+        Set<String> selectedClasses = new HashSet<String>(changedClasses);
+        selectedClasses.addAll(dependents.getDependentClasses());
+        selectedClasses.addAll(previousState.failedTestClasses);
+        return selectedClasses;
+    }
+
+    /**
+     * Returns true when the given test class should be executed.
+     */
+    @Override
+    public boolean isSatisfiedBy(TestClassRunInfo testClass) {
+        if (selectedClasses == null) {
+            return true;
+        }
+        String className = testClass.getTestClassName();
+        if (selectedClasses.contains(className)) {
+            return true;
+        }
+        int nestedClassSeparator = className.indexOf('$');
+        if (nestedClassSeparator > 0 && selectedClasses.contains(className.substring(0, nestedClassSeparator))) {
+            return true;
+        }
+        skippedClasses.add(className);
+        return false;
+    }
+
+    /**
+     * Returns the number of test classes that were not executed, as they are not affected by the changes since the previous execution.
+     */
+    public int getSkippedClassCount() {
+        return skippedClasses.size();
+    }
+
+    /**
+     * Returns the names of the test classes that were not executed, as they are not affected by the changes since the previous execution.
+     */
+    public Set<String> getSkippedClasses() {
+        return skippedClasses;
+    }
+
+    /**
+     * Stores the classpath snapshot taken by {@link #analyze}, along with the test classes that failed, for use by the next execution.
+     */
+    public void store(Collection<String> failedTestClasses) {
+        currentState.failedTestClasses.addAll(failedTestClasses);
+        try {
+            OutputStream outputStream = new FileOutputStream(stateFile);
+            try {
+                FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                encoder.writeSmallInt(STATE_VERSION);
+                currentState.write(encoder);
+                encoder.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Could not write test impact analysis state to %s.", stateFile), e);
+        }
+    }
+
+    private State readPreviousState() {
+        if (!stateFile.isFile()) {
+            return null;
+        }
+        try {
+            InputStream inputStream = new FileInputStream(stateFile);
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                if (decoder.readSmallInt() != STATE_VERSION) {
+                    return null;
+                }
+                return State.read(decoder);
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            LOGGER.info("Could not read test impact analysis state from {}.", stateFile, e);
+            return null;
+        }
+    }
+
+    private State snapshot(Iterable<File> classpath, List<String> configuration, final State previousState) {
+        final State state = new State(configuration);
+        for (File file : classpath) {
+            if (file.isDirectory()) {
+                new DirectoryFileTree(file).visit(new EmptyFileVisitor() {
+                    @Override
+                    public void visitFile(FileVisitDetails fileDetails) {
+                        String path = fileDetails.getPath();
+                        String hash = fileSnapshotter.snapshot(fileDetails).getHash().asHexString();
+                        if (!path.endsWith(".class")) {
+                            state.files.put(fileDetails.getFile().getAbsolutePath(), hash);
+                            return;
+                        }
+                        String className = path.substring(0, path.length() - ".class".length()).replace('/', '.');
+                        if (state.classes.containsKey(className)) {
+                            // Hidden by an earlier classpath entry
+                            return;
+                        }
+                        state.classes.put(className, hash);
+                        ClassAnalysis analysis = null;
+                        if (previousState != null && hash.equals(previousState.classes.get(className))) {
+                            analysis = previousState.analyses.get(className);
+                        }
+                        if (analysis == null) {
+                            analysis = analyzer.getClassAnalysis(className, fileDetails.getFile());
+                        }
+                        state.analyses.put(className, analysis);
+                    }
+                });
+            } else if (file.isFile()) {
+                // Jars are compared by timestamp, a jar that has been rebuilt with the same content only causes all tests to be executed
+                state.files.put(file.getAbsolutePath(), file.length() + ":" + file.lastModified());
+            }
+        }
+        return state;
+    }
+
+    private static class State {
+        final List<String> configuration;
+        final Map<String, String> files = new HashMap<String, String>();
+        final Map<String, String> classes = new HashMap<String, String>();
+        final Map<String, ClassAnalysis> analyses = new HashMap<String, ClassAnalysis>();
+        final Set<String> failedTestClasses = new HashSet<String>();
+
+        State(List<String> configuration) {
+            this.configuration = configuration;
+        }
+
+        void write(Encoder encoder) throws IOException {
+            encoder.writeSmallInt(configuration.size());
+            for (String value : configuration) {
+                encoder.writeString(value);
+            }
+            writeMap(encoder, files);
+            encoder.writeSmallInt(classes.size());
+            for (Map.Entry<String, String> entry : classes.entrySet()) {
+                encoder.writeString(entry.getKey());
+                encoder.writeString(entry.getValue());
+                ClassAnalysis analysis = analyses.get(entry.getKey());
+                encoder.writeBoolean(analysis.isDependencyToAll());
+                encoder.writeSmallInt(analysis.getClassDependencies().size());
+                for (String dependency : analysis.getClassDependencies()) {
+                    encoder.writeString(dependency);
+                }
+            }
+            encoder.writeSmallInt(failedTestClasses.size());
+            for (String className : failedTestClasses) {
+                encoder.writeString(className);
+            }
+        }
+
+        static State read(Decoder decoder) throws IOException {
+            int configurationSize = decoder.readSmallInt();
+            List<String> configuration = new ArrayList<String>(configurationSize);
+            for (int i = 0; i < configurationSize; i++) {
+                configuration.add(decoder.readString());
+            }
+            State state = new State(configuration);
+            readMap(decoder, state.files);
+            int classCount = decoder.readSmallInt();
+            for (int i = 0; i < classCount; i++) {
+                String className = decoder.readString();
+                state.classes.put(className, decoder.readString());
+                boolean dependencyToAll = decoder.readBoolean();
+                int dependencyCount = decoder.readSmallInt();
+                Set<String> dependencies = new LinkedHashSet<String>(dependencyCount);
+                for (int j = 0; j < dependencyCount; j++) {
+                    dependencies.add(decoder.readString());
+                }
+                state.analyses.put(className, new ClassAnalysis(dependencies, dependencyToAll));
+            }
+            int failedCount = decoder.readSmallInt();
+            for (int i = 0; i < failedCount; i++) {
+                state.failedTestClasses.add(decoder.readString());
+            }
+            return state;
+        }
+
+        private static void writeMap(Encoder encoder, Map<String, String> map) throws IOException {
+            encoder.writeSmallInt(map.size());
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                encoder.writeString(entry.getKey());
+                encoder.writeString(entry.getValue());
+            }
+        }
+
+        private static void readMap(Decoder decoder, Map<String, String> map) throws IOException {
+            int size = decoder.readSmallInt();
+            for (int i = 0; i < size; i++) {
+                map.put(decoder.readString(), decoder.readString());
+            }
+        }
+    }
+}
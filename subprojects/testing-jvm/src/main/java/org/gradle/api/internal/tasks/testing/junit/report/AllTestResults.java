@@ -16,6 +16,7 @@
 package org.gradle.api.internal.tasks.testing.junit.report;
 
 import org.apache.commons.lang.StringUtils;
+import org.gradle.api.tasks.testing.TestResult.ResultType;
 
 import java.util.*;
 
@@ -52,6 +53,27 @@ public class AllTestResults extends CompositeTestResults {
         return addPackageForClass(className).addClass(classId, className);
     }
 
+    /**
+     * Adds the totals of the given class to this model. Only the failed and ignored tests of the class are kept, without the details of their failures,
+     * so that the overview and package pages can link to them.
+     */
+    public ClassTestResults addTestClassSummary(ClassTestResults classResults) {
+        long classId = classResults.getId();
+        String className = classResults.getName();
+        ClassTestResults summary = addTestClass(classId, className);
+        for (TestResult test : classResults.getTestResults()) {
+            if (test.isIgnored()) {
+                addTest(classId, className, test.getName(), test.getDuration()).setIgnored();
+            } else if (test.getResultType() == ResultType.FAILURE) {
+                addTest(classId, className, test.getName(), test.getDuration()).setFailed();
+            } else {
+                addPackageForClass(className).countTest(classId, className, test.getDuration());
+                countTest(test.getDuration());
+            }
+        }
+        return summary;
+    }
+
     private PackageTestResults addPackageForClass(String className) {
         String packageName = StringUtils.substringBeforeLast(className, ".");
         if (packageName.equals(className)) {
@@ -150,8 +150,15 @@ public abstract class CompositeTestResults extends TestResultModel {
     }
 
     protected TestResult addTest(TestResult test) {
-        tests++;
-        duration += test.getDuration();
+        countTest(test.getDuration());
         return test;
     }
+
+    /**
+     * Counts a test towards the totals, without keeping its result.
+     */
+    protected void countTest(long testDuration) {
+        tests++;
+        duration += testDuration;
+    }
 }
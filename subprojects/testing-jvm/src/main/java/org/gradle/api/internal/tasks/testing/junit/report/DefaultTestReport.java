@@ -18,11 +18,13 @@ package org.gradle.api.internal.tasks.testing.junit.report;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassResultVisitor;
 import org.gradle.api.internal.tasks.testing.junit.result.TestFailure;
 import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.operations.BuildOperationProcessor;
 import org.gradle.reporting.HtmlReportBuilder;
 import org.gradle.reporting.HtmlReportRenderer;
 import org.gradle.reporting.ReportRenderer;
@@ -34,56 +36,66 @@ import java.util.List;
 
 import static org.gradle.api.tasks.testing.TestResult.ResultType.SKIPPED;
 
+/**
+ * Generates the HTML test report. The results of each test class are read from the {@link TestResultsProvider} one at a time, and the page for the class
+ * is rendered as soon as its results have been read. The overview and package pages are rendered afterwards from the totals of each class.
+ */
 public class DefaultTestReport implements TestReporter {
     private final static Logger LOG = Logging.getLogger(DefaultTestReport.class);
 
+    private final TestClassResultVisitor classVisitor;
+
+    public DefaultTestReport() {
+        this(null);
+    }
+
+    /**
+     * @param buildOperationProcessor used to render the class pages in parallel, or null to render all pages on the calling thread.
+     */
+    public DefaultTestReport(BuildOperationProcessor buildOperationProcessor) {
+        this.classVisitor = new TestClassResultVisitor(buildOperationProcessor);
+    }
+
     @Override
     public void generateReport(TestResultsProvider resultsProvider, File reportDir) {
         LOG.info("Generating HTML test report...");
 
         Clock clock = new Clock();
-        AllTestResults model = loadModelFromProvider(resultsProvider);
-        generateFiles(model, resultsProvider, reportDir);
+        generateFiles(resultsProvider, reportDir);
         LOG.info("Finished generating test html results ({}) into: {}", clock.getTime(), reportDir);
     }
 
-    private AllTestResults loadModelFromProvider(TestResultsProvider resultsProvider) {
-        final AllTestResults model = new AllTestResults();
-        resultsProvider.visitClasses(new Action<TestClassResult>() {
-            public void execute(TestClassResult classResult) {
-                model.addTestClass(classResult.getId(), classResult.getClassName());
-                List<TestMethodResult> collectedResults = classResult.getResults();
-                for (TestMethodResult collectedResult : collectedResults) {
-                    final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), collectedResult.getName(), collectedResult.getDuration());
-                    if (collectedResult.getResultType() == SKIPPED) {
-                        testResult.setIgnored();
-                    } else {
-                        List<TestFailure> failures = collectedResult.getFailures();
-                        for (TestFailure failure : failures) {
-                            testResult.addFailure(failure);
-                        }
-                    }
+    private static ClassTestResults loadClassModel(TestClassResult classResult) {
+        // Each class gets a model of its own, which can be discarded once the page for the class has been rendered
+        AllTestResults model = new AllTestResults();
+        ClassTestResults classResults = model.addTestClass(classResult.getId(), classResult.getClassName());
+        List<TestMethodResult> collectedResults = classResult.getResults();
+        for (TestMethodResult collectedResult : collectedResults) {
+            final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), collectedResult.getName(), collectedResult.getDuration());
+            if (collectedResult.getResultType() == SKIPPED) {
+                testResult.setIgnored();
+            } else {
+                List<TestFailure> failures = collectedResult.getFailures();
+                for (TestFailure failure : failures) {
+                    testResult.addFailure(failure);
                 }
             }
-        });
-        return model;
+        }
+        return classResults;
     }
 
-    private void generateFiles(AllTestResults model, final TestResultsProvider resultsProvider, File reportDir) {
+    private void generateFiles(final TestResultsProvider resultsProvider, File reportDir) {
         try {
             HtmlReportRenderer htmlRenderer = new HtmlReportRenderer();
-            htmlRenderer.render(model, new ReportRenderer<AllTestResults, HtmlReportBuilder>() {
+            htmlRenderer.render(resultsProvider, new ReportRenderer<TestResultsProvider, HtmlReportBuilder>() {
                 @Override
-                public void render(AllTestResults model, HtmlReportBuilder output) throws IOException {
-                    PackagePageRenderer packagePageRenderer = new PackagePageRenderer();
-                    ClassPageRenderer classPageRenderer = new ClassPageRenderer(resultsProvider);
+                public void render(TestResultsProvider resultsProvider, HtmlReportBuilder output) throws IOException {
+                    AllTestResults model = renderClassPages(resultsProvider, output);
 
+                    PackagePageRenderer packagePageRenderer = new PackagePageRenderer();
                     output.renderHtmlPage("index.html", model, new OverviewPageRenderer());
                     for (PackageTestResults packageResults : model.getPackages()) {
                         output.renderHtmlPage(packageResults.getBaseUrl(), packageResults, packagePageRenderer);
-                        for (ClassTestResults classResults : packageResults.getClasses()) {
-                            output.renderHtmlPage(classResults.getBaseUrl(), classResults, classPageRenderer);
-                        }
                     }
                 }
             }, reportDir);
@@ -91,4 +103,21 @@ public class DefaultTestReport implements TestReporter {
             throw new GradleException(String.format("Could not generate test report to '%s'.", reportDir), e);
         }
     }
+
+    /**
+     * Renders the page for each test class, and returns the totals of all classes.
+     */
+    private AllTestResults renderClassPages(final TestResultsProvider resultsProvider, final HtmlReportBuilder output) {
+        final AllTestResults model = new AllTestResults();
+        classVisitor.visitClasses(resultsProvider, "test report renderer", "render test report page", new Action<TestClassResult>() {
+            public void execute(TestClassResult classResult) {
+                ClassTestResults classResults = loadClassModel(classResult);
+                output.renderHtmlPage(classResults.getBaseUrl(), classResults, new ClassPageRenderer(resultsProvider));
+                synchronized (model) {
+                    model.addTestClassSummary(classResults);
+                }
+            }
+        });
+        return model;
+    }
 }
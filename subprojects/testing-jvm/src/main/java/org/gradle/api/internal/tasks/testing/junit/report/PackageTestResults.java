@@ -55,6 +55,11 @@ public class PackageTestResults extends CompositeTestResults {
         return addTest(classResults.addTest(testName, duration));
     }
 
+    void countTest(long classId, String className, long duration) {
+        addClass(classId, className).countTest(duration);
+        countTest(duration);
+    }
+
     public ClassTestResults addClass(long classId, String className) {
         ClassTestResults classResults = classes.get(className);
         if (classResults == null) {
@@ -22,6 +22,7 @@ import org.gradle.api.GradleException;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.internal.FileUtils;
+import org.gradle.internal.operations.BuildOperationProcessor;
 import org.gradle.util.Clock;
 
 import java.io.File;
@@ -31,38 +32,50 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 
 public class Binary2JUnitXmlReportGenerator {
-
     private final File testResultsDir;
     private final TestResultsProvider testResultsProvider;
+    private final TestClassResultVisitor classVisitor;
     private JUnitXmlResultWriter xmlWriter;
     private final static Logger LOG = Logging.getLogger(Binary2JUnitXmlReportGenerator.class);
 
     public Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation) {
+        this(testResultsDir, testResultsProvider, outputAssociation, null);
+    }
+
+    /**
+     * @param buildOperationProcessor used to write the files of different test classes in parallel, or null to write all files on the calling thread.
+     */
+    public Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation, BuildOperationProcessor buildOperationProcessor) {
         this.testResultsDir = testResultsDir;
         this.testResultsProvider = testResultsProvider;
+        this.classVisitor = new TestClassResultVisitor(buildOperationProcessor);
         this.xmlWriter = new JUnitXmlResultWriter(getHostname(), testResultsProvider, outputAssociation);
     }
 
     public void generate() {
         Clock clock = new Clock();
-        testResultsProvider.visitClasses(new Action<TestClassResult>() {
+        classVisitor.visitClasses(testResultsProvider, "JUnit XML writer", "write XML test results", new Action<TestClassResult>() {
             public void execute(TestClassResult result) {
-                File file = new File(testResultsDir, getReportFileName(result));
-                OutputStream output = null;
-                try {
-                    output = new FileOutputStream(file);
-                    xmlWriter.write(result, output);
-                    output.close();
-                } catch (Exception e) {
-                    throw new GradleException(String.format("Could not write XML test results for %s to file %s.", result.getClassName(), file), e);
-                } finally {
-                    IOUtils.closeQuietly(output);
-                }
+                writeFile(result);
             }
         });
         LOG.info("Finished generating test XML results ({}) into: {}", clock.getTime(), testResultsDir);
     }
 
+    private void writeFile(TestClassResult result) {
+        File file = new File(testResultsDir, getReportFileName(result));
+        OutputStream output = null;
+        try {
+            output = new FileOutputStream(file);
+            xmlWriter.write(result, output);
+            output.close();
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not write XML test results for %s to file %s.", result.getClassName(), file), e);
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+    }
+
     private String getReportFileName(TestClassResult result) {
         return "TEST-" + FileUtils.toSafeFileName(result.getClassName()) + ".xml";
     }
@@ -74,4 +87,4 @@ public class Binary2JUnitXmlReportGenerator {
             return "localhost";
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import org.gradle.api.Action;
+import org.gradle.api.Nullable;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Visits the test classes of a {@link TestResultsProvider} and processes each class, in parallel when a {@link BuildOperationProcessor} is available.
+ *
+ * <p>The classes are read by the calling thread. As the queue of build operations is not bounded, reading stops while too many classes are waiting to be
+ * processed, so that the results of all classes are not held in memory at once.</p>
+ */
+public class TestClassResultVisitor {
+    private static final int MAX_PENDING_CLASSES = 256;
+
+    private final BuildOperationProcessor buildOperationProcessor;
+    private final int maxPendingClasses;
+
+    /**
+     * @param buildOperationProcessor used to process the classes in parallel, or null to process all classes on the calling thread.
+     */
+    public TestClassResultVisitor(@Nullable BuildOperationProcessor buildOperationProcessor) {
+        this(buildOperationProcessor, MAX_PENDING_CLASSES);
+    }
+
+    TestClassResultVisitor(@Nullable BuildOperationProcessor buildOperationProcessor, int maxPendingClasses) {
+        this.buildOperationProcessor = buildOperationProcessor;
+        this.maxPendingClasses = maxPendingClasses;
+    }
+
+    /**
+     * Passes each test class of the given provider to the given action, and returns once all classes have been processed. The action may be called
+     * concurrently from multiple threads.
+     *
+     * @param workerDisplayName The display name of the worker that processes the classes.
+     * @param operationDescription Describes what happens to each class, used in the description of the build operation for the class.
+     */
+    public void visitClasses(TestResultsProvider resultsProvider, String workerDisplayName, String operationDescription, Action<? super TestClassResult> action) {
+        if (buildOperationProcessor == null) {
+            resultsProvider.visitClasses(action);
+        } else {
+            visitClassesInParallel(resultsProvider, workerDisplayName, operationDescription, action);
+        }
+    }
+
+    private void visitClassesInParallel(final TestResultsProvider resultsProvider, String workerDisplayName, final String operationDescription, Action<? super TestClassResult> action) {
+        final Semaphore pendingClasses = new Semaphore(maxPendingClasses);
+        buildOperationProcessor.run(new ProcessClassWorker(workerDisplayName, action, pendingClasses), new Action<BuildOperationQueue<ProcessClassOperation>>() {
+            public void execute(final BuildOperationQueue<ProcessClassOperation> queue) {
+                resultsProvider.visitClasses(new Action<TestClassResult>() {
+                    public void execute(TestClassResult classResult) {
+                        pendingClasses.acquireUninterruptibly();
+                        try {
+                            queue.add(new ProcessClassOperation(classResult, operationDescription));
+                        } catch (RuntimeException e) {
+                            pendingClasses.release();
+                            throw e;
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private static class ProcessClassOperation implements BuildOperation {
+        private final TestClassResult classResult;
+        private final String description;
+
+        ProcessClassOperation(TestClassResult classResult, String description) {
+            this.classResult = classResult;
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description + " for " + classResult.getClassName();
+        }
+    }
+
+    private static class ProcessClassWorker implements BuildOperationWorker<ProcessClassOperation> {
+        private final String displayName;
+        private final Action<? super TestClassResult> action;
+        private final Semaphore pendingClasses;
+
+        ProcessClassWorker(String displayName, Action<? super TestClassResult> action, Semaphore pendingClasses) {
+            this.displayName = displayName;
+            this.action = action;
+            this.pendingClasses = pendingClasses;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public void execute(ProcessClassOperation operation) {
+            try {
+                action.execute(operation.classResult);
+            } finally {
+                pendingClasses.release();
+            }
+        }
+    }
+}
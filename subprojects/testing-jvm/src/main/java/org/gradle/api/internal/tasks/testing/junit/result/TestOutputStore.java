@@ -21,12 +21,13 @@ import com.esotericsoftware.kryo.io.Output;
 import com.google.common.collect.ImmutableMap;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.tasks.testing.TestOutputEvent;
-import org.gradle.internal.io.RandomAccessFileInputStream;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -217,6 +218,9 @@ public class TestOutputStore {
         }
     }
 
+    /**
+     * Reads the output of tests. The output of different classes can be read concurrently by multiple threads.
+     */
     public class Reader implements Closeable {
         private final Index index;
         private final RandomAccessFile dataFile;
@@ -335,9 +339,8 @@ public class TestOutputStore {
             boolean ignoreTestLevel = !allClassOutput && testId == 0;
 
             try {
-                dataFile.seek(region.start);
                 long maxPos = region.stop - region.start;
-                KryoBackedDecoder decoder = new KryoBackedDecoder(new RandomAccessFileInputStream(dataFile));
+                KryoBackedDecoder decoder = new KryoBackedDecoder(new FileChannelInputStream(dataFile.getChannel(), region.start));
                 while (decoder.getReadPosition() <= maxPos) {
                     boolean readStdout = decoder.readBoolean();
                     long readClassId = decoder.readSmallLong();
@@ -383,6 +386,41 @@ public class TestOutputStore {
         }
     }
 
+    /**
+     * Reads from a file channel starting at a given position. Uses positional reads, which do not change the position of the channel, so that several streams can read from the same channel at the same time.
+     */
+    private static class FileChannelInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+
+        FileChannelInputStream(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] buffer = new byte[1];
+            int read = read(buffer, 0, 1);
+            return read < 0 ? -1 : buffer[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = channel.read(ByteBuffer.wrap(bytes, offset, length), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            position += n;
+            return n;
+        }
+    }
+
     // IMPORTANT: return must be closed when done with.
     public Reader reader() {
         return new Reader();
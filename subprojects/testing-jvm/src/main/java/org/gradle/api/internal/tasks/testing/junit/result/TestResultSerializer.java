@@ -28,6 +28,8 @@ import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
 import java.io.*;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 public class TestResultSerializer {
     private static final int RESULT_VERSION = 3;
@@ -108,6 +110,19 @@ public class TestResultSerializer {
         }
     }
 
+    /**
+     * Returns the duration of each test class, by class name.
+     */
+    public Map<String, Long> readClassDurations() {
+        final Map<String, Long> durations = new HashMap<String, Long>();
+        read(new Action<TestClassResult>() {
+            public void execute(TestClassResult classResult) {
+                durations.put(classResult.getClassName(), classResult.getDuration());
+            }
+        });
+        return durations;
+    }
+
     public boolean isHasResults() {
         return resultsFile.exists() && resultsFile.length() > 0;
     }
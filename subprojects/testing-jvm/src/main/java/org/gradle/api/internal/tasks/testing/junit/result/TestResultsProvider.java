@@ -24,9 +24,9 @@ import java.io.Writer;
 
 public interface TestResultsProvider extends Closeable {
     /**
-     * Writes the output of the given test to the given writer. This method must be called only after {@link #visitClasses(org.gradle.api.Action)}.
+     * Writes the output of the given test to the given writer. This method must be called only after the test class has been visited by {@link #visitClasses(org.gradle.api.Action)}.
      *
-     * Writes all output for the test class.
+     * Writes all output for the test class. The output of different test classes may be written concurrently.
      */
     void writeAllOutput(long id, TestOutputEvent.Destination destination, Writer writer);
 
@@ -22,6 +22,8 @@ import org.gradle.api.GradleException;
 import org.gradle.api.Incubating;
 import org.gradle.api.file.*;
 import org.gradle.api.internal.ConventionTask;
+import org.gradle.api.internal.changedetection.state.FileSnapshotter;
+import org.gradle.api.internal.changedetection.state.TaskArtifactStateCacheAccess;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.internal.file.FileTreeElementComparator;
 import org.gradle.api.internal.file.FileTreeElementHasher;
@@ -34,6 +36,8 @@ import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.detection.DefaultTestExecuter;
 import org.gradle.api.internal.tasks.testing.detection.TestExecuter;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
+import org.gradle.api.internal.tasks.testing.impact.SkippedTestClassResults;
+import org.gradle.api.internal.tasks.testing.impact.TestImpactAnalysis;
 import org.gradle.api.internal.tasks.testing.junit.JUnitTestFramework;
 import org.gradle.api.internal.tasks.testing.junit.report.DefaultTestReport;
 import org.gradle.api.internal.tasks.testing.junit.report.TestReporter;
@@ -43,11 +47,13 @@ import org.gradle.api.internal.tasks.testing.results.StateTrackingTestResultProc
 import org.gradle.api.internal.tasks.testing.results.TestListenerAdapter;
 import org.gradle.api.internal.tasks.testing.results.TestListenerInternal;
 import org.gradle.api.internal.tasks.testing.testng.TestNGTestFramework;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
 import org.gradle.api.logging.LogLevel;
 import org.gradle.api.reporting.DirectoryReport;
 import org.gradle.api.reporting.Reporting;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.*;
+import org.gradle.api.tasks.testing.junit.JUnitOptions;
 import org.gradle.api.tasks.testing.logging.TestLogging;
 import org.gradle.api.tasks.testing.logging.TestLoggingContainer;
 import org.gradle.api.tasks.util.PatternFilterable;
@@ -55,6 +61,7 @@ import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.event.ListenerBroadcast;
 import org.gradle.internal.event.ListenerManager;
+import org.gradle.internal.operations.BuildOperationProcessor;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.listener.ClosureBackedMethodInvocationDispatch;
 import org.gradle.logging.ConsoleRenderer;
@@ -189,11 +196,31 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         throw new UnsupportedOperationException();
     }
 
+    @Inject
+    protected TestWorkerPool getTestWorkerPool() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Inject
+    protected BuildOperationProcessor getBuildOperationProcessor() {
+        throw new UnsupportedOperationException();
+    }
+
     @Inject
     protected FileResolver getFileResolver() {
         throw new UnsupportedOperationException();
     }
 
+    @Inject
+    protected FileSnapshotter getFileSnapshotter() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Inject
+    protected TaskArtifactStateCacheAccess getTaskArtifactStateCacheAccess() {
+        throw new UnsupportedOperationException();
+    }
+
     @Inject
     protected StyledTextOutputFactory getTextOutputFactory() {
         throw new UnsupportedOperationException();
@@ -538,6 +565,17 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         }
 
         File binaryResultsDir = getBinResultsDir();
+        Map<String, Long> previousClassDurations = readPreviousClassDurations(binaryResultsDir);
+        TestImpactAnalysis testImpactAnalysis = analyzeTestImpact(binaryResultsDir);
+        File previousResultsDir = null;
+        if (testImpactAnalysis != null) {
+            // Keep the results of the previous execution, to carry over those of the test classes that are not executed
+            previousResultsDir = new File(getTemporaryDir(), "previous-results");
+            getProject().delete(previousResultsDir);
+            if (!binaryResultsDir.renameTo(previousResultsDir)) {
+                previousResultsDir = null;
+            }
+        }
         getProject().delete(binaryResultsDir);
         getProject().mkdir(binaryResultsDir);
 
@@ -558,11 +596,15 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         TestResultProcessor resultProcessor = new StateTrackingTestResultProcessor(testListenerInternalBroadcaster.getSource());
 
         if (testExecuter == null) {
-            testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory());
+            testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory(), previousClassDurations, getTestWorkerPool(), testImpactAnalysis);
         }
 
+        int carriedOverClassCount = 0;
         try {
             testExecuter.execute(this, resultProcessor);
+            if (testImpactAnalysis != null && previousResultsDir != null) {
+                carriedOverClassCount = new SkippedTestClassResults(previousResultsDir).addTo(testImpactAnalysis.getSkippedClasses(), results, outputWriter);
+            }
         } finally {
             testExecuter = null;
             testListenerBroadcaster.removeAll();
@@ -572,12 +614,26 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         }
 
         new TestResultSerializer(binaryResultsDir).write(results.values());
+        if (testImpactAnalysis != null) {
+            testImpactAnalysis.store(getFailedTestClasses(results.values()));
+            int skippedClassCount = testImpactAnalysis.getSkippedClassCount();
+            if (skippedClassCount > 0) {
+                getLogger().lifecycle("Skipped {} test classes that passed in the previous execution and are not affected by the changes since. The results of {} of them were carried over from the previous execution into the test reports.",
+                    skippedClassCount, carriedOverClassCount);
+                if (carriedOverClassCount < skippedClassCount) {
+                    getLogger().lifecycle("The previous results of the other {} skipped test classes are not available and are not included in the test reports.", skippedClassCount - carriedOverClassCount);
+                }
+            }
+            if (previousResultsDir != null) {
+                getProject().delete(previousResultsDir);
+            }
+        }
 
         TestResultsProvider testResultsProvider = new InMemoryTestResultsProvider(results.values(), testOutputStore.reader());
 
         try {
             if (testReporter == null) {
-                testReporter = new DefaultTestReport();
+                testReporter = new DefaultTestReport(getBuildOperationProcessor());
             }
 
             JUnitXmlReport junitXml = reports.getJunitXml();
@@ -585,7 +641,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
                 TestOutputAssociation outputAssociation = junitXml.isOutputPerTestCase()
                         ? TestOutputAssociation.WITH_TESTCASE
                         : TestOutputAssociation.WITH_SUITE;
-                Binary2JUnitXmlReportGenerator binary2JUnitXmlReportGenerator = new Binary2JUnitXmlReportGenerator(junitXml.getDestination(), testResultsProvider, outputAssociation);
+                Binary2JUnitXmlReportGenerator binary2JUnitXmlReportGenerator = new Binary2JUnitXmlReportGenerator(junitXml.getDestination(), testResultsProvider, outputAssociation, getBuildOperationProcessor());
                 binary2JUnitXmlReportGenerator.generate();
             }
 
@@ -606,6 +662,64 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         }
     }
 
+    private TestImpactAnalysis analyzeTestImpact(File binaryResultsDir) {
+        if (!TestImpactAnalysis.isEnabled() || !(getTestFramework() instanceof JUnitTestFramework)) {
+            return null;
+        }
+        final TestImpactAnalysis testImpactAnalysis = new TestImpactAnalysis(new File(binaryResultsDir, "impact.bin"), getFileSnapshotter());
+        final List<String> configuration = getTestImpactConfiguration();
+        try {
+            getTaskArtifactStateCacheAccess().useCache("Analyze test impact", new Runnable() {
+                @Override
+                public void run() {
+                    testImpactAnalysis.analyze(getClasspath(), configuration);
+                }
+            });
+        } catch (Exception e) {
+            getLogger().info("Could not analyze the classes affected by changes, executing all test classes.", e);
+            return null;
+        }
+        return testImpactAnalysis;
+    }
+
+    private List<String> getTestImpactConfiguration() {
+        List<String> configuration = new ArrayList<String>();
+        configuration.add(String.valueOf(getExecutable()));
+        configuration.add(String.valueOf(getWorkingDir()));
+        configuration.add(new TreeMap<String, Object>(getEnvironment()).toString());
+        configuration.addAll(getAllJvmArgs());
+        configuration.add(String.valueOf(getTestClassesDir()));
+        configuration.add(new TreeSet<String>(getIncludes()).toString());
+        configuration.add(new TreeSet<String>(getExcludes()).toString());
+        configuration.add(new TreeSet<String>(getFilter().getIncludePatterns()).toString());
+        JUnitOptions options = ((JUnitTestFramework) getTestFramework()).getOptions();
+        configuration.add(new TreeSet<String>(options.getIncludeCategories()).toString());
+        configuration.add(new TreeSet<String>(options.getExcludeCategories()).toString());
+        return configuration;
+    }
+
+    private static List<String> getFailedTestClasses(Collection<TestClassResult> results) {
+        List<String> failedTestClasses = new ArrayList<String>();
+        for (TestClassResult result : results) {
+            if (result.getFailuresCount() > 0) {
+                failedTestClasses.add(result.getClassName());
+            }
+        }
+        return failedTestClasses;
+    }
+
+    private Map<String, Long> readPreviousClassDurations(File binaryResultsDir) {
+        if (!DefaultTestExecuter.isDurationBalanced(this)) {
+            return Collections.emptyMap();
+        }
+        try {
+            return new TestResultSerializer(binaryResultsDir).readClassDurations();
+        } catch (Exception e) {
+            getLogger().info("Could not read the test class durations of the previous execution from {}.", binaryResultsDir, e);
+            return Collections.emptyMap();
+        }
+    }
+
     /**
      * Registers a test listener with this task. Consider also the following handy methods for quicker hooking into test execution: {@link #beforeTest(groovy.lang.Closure)}, {@link
      * #afterTest(groovy.lang.Closure)}, {@link #beforeSuite(groovy.lang.Closure)}, {@link #afterSuite(groovy.lang.Closure)} <p> This listener will NOT be notified of tests executed by other tasks. To
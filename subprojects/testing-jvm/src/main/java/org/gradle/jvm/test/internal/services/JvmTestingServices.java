@@ -16,6 +16,7 @@
 
 package org.gradle.jvm.test.internal.services;
 
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.scopes.PluginServiceRegistry;
 import org.gradle.jvm.test.internal.JUnitTestSuiteBinaryRenderer;
@@ -24,6 +25,7 @@ public class JvmTestingServices implements PluginServiceRegistry {
     @Override
     public void registerGlobalServices(ServiceRegistration registration) {
         registration.add(JUnitTestSuiteBinaryRenderer.class);
+        registration.add(TestWorkerPool.class);
     }
 
     @Override
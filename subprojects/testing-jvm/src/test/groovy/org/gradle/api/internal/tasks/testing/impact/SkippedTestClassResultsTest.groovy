@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.impact
+
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult
+import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult
+import org.gradle.api.internal.tasks.testing.junit.result.TestOutputStore
+import org.gradle.api.internal.tasks.testing.junit.result.TestResultSerializer
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import static org.gradle.api.tasks.testing.TestOutputEvent.Destination.StdErr
+import static org.gradle.api.tasks.testing.TestOutputEvent.Destination.StdOut
+import static org.gradle.api.tasks.testing.TestResult.ResultType.SUCCESS
+
+class SkippedTestClassResultsTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def previousDir = tmpDir.createDir("previous")
+    def currentDir = tmpDir.createDir("current")
+
+    def setup() {
+        def writer = new TestOutputStore(previousDir).writer()
+        writer.onOutput(1, new DefaultTestOutputEvent(StdOut, "[class-out]"))
+        writer.onOutput(1, 2, new DefaultTestOutputEvent(StdErr, "[test-err]"))
+        writer.onOutput(3, 4, new DefaultTestOutputEvent(StdOut, "[other-out]"))
+        writer.close()
+        new TestResultSerializer(previousDir).write([
+            new TestClassResult(1, "SkippedTest", 100).add(new TestMethodResult(2, "test", SUCCESS, 10, 110)),
+            new TestClassResult(3, "ExecutedTest", 100).add(new TestMethodResult(4, "test", SUCCESS, 10, 110))
+        ])
+    }
+
+    def "adds previous results and output of skipped test classes"() {
+        def executed = new TestClassResult(1, "ExecutedTest", 200).add(new TestMethodResult(2, "test", SUCCESS, 5, 205))
+        def results = [ExecutedTest: executed]
+
+        when:
+        def writer = new TestOutputStore(currentDir).writer()
+        def added = new SkippedTestClassResults(previousDir).addTo(["SkippedTest", "UnknownTest"] as Set, results, writer)
+        writer.close()
+
+        then:
+        added == 1
+        results.size() == 2
+        results.ExecutedTest.is(executed)
+
+        def skipped = results.SkippedTest
+        skipped.id == 3
+        skipped.startTime == 100
+        skipped.results*.name == ["test"]
+        skipped.results*.resultType == [SUCCESS]
+
+        and:
+        def reader = new TestOutputStore(currentDir).reader()
+        output { reader.writeNonTestOutput(3, StdOut, it) } == "[class-out]"
+        output { reader.writeTestOutput(3, 2, StdErr, it) } == "[test-err]"
+        output { reader.writeAllOutput(1, StdOut, it) } == ""
+
+        cleanup:
+        reader?.close()
+    }
+
+    def "copies output one event at a time"() {
+        given:
+        def dir = tmpDir.createDir("chunked")
+        def previousWriter = new TestOutputStore(dir).writer()
+        previousWriter.onOutput(1, new DefaultTestOutputEvent(StdOut, "[class-1]"))
+        previousWriter.onOutput(1, 2, new DefaultTestOutputEvent(StdOut, "[test-1]"))
+        previousWriter.onOutput(1, new DefaultTestOutputEvent(StdOut, "[class-2]"))
+        previousWriter.onOutput(1, 2, new DefaultTestOutputEvent(StdOut, "[test-2]"))
+        previousWriter.onOutput(1, 2, new DefaultTestOutputEvent(StdOut, "[test-3]"))
+        previousWriter.close()
+        new TestResultSerializer(dir).write([new TestClassResult(1, "SkippedTest", 100).add(new TestMethodResult(2, "test", SUCCESS, 10, 110))])
+        def writer = Mock(TestOutputStore.Writer)
+
+        when:
+        new SkippedTestClassResults(dir).addTo(["SkippedTest"] as Set, [:], writer)
+
+        then:
+        1 * writer.onOutput(1, 0, { it.destination == StdOut && it.message == "[class-1]" })
+
+        then:
+        1 * writer.onOutput(1, 0, { it.destination == StdOut && it.message == "[class-2]" })
+
+        then:
+        1 * writer.onOutput(1, 2, { it.destination == StdOut && it.message == "[test-1]" })
+
+        then:
+        1 * writer.onOutput(1, 2, { it.destination == StdOut && it.message == "[test-2]" })
+
+        then:
+        1 * writer.onOutput(1, 2, { it.destination == StdOut && it.message == "[test-3]" })
+        0 * writer._
+    }
+
+    def "adds nothing when there are no previous results"() {
+        def results = [:]
+
+        expect:
+        new SkippedTestClassResults(tmpDir.createDir("empty")).addTo(["SkippedTest"] as Set, results, null) == 0
+        results.isEmpty()
+    }
+
+    private static String output(Closure action) {
+        def writer = new StringWriter()
+        action(writer)
+        return writer.toString()
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.impact
+
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.changedetection.state.CachingFileSnapshotter
+import org.gradle.api.internal.hash.DefaultHasher
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.cache.internal.MapBackedInMemoryStore
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import spock.lang.Specification
+
+class TestImpactAnalysisTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    TestFile mainDir
+    TestFile testDir
+    TestFile jar
+    TestFile stateFile
+    def fileSnapshotter = new CachingFileSnapshotter(new DefaultHasher(), new MapBackedInMemoryStore(), new StringInterner())
+
+    def setup() {
+        mainDir = tmpDir.createDir("main")
+        testDir = tmpDir.createDir("test")
+        jar = tmpDir.file("lib.jar").createFile()
+        stateFile = tmpDir.file("impact.bin")
+        writeClass(mainDir, "Prod")
+        writeClass(mainDir, "Other")
+        writeClass(mainDir, "Constants", "java/lang/Object", ["VALUE"], true)
+        writeClass(testDir, "ProdTest", "Prod")
+        writeClass(testDir, "OtherTest", "Other")
+    }
+
+    def "executes all test classes when there is no previous state"() {
+        expect:
+        execute() == ["ProdTest", "OtherTest"] as Set
+    }
+
+    def "executes no test classes when nothing has changed"() {
+        given:
+        execute()
+
+        expect:
+        execute() == [] as Set
+    }
+
+    def "executes test classes that depend on changed classes"() {
+        given:
+        execute()
+
+        when:
+        writeClass(mainDir, "Prod", "java/lang/Object", ["changed"])
+
+        then:
+        execute() == ["ProdTest"] as Set
+        execute() == [] as Set
+    }
+
+    def "counts the test classes that are not executed"() {
+        given:
+        execute()
+        writeClass(mainDir, "Prod", "java/lang/Object", ["changed"])
+        def analysis = new TestImpactAnalysis(stateFile, fileSnapshotter)
+        analysis.analyze([mainDir, testDir, jar], ["config"])
+
+        when:
+        ["ProdTest", "OtherTest"].each { analysis.isSatisfiedBy(testClass(it)) }
+
+        then:
+        analysis.skippedClassCount == 1
+    }
+
+    def "executes changed and removed test classes"() {
+        given:
+        execute()
+
+        when:
+        writeClass(testDir, "OtherTest", "Other", ["changed"])
+
+        then:
+        execute() == ["OtherTest"] as Set
+
+        when:
+        mainDir.file("Other.class").delete()
+
+        then:
+        execute() == ["OtherTest"] as Set
+    }
+
+    def "executes test classes that failed in the previous execution"() {
+        given:
+        execute()
+        writeClass(mainDir, "Other", "java/lang/Object", ["changed"])
+
+        expect:
+        execute(["config"], ["OtherTest"]) == ["OtherTest"] as Set
+        execute(["config"], ["OtherTest"]) == ["OtherTest"] as Set
+        execute() == ["OtherTest"] as Set
+        execute() == [] as Set
+    }
+
+    def "executes all test classes when the configuration has changed"() {
+        given:
+        execute()
+
+        expect:
+        execute(["other config"]) == ["ProdTest", "OtherTest"] as Set
+    }
+
+    def "executes all test classes when a class that declares a constant has changed"() {
+        given:
+        execute()
+
+        when:
+        writeClass(mainDir, "Constants", "java/lang/Object", ["VALUE", "OTHER"], true)
+
+        then:
+        execute() == ["ProdTest", "OtherTest"] as Set
+    }
+
+    def "executes all test classes when a resource or a jar has changed"() {
+        given:
+        execute()
+
+        when:
+        mainDir.file("resource.txt").text = "content"
+
+        then:
+        execute() == ["ProdTest", "OtherTest"] as Set
+
+        when:
+        jar.text = "changed"
+
+        then:
+        execute() == ["ProdTest", "OtherTest"] as Set
+    }
+
+    def "executes all test classes when the previous state cannot be read"() {
+        given:
+        execute()
+        stateFile.text = "broken"
+
+        expect:
+        execute() == ["ProdTest", "OtherTest"] as Set
+    }
+
+    private Set<String> execute(List<String> configuration = ["config"], List<String> failedTestClasses = []) {
+        def analysis = new TestImpactAnalysis(stateFile, fileSnapshotter)
+        analysis.analyze([mainDir, testDir, jar], configuration)
+        def selected = ["ProdTest", "OtherTest"].findAll { analysis.isSatisfiedBy(testClass(it)) } as Set
+        analysis.store(failedTestClasses)
+        return selected
+    }
+
+    private TestClassRunInfo testClass(String name) {
+        return Stub(TestClassRunInfo) {
+            getTestClassName() >> name
+        }
+    }
+
+    private static void writeClass(TestFile dir, String name, String superName = "java/lang/Object", List<String> fields = [], boolean constants = false) {
+        def writer = new ClassWriter(0)
+        writer.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, name, null, superName, null)
+        fields.each { field ->
+            if (constants) {
+                writer.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, field, "I", null, 1).visitEnd()
+            } else {
+                writer.visitField(Opcodes.ACC_PRIVATE, field, "I", null, null).visitEnd()
+            }
+        }
+        writer.visitEnd()
+        dir.file(name + ".class").bytes = writer.toByteArray()
+    }
+}
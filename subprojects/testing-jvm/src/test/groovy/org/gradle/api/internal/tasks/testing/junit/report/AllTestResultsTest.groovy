@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.tasks.testing.junit.report
 
+import org.gradle.api.internal.tasks.testing.junit.result.TestFailure
 import spock.lang.Specification
 
 class AllTestResultsTest extends Specification {
@@ -41,4 +42,30 @@ class AllTestResultsTest extends Specification {
         test.classResults.packageResults.name == 'default-package'
         results.packages.contains(test.classResults.packageResults)
     }
+
+    def addsTotalsOfClass() {
+        given:
+        def classModel = new AllTestResults()
+        classModel.addTest(1, 'org.gradle.Test', 'passed', 90)
+        classModel.addTest(1, 'org.gradle.Test', 'ignored', 10).setIgnored()
+        classModel.addTest(1, 'org.gradle.Test', 'failed', 20).addFailure(new TestFailure('message', 'stack trace', 'type'))
+        def classResults = classModel.packages.first().classes.first()
+
+        when:
+        def summary = results.addTestClassSummary(classResults)
+
+        then:
+        summary.name == 'org.gradle.Test'
+        summary.testCount == 3
+        summary.duration == 120
+        summary.failures*.name == ['failed']
+        summary.failures.first().failures.empty
+        summary.ignored*.name == ['ignored']
+        summary.testResults*.name as Set == ['failed', 'ignored'] as Set
+        results.testCount == 3
+        results.failureCount == 1
+        results.ignoredCount == 1
+        results.duration == 120
+        results.packages.first().testCount == 3
+    }
 }
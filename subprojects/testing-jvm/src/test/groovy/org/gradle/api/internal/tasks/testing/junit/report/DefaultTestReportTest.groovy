@@ -18,6 +18,9 @@ package org.gradle.api.internal.tasks.testing.junit.report
 import org.gradle.api.internal.tasks.testing.BuildableTestResultsProvider
 import org.gradle.api.internal.tasks.testing.junit.result.AggregateTestResultsProvider
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
+import org.gradle.internal.operations.DefaultBuildOperationQueueFactory
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.ConfigureUtil
@@ -477,6 +480,30 @@ class DefaultTestReportTest extends Specification {
         testClassFile.assertHasStandardError('err:\u0102')
     }
 
+    def generatesSameReportWhenClassPagesAreRenderedInParallel() {
+        given:
+        def processor = new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(), new DefaultExecutorFactory(), 4)
+        def parallelReportDir = tmpDir.file('parallel')
+
+        when:
+        report.generateReport(failingBuildResults(), reportDir)
+        new DefaultTestReport(processor).generateReport(failingBuildResults(), parallelReportDir)
+
+        then:
+        def files = reportDir.allDescendants()
+        parallelReportDir.allDescendants() == files
+        files.findAll { it.endsWith('.html') }.each {
+            assert withoutTimestamp(parallelReportDir.file(it)) == withoutTimestamp(reportDir.file(it))
+        }
+
+        cleanup:
+        processor.stop()
+    }
+
+    private static String withoutTimestamp(TestFile file) {
+        file.text.replaceAll(/Gradle \S+<\/a> at .*/, '')
+    }
+
     TestResultsProvider buildResults(Closure closure) {
         ConfigureUtil.configure(closure, new BuildableTestResultsProvider())
     }
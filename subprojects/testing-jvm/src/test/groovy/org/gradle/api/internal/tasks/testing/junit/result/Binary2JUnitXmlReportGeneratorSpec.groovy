@@ -18,6 +18,9 @@ package org.gradle.api.internal.tasks.testing.junit.result
 
 import org.gradle.api.Action
 import org.gradle.api.GradleException
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
+import org.gradle.internal.operations.DefaultBuildOperationQueueFactory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
@@ -54,6 +57,31 @@ class Binary2JUnitXmlReportGeneratorSpec extends Specification {
         0 * generator.xmlWriter._
     }
 
+    def "writes results in parallel"() {
+        def processor = new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(), new DefaultExecutorFactory(), 4)
+        def parallelGenerator = new Binary2JUnitXmlReportGenerator(temp.testDirectory, resultsProvider, TestOutputAssociation.WITH_SUITE, processor)
+        parallelGenerator.xmlWriter = generator.xmlWriter
+
+        def classes = (1..20).collect { new TestClassResult(it, "FooTest$it", 100).add(new TestMethodResult(it, "foo")) }
+
+        resultsProvider.visitClasses(_) >> { Action action ->
+            classes.each { action.execute(it) }
+        }
+
+        when:
+        parallelGenerator.generate()
+
+        then:
+        interaction {
+            classes.each { 1 * generator.xmlWriter.write(it, _) }
+        }
+        0 * generator.xmlWriter._
+        classes.every { temp.testDirectory.file("TEST-${it.className}.xml").file }
+
+        cleanup:
+        processor.stop()
+    }
+
     def "adds context information to the failure if something goes wrong"() {
         def fooTest = new TestClassResult(1, 'FooTest', 100)
                 .add(new TestMethodResult(1, "foo"))
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result
+
+import org.gradle.api.Action
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
+import org.gradle.internal.operations.DefaultBuildOperationQueueFactory
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicInteger
+
+class TestClassResultVisitorTest extends Specification {
+    def classes = (1..50).collect { new TestClassResult(it, "FooTest$it", 100) }
+    def resultsProvider = Stub(TestResultsProvider) {
+        visitClasses(_) >> { Action action -> classes.each { action.execute(it) } }
+    }
+
+    def "processes each class on the calling thread when there is no build operation processor"() {
+        def processed = []
+
+        when:
+        new TestClassResultVisitor(null).visitClasses(resultsProvider, "worker", "process", { processed << it } as Action)
+
+        then:
+        processed == classes
+    }
+
+    def "processes each class in parallel with a bounded number of pending classes"() {
+        def processor = new DefaultBuildOperationProcessor(new DefaultBuildOperationQueueFactory(), new DefaultExecutorFactory(), 4)
+        def processed = new CopyOnWriteArrayList()
+        def read = new AtomicInteger()
+        def maxPending = new AtomicInteger()
+        def countingProvider = Stub(TestResultsProvider) {
+            visitClasses(_) >> { Action action ->
+                classes.each {
+                    action.execute(it)
+                    read.incrementAndGet()
+                }
+            }
+        }
+
+        when:
+        new TestClassResultVisitor(processor, 3).visitClasses(countingProvider, "worker", "process", { TestClassResult result ->
+            synchronized (maxPending) {
+                maxPending.set(Math.max(maxPending.get(), read.get() - processed.size()))
+            }
+            Thread.sleep(2)
+            processed << result
+        } as Action)
+
+        then:
+        processed as Set == classes as Set
+        maxPending.get() <= 3
+
+        cleanup:
+        processor.stop()
+    }
+}